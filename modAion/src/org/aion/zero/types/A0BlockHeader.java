@@ -40,8 +40,8 @@ import org.aion.base.type.IPowBlockHeader;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.Utils;
 import org.aion.crypto.HashUtil;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 import org.aion.mcf.types.AbstractBlockHeader;
 import org.aion.zero.exceptions.HeaderStructureException;
 import org.json.JSONObject;
@@ -82,71 +82,58 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
     }
 
     public A0BlockHeader(byte[] encoded) {
-        this((RLPList) RLP.decode2(encoded).get(0));
+        this(RLPView.wrap(encoded));
     }
 
-    public A0BlockHeader(RLPList rlpHeader) {
+    public A0BlockHeader(RLPView rlpHeader) {
 
         // Version
-        byte[] versionBytes = rlpHeader.get(RPL_BH_VERSION).getRLPData();
-        this.version = versionBytes.length == 1 ? versionBytes[0] : 1;
+        RLPView versionRLP = rlpHeader.get(RPL_BH_VERSION);
+        this.version = versionRLP.length() == 1 ? (byte) versionRLP.asLong() : 1;
 
         // Number
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
-        this.number = nrBytes == null ? 0 : (new BigInteger(1, nrBytes)).longValue();
+        this.number = rlpHeader.get(RPL_BH_NUMBER).asLong();
 
         // ParentHash
-        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).getRLPData();
+        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).bytes();
 
         // CoinBase
-        byte[] data = rlpHeader.get(RPL_BH_COINBASE).getRLPData();
-        this.coinbase = (data == null) ? Address.EMPTY_ADDRESS()
-                : Address.wrap(rlpHeader.get(RPL_BH_COINBASE).getRLPData());
+        this.coinbase = Address.wrap(rlpHeader.get(RPL_BH_COINBASE).bytes());
 
         // StateRoot
-        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).getRLPData();
+        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).bytes();
 
         // TxTrieRoot
-        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
-        if (this.txTrieRoot == null) {
-            this.txTrieRoot = EMPTY_TRIE_HASH;
-        }
+        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).bytes();
 
         // ReceiptTrieRoot
-        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
-        if (this.receiptTrieRoot == null) {
-            this.receiptTrieRoot = EMPTY_TRIE_HASH;
-        }
+        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).bytes();
 
         // LogsBloom
-        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData();
+        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).bytes();
 
         // Difficulty
-        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData();
+        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).bytes();
 
         // ExtraData
-        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).getRLPData();
+        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).bytes();
 
         // Energy Consumed
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
-        this.energyConsumed = energyConsumedBytes == null ? 0 : (new BigInteger(1, energyConsumedBytes).longValue());
+        this.energyConsumed = rlpHeader.get(RPL_BH_NRG_CONSUMED).asLong();
 
         // Energy Limit
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
-        this.energyLimit = energyLimitBytes == null ? 0 : (new BigInteger(1, energyLimitBytes).longValue());
+        this.energyLimit = rlpHeader.get(RPL_BH_NRG_LIMIT).asLong();
 
         // Timestamp
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
-
         // TODO: not a huge concern, but how should we handle possible
         // overflows?
-        this.timestamp = tsBytes == null ? 0 : (new BigInteger(1, tsBytes)).longValue();
+        this.timestamp = rlpHeader.get(RPL_BH_TIMESTAMP).asLong();
 
         // Nonce
-        this.nonce = rlpHeader.get(RPL_BH_NONCE).getRLPData();
+        this.nonce = rlpHeader.get(RPL_BH_NONCE).bytes();
 
         // Solution
-        this.solution = rlpHeader.get(RPL_BH_SOLUTION).getRLPData();
+        this.solution = rlpHeader.get(RPL_BH_SOLUTION).bytes();
     }
 
     /**
@@ -246,41 +233,82 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
     }
 
     public byte[] getEncoded(boolean withNonce) {
+        RLPWriter out = new RLPWriter(getEncodedLength(withNonce));
+        encodeTo(out, withNonce);
+        return out.toByteArray();
+    }
 
-        byte[] versionBytes = {this.version};
-
-        byte[] RLPversion = RLP.encodeElement(versionBytes);
-        byte[] number = RLP.encodeBigInteger(BigInteger.valueOf(this.number));
-        byte[] parentHash = RLP.encodeElement(this.parentHash);
-        byte[] coinbase = RLP.encodeElement(this.coinbase.toBytes());
-        byte[] stateRoot = RLP.encodeElement(this.stateRoot);
+    /** @return the length of the encoding returned by {@link #getEncoded(boolean)} */
+    public int getEncodedLength(boolean withNonce) {
+        return RLPWriter.listLength(getPayloadLength(withNonce));
+    }
 
+    private int getPayloadLength(boolean withNonce) {
         if (txTrieRoot == null) {
             this.txTrieRoot = EMPTY_TRIE_HASH;
         }
-        byte[] txTrieRoot = RLP.encodeElement(this.txTrieRoot);
-
         if (receiptTrieRoot == null) {
             this.receiptTrieRoot = EMPTY_TRIE_HASH;
         }
-        byte[] receiptTrieRoot = RLP.encodeElement(this.receiptTrieRoot);
-        byte[] logsBloom = RLP.encodeElement(this.logsBloom);
-        byte[] difficulty = RLP.encodeElement(this.difficulty);
-        byte[] extraData = RLP.encodeElement(this.extraData);
-        byte[] energyConsumed = RLP.encodeBigInteger(BigInteger.valueOf(this.energyConsumed));
-        byte[] energyLimit = RLP.encodeBigInteger(BigInteger.valueOf(this.energyLimit));
 
-        byte[] timestamp = RLP.encodeBigInteger(BigInteger.valueOf(this.timestamp));
+        // the version is a single byte element, which has the same length as an encoded byte
+        int length =
+                RLPWriter.byteLength(this.version)
+                        + RLPWriter.unsignedLength(this.number)
+                        + RLPWriter.elementLength(this.parentHash)
+                        + RLPWriter.elementLength(this.coinbase.toBytes())
+                        + RLPWriter.elementLength(this.stateRoot)
+                        + RLPWriter.elementLength(this.txTrieRoot)
+                        + RLPWriter.elementLength(this.receiptTrieRoot)
+                        + RLPWriter.elementLength(this.logsBloom)
+                        + RLPWriter.elementLength(this.difficulty)
+                        + RLPWriter.elementLength(this.extraData)
+                        + RLPWriter.unsignedLength(this.energyConsumed)
+                        + RLPWriter.unsignedLength(this.energyLimit)
+                        + RLPWriter.unsignedLength(this.timestamp)
+                        + RLPWriter.elementLength(this.solution);
+
+        return withNonce ? length + RLPWriter.elementLength(this.nonce) : length;
+    }
+
+    /**
+     * Writes the encoding returned by {@link #getEncoded(boolean)} to the given writer without
+     * creating intermediate arrays for the individual fields.
+     */
+    public void encodeTo(RLPWriter out, boolean withNonce) {
+        out.writeListHeader(getPayloadLength(withNonce));
 
-        byte[] solution = RLP.encodeElement(this.solution);
+        out.writeElement(new byte[] {this.version});
 
         if (withNonce) {
-            byte[] nonce = RLP.encodeElement(this.nonce);
-            return RLP.encodeList(RLPversion, number, parentHash, coinbase, stateRoot, txTrieRoot, receiptTrieRoot, logsBloom, difficulty,
-                                  extraData, energyConsumed, energyLimit, timestamp, nonce, solution);
+            out.writeUnsigned(this.number)
+                    .writeElement(this.parentHash)
+                    .writeElement(this.coinbase.toBytes())
+                    .writeElement(this.stateRoot)
+                    .writeElement(this.txTrieRoot)
+                    .writeElement(this.receiptTrieRoot)
+                    .writeElement(this.logsBloom)
+                    .writeElement(this.difficulty)
+                    .writeElement(this.extraData)
+                    .writeUnsigned(this.energyConsumed)
+                    .writeUnsigned(this.energyLimit)
+                    .writeUnsigned(this.timestamp)
+                    .writeElement(this.nonce)
+                    .writeElement(this.solution);
         } else {
-            return RLP.encodeList(RLPversion, parentHash, coinbase, stateRoot, txTrieRoot, receiptTrieRoot, logsBloom, difficulty,
-                    number, timestamp, extraData, solution, energyConsumed, energyLimit);
+            out.writeElement(this.parentHash)
+                    .writeElement(this.coinbase.toBytes())
+                    .writeElement(this.stateRoot)
+                    .writeElement(this.txTrieRoot)
+                    .writeElement(this.receiptTrieRoot)
+                    .writeElement(this.logsBloom)
+                    .writeElement(this.difficulty)
+                    .writeUnsigned(this.number)
+                    .writeUnsigned(this.timestamp)
+                    .writeElement(this.extraData)
+                    .writeElement(this.solution)
+                    .writeUnsigned(this.energyConsumed)
+                    .writeUnsigned(this.energyLimit);
         }
     }
 
@@ -382,7 +410,7 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
     }
 
     public static A0BlockHeader fromRLP(byte[] rawData, boolean isUnsafe) throws Exception {
-        return fromRLP((RLPList) RLP.decode2(rawData).get(0), isUnsafe);
+        return fromRLP(RLPView.wrap(rawData), isUnsafe);
     }
 
     /**
@@ -392,76 +420,76 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
      * @param isUnsafe
      * @return
      */
-    public static A0BlockHeader fromRLP(RLPList rlpHeader, boolean isUnsafe) throws Exception {
+    public static A0BlockHeader fromRLP(RLPView rlpHeader, boolean isUnsafe) throws Exception {
         Builder builder = new Builder();
         if (isUnsafe) {
             builder.fromUnsafeSource();
         }
 
         // Version
-        byte[] version = rlpHeader.get(RPL_BH_VERSION).getRLPData();
+        byte[] version = rlpHeader.get(RPL_BH_VERSION).bytes();
         if(version != null && version.length == 1)
             builder.withVersion(version[0]);
 
         // Number
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
+        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).bytes();
         if (nrBytes != null) {
             builder.withNumber(nrBytes);
         }
 
         // Parent Hash
-        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).getRLPData());
+        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).bytes());
 
         // Coinbase (miner)
-        builder.withCoinbase(new Address(rlpHeader.get(RPL_BH_COINBASE).getRLPData()));
+        builder.withCoinbase(new Address(rlpHeader.get(RPL_BH_COINBASE).bytes()));
 
         // State root
-        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).getRLPData());
+        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).bytes());
 
         // TxTrie root
-        byte[] txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
+        byte[] txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).bytes();
         if (txTrieRoot != null) {
             builder.withTxTrieRoot(txTrieRoot);
         }
 
         // Receipt Trie root
-        byte[] receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
+        byte[] receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).bytes();
         if (receiptTrieRoot != null) {
             builder.withReceiptTrieRoot(receiptTrieRoot);
         }
 
         // LogsBloom
-        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData());
+        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).bytes());
 
         // Difficulty
-        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData());
+        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).bytes());
 
         // ExtraData
-        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).getRLPData());
+        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).bytes());
 
         // Energy Consumed
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
+        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).bytes();
         if (energyConsumedBytes != null) {
             builder.withEnergyConsumed(energyConsumedBytes);
         }
 
         // Energy limit
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
+        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).bytes();
         if (energyLimitBytes != null) {
             builder.withEnergyLimit(energyLimitBytes);
         }
 
         // Timestamp
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
+        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).bytes();
         if (tsBytes != null) {
             builder.withTimestamp(tsBytes);
         }
 
         // Nonce
-        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).getRLPData());
+        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).bytes());
 
         // Solution
-        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).getRLPData());
+        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).bytes());
 
         return builder.build();
     }
@@ -40,8 +40,8 @@ import org.aion.crypto.ISignature;
 import org.aion.crypto.SignatureFac;
 import org.aion.mcf.vm.Constants;
 import org.aion.mcf.vm.types.DataWord;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 import org.aion.mcf.types.AbstractTransaction;
 
 /**
@@ -59,6 +59,9 @@ public class AionTransaction extends AbstractTransaction {
 
     private byte[] rlpRaw;
 
+    /* Hash of rlpRaw, the message covered by the signature */
+    private byte[] rawHash;
+
     protected Address from;
 
     /**
@@ -120,25 +123,18 @@ public class AionTransaction extends AbstractTransaction {
 
     public void rlpParse() {
 
-        RLPList decodedTxList = RLP.decode2(rlpEncoded);
-        RLPList tx = (RLPList) decodedTxList.get(0);
-
-        this.nonce = tx.get(RLP_TX_NONCE).getRLPData();
-        this.value = tx.get(RLP_TX_VALUE).getRLPData();
-        this.data = tx.get(RLP_TX_DATA).getRLPData();
-
-        if (tx.get(RLP_TX_TO).getRLPData() == null) {
-            this.to = null;
-        } else {
-            this.to = Address.wrap(tx.get(RLP_TX_TO).getRLPData());
-        }
+        RLPView tx = RLPView.wrap(rlpEncoded);
 
-        this.timeStamp = tx.get(RLP_TX_TIMESTAMP).getRLPData();
-        this.nrg = new BigInteger(1, tx.get(RLP_TX_NRG).getRLPData()).longValue();
-        this.nrgPrice = new BigInteger(1, tx.get(RLP_TX_NRGPRICE).getRLPData()).longValue();
-        this.type = new BigInteger(1, tx.get(RLP_TX_TYPE).getRLPData()).byteValue();
+        this.nonce = tx.get(RLP_TX_NONCE).bytes();
+        this.value = tx.get(RLP_TX_VALUE).bytes();
+        this.data = tx.get(RLP_TX_DATA).bytes();
+        this.to = Address.wrap(tx.get(RLP_TX_TO).bytes());
+        this.timeStamp = tx.get(RLP_TX_TIMESTAMP).bytes();
+        this.nrg = tx.get(RLP_TX_NRG).asLong();
+        this.nrgPrice = tx.get(RLP_TX_NRGPRICE).asLong();
+        this.type = (byte) tx.get(RLP_TX_TYPE).asLong();
 
-        byte[] sigs = tx.get(RLP_TX_SIG).getRLPData();
+        byte[] sigs = tx.get(RLP_TX_SIG).bytes();
         if (sigs != null) {
             // Singature Factory will decode the signature based on the algo
             // presetted in main() entry.
@@ -180,8 +176,10 @@ public class AionTransaction extends AbstractTransaction {
         if (!parsed) {
             rlpParse();
         }
-        byte[] plainMsg = this.getEncodedRaw();
-        return HashUtil.h256(plainMsg);
+        if (rawHash == null) {
+            rawHash = HashUtil.h256(this.getEncodedRaw());
+        }
+        return rawHash;
     }
 
     public byte[] getNonce() {
@@ -356,23 +354,14 @@ public class AionTransaction extends AbstractTransaction {
             return rlpRaw;
         }
 
-        byte[] nonce = RLP.encodeElement(this.nonce);
+        byte[] to = this.to == null ? null : this.to.toBytes();
+        int payloadLength = fieldsLength(to);
 
-        byte[] to;
-        if (this.to == null) {
-            to = RLP.encodeElement(null);
-        } else {
-            to = RLP.encodeElement(this.to.toBytes());
-        }
-
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-        byte[] timeStamp = RLP.encodeElement(this.timeStamp);
-        byte[] nrg = RLP.encodeLong(this.nrg);
-        byte[] nrgPrice = RLP.encodeLong(this.nrgPrice);
-        byte[] type = RLP.encodeByte(this.type);
+        RLPWriter out = new RLPWriter(RLPWriter.listLength(payloadLength));
+        out.writeListHeader(payloadLength);
+        writeFields(out, to);
 
-        rlpRaw = RLP.encodeList(nonce, to, value, data, timeStamp, nrg, nrgPrice, type);
+        rlpRaw = out.toByteArray();
         return rlpRaw;
     }
 
@@ -382,36 +371,61 @@ public class AionTransaction extends AbstractTransaction {
             return rlpEncoded;
         }
 
-        byte[] nonce = RLP.encodeElement(this.nonce);
-
-        byte[] to;
-        if (this.to == null) {
-            to = RLP.encodeElement(null);
-        } else {
-            to = RLP.encodeElement(this.to.toBytes());
-        }
-
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-        byte[] timeStamp = RLP.encodeElement(this.timeStamp);
-        byte[] nrg = RLP.encodeLong(this.nrg);
-        byte[] nrgPrice = RLP.encodeLong(this.nrgPrice);
-        byte[] type = RLP.encodeByte(this.type);
-
-        byte[] sigs;
-
         if (signature == null) {
             LOG.error("Encoded transaction has no signature!");
             return null;
         }
 
-        sigs = RLP.encodeElement(signature.toBytes());
-        this.rlpEncoded = RLP.encodeList(nonce, to, value, data, timeStamp, nrg, nrgPrice, type, sigs);
+        byte[] to = this.to == null ? null : this.to.toBytes();
+        byte[] sigs = signature.toBytes();
+        int payloadLength = fieldsLength(to) + RLPWriter.elementLength(sigs);
+
+        RLPWriter out = new RLPWriter(RLPWriter.listLength(payloadLength));
+        out.writeListHeader(payloadLength);
+        writeFields(out, to);
+        out.writeElement(sigs);
+
+        this.rlpEncoded = out.toByteArray();
         this.hash = this.getHash();
 
         return rlpEncoded;
     }
 
+    /**
+     * Writes the signed encoding of this transaction, as returned by {@link #getEncoded()}, to the
+     * given writer.
+     */
+    public void encodeTo(RLPWriter out) {
+        byte[] encoded = getEncoded();
+        if (encoded == null) {
+            throw new IllegalStateException("Cannot encode a transaction without a signature.");
+        }
+        out.writeEncoded(encoded);
+    }
+
+    /** @return the length of the encoded transaction fields, excluding the signature */
+    private int fieldsLength(byte[] to) {
+        return RLPWriter.elementLength(this.nonce)
+                + RLPWriter.elementLength(to)
+                + RLPWriter.elementLength(this.value)
+                + RLPWriter.elementLength(this.data)
+                + RLPWriter.elementLength(this.timeStamp)
+                + RLPWriter.longLength(this.nrg)
+                + RLPWriter.longLength(this.nrgPrice)
+                + RLPWriter.byteLength(this.type);
+    }
+
+    private void writeFields(RLPWriter out, byte[] to) {
+        out.writeElement(this.nonce)
+                .writeElement(to)
+                .writeElement(this.value)
+                .writeElement(this.data)
+                .writeElement(this.timeStamp)
+                .writeLong(this.nrg)
+                .writeLong(this.nrgPrice)
+                .writeByte(this.type);
+    }
+
     @Override
     public int hashCode() {
 
@@ -23,22 +23,16 @@
 
 package org.aion.zero.types;
 
-import static org.aion.base.util.ByteUtil.EMPTY_BYTE_ARRAY;
-import static org.apache.commons.lang3.ArrayUtils.nullToEmpty;
-
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import org.aion.base.util.ByteUtil;
 import org.aion.base.util.Hex;
 import org.aion.mcf.types.AbstractTxReceipt;
 import org.aion.mcf.vm.types.Bloom;
 import org.aion.mcf.vm.types.Log;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPItem;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 
 /**
  * aion transaction receipt class.
@@ -52,27 +46,20 @@ public class AionTxReceipt extends AbstractTxReceipt<AionTransaction>  {
 
     public AionTxReceipt(byte[] rlp) {
 
-        RLPList params = RLP.decode2(rlp);
-        RLPList receipt = (RLPList) params.get(0);
-
-        RLPItem postTxStateRLP = (RLPItem) receipt.get(0);
-        RLPItem bloomRLP = (RLPItem) receipt.get(1);
-        RLPList logs = (RLPList) receipt.get(2);
-        RLPItem result = (RLPItem) receipt.get(3);
+        RLPView receipt = RLPView.wrap(rlp);
+        RLPView logs = receipt.get(2);
 
-        postTxState = nullToEmpty(postTxStateRLP.getRLPData());
-        bloomFilter = new Bloom(bloomRLP.getRLPData());
-        executionResult = (executionResult = result.getRLPData()) == null ? EMPTY_BYTE_ARRAY : executionResult;
-        energyUsed = ByteUtil.byteArrayToLong(receipt.get(4).getRLPData());
+        postTxState = receipt.get(0).bytes();
+        bloomFilter = new Bloom(receipt.get(1).bytes());
+        executionResult = receipt.get(3).bytes();
+        energyUsed = receipt.get(4).asLong();
 
         if (receipt.size() > 5) {
-            byte[] errBytes = receipt.get(5).getRLPData();
-            error = errBytes != null ? new String(errBytes, StandardCharsets.UTF_8) : "";
+            error = new String(receipt.get(5).bytes(), StandardCharsets.UTF_8);
         }
 
-        for (RLPElement log : logs) {
-            Log logInfo = new Log(log.getRLPData());
-            logInfoList.add(logInfo);
+        for (int i = 0; i < logs.size(); i++) {
+            logInfoList.add(new Log(logs.get(i)));
         }
 
         rlpEncoded = rlp;
@@ -35,4 +35,20 @@
 package org.aion.base.db;
 
 public interface IByteArrayKeyValueStore extends IKeyValueStore<byte[], byte[]> {
+
+    /**
+     * Creates a cursor over the entries in the given key range, visited in key order (or reverse
+     * key order when the range is reversed). The cursor must be closed after use.
+     *
+     * @param range the section of the data store to iterate over
+     * @return a cursor positioned on the first entry in the range
+     * @throws RuntimeException if the data store is closed
+     * @implNote The default implementation takes a snapshot of the keys in the range and loads the
+     *     values on demand. Implementations backed by ordered storage should override it to stream
+     *     the entries without materialising the keys.
+     */
+    default IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        check();
+        return KeySetCursor.of(this, range);
+    }
 }
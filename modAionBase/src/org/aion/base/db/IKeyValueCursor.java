@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.base.db;
+
+/**
+ * Streaming view over the entries of a key-value store, ordered by key. The cursor is positioned
+ * on its first entry when created and must be closed once it is no longer needed to release any
+ * resources held by the underlying store.
+ *
+ * <p>Typical usage:
+ *
+ * <pre>{@code
+ * try (IKeyValueCursor<byte[], byte[]> cursor = db.cursor(KeyRange.withPrefix(prefix))) {
+ *     for (; cursor.isValid(); cursor.next()) {
+ *         process(cursor.key(), cursor.value());
+ *     }
+ * }
+ * }</pre>
+ *
+ * @param <K> the data type of the keys
+ * @param <V> the data type of the values
+ * @implNote Cursors are not thread-safe. The behaviour of a cursor after the underlying store was
+ *     closed is undefined.
+ */
+public interface IKeyValueCursor<K, V> extends AutoCloseable {
+
+    /**
+     * Checks if the cursor is positioned on an entry.
+     *
+     * @return {@code true} if the cursor points to an entry, {@code false} when it has moved past
+     *     the last entry in its range
+     */
+    boolean isValid();
+
+    /**
+     * Returns the key of the current entry.
+     *
+     * @throws java.util.NoSuchElementException if the cursor is not valid
+     */
+    K key();
+
+    /**
+     * Returns the value of the current entry.
+     *
+     * @return the value of the current entry or {@code null} if the cursor was created for keys
+     *     only
+     * @throws java.util.NoSuchElementException if the cursor is not valid
+     */
+    V value();
+
+    /** Moves the cursor to the next entry in the iteration order. */
+    void next();
+
+    /** Releases the resources held by the cursor. */
+    @Override
+    void close();
+}
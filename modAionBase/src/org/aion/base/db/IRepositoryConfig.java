@@ -52,4 +52,12 @@ public interface IRepositoryConfig {
     IContractDetails contractDetailsImpl();
 
     Properties getDatabaseConfig(String db_name);
+
+    /**
+     * @return byte budget of the cache holding clean trie nodes in memory, or a negative value to
+     *     keep the current budget
+     */
+    default long getTrieCacheSize() {
+        return -1L;
+    }
 }
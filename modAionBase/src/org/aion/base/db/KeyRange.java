@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.base.db;
+
+import java.util.Arrays;
+import org.aion.base.util.FastByteComparisons;
+
+/**
+ * Describes the section of a byte array key-value store visited by a {@link IKeyValueCursor}.
+ * Keys are ordered lexicographically as unsigned bytes, which matches the ordering used by all the
+ * supported database implementations.
+ */
+public final class KeyRange {
+
+    private static final KeyRange ALL = new KeyRange(null, null, false, false);
+
+    /** Inclusive lower bound; {@code null} when unbounded. */
+    private final byte[] start;
+    /** Exclusive upper bound; {@code null} when unbounded. */
+    private final byte[] end;
+
+    private final boolean reverse;
+    private final boolean keysOnly;
+
+    private KeyRange(byte[] start, byte[] end, boolean reverse, boolean keysOnly) {
+        this.start = start;
+        this.end = end;
+        this.reverse = reverse;
+        this.keysOnly = keysOnly;
+    }
+
+    /** Range covering all the keys in the data store. */
+    public static KeyRange all() {
+        return ALL;
+    }
+
+    /** Range covering all the keys that start with the given prefix. */
+    public static KeyRange withPrefix(byte[] prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("The prefix cannot be null.");
+        }
+        return new KeyRange(prefix.clone(), upperBound(prefix), false, false);
+    }
+
+    /**
+     * Range covering the keys between the given bounds.
+     *
+     * @param start inclusive lower bound, {@code null} for no lower bound
+     * @param end exclusive upper bound, {@code null} for no upper bound
+     */
+    public static KeyRange between(byte[] start, byte[] end) {
+        return new KeyRange(
+                start == null ? null : start.clone(), end == null ? null : end.clone(), false, false);
+    }
+
+    /** Returns the same range visited in descending key order. */
+    public KeyRange reversed() {
+        return new KeyRange(start, end, !reverse, keysOnly);
+    }
+
+    /** Returns the same range where cursors do not retrieve the values. */
+    public KeyRange keysOnly() {
+        return new KeyRange(start, end, reverse, true);
+    }
+
+    public byte[] getStart() {
+        return start;
+    }
+
+    public byte[] getEnd() {
+        return end;
+    }
+
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    public boolean isKeysOnly() {
+        return keysOnly;
+    }
+
+    /** Checks if the key is smaller than the lower bound of the range. */
+    public boolean isBeforeStart(byte[] key) {
+        return start != null && compare(key, start) < 0;
+    }
+
+    /** Checks if the key is greater or equal to the upper bound of the range. */
+    public boolean isAfterEnd(byte[] key) {
+        return end != null && compare(key, end) >= 0;
+    }
+
+    public boolean contains(byte[] key) {
+        return !isBeforeStart(key) && !isAfterEnd(key);
+    }
+
+    /** Compares the given keys lexicographically as unsigned bytes. */
+    public static int compare(byte[] a, byte[] b) {
+        return FastByteComparisons.compareTo(a, 0, a.length, b, 0, b.length);
+    }
+
+    /**
+     * Computes the smallest key greater than all the keys starting with the given prefix.
+     *
+     * @return the exclusive upper bound or {@code null} when no such key exists, i.e. the prefix
+     *     contains only {@code 0xff} bytes
+     */
+    static byte[] upperBound(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xff) {
+                byte[] bound = Arrays.copyOf(prefix, i + 1);
+                bound[i]++;
+                return bound;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.base.db;
+
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.function.Function;
+import org.aion.base.util.ByteArrayWrapper;
+
+/**
+ * Cursor over a sorted set of keys with values loaded on demand. Used by data stores that do not
+ * provide native ordered iteration. Keys without a value at the time they are reached (i.e. deleted
+ * after the cursor was created) are skipped.
+ */
+public class KeySetCursor implements IKeyValueCursor<byte[], byte[]> {
+
+    private final Iterator<ByteArrayWrapper> keys;
+    private final Function<byte[], byte[]> loader;
+    private final KeyRange range;
+
+    private byte[] key;
+    private byte[] value;
+
+    /**
+     * @param keys the keys to iterate over, will be filtered according to the given range
+     * @param loader retrieves the value for a key, returning {@code null} for missing keys
+     * @param range the section of the keys to visit
+     */
+    public KeySetCursor(
+            NavigableSet<ByteArrayWrapper> keys, Function<byte[], byte[]> loader, KeyRange range) {
+        NavigableSet<ByteArrayWrapper> view = keys;
+        if (range.getStart() != null) {
+            view = view.tailSet(ByteArrayWrapper.wrap(range.getStart()), true);
+        }
+        if (range.getEnd() != null) {
+            view = view.headSet(ByteArrayWrapper.wrap(range.getEnd()), false);
+        }
+        this.keys = range.isReverse() ? view.descendingIterator() : view.iterator();
+        this.loader = loader;
+        this.range = range;
+        next();
+    }
+
+    /** Creates a cursor over a snapshot of the keys in the given store. */
+    public static KeySetCursor of(IByteArrayKeyValueStore store, KeyRange range) {
+        NavigableSet<ByteArrayWrapper> keys = new TreeSet<>();
+        for (byte[] k : store.keys()) {
+            if (range.contains(k)) {
+                keys.add(ByteArrayWrapper.wrap(k));
+            }
+        }
+        return new KeySetCursor(keys, k -> store.get(k).orElse(null), range);
+    }
+
+    @Override
+    public boolean isValid() {
+        return key != null;
+    }
+
+    @Override
+    public byte[] key() {
+        if (key == null) {
+            throw new NoSuchElementException();
+        }
+        return key;
+    }
+
+    @Override
+    public byte[] value() {
+        if (key == null) {
+            throw new NoSuchElementException();
+        }
+        return value;
+    }
+
+    @Override
+    public void next() {
+        while (keys.hasNext()) {
+            byte[] k = keys.next().getData();
+            if (range.isKeysOnly()) {
+                key = k;
+                return;
+            }
+            byte[] v = loader.apply(k);
+            if (v != null) {
+                key = k;
+                value = v;
+                return;
+            }
+        }
+        key = null;
+        value = null;
+    }
+
+    @Override
+    public void close() {
+        key = null;
+        value = null;
+    }
+}
@@ -29,7 +29,7 @@ import static org.aion.base.util.Hex.toHexString;
 import java.math.BigInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.aion.base.util.NativeLoader;
-import org.aion.crypto.HashUtil;
+import org.aion.crypto.H256Hasher;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.zero.types.A0BlockHeader;
@@ -127,10 +127,8 @@ public class Equihash {
             // Verify if any of the solutions pass the difficulty filter, return if true.
             byte[] minimal = EquiUtils.getMinimalFromIndices(generatedSolution, cBitLen);
 
-            byte[] validationBytes = merge(inputBytes, nonce, minimal);
-
             // Found a valid solution
-            if (isValidBlock(validationBytes, target)) {
+            if (isValidBlock(inputBytes, nonce, minimal, target)) {
                 return new Solution(block, nonce, minimal);
             }
         }
@@ -144,12 +142,13 @@ public class Equihash {
      * @param target Target under which hash must fall below
      * @return True is the solution meets target conditions; false otherwise.
      */
-    private boolean isValidBlock(byte[] validationBytes, BigInteger target) {
+    private boolean isValidBlock(byte[] inputBytes, byte[] nonce, byte[] minimal, BigInteger target) {
         boolean isValid = false;
 
         // Default blake2b without personalization to test if hash is below
         // difficulty
-        BigInteger hdrDigest = new BigInteger(1, HashUtil.h256(validationBytes));
+        BigInteger hdrDigest = new BigInteger(1,
+                H256Hasher.get().update(inputBytes).update(nonce).update(minimal).digest());
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("Comparing header digest {} to target {}: ", hdrDigest, target);
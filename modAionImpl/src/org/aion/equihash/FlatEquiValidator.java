@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.equihash;
+
+import static org.aion.base.util.ByteUtil.intToBytesLE;
+import static org.aion.base.util.ByteUtil.merge;
+
+import java.util.Arrays;
+import org.aion.crypto.HashUtil;
+import org.aion.crypto.hash.Blake2b;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+/**
+ * Equihash solution validator working on flat per-thread scratch arrays.
+ *
+ * <p>Gives the same verdicts as {@link OptimizedEquiValidator}. The indices are unpacked, checked
+ * and folded in place instead of through per-node arrays, and the ordering and duplicate checks
+ * run before any hashing. On the Java hashing path every blake2b digest {@code H(I | V | i /
+ * indicesPerHashOutput)} is computed once even when several solution indices fall into it.
+ */
+public class FlatEquiValidator {
+    private final int n;
+    private final int k;
+    private final int indicesPerHashOutput;
+    private final int indicesHashLength;
+    private final int hashOutput;
+    private final int collisionBitLength;
+    private final int solutionWidth;
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.CONS.name());
+
+    private final byte[] personalization;
+    private final Blake2b.Param initState;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /** Per-thread working set, sized once for the (n, k) of this validator. */
+    private final class Scratch {
+        final Blake2b blake = Blake2b.Digest.newInstance(initState);
+        final byte[] x = new byte[Integer.BYTES];
+        final int[] indices = new int[1 << k];
+        /* one row of indicesHashLength bytes per index, folded in place round by round */
+        final byte[] rows = new byte[(1 << k) * indicesHashLength];
+        /* digests of the distinct hash groups seen so far in this call */
+        final byte[] digests = new byte[(1 << k) * hashOutput];
+        /* open addressed sets, key + 1 so that 0 marks an empty slot */
+        final int[] groupKeys = new int[tableSize(1 << k)];
+        final int[] groupSlots = new int[groupKeys.length];
+        final int[] indexKeys = new int[groupKeys.length];
+    }
+
+    public FlatEquiValidator(int n, int k) {
+        this.n = n;
+        this.k = k;
+        this.indicesPerHashOutput = 512 / n;
+        this.indicesHashLength = (n + 7) / 8;
+        this.hashOutput = indicesPerHashOutput * indicesHashLength;
+        this.collisionBitLength = n / (k + 1);
+        this.solutionWidth = (1 << k) * (collisionBitLength + 1) / 8;
+        this.personalization =
+                merge("AION0PoW".getBytes(), merge(intToBytesLE(n), intToBytesLE(k)));
+        this.initState = new Blake2b.Param();
+        this.initState.setPersonal(personalization);
+        this.initState.setDigestLength(hashOutput);
+    }
+
+    private static int tableSize(int entries) {
+        return Integer.highestOneBit(entries) << 2;
+    }
+
+    /**
+     * Validate a solution for a given block header and nonce
+     *
+     * @param solution Byte array containing the Equihash solution
+     * @param blockHeader Block header raw bytes excluding nonce and solution
+     * @param nonce Nonce used to generate solution
+     * @return True if valid solution based on block header and nonce
+     * @throws NullPointerException when given null input
+     */
+    public boolean isValidSolution(byte[] solution, byte[] blockHeader, byte[] nonce) {
+        Scratch s = prepare(solution, blockHeader, nonce);
+        if (s == null) {
+            return false;
+        }
+
+        genRows(blockHeader, nonce, s);
+
+        return fold(s.indices, s.rows);
+    }
+
+    /**
+     * Same as {@link #isValidSolution} with the row hashes computed by the native blake2b
+     * library, which is the faster of the two when it is loaded.
+     *
+     * @throws NullPointerException when given null input
+     */
+    public boolean isValidSolutionNative(byte[] solution, byte[] blockHeader, byte[] nonce) {
+        Scratch s = prepare(solution, blockHeader, nonce);
+        if (s == null) {
+            return false;
+        }
+
+        byte[][] hashes = HashUtil.getSolutionHash(personalization, nonce, s.indices, blockHeader);
+        for (int j = 0; j < hashes.length; j++) {
+            System.arraycopy(hashes[j], 0, s.rows, j * indicesHashLength, indicesHashLength);
+        }
+
+        return fold(s.indices, s.rows);
+    }
+
+    /**
+     * Runs the checks that need no hashing: width, duplicate and ordered indices.
+     *
+     * @return the scratch of this thread with the unpacked indices, or {@code null} if the
+     *     solution already fails
+     */
+    private Scratch prepare(byte[] solution, byte[] blockHeader, byte[] nonce) {
+        if (solution == null) {
+            LOG.debug("Null solution passed for validation");
+            throw new NullPointerException("Null solution");
+        } else if (blockHeader == null) {
+            LOG.debug("Null blockHeader passed for validation");
+            throw new NullPointerException("Null blockHeader");
+        } else if (nonce == null) {
+            LOG.debug("Null nonce passed for validation");
+            throw new NullPointerException("Null nonce");
+        }
+
+        if (solution.length != solutionWidth) {
+            LOG.debug("Invalid solution width: {}", solution.length);
+            return null;
+        }
+
+        Scratch s = scratch.get();
+        int[] indices = s.indices;
+
+        unpack(solution, indices);
+
+        if (hasDuplicate(indices, s.indexKeys)) {
+            LOG.debug("Invalid solution - duplicate solution index");
+            return null;
+        }
+
+        // a node's index is the index of its leftmost leaf
+        for (int round = 1; round <= k; round++) {
+            int half = 1 << (round - 1);
+            for (int i = 0; i < indices.length; i += half << 1) {
+                if (indices[i] >= indices[i + half]) {
+                    LOG.debug("Solution validation failed - indices out of order");
+                    return null;
+                }
+            }
+        }
+
+        return s;
+    }
+
+    /**
+     * XORs the rows pairwise round by round, keeping each node in the row of its leftmost leaf,
+     * and checks that every round collides on its leading bits.
+     */
+    private boolean fold(int[] indices, byte[] rows) {
+        for (int round = 1; round <= k; round++) {
+            int half = 1 << (round - 1);
+            int bits = (round < k ? round * collisionBitLength : n);
+            int bitsDiv8 = bits / 8;
+            int bitsMod8 = bits % 8;
+
+            for (int i = 0; i < indices.length; i += half << 1) {
+                int left = i * indicesHashLength;
+                int right = (i + half) * indicesHashLength;
+                for (int b = 0; b < indicesHashLength; b++) {
+                    rows[left + b] ^= rows[right + b];
+                }
+
+                for (int b = 0; b < bitsDiv8; b++) {
+                    if (rows[left + b] != 0) {
+                        LOG.debug("Solution validation failed - Non-zero XOR");
+                        return false;
+                    }
+                }
+
+                // Check remainder bits
+                if (bitsMod8 > 0 && (rows[left + bitsDiv8] >> (8 - bitsMod8)) != 0) {
+                    LOG.debug("Solution validation failed - Non-zero XOR");
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /** Same result as {@link EquiUtils#getIndicesFromMinimal}, written into {@code out}. */
+    private void unpack(byte[] minimal, int[] out) {
+        int bitLen = collisionBitLength + 1;
+        int mask = (1 << bitLen) - 1;
+        int accBits = 0;
+        int accValue = 0;
+
+        int j = 0;
+        for (byte b : minimal) {
+            accValue = (accValue << 8) | (b & 0xff);
+            accBits += 8;
+            if (accBits >= bitLen) {
+                accBits -= bitLen;
+                out[j++] = (accValue >>> accBits) & mask;
+            }
+        }
+    }
+
+    private static boolean hasDuplicate(int[] indices, int[] keys) {
+        Arrays.fill(keys, 0);
+        int mask = keys.length - 1;
+
+        for (int index : indices) {
+            int pos = mix(index) & mask;
+            while (keys[pos] != 0) {
+                if (keys[pos] == index + 1) {
+                    return true;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[pos] = index + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Fill one row per index with its slice of {@code H(I | V | group)}, hashing each distinct
+     * group only once.
+     */
+    private void genRows(byte[] blockHeader, byte[] nonce, Scratch s) {
+        int[] keys = s.groupKeys;
+        int[] slots = s.groupSlots;
+        Arrays.fill(keys, 0);
+        int mask = keys.length - 1;
+        int used = 0;
+
+        for (int j = 0; j < s.indices.length; j++) {
+            int index = s.indices[j];
+            int group = index / indicesPerHashOutput;
+
+            int pos = mix(group) & mask;
+            while (keys[pos] != 0 && keys[pos] != group + 1) {
+                pos = (pos + 1) & mask;
+            }
+
+            int digestOffset;
+            if (keys[pos] == 0) {
+                digestOffset = used++ * hashOutput;
+                hash(blockHeader, nonce, group, s, digestOffset);
+                keys[pos] = group + 1;
+                slots[pos] = digestOffset;
+            } else {
+                digestOffset = slots[pos];
+            }
+
+            System.arraycopy(
+                    s.digests,
+                    digestOffset + (index % indicesPerHashOutput) * indicesHashLength,
+                    s.rows,
+                    j * indicesHashLength,
+                    indicesHashLength);
+        }
+    }
+
+    private void hash(byte[] blockHeader, byte[] nonce, int group, Scratch s, int offset) {
+        Blake2b blake = s.blake;
+        blake.reset();
+
+        // I = block header minus nonce and solution
+        blake.update(blockHeader, 0, blockHeader.length);
+
+        // V = nonce
+        blake.update(nonce, 0, nonce.length);
+
+        byte[] x = s.x;
+        x[0] = (byte) group;
+        x[1] = (byte) (group >>> 8);
+        x[2] = (byte) (group >>> 16);
+        x[3] = (byte) (group >>> 24);
+        blake.update(x, 0, x.length);
+
+        blake.digest(s.digests, offset, hashOutput);
+    }
+
+    private static int mix(int v) {
+        return v * 0x9E3779B9 >>> 7;
+    }
+}
@@ -63,4 +63,12 @@ public interface A0BCConfig {
      * Retrieves the selected energy strategy algorithm
      */
     AbstractEnergyStrategyLimit getEnergyLimitStrategy();
+
+    /**
+     * Retrieves the number of threads executing the transactions of a block,
+     * {@code 1} executes them serially
+     */
+    default int getExecThreads() {
+        return 1;
+    }
 }
@@ -92,6 +92,7 @@ import org.aion.zero.types.AionTransaction;
 import org.aion.zero.types.AionTxExecSummary;
 import org.aion.zero.types.AionTxReceipt;
 import org.aion.zero.types.IAionBlock;
+import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -115,6 +116,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
     private static final Logger LOG = LoggerFactory.getLogger(LogEnum.CONS.name());
     private static final int THOUSAND_MS = 1000;
     private static final int DIFFICULTY_BYTES = 16;
+    private static final int PRE_VALIDATED_CACHE_SIZE = 1024;
 
     private A0BCConfig config;
     private long exitOn = Long.MAX_VALUE;
@@ -144,6 +146,14 @@ public class AionBlockchainImpl implements IAionBlockchain {
     private final GrandParentBlockHeaderValidator<A0BlockHeader> grandParentBlockHeaderValidator;
     private final ParentBlockHeaderValidator<A0BlockHeader> parentHeaderValidator;
     private final BlockHeaderValidator<A0BlockHeader> blockHeaderValidator;
+
+    /**
+     * Blocks that passed {@link #preValidate(AionBlock)}, keyed by hash. The instance is kept so
+     * that a different body arriving under the same hash still gets the full checks.
+     */
+    private final Map<ByteArrayWrapper, AionBlock> preValidatedBlocks =
+            Collections.synchronizedMap(new LRUMap<>(PRE_VALIDATED_CACHE_SIZE));
+
     private AtomicReference<BlockIdentifier> bestKnownBlock =
             new AtomicReference<BlockIdentifier>();
 
@@ -157,6 +167,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
     private AbstractEnergyStrategyLimit energyLimitStrategy;
 
+    /** executes the transactions of imported blocks in parallel, null for serial execution */
+    private final SpeculativeTxExecutor speculativeExecutor;
+
     /**
      * Chain configuration class, because chain configuration may change dependant on the block
      * being executed. This is simple for now but in the future we may have to create a "chain
@@ -208,6 +221,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
                         cfgAion.getConsensus().getEnergyStrategy(),
                         config);
             }
+
+            @Override
+            public int getExecThreads() {
+                return cfgAion.getTx().getExecThreads();
+            }
         };
     }
 
@@ -256,6 +274,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
                     this.chainConfiguration.getConstants().getMaximumExtraDataSize());
         }
         this.energyLimitStrategy = config.getEnergyLimitStrategy();
+
+        int execThreads = config.getExecThreads();
+        this.speculativeExecutor =
+                execThreads > 1 ? new SpeculativeTxExecutor(execThreads, LOGGER_VM) : null;
     }
 
     /**
@@ -460,7 +482,15 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
         AionBlockSummary summary = null;
         try {
-            summary = add(block);
+            // checked against the database, cached trie nodes may outlive a corrupted state
+            if (repository.isValidRoot(bestBlock.getStateRoot())) {
+                summary = add(block);
+            } else {
+                LOG.error(
+                        "Missing world state for the parent of block {}/{}.",
+                        block.getNumber(),
+                        block.getShortHash());
+            }
         } catch (Throwable th) {
             LOG.error("Unexpected error: ", th);
         } finally {
@@ -952,12 +982,12 @@ public class AionBlockchainImpl implements IAionBlockchain {
         if (!block.isGenesis()) {
             isValid = isValid(block.getHeader());
 
-            // Sanity checks
-            String trieHash = toHexString(block.getTxTrieRoot());
-            String trieListHash = toHexString(calcTxTrie(block.getTransactionsList()));
+            // the stateless checks may have already run outside the chain lock
+            boolean preValidated =
+                    preValidatedBlocks.remove(ByteArrayWrapper.wrap(block.getHash())) == block;
 
-            if (!trieHash.equals(trieListHash)) {
-                LOG.warn("Block's given Trie Hash doesn't match: {} != {}", trieHash, trieListHash);
+            // Sanity checks
+            if (!preValidated && !isValidTxTrie(block)) {
                 return false;
             }
 
@@ -973,7 +1003,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
                 Map<Address, BigInteger> nonceCache = new HashMap<>();
 
-                if (txs.parallelStream().anyMatch(tx -> !TXValidator.isValid(tx))) {
+                if (!preValidated && txs.parallelStream().anyMatch(tx -> !TXValidator.isValid(tx))) {
                     LOG.error("Some transactions in the block are invalid");
                     return false;
                 }
@@ -1008,6 +1038,48 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return isValid;
     }
 
+    private static boolean isValidTxTrie(AionBlock block) {
+        String trieHash = toHexString(block.getTxTrieRoot());
+        String trieListHash = toHexString(calcTxTrie(block.getTransactionsList()));
+
+        if (!trieHash.equals(trieListHash)) {
+            LOG.warn("Block's given Trie Hash doesn't match: {} != {}", trieHash, trieListHash);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Runs the block checks that do not depend on the chain state, i.e. the transaction trie root
+     * and the validity of each transaction including its signature. Does not take the chain lock,
+     * so that it can run on other threads while earlier blocks are being imported. A block that
+     * passes skips these checks when it is connected.
+     *
+     * @param block the block to check
+     * @return {@code false} if the block can never be connected
+     */
+    public boolean preValidate(AionBlock block) {
+        if (block == null) {
+            return false;
+        }
+
+        if (block.isGenesis()) {
+            return true;
+        }
+
+        if (!isValidTxTrie(block)) {
+            return false;
+        }
+
+        if (block.getTransactionsList().parallelStream().anyMatch(tx -> !TXValidator.isValid(tx))) {
+            LOG.error("Some transactions in the block are invalid");
+            return false;
+        }
+
+        preValidatedBlocks.put(ByteArrayWrapper.wrap(block.getHash()), block);
+        return true;
+    }
+
     public static Set<ByteArrayWrapper> getAncestors(
             IBlockStorePow<IAionBlock, A0BlockHeader> blockStore,
             IAionBlock testedBlock,
@@ -1092,10 +1164,20 @@ public class AionBlockchainImpl implements IAionBlockchain {
         List<AionTxReceipt> receipts = new ArrayList<>();
         List<AionTxExecSummary> summaries = new ArrayList<>();
 
+        SpeculativeTxExecutor.BlockExecution execution =
+                speculativeExecutor == null || block.getTransactionsList().size() < 2
+                        ? null
+                        : speculativeExecutor.start(block, track);
+
         for (AionTransaction tx : block.getTransactionsList()) {
-            TransactionExecutor executor = new TransactionExecutor(tx, block, track, LOGGER_VM);
-            executor.setExecutorProvider(AionExecutorProvider.getInstance());
-            AionTxExecSummary summary = executor.execute();
+            AionTxExecSummary summary;
+            if (execution == null) {
+                TransactionExecutor executor = new TransactionExecutor(tx, block, track, LOGGER_VM);
+                executor.setExecutorProvider(AionExecutorProvider.getInstance());
+                summary = executor.execute();
+            } else {
+                summary = execution.executeNext();
+            }
 
             track.flush();
             AionTxReceipt receipt = summary.getReceipt();
@@ -1155,6 +1237,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
             getBlockStore().saveBlock(block, totalDifficulty, true);
         }
 
+        // side chain blooms are indexed too, the index only narrows down the candidate blocks
+        repository.getBloomIndex().add(block.getNumber(), block.getLogBloom());
+
         for (int i = 0; i < receipts.size(); i++) {
             transactionStore.putToBatch(new AionTxInfo(receipts.get(i), block.getHash(), i));
         }
@@ -1196,8 +1281,16 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return pubBestBlock == null ? bestBlock : pubBestBlock;
     }
 
+    /** @return the number of speculative results discarded since start, 0 for serial execution */
+    long getSpeculativeReexecutions() {
+        return speculativeExecutor == null ? 0 : speculativeExecutor.getReexecuted();
+    }
+
     @Override
     public synchronized void close() {
+        if (speculativeExecutor != null) {
+            speculativeExecutor.shutdown();
+        }
         getBlockStore().close();
     }
 
@@ -140,6 +140,14 @@ public class AionHub {
 
         loadBlockchain();
 
+        // index the blooms of blocks stored before the log bloom index existed
+        Thread bloomIndexer =
+                new Thread(
+                        () -> this.repository.getBloomIndex().catchUp(this.repository.getBlockStore()),
+                        "bloom-idx");
+        bloomIndexer.setDaemon(true);
+        bloomIndexer.start();
+
         this.startingBlock = this.blockchain.getBestBlock();
         if (!cfg.getConsensus().isSeed()) {
             this.mempool.updateBest();
@@ -171,7 +179,8 @@ public class AionHub {
             cfgNetP2p.getPort(), this.cfg.getNet().getNodes(), cfgNetP2p.getDiscover(),
             cfgNetP2p.getMaxTempNodes(),
             cfgNetP2p.getMaxActiveNodes(),
-            cfgNetP2p.getBootlistSyncOnly(), cfgNetP2p.getErrorTolerance());
+            cfgNetP2p.getBootlistSyncOnly(), cfgNetP2p.getErrorTolerance(),
+            new File(new File(cfg.getBasePath(), cfg.getDb().getPath()), "peers"));
 
         this.syncMgr = SyncMgr.inst();
         this.syncMgr.init(this.p2pMgr, this.eventMgr, this.cfg.getSync().getBlocksQueueMax(),
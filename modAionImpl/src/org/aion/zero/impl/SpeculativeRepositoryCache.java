@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ */
+
+package org.aion.zero.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.aion.base.db.IContractDetails;
+import org.aion.base.db.IRepository;
+import org.aion.base.type.Address;
+import org.aion.base.vm.IDataWord;
+import org.aion.mcf.core.AccountState;
+import org.aion.zero.db.AionRepositoryCache;
+
+/**
+ * Repository cache used for executing a transaction speculatively, i.e. before the transactions
+ * preceding it in the block have been applied. Records the state in which each account was first
+ * seen, so that the execution can be validated against the transactions committed in the meantime.
+ *
+ * @implNote Not thread safe, each speculative execution gets its own cache.
+ */
+final class SpeculativeRepositoryCache extends AionRepositoryCache {
+
+    /** the state of each accessed account as first seen, null if only its existence was checked */
+    private final Map<Address, AccountState> observed = new HashMap<>();
+
+    SpeculativeRepositoryCache(final IRepository trackedRepository) {
+        super(trackedRepository);
+    }
+
+    /** @return the accounts read or written by the execution */
+    Map<Address, AccountState> getObserved() {
+        return observed;
+    }
+
+    /** @return the state of the account after the execution, null if it was not accessed */
+    AccountState getCachedAccount(Address address) {
+        return cachedAccounts.get(address);
+    }
+
+    /**
+     * Drops the changes to the given account, so that they can be applied separately.
+     */
+    void discard(Address address) {
+        cachedAccounts.remove(address);
+        cachedDetails.remove(address);
+    }
+
+    private void observe(Address address, AccountState state) {
+        if (observed.get(address) == null) {
+            observed.put(address, state == null ? null : new AccountState(state));
+        }
+    }
+
+    @Override
+    public AccountState getAccountState(Address address) {
+        AccountState state = super.getAccountState(address);
+        observe(address, state);
+        return state;
+    }
+
+    @Override
+    public IContractDetails<IDataWord> getContractDetails(Address address) {
+        IContractDetails<IDataWord> details = super.getContractDetails(address);
+        observe(address, cachedAccounts.get(address));
+        return details;
+    }
+
+    @Override
+    public boolean hasAccountState(Address address) {
+        observe(address, cachedAccounts.get(address));
+        return super.hasAccountState(address);
+    }
+
+    @Override
+    public boolean hasContractDetails(Address address) {
+        observe(address, cachedAccounts.get(address));
+        return super.hasContractDetails(address);
+    }
+
+    @Override
+    public void loadAccountState(
+            Address address,
+            Map<Address, AccountState> accounts,
+            Map<Address, IContractDetails<IDataWord>> details) {
+        super.loadAccountState(address, accounts, details);
+        observe(address, accounts.get(address));
+    }
+}
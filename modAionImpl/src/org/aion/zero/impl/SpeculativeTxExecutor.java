@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ */
+
+package org.aion.zero.impl;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.base.db.IRepository;
+import org.aion.base.db.IRepositoryCache;
+import org.aion.base.type.Address;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.core.AccountState;
+import org.aion.precompiled.ContractFactory;
+import org.aion.vm.TransactionExecutor;
+import org.aion.zero.impl.vm.AionExecutorProvider;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxExecSummary;
+import org.aion.zero.types.IAionBlock;
+import org.apache.commons.lang3.ArrayUtils;
+import org.slf4j.Logger;
+
+/**
+ * Optimistic parallel execution of the transactions in a block.
+ *
+ * <p>Transactions that run no contract code are executed ahead of their turn on a worker pool,
+ * each against its own {@link SpeculativeRepositoryCache} over the block's track. The results are
+ * committed in block order. A result is kept only if none of the accounts it accessed were changed
+ * by the transactions committed since it was started, otherwise the transaction is executed again
+ * at its turn. Transactions that run contract code are always executed at their turn, directly on
+ * the track, and invalidate all the results started before them. The resulting state is
+ * therefore the same as for serial execution.
+ *
+ * <p>Every transaction credits its fee to the block coinbase. Unless the coinbase takes part in
+ * the transfer, that credit is applied as a balance delta and does not count as a conflict.
+ */
+final class SpeculativeTxExecutor {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.CONS.name());
+
+    private final ExecutorService workers;
+
+    /** how many transactions may be executed ahead of the one being committed */
+    private final int window;
+
+    private final Logger vmLogger;
+
+    /** speculative results discarded over all the blocks executed */
+    private final AtomicLong totalReexecuted = new AtomicLong(0);
+
+    SpeculativeTxExecutor(int threads, Logger vmLogger) {
+        AtomicInteger cnt = new AtomicInteger(0);
+        this.workers =
+                Executors.newFixedThreadPool(
+                        threads,
+                        r -> {
+                            Thread t = new Thread(r, "tx-exec-" + cnt.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        });
+        this.window = threads * 4;
+        this.vmLogger = vmLogger;
+    }
+
+    /**
+     * Starts the speculative execution of the transactions in the block.
+     *
+     * @param block the block being applied
+     * @param track the track on which the block is applied, must only be changed through the
+     *     returned execution until all the transactions have been executed
+     */
+    BlockExecution start(IAionBlock block, IRepositoryCache track) {
+        return new BlockExecution(block, track);
+    }
+
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /** @return the number of speculative results discarded so far, over all the blocks */
+    long getReexecuted() {
+        return totalReexecuted.get();
+    }
+
+    /**
+     * @return {@code true} if the transaction may be executed ahead of its turn, i.e. it neither
+     *     deploys a contract nor calls a pre-compiled one
+     */
+    private static boolean isSpeculative(AionTransaction tx) {
+        return !tx.isContractCreation() && !ContractFactory.isPrecompiledContract(tx.getTo());
+    }
+
+    /** Result of executing a transaction ahead of its turn. */
+    private static final class Speculation {
+
+        private final SpeculativeRepositoryCache cache;
+
+        private final AionTxExecSummary summary;
+
+        private Speculation(SpeculativeRepositoryCache cache, AionTxExecSummary summary) {
+            this.cache = cache;
+            this.summary = summary;
+        }
+    }
+
+    /** The execution of the transactions of one block, must be driven by a single thread. */
+    final class BlockExecution {
+
+        private final IAionBlock block;
+
+        private final IRepositoryCache track;
+
+        private final List<AionTransaction> txs;
+
+        private final Future<?>[] speculations;
+
+        /** the epoch in which each speculation was started */
+        private final int[] epochs;
+
+        /** incremented by each transaction whose effects are not tracked */
+        private int epoch = 0;
+
+        /** accounts accessed by the transactions committed in the current epoch */
+        private final Set<Address> written = new HashSet<>();
+
+        private int next = 0;
+
+        private int submitted = 0;
+
+        private int reexecuted = 0;
+
+        private BlockExecution(IAionBlock block, IRepositoryCache track) {
+            this.block = block;
+            this.track = track;
+            this.txs = block.getTransactionsList();
+            this.speculations = new Future<?>[txs.size()];
+            this.epochs = new int[txs.size()];
+            submitAhead();
+        }
+
+        /**
+         * Executes the next transaction of the block and applies its effects to the track.
+         *
+         * @return the execution summary, same as the {@link TransactionExecutor} would return
+         */
+        AionTxExecSummary executeNext() {
+            int index = next++;
+            AionTransaction tx = txs.get(index);
+
+            // waiting also ensures the transaction is never executed twice at the same time
+            Speculation speculation = await(index);
+            submitAhead();
+
+            AionTxExecSummary summary;
+            if (speculation != null && epochs[index] == epoch && isValid(tx, speculation.cache)) {
+                summary = commit(tx, speculation);
+            } else {
+                if (speculation != null) {
+                    reexecuted++;
+                    totalReexecuted.incrementAndGet();
+                }
+
+                SpeculativeRepositoryCache cache = new SpeculativeRepositoryCache(track);
+                if (isSpeculative(tx) && ArrayUtils.isEmpty(cache.getCode(tx.getTo()))) {
+                    summary = execute(tx, cache, false);
+                    cache.flush();
+                    written.addAll(cache.getObserved().keySet());
+                } else {
+                    // runs contract code, the accessed accounts are unknown
+                    summary = execute(tx, track, false);
+                    epoch++;
+                    written.clear();
+                }
+            }
+
+            if (next == txs.size() && LOG.isDebugEnabled()) {
+                LOG.debug(
+                        "<speculative-execution block={} txs={} reexecuted={}>",
+                        block.getNumber(),
+                        txs.size(),
+                        reexecuted);
+            }
+            return summary;
+        }
+
+        /** @return the number of speculative results discarded so far */
+        int getReexecuted() {
+            return reexecuted;
+        }
+
+        private void submitAhead() {
+            int end = Math.min(txs.size(), next + window);
+            for (; submitted < end; submitted++) {
+                AionTransaction tx = txs.get(submitted);
+                if (isSpeculative(tx)) {
+                    epochs[submitted] = epoch;
+                    speculations[submitted] = workers.submit(() -> speculate(tx));
+                }
+            }
+        }
+
+        private Speculation await(int index) {
+            Future<?> speculation = speculations[index];
+            if (speculation == null) {
+                return null;
+            }
+            speculations[index] = null;
+            try {
+                return (Speculation) speculation.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                LOG.debug("<speculative-execution failed tx={}>", txs.get(index), e.getCause());
+            }
+            return null;
+        }
+
+        private Speculation speculate(AionTransaction tx) {
+            SpeculativeRepositoryCache cache = new SpeculativeRepositoryCache(track);
+            if (!ArrayUtils.isEmpty(cache.getCode(tx.getTo()))) {
+                // contract calls are executed at their turn
+                return null;
+            }
+            return new Speculation(cache, execute(tx, cache, true));
+        }
+
+        private boolean isValid(AionTransaction tx, SpeculativeRepositoryCache cache) {
+            boolean feeOnly = isFeeOnly(tx);
+            for (Address address : cache.getObserved().keySet()) {
+                if (written.contains(address) && !(feeOnly && address.equals(block.getCoinbase()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private AionTxExecSummary commit(AionTransaction tx, Speculation speculation) {
+            SpeculativeRepositoryCache cache = speculation.cache;
+            Address coinbase = block.getCoinbase();
+
+            if (isFeeOnly(tx)) {
+                // the coinbase may have been credited since it was read
+                AccountState before = cache.getObserved().get(coinbase);
+                AccountState after = cache.getCachedAccount(coinbase);
+                cache.discard(coinbase);
+                cache.flush();
+                if (after != null) {
+                    BigInteger fee = after.getBalance();
+                    if (before != null) {
+                        fee = fee.subtract(before.getBalance());
+                    }
+                    track.addBalance(coinbase, fee);
+                }
+            } else {
+                cache.flush();
+            }
+
+            written.addAll(cache.getObserved().keySet());
+            return speculation.summary;
+        }
+
+        private boolean isFeeOnly(AionTransaction tx) {
+            Address coinbase = block.getCoinbase();
+            return !coinbase.equals(tx.getFrom()) && !coinbase.equals(tx.getTo());
+        }
+
+        private AionTxExecSummary execute(AionTransaction tx, IRepository repo, boolean concurrent) {
+            TransactionExecutor executor =
+                    new TransactionExecutor(tx, block, repo, false, block.getNrgLimit(), vmLogger);
+            executor.setExecutorProvider(AionExecutorProvider.getInstance());
+            if (concurrent) {
+                executor.setBypassLock();
+            }
+            return executor.execute();
+        }
+    }
+}
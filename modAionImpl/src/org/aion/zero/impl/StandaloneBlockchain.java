@@ -136,6 +136,8 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
 
         private IRepositoryConfig repoConfig;
 
+        private int execThreads = 1;
+
         public static final int INITIAL_ACC_LEN = 10;
         public static final BigInteger DEFAULT_BALANCE =
                 new BigInteger("1000000000000000000000000");
@@ -180,6 +182,11 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
             return this;
         }
 
+        public Builder withExecThreads(int threads) {
+            this.execThreads = threads;
+            return this;
+        }
+
         public Builder withA0Config(A0BCConfig config) {
             this.a0Config = config;
             return this;
@@ -264,6 +271,11 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
                                                     .getEnergyDivisorLimitLong(),
                                             10_000_000L);
                                 }
+
+                                @Override
+                                public int getExecThreads() {
+                                    return execThreads;
+                                }
                             }
                             : this.a0Config;
 
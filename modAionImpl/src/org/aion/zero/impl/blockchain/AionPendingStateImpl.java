@@ -37,9 +37,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -47,6 +45,7 @@ import org.aion.base.Constant;
 import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryCache;
 import org.aion.base.type.Address;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.FastByteComparisons;
 import org.aion.base.util.Hex;
@@ -64,6 +63,7 @@ import org.aion.mcf.db.TransactionStore;
 import org.aion.mcf.evt.IListenerBase.PendingTransactionState;
 import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
+import org.aion.precompiled.ContractFactory;
 import org.aion.txpool.ITxPool;
 import org.aion.txpool.TxPoolModule;
 import org.aion.vm.TransactionExecutor;
@@ -79,6 +79,7 @@ import org.aion.zero.types.AionTransaction;
 import org.aion.zero.types.AionTxExecSummary;
 import org.aion.zero.types.AionTxReceipt;
 import org.aion.zero.types.IAionBlock;
+import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 
 public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, AionTransaction> {
@@ -119,7 +120,32 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     private IEventMgr evtMgr = null;
 
-    private IRepositoryCache pendingState;
+    /**
+     * The published pending state. Readers use whatever is here without locking; writers apply new
+     * transactions to it under the instance lock, and {@link #processBest} builds the state for a
+     * new best block off to the side and swaps it in when it is complete.
+     */
+    private volatile IRepositoryCache pendingState;
+
+    /**
+     * Transactions accepted while the next pending state is being rebuilt, replayed on top of it
+     * before it is published. Guarded by the instance lock, {@code null} outside a rebuild.
+     */
+    private List<AionTransaction> rebuildBacklog;
+
+    /**
+     * Receipts of the pool transactions whose last execution was a plain value transfer, by tx
+     * hash. Such a transaction only moves balances and bumps the sender nonce, so {@link
+     * #processBest} can apply it to the next state directly instead of running the executor again.
+     * Guarded by the instance lock; replaced with the map built by each rebuild.
+     */
+    private Map<ByteArrayWrapper, AionTxReceipt> transfers = new ConcurrentHashMap<>();
+
+    /** Serializes new best block processing, held for the whole rebuild. */
+    private final Object bestLock = new Object();
+
+    /** The tx pool sorts on snapshot, so snapshots and updates must not overlap. */
+    private final Object poolLock = new Object();
 
     private AtomicReference<AionBlock> best;
 
@@ -127,7 +153,11 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     private EventExecuteService ees;
 
-    private List<AionTxExecSummary> txBuffer;
+    /**
+     * Transactions executed by the current {@link #addPendingTransactions} call, inserted into the
+     * pool together when it ends. Guarded by the instance lock.
+     */
+    private final List<AionTxExecSummary> txBuffer = new ArrayList<>();
 
     private boolean bufferEnable;
 
@@ -143,21 +173,11 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     private Map<byte[], byte[]> backupPendingCacheAdd;
     private Set<byte[]> backupPendingPoolRemove;
 
-    private ScheduledExecutorService ex;
-
     private boolean closeToNetworkBest = false;
 
     private static long NRGPRICE_MIN = 10_000_000_000L;  // 10 PLAT  (10 * 10 ^ -9 AION)
     private static long NRGPRICE_MAX = 9_000_000_000_000_000_000L;  //  9 AION
 
-    class TxBuffTask implements Runnable {
-
-        @Override
-        public void run() {
-            processTxBuffer();
-        }
-    }
-
     private synchronized void processTxBuffer() {
         if (!txBuffer.isEmpty()) {
             List<AionTransaction> txs = new ArrayList<>();
@@ -166,7 +186,10 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                     txs.add(s.getTransaction());
                 }
 
-                List<AionTransaction> newPending = txPool.add(txs);
+                List<AionTransaction> newPending;
+                synchronized (poolLock) {
+                    newPending = txPool.add(txs);
+                }
 
                 if (LOGGER_TX.isTraceEnabled()) {
                     LOGGER_TX.trace("processTxBuffer buffer#{} poolNewTx#{}", txs.size(),
@@ -285,6 +308,16 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return Holder.INSTANCE;
     }
 
+    /**
+     * Creates a pending state on the given blockchain instead of the kernel singletons. The
+     * blockchain must have an event manager. The tx pool is still the module singleton.
+     */
+    public static AionPendingStateImpl createForTesting(AionBlockchainImpl blockchain) {
+        AionPendingStateImpl ps = new AionPendingStateImpl(blockchain.getRepository());
+        ps.init(blockchain);
+        return ps;
+    }
+
     private AionPendingStateImpl(AionRepositoryImpl repository) {
         this.repository = repository;
 
@@ -360,10 +393,6 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             this.bufferEnable = CfgAion.inst().getTx().getBuffer();
             if (bufferEnable) {
                 LOGGER_TX.info("TxBuf enable!");
-                this.ex = Executors.newSingleThreadScheduledExecutor();
-                this.ex.scheduleWithFixedDelay(new TxBuffTask(), 5000, 500, TimeUnit.MILLISECONDS);
-
-                this.txBuffer = Collections.synchronizedList(new ArrayList<>());
             }
 
             ees.start(new EpPS());
@@ -401,7 +430,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     }
 
     @Override
-    public synchronized IRepositoryCache<?, ?, ?> getRepository() {
+    public IRepositoryCache<?, ?, ?> getRepository() {
         // Todo : no class use this method.
         return pendingState;
     }
@@ -411,14 +440,23 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     }
 
     @Override
-    public synchronized List<AionTransaction> getPendingTransactions() {
-        return isSeed ? new ArrayList<>() : this.txPool.snapshot();
+    public List<AionTransaction> getPendingTransactions() {
+        if (isSeed) {
+            return new ArrayList<>();
+        }
 
+        synchronized (poolLock) {
+            return this.txPool.snapshot();
+        }
     }
 
-    public synchronized AionBlock getBestBlock() {
-        best.set(blockchain.getBestBlock());
-        return best.get();
+    /**
+     * Returns the best block of the chain. It does not move {@link #best}, which only {@link
+     * #processBest} advances, so a read between a block import and its best block event does not
+     * hide the new block from it.
+     */
+    public AionBlock getBestBlock() {
+        return blockchain.getBestBlock();
     }
 
     /**
@@ -438,6 +476,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         if ((isSeed || !closeToNetworkBest) && !loadPendingTx) {
             return seedProcess(transactions);
         } else {
+            // verify the batch up front, the per-tx checks below then hit the validator cache
+            TXValidator.isValid(transactions);
+
             List<AionTransaction> newPending = new ArrayList<>();
             List<AionTransaction> newLargeNonceTx = new ArrayList<>();
 
@@ -521,8 +562,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                     } while (cache != null &&
                         (tx = cache.get(txNonce)) != null &&
                         (limit-- > 0) &&
-                        (txBuffer == null ? txPool.size() : txPool.size() + txBuffer.size())
-                            < MAX_VALIDATED_PENDING_TXS);
+                        (txPool.size() + txBuffer.size()) < MAX_VALIDATED_PENDING_TXS);
                 } else if (bestRepoNonce(tx.getFrom()).compareTo(txNonce) < 1) {
                     // repay Tx
                     if (addPendingTransactionImpl(tx, txNonce)) {
@@ -550,6 +590,11 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                 this.evtMgr.newEvent(evtChange);
             }
 
+            if (bufferEnable) {
+                // one pool insert and one broadcast for the whole batch
+                processTxBuffer();
+            }
+
             if (!loadPendingTx) {
                 if (bufferEnable) {
                     if (!newLargeNonceTx.isEmpty()) {
@@ -570,8 +615,10 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     private List<AionTransaction> seedProcess(List<AionTransaction> transactions) {
         List<AionTransaction> newTx = new ArrayList<>();
-        for (AionTransaction tx : transactions) {
-            if (TXValidator.isValid(tx)) {
+        boolean[] valid = TXValidator.isValid(transactions);
+        for (int i = 0; i < valid.length; i++) {
+            AionTransaction tx = transactions.get(i);
+            if (valid[i]) {
                 newTx.add(tx);
             } else {
                 LOGGER_TX
@@ -633,6 +680,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         }
 
         AionTxExecSummary txSum;
+        IRepositoryCache state = pendingState;
         boolean ip = inPool(txNonce, tx.getFrom());
         if (ip) {
             // check energy usage
@@ -645,14 +693,14 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             } else {
                 long price = (poolTx.getNrgPrice() << 1);
                 if (price > 0 && price <= tx.getNrgPrice()) {
-                    txSum = executeTx(tx, true);
+                    txSum = executeTx(tx, true, state, best.get());
                 } else {
                     fireDroppedTx(tx, "REPAYTX_LOWPRICE");
                     return false;
                 }
             }
         } else {
-            txSum = executeTx(tx, false);
+            txSum = executeTx(tx, false, state, best.get());
         }
 
         if (txSum.isRejected()) {
@@ -669,10 +717,18 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                 LOGGER_TX.trace("addPendingTransactionImpl validTx {}", tx.toString());
             }
 
+            if (rebuildBacklog != null) {
+                rebuildBacklog.add(tx);
+            }
+            cacheTransfer(tx, txSum, best.get(), transfers);
+
             if (bufferEnable) {
                 txBuffer.add(txSum);
             } else {
-                AionTransaction rtn = this.txPool.add(tx);
+                AionTransaction rtn;
+                synchronized (poolLock) {
+                    rtn = this.txPool.add(tx);
+                }
                 if (rtn != null && !rtn.equals(tx)) {
                     AionTxReceipt rp = new AionTxReceipt();
                     rp.setTransaction(rtn);
@@ -731,14 +787,96 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return b1;
     }
 
+    /**
+     * Moves the pending state to a new best block. The surviving pool is re-executed on a fresh
+     * state without holding the instance lock, so {@link #bestPendingStateNonce}, {@link
+     * #getPendingTransactions} and new transactions are served from the previous state until the
+     * new one is swapped in. Transactions accepted in the meantime are replayed on the new state
+     * before it is published.
+     *
+     * <p>Only the chains of the senders in the new block are always executed again. The others
+     * are carried over from their cached plain transfer receipts where possible, see {@link
+     * #updateState}.
+     */
     @Override
-    public synchronized void processBest(AionBlock newBlock, List receipts) {
+    public void processBest(AionBlock newBlock, List receipts) {
 
         if (isSeed) {
             // seed mode doesn't need to update the pendingState
             return;
         }
 
+        synchronized (bestLock) {
+            List<AionTransaction> pendingTxl;
+            Set<Address> rerun;
+            Map<ByteArrayWrapper, AionTxReceipt> lastTransfers;
+            synchronized (this) {
+                // after a fork switch every chain is executed again
+                boolean forked = best.get() != null && !best.get().isParentOf(newBlock);
+
+                switchBest(newBlock, receipts);
+
+                processTxBuffer();
+                synchronized (poolLock) {
+                    pendingTxl = this.txPool.snapshotAll();
+                }
+                rebuildBacklog = new ArrayList<>();
+
+                rerun = forked ? null : getTxsAccounts(newBlock.getTransactionsList());
+                lastTransfers = transfers;
+            }
+
+            IRepositoryCache nextState = repository.startTracking();
+            Map<ByteArrayWrapper, AionTxReceipt> nextTransfers = new ConcurrentHashMap<>();
+            List<AionTransaction> rejected =
+                updateState(newBlock, nextState, pendingTxl, false, rerun, lastTransfers,
+                    nextTransfers);
+
+            synchronized (this) {
+                rejected.addAll(
+                    updateState(newBlock, nextState, rebuildBacklog, true, null, null,
+                        nextTransfers));
+                rebuildBacklog = null;
+                pendingState = nextState;
+                transfers = nextTransfers;
+
+                if (!rejected.isEmpty()) {
+                    synchronized (poolLock) {
+                        txPool.remove(rejected);
+                    }
+
+                    if (poolBackUp) {
+                        for (AionTransaction tx : rejected) {
+                            backupPendingPoolRemove.add(tx.getHash().clone());
+                        }
+                    }
+                }
+
+                synchronized (poolLock) {
+                    txPool.updateBlkNrgLimit(newBlock.getNrgLimit());
+                }
+
+                flushCachePendingTx();
+
+                List<IEvent> events = new ArrayList<>();
+                events.add(new EventTx(EventTx.CALLBACK.PENDINGTXSTATECHANGE0));
+
+                if (poolBackUp) {
+                    events.add(new EventTx(EventTx.CALLBACK.TXBACKUP0));
+                }
+
+                this.evtMgr.newEvents(events);
+
+                // This is for debug purpose, do not use in the regular kernel running.
+                if (this.dumpPool) {
+                    DumpPool();
+                }
+            }
+        }
+    }
+
+    /** Clears the included and outdated transactions and moves {@link #best} to the new block. */
+    private void switchBest(AionBlock newBlock, List receipts) {
         if (best.get() != null && !best.get().isParentOf(newBlock)) {
 
             // need to switch the state to another fork
@@ -760,14 +898,13 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                 }
                 List<AionTransaction> atl = rollback.getTransactionsList();
                 if (!atl.isEmpty()) {
-                    this.txPool.add(atl);
+                    synchronized (poolLock) {
+                        this.txPool.add(atl);
+                    }
                 }
                 rollback = blockchain.getBlockByHash(rollback.getParentHash());
             }
 
-            // rollback the state snapshot to the ancestor
-            pendingState = repository.getSnapshotTo(commonAncestor.getStateRoot()).startTracking();
-
             // next process blocks from new fork
             IAionBlock main = newBlock;
             List<IAionBlock> mainFork = new ArrayList<>();
@@ -800,26 +937,6 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             LOGGER_TX
                 .debug("PendingStateImpl.processBest: closeToNetworkBest[{}]", closeToNetworkBest);
         }
-
-        updateState(best.get());
-
-        txPool.updateBlkNrgLimit(best.get().getNrgLimit());
-
-        flushCachePendingTx();
-
-        List<IEvent> events = new ArrayList<>();
-        events.add(new EventTx(EventTx.CALLBACK.PENDINGTXSTATECHANGE0));
-
-        if (poolBackUp) {
-            events.add(new EventTx(EventTx.CALLBACK.TXBACKUP0));
-        }
-
-        this.evtMgr.newEvents(events);
-
-        // This is for debug purpose, do not use in the regular kernel running.
-        if (this.dumpPool) {
-            DumpPool();
-        }
     }
 
     private void flushCachePendingTx() {
@@ -885,7 +1002,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             return;
         }
 
-        txPool.remove(outdated);
+        synchronized (poolLock) {
+            txPool.remove(outdated);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -925,7 +1044,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             }
 
             if (!accountNonce.isEmpty()) {
-                this.txPool.remove(accountNonce);
+                synchronized (poolLock) {
+                    this.txPool.remove(accountNonce);
+                }
             }
         }
     }
@@ -938,23 +1059,49 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return info;
     }
 
-    @SuppressWarnings("UnusedReturnValue")
-    private List<AionTransaction> updateState(IAionBlock block) {
-
-        pendingState = repository.startTracking();
-
-        processTxBuffer();
-        List<AionTransaction> pendingTxl = this.txPool.snapshotAll();
-        List<AionTransaction> rtn = new ArrayList<>();
-        if (LOGGER_TX.isInfoEnabled()) {
-            LOGGER_TX.info("updateState - snapshotAll tx[{}]", pendingTxl.size());
-        }
+    /**
+     * Executes the given pool transactions on {@code state} in order. When replaying transactions
+     * accepted during a rebuild, a nonce that is already used on {@code state} is a replacement
+     * of a pool transaction and skips the nonce check, as in {@link #addPendingTransactionImpl}.
+     *
+     * <p>The pool snapshot lists each sender's transactions as one nonce chain. A chain whose
+     * sender is not in {@code rerun} and whose transactions are all in {@code lastTransfers} is
+     * carried over with {@link #carryOver} instead of being executed; from the first transaction
+     * that cannot be carried over the rest of the chain is executed.
+     *
+     * @param rerun senders whose chains are always executed, {@code null} to execute every chain
+     * @param lastTransfers plain transfers cached on the previous state, {@code null} if none
+     * @param nextTransfers collects the plain transfers on {@code state}
+     * @return the transactions rejected on this state, still to be removed from the pool
+     */
+    private List<AionTransaction> updateState(IAionBlock block, IRepositoryCache state,
+        List<AionTransaction> pendingTxl, boolean replay, Set<Address> rerun,
+        Map<ByteArrayWrapper, AionTxReceipt> lastTransfers,
+        Map<ByteArrayWrapper, AionTxReceipt> nextTransfers) {
+
+        List<AionTransaction> rejected = new ArrayList<>();
+        Set<Address> broken = new HashSet<>();
+        int carried = 0;
         for (AionTransaction tx : pendingTxl) {
             if (LOGGER_TX.isTraceEnabled()) {
                 LOGGER_TX.trace("updateState - loop: " + tx.toString());
             }
 
-            AionTxExecSummary txSum = executeTx(tx, false);
+            if (rerun != null && !rerun.contains(tx.getFrom()) && !broken.contains(tx.getFrom())) {
+                ByteArrayWrapper key = ByteArrayWrapper.wrap(tx.getHash());
+                AionTxReceipt receipt = lastTransfers.get(key);
+                if (receipt != null && carryOver(tx, receipt.getEnergyUsed(), state, block)) {
+                    nextTransfers.put(key, receipt);
+                    fireTxUpdate(receipt, PendingTransactionState.PENDING, block);
+                    carried++;
+                    continue;
+                }
+                broken.add(tx.getFrom());
+            }
+
+            boolean repay =
+                replay && tx.getNonceBI().compareTo(state.getNonce(tx.getFrom())) < 0;
+            AionTxExecSummary txSum = executeTx(tx, repay, state, block);
             AionTxReceipt receipt = txSum.getReceipt();
             receipt.setTransaction(tx);
 
@@ -962,19 +1109,73 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                 if (LOGGER_TX.isDebugEnabled()) {
                     LOGGER_TX.debug("Invalid transaction in txpool: {}", tx);
                 }
-                txPool.remove(Collections.singletonList(tx));
-
-                if (poolBackUp) {
-                    backupPendingPoolRemove.add(tx.getHash().clone());
-                }
+                rejected.add(tx);
                 fireTxUpdate(receipt, PendingTransactionState.DROPPED, block);
             } else {
+                cacheTransfer(tx, txSum, block, nextTransfers);
                 fireTxUpdate(receipt, PendingTransactionState.PENDING, block);
-                rtn.add(tx);
             }
         }
 
-        return rtn;
+        if (LOGGER_TX.isInfoEnabled()) {
+            LOGGER_TX.info("updateState - snapshotAll tx[{}] carried[{}]", pendingTxl.size(),
+                carried);
+        }
+
+        return rejected;
+    }
+
+    /**
+     * Remembers the receipt of {@code tx} if it ran as a plain value transfer: it succeeded, ran
+     * no code and used only the intrinsic energy.
+     */
+    private static void cacheTransfer(AionTransaction tx, AionTxExecSummary txSum,
+        IAionBlock block, Map<ByteArrayWrapper, AionTxReceipt> transfers) {
+
+        if (!tx.isContractCreation()
+            && !txSum.isFailed()
+            && txSum.getLogs().isEmpty()
+            && txSum.getInternalTransactions().isEmpty()
+            && txSum.getDeletedAccounts().isEmpty()
+            && !ContractFactory.isPrecompiledContract(tx.getTo())
+            && txSum.getReceipt().getEnergyUsed() == tx.transactionCost(block.getNumber())) {
+            transfers.put(ByteArrayWrapper.wrap(tx.getHash()), txSum.getReceipt());
+        }
+    }
+
+    /**
+     * Applies a cached plain value transfer to {@code state} the way {@link TransactionExecutor}
+     * would, after the same energy limit, nonce and balance checks. Balances credited by the new
+     * block are picked up because only deltas are applied.
+     *
+     * @return false, leaving {@code state} untouched, if a check fails or the transfer would no
+     *     longer be plain
+     */
+    private static boolean carryOver(AionTransaction tx, long nrgUsed, IRepositoryCache state,
+        IAionBlock block) {
+
+        Address from = tx.getFrom();
+        long nrgLimit = tx.getNrg();
+        if (nrgUsed != tx.transactionCost(block.getNumber())
+            || nrgLimit > block.getNrgLimit()
+            || !tx.getNonceBI().equals(state.getNonce(from))
+            || !ArrayUtils.isEmpty(state.getCode(tx.getTo()))) {
+            return false;
+        }
+
+        BigInteger value = new BigInteger(1, tx.getValue());
+        BigInteger nrgPrice = BigInteger.valueOf(tx.getNrgPrice());
+        BigInteger txTotal = nrgPrice.multiply(BigInteger.valueOf(nrgLimit)).add(value);
+        if (txTotal.compareTo(state.getBalance(from)) > 0) {
+            return false;
+        }
+
+        BigInteger fee = nrgPrice.multiply(BigInteger.valueOf(nrgUsed));
+        state.incrementNonce(from);
+        state.addBalance(from, fee.add(value).negate());
+        state.addBalance(tx.getTo(), value);
+        state.addBalance(block.getCoinbase(), fee);
+        return true;
     }
 
     private Set<Address> getTxsAccounts(List<AionTransaction> txn) {
@@ -985,15 +1186,14 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
         return rtn;
     }
 
-    private AionTxExecSummary executeTx(AionTransaction tx, boolean inPool) {
+    private AionTxExecSummary executeTx(AionTransaction tx, boolean inPool,
+        IRepositoryCache state, IAionBlock bestBlk) {
 
-        IAionBlock bestBlk = best.get();
         if (LOGGER_TX.isTraceEnabled()) {
             LOGGER_TX.trace("executeTx: {}", Hex.toHexString(tx.getHash()));
         }
 
-        TransactionExecutor txExe = new TransactionExecutor(tx, bestBlk, pendingState,
-            LOGGER_VM);
+        TransactionExecutor txExe = new TransactionExecutor(tx, bestBlk, state, LOGGER_VM);
         txExe.setExecutorProvider(AionExecutorProvider.getInstance());
 
         if (inPool) {
@@ -1004,7 +1204,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     }
 
     @Override
-    public synchronized BigInteger bestPendingStateNonce(Address addr) {
+    public BigInteger bestPendingStateNonce(Address addr) {
         return isSeed ? BigInteger.ZERO : this.pendingState.getNonce(addr);
     }
 
@@ -1022,10 +1222,6 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     @Override
     public void shutDown() {
-        if (this.bufferEnable) {
-            ex.shutdown();
-        }
-
         if (ees != null) {
             ees.shutdown();
         }
@@ -1033,7 +1229,10 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     @Override
     public synchronized void DumpPool() {
-        List<AionTransaction> txn = txPool.snapshotAll();
+        List<AionTransaction> txn;
+        synchronized (poolLock) {
+            txn = txPool.snapshotAll();
+        }
         Set<Address> addrs = new HashSet<>();
         LOGGER_TX.info("");
         LOGGER_TX.info("=========== SnapshotAll");
@@ -1042,7 +1241,7 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
             LOGGER_TX.info("{}", tx.toString());
         }
 
-        txn = txPool.snapshot();
+        txn = getPendingTransactions();
         LOGGER_TX.info("");
         LOGGER_TX.info("=========== Snapshot");
         for (AionTransaction tx : txn) {
@@ -1220,6 +1419,6 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     @Override
     public void updateBest() {
-        getBestBlock();
+        best.set(blockchain.getBestBlock());
     }
 }
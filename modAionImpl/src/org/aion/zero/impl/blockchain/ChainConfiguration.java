@@ -24,7 +24,7 @@
 package org.aion.zero.impl.blockchain;
 
 import org.aion.base.type.Address;
-import org.aion.equihash.OptimizedEquiValidator;
+import org.aion.equihash.FlatEquiValidator;
 import org.aion.mcf.blockchain.IBlockConstants;
 import org.aion.mcf.blockchain.IChainCfg;
 import org.aion.mcf.core.IDifficultyCalculator;
@@ -57,7 +57,7 @@ public class ChainConfiguration implements IChainCfg<IAionBlock, AionTransaction
     protected IMiner<?, ?> miner;
     protected IDifficultyCalculator difficultyCalculatorAdapter;
     protected IRewardsCalculator rewardsCalculatorAdapter;
-    protected OptimizedEquiValidator equiValidator;
+    protected FlatEquiValidator equiValidator;
 
     protected Address tokenBridgingOwnerAddress;
 
@@ -109,9 +109,9 @@ public class ChainConfiguration implements IChainCfg<IAionBlock, AionTransaction
      *
      * @return
      */
-    protected OptimizedEquiValidator getEquihashValidator() {
+    protected FlatEquiValidator getEquihashValidator() {
         if (this.equiValidator == null) {
-            this.equiValidator = new OptimizedEquiValidator(CfgAion.getN(), CfgAion.getK());
+            this.equiValidator = new FlatEquiValidator(CfgAion.getN(), CfgAion.getK());
         }
         return this.equiValidator;
     }
@@ -23,7 +23,6 @@
 package org.aion.zero.impl.db;
 
 import org.aion.base.db.IByteArrayKeyValueDatabase;
-import org.aion.base.util.ByteUtil;
 import org.aion.base.util.Hex;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
@@ -32,8 +31,7 @@ import org.aion.mcf.ds.DataSourceArray;
 import org.aion.mcf.ds.ObjectDataSource;
 import org.aion.mcf.ds.Serializer;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.IAionBlock;
@@ -61,6 +59,10 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     private DataSourceArray<List<BlockInfo>> index;
     private ObjectDataSource<AionBlock> blocks;
 
+    // main chain hash and total difficulty by block number, mirrors the most recent levels of the
+    // index database
+    private final MainChainIndex mainChainIndex = new MainChainIndex();
+
     private boolean checkIntegrity = true;
 
     public AionBlockStore(IByteArrayKeyValueDatabase index, IByteArrayKeyValueDatabase blocks) {
@@ -122,15 +124,13 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                 return null;
             }
 
-            List<BlockInfo> blockInfos = index.get(blockNumber);
-
-            for (BlockInfo blockInfo : blockInfos) {
-                if (blockInfo.isMainChain()) {
-                    return blockInfo.getHash();
-                }
+            byte[] hash = mainChainIndex.getHash(blockNumber);
+            if (hash != null) {
+                return hash;
             }
 
-            return null;
+            BlockInfo blockInfo = getMainChainInfo(blockNumber);
+            return blockInfo == null ? null : blockInfo.getHash();
         } finally {
             lock.readLock().unlock();
         }
@@ -179,7 +179,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         blockInfos.add(blockInfo);
 
         blocks.put(block.getHash(), block);
-        index.set(block.getNumber(), blockInfos);
+        setBlockInfoForLevel(block.getNumber(), blockInfos);
     }
 
     public List<Map.Entry<AionBlock, Map.Entry<BigInteger, Boolean>>> getBlocksByNumber(long number) {
@@ -218,20 +218,16 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                 return null;
             }
 
-            List<BlockInfo> blockInfos = index.get(number);
-
-            if (blockInfos == null) {
-                return null;
-            }
-
-            for (BlockInfo blockInfo : blockInfos) {
-                if (blockInfo.isMainChain()) {
-                    byte[] hash = blockInfo.getHash();
-                    return blocks.get(hash);
+            byte[] hash = mainChainIndex.getHash(number);
+            if (hash == null) {
+                BlockInfo blockInfo = getMainChainInfo(number);
+                if (blockInfo == null) {
+                    return null;
                 }
+                hash = blockInfo.getHash();
             }
 
-            return null;
+            return blocks.get(hash);
         } finally {
             lock.readLock().unlock();
         }
@@ -247,16 +243,12 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                 return null;
             }
 
-            List<BlockInfo> blockInfos = index.get(number);
-
-            for (BlockInfo blockInfo : blockInfos) {
-                if (blockInfo.isMainChain()) {
-                    byte[] hash = blockInfo.getHash();
-                    return Map.entry(blocks.get(hash), blockInfo.getCummDifficulty());
-                }
+            BlockInfo blockInfo = getMainChainInfo(number);
+            if (blockInfo == null) {
+                return null;
             }
 
-            return null;
+            return Map.entry(blocks.get(blockInfo.getHash()), blockInfo.getCummDifficulty());
         } finally {
             lock.readLock().unlock();
         }
@@ -311,11 +303,9 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         try {
             long maxNumber = getMaxNumber();
 
-            List<BlockInfo> blockInfos = index.get(maxNumber);
-            for (BlockInfo blockInfo : blockInfos) {
-                if (blockInfo.isMainChain()) {
-                    return blockInfo.getCummDifficulty();
-                }
+            BlockInfo mainChainInfo = getMainChainInfo(maxNumber);
+            if (mainChainInfo != null) {
+                return mainChainInfo.getCummDifficulty();
             }
 
             while (true) {
@@ -537,6 +527,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
                 // remove the level
                 index.remove(currentLevel);
+                mainChainIndex.invalidate(currentLevel);
                 if (bestLine != null) {
                     bestLine = getBlockByHash(bestLine.getParentHash());
                 } else {
@@ -783,18 +774,22 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         try {
             List<byte[]> result = new ArrayList<>();
 
+            long size = index.size();
             int i;
-            for (i = 0; i < maxBlocks; ++i) {
-                List<BlockInfo> blockInfos = index.get(number);
-                if (blockInfos == null) {
-                    break;
-                }
+            for (i = 0; i < maxBlocks && number < size; ++i) {
+                byte[] hash = mainChainIndex.getHash(number);
+                if (hash == null) {
+                    List<BlockInfo> blockInfos = index.get(number);
+                    if (blockInfos == null) {
+                        break;
+                    }
 
-                for (BlockInfo blockInfo : blockInfos) {
-                    if (blockInfo.isMainChain()) {
+                    BlockInfo blockInfo = indexMainChain(number, blockInfos);
+                    if (blockInfo != null) {
                         result.add(blockInfo.getHash());
-                        break;
                     }
+                } else {
+                    result.add(hash);
                 }
 
                 ++number;
@@ -823,6 +818,9 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
      * If it is incorrect, the method attempts to correct it by setting it to the given level.
      */
     public void correctSize(long maxNumber, Logger log) {
+        // the index database is being recovered, so the cached main chain is no longer trusted
+        mainChainIndex.clear();
+
         // correcting the size if smaller than should be
         long storedSize = index.getStoredSize();
         if (maxNumber >= storedSize) {
@@ -877,17 +875,22 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         public BlockInfo() {}
 
         public BlockInfo(byte[] ser) {
-            RLPList outerList = RLP.decode2(ser);
-
             // should we throw?
-            if (outerList.isEmpty()) { return; }
+            if (ser == null || ser.length == 0) { return; }
 
-            RLPList list = (RLPList) outerList.get(0);
-            this.hash = list.get(0).getRLPData();
-            this.cummDifficulty = ByteUtil.bytesToBigInteger(list.get(1).getRLPData());
+            decode(RLPView.wrap(ser));
+        }
 
-            byte[] boolData = list.get(2).getRLPData();
-            this.mainChain = !(boolData == null || boolData.length == 0) && boolData[0] == (byte) 0x1;
+        BlockInfo(RLPView list) {
+            decode(list);
+        }
+
+        private void decode(RLPView list) {
+            this.hash = list.get(0).bytes();
+            this.cummDifficulty = list.get(1).asBigInteger();
+
+            RLPView boolData = list.get(2);
+            this.mainChain = boolData.length() == 1 && boolData.asLong() == 1;
         }
 
         private static final long serialVersionUID = 7279277944605144671L;
@@ -961,11 +964,11 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
         @Override
         public List<BlockInfo> deserialize(byte[] stream) {
-            RLPList list = (RLPList) RLP.decode2(stream).get(0);
+            RLPView list = RLPView.wrap(stream);
             List<BlockInfo> res = new ArrayList<>(list.size());
 
-            for (RLPElement aList : list) {
-                res.add(new BlockInfo(aList.getRLPData()));
+            for (int i = 0; i < list.size(); i++) {
+                res.add(new BlockInfo(list.get(i)));
             }
             return res;
         }
@@ -1036,6 +1039,43 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     private void setBlockInfoForLevel(long level, List<BlockInfo> infos) {
         // locks acquired by calling method
         index.set(level, infos);
+        indexMainChain(level, infos);
+    }
+
+    /**
+     * @return the main chain block information at the given level or {@code null} if the level
+     *     has no main chain block
+     * @implNote The method calling this method must handle the locking.
+     */
+    private BlockInfo getMainChainInfo(long level) {
+        MainChainIndex.Entry entry = mainChainIndex.get(level);
+        if (entry != null) {
+            BlockInfo blockInfo = new BlockInfo();
+            blockInfo.setHash(entry.hash);
+            blockInfo.setCummDifficulty(entry.totalDifficulty);
+            blockInfo.setMainChain(true);
+            return blockInfo;
+        }
+
+        List<BlockInfo> infos = index.get(level);
+        return infos == null ? null : indexMainChain(level, infos);
+    }
+
+    /**
+     * Updates the main chain index with the given block information.
+     *
+     * @return the main chain block information or {@code null} if none is marked as main chain
+     * @implNote The method calling this method must handle the locking.
+     */
+    private BlockInfo indexMainChain(long level, List<BlockInfo> infos) {
+        for (BlockInfo blockInfo : infos) {
+            if (blockInfo.isMainChain()) {
+                mainChainIndex.set(level, blockInfo.getHash(), blockInfo.getCummDifficulty());
+                return blockInfo;
+            }
+        }
+        mainChainIndex.invalidate(level);
+        return null;
     }
 
     /**
@@ -1189,6 +1229,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         lock.writeLock().lock();
 
         try {
+            mainChainIndex.clear();
             index.close();
         } catch (Exception e) {
             LOG.error("Not able to close the index database:", e);
@@ -36,9 +36,11 @@ import java.util.Map;
 import java.util.Set;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IContractDetails;
+import org.aion.base.db.IKeyValueCursor;
 import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryCache;
 import org.aion.base.db.IRepositoryConfig;
+import org.aion.base.db.KeyRange;
 import org.aion.base.type.Address;
 import org.aion.base.util.Hex;
 import org.aion.base.vm.IDataWord;
@@ -46,6 +48,7 @@ import org.aion.mcf.core.AccountState;
 import org.aion.mcf.db.AbstractRepository;
 import org.aion.mcf.db.ContractDetailsCacheImpl;
 import org.aion.mcf.db.TransactionStore;
+import org.aion.mcf.trie.NodeCache;
 import org.aion.mcf.trie.SecureTrie;
 import org.aion.mcf.trie.Trie;
 import org.aion.zero.db.AionRepositoryCache;
@@ -62,6 +65,8 @@ public class AionRepositoryImpl
 
     private TransactionStore<AionTransaction, AionTxReceipt, AionTxInfo> transactionStore;
 
+    private LogBloomIndex bloomIndex;
+
     /**
      * used by getSnapShotTo
      *
@@ -108,6 +113,9 @@ public class AionRepositoryImpl
             // Setup block store.
             this.blockStore = new AionBlockStore(indexDatabase, blockDatabase, checkIntegrity);
 
+            // Setup log bloom index.
+            this.bloomIndex = new LogBloomIndex(bloomIndexDatabase);
+
             // Setup world trie.
             worldState = createStateTrie();
         } catch (Exception e) { // TODO - If any of the connections failed.
@@ -120,8 +128,15 @@ public class AionRepositoryImpl
         return this.transactionStore;
     }
 
+    /** @implNote The log bloom index is not locked within the repository implementation. */
+    public LogBloomIndex getBloomIndex() {
+        return this.bloomIndex;
+    }
+
     private Trie createStateTrie() {
-        return new SecureTrie(stateDSPrune).withPruningEnabled(pruneEnabled);
+        return new SecureTrie(stateDSPrune)
+                .withPruningEnabled(pruneEnabled)
+                .withScanSpill(this::openStateScanDatabase);
     }
 
     @Override
@@ -229,6 +244,11 @@ public class AionRepositoryImpl
             // First sync worldState.
             LOG.info("worldState.sync()");
             worldState.sync();
+            LOG.debug("trie node cache: {}", NodeCache.shared());
+
+            if (bloomIndex != null) {
+                bloomIndex.flush();
+            }
 
             // Flush all necessary caches.
             LOG.info("flush all databases");
@@ -320,10 +340,9 @@ public class AionRepositoryImpl
         List<byte[]> rtn = new ArrayList<>();
         rwLock.readLock().lock();
         try {
-            Set<byte[]> keySet = txPoolDatabase.keys();
-            for (byte[] b : keySet) {
-                if (txPoolDatabase.get(b).isPresent()) {
-                    rtn.add(txPoolDatabase.get(b).get());
+            try (IKeyValueCursor<byte[], byte[]> cursor = txPoolDatabase.cursor(KeyRange.all())) {
+                for (; cursor.isValid(); cursor.next()) {
+                    rtn.add(cursor.value());
                 }
             }
         } finally {
@@ -339,10 +358,9 @@ public class AionRepositoryImpl
         List<byte[]> rtn = new ArrayList<>();
         rwLock.readLock().lock();
         try {
-            Set<byte[]> keySet = pendingTxCacheDatabase.keys();
-            for (byte[] b : keySet) {
-                if (pendingTxCacheDatabase.get(b).isPresent()) {
-                    rtn.add(pendingTxCacheDatabase.get(b).get());
+            try (IKeyValueCursor<byte[], byte[]> cursor = pendingTxCacheDatabase.cursor(KeyRange.all())) {
+                for (; cursor.isValid(); cursor.next()) {
+                    rtn.add(cursor.value());
                 }
             }
         } finally {
@@ -431,27 +449,23 @@ public class AionRepositoryImpl
     /**
      * @inheritDoc
      * @implNote Any other method calling this can rely on the fact that the account state returned
-     *     is a newly created object. Since this querying method it locked, the methods calling it
-     *     <b>may not need to be locked or synchronized</b>, depending on the specific use case.
+     *     is a newly created object. The state trie is read without the repository lock: the lookup
+     *     resolves against a snapshot of the trie root, so it sees the state either before or after
+     *     a concurrent update of the account and never waits for block import or flushes. The
+     *     methods calling it <b>may not need to be locked or synchronized</b>, depending on the
+     *     specific use case.
      */
     @Override
     public AccountState getAccountState(Address address) {
-        rwLock.readLock().lock();
-
         AccountState result = null;
 
-        try {
-            byte[] accountData = worldState.get(address.toBytes());
+        byte[] accountData = worldState.get(address.toBytes());
 
-            if (accountData.length != 0) {
-                result = new AccountState(accountData);
-                LOG.debug(
-                        "New AccountSate [{}], State [{}]", address.toString(), result.toString());
-            }
-            return result;
-        } finally {
-            rwLock.readLock().unlock();
+        if (accountData.length != 0) {
+            result = new AccountState(accountData);
+            LOG.debug("New AccountSate [{}], State [{}]", address.toString(), result.toString());
         }
+        return result;
     }
 
     @Override
@@ -562,6 +576,7 @@ public class AionRepositoryImpl
         try {
             AionRepositoryImpl repo = new AionRepositoryImpl();
             repo.blockStore = blockStore;
+            repo.bloomIndex = bloomIndex;
             repo.cfg = cfg;
             repo.stateDatabase = this.stateDatabase;
             repo.stateWithArchive = this.stateWithArchive;
@@ -657,6 +672,16 @@ public class AionRepositoryImpl
                 LOGGEN.error("Exception occurred while closing the state archive database.", e);
             }
 
+            try {
+                if (stateJournalDatabase != null) {
+                    stateJournalDatabase.close();
+                    LOGGEN.info("State journal database closed.");
+                    stateJournalDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the state journal database.", e);
+            }
+
             try {
                 if (transactionDatabase != null) {
                     transactionDatabase.close();
@@ -667,6 +692,17 @@ public class AionRepositoryImpl
                 LOGGEN.error("Exception occurred while closing the transaction database.", e);
             }
 
+            try {
+                if (bloomIndexDatabase != null) {
+                    bloomIndex.close();
+                    bloomIndexDatabase.close();
+                    LOGGEN.info("Log bloom index database closed.");
+                    bloomIndexDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the log bloom index database.", e);
+            }
+
             try {
                 if (blockStore != null) {
                     blockStore.close();
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ */
+
+package org.aion.zero.impl.db;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.util.ByteUtil;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.vm.types.Bloom;
+import org.aion.zero.impl.types.AionBlock;
+import org.slf4j.Logger;
+
+/**
+ * Sectioned bloom-bits index over the log blooms of stored blocks.
+ *
+ * <p>The chain is split into sections of {@link #getSectionSize()} consecutive block numbers. For
+ * each section and each of the 2048 bloom bits the index keeps a bit vector (a column) with one
+ * bit per block number of the section, set when a block stored at that number has the bloom bit
+ * set. A log filter can then AND/OR a handful of columns to find the candidate blocks of a whole
+ * section instead of loading every block header.
+ *
+ * <p>Columns are a superset of the main chain: the blooms of side chain blocks are added as well,
+ * so a reorganization never leaves a main chain block out of the index. Candidates must still be
+ * matched against the actual block bloom.
+ *
+ * <p>The columns of the section currently being filled are kept in memory and written out when the
+ * section is complete or when the index is flushed. Block numbers up to {@link #getIndexedHead()}
+ * are guaranteed to be covered; blocks stored before the index existed are added by {@link
+ * #catchUp(AionBlockStore)}.
+ */
+public class LogBloomIndex {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    public static final int DEFAULT_SECTION_SIZE = 4096;
+
+    private static final int BLOOM_BITS = 2048;
+
+    /** Shorter than any column key, so it cannot collide with one. */
+    private static final byte[] HEAD_KEY = "head".getBytes();
+
+    private final IByteArrayKeyValueDatabase database;
+    private final int sectionSize;
+
+    private long head;
+    private boolean closed = false;
+
+    // columns of the section being filled, loaded on first write
+    private long pendingSection;
+    private byte[][] pendingColumns = new byte[BLOOM_BITS][];
+
+    public LogBloomIndex(IByteArrayKeyValueDatabase database) {
+        this(database, DEFAULT_SECTION_SIZE);
+    }
+
+    public LogBloomIndex(IByteArrayKeyValueDatabase database, int sectionSize) {
+        if (sectionSize <= 0 || sectionSize % 8 != 0) {
+            throw new IllegalArgumentException("The section size must be a positive multiple of 8.");
+        }
+        this.database = database;
+        this.sectionSize = sectionSize;
+
+        Optional<byte[]> stored = database.get(HEAD_KEY);
+        this.head = stored.isPresent() ? ByteUtil.byteArrayToLong(stored.get()) : -1L;
+        this.pendingSection = (head + 1) / sectionSize;
+    }
+
+    public int getSectionSize() {
+        return sectionSize;
+    }
+
+    /** @return the highest block number up to which all stored blocks are indexed, or -1 */
+    public synchronized long getIndexedHead() {
+        return head;
+    }
+
+    /**
+     * Adds the log bloom of a stored block. Blocks above the next expected number are left to
+     * {@link #catchUp(AionBlockStore)}.
+     */
+    public synchronized void add(long number, byte[] logBloom) {
+        if (closed || number > head + 1) {
+            return;
+        }
+        addBits(number, logBloom);
+        if (number == head + 1) {
+            head = number;
+        }
+    }
+
+    /**
+     * Indexes the blocks stored above the indexed head, one block number at a time, so that block
+     * imports are only held back for the duration of a single lookup.
+     */
+    public void catchUp(AionBlockStore blockStore) {
+        long start = getIndexedHead();
+        while (true) {
+            synchronized (this) {
+                long number = head + 1;
+                if (closed || number > blockStore.getMaxNumber()) {
+                    break;
+                }
+                List<Map.Entry<AionBlock, Map.Entry<BigInteger, Boolean>>> blocks =
+                        blockStore.getBlocksByNumber(number);
+                for (Map.Entry<AionBlock, ?> entry : blocks) {
+                    if (entry.getKey() != null) {
+                        addBits(number, entry.getKey().getLogBloom());
+                    }
+                }
+                head = number;
+            }
+        }
+        long end = getIndexedHead();
+        if (end > start) {
+            LOG.info("Log bloom index caught up from block {} to block {}.", start + 1, end);
+        }
+    }
+
+    /**
+     * Returns the column of a bloom bit for the given section. Bit {@code i} of the result (in
+     * {@link java.util.BitSet#valueOf(byte[])} order) corresponds to block number {@code section *
+     * sectionSize + i}.
+     */
+    public byte[] getColumn(long section, int bit) {
+        synchronized (this) {
+            if (section == pendingSection && pendingColumns[bit] != null) {
+                return Arrays.copyOf(pendingColumns[bit], pendingColumns[bit].length);
+            }
+        }
+        return database.get(columnKey(section, bit)).orElse(new byte[sectionSize / 8]);
+    }
+
+    /** Writes out the in-memory columns and the indexed head. */
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        writePending();
+        database.put(HEAD_KEY, ByteUtil.longToBytes(head));
+    }
+
+    /** Flushes the index and stops a running {@link #catchUp(AionBlockStore)}. */
+    public synchronized void close() {
+        flush();
+        closed = true;
+    }
+
+    /** @return the positions of the bits set in the given bloom */
+    public static int[] getBits(Bloom bloom) {
+        byte[] data = bloom.getData();
+        int[] bits = new int[BLOOM_BITS];
+        int count = 0;
+        for (int i = data.length - 1; i >= 0; i--) {
+            int b = data[i] & 0xff;
+            while (b != 0) {
+                int low = Integer.numberOfTrailingZeros(b);
+                bits[count++] = (data.length - 1 - i) * 8 + low;
+                b &= b - 1;
+            }
+        }
+        return Arrays.copyOf(bits, count);
+    }
+
+    private void addBits(long number, byte[] logBloom) {
+        int[] bits = getBits(new Bloom(logBloom));
+        if (bits.length == 0) {
+            return;
+        }
+
+        long section = number / sectionSize;
+        int offset = (int) (number % sectionSize);
+
+        if (section > pendingSection) {
+            writePending();
+            pendingSection = section;
+        }
+
+        if (section == pendingSection) {
+            for (int bit : bits) {
+                if (pendingColumns[bit] == null) {
+                    pendingColumns[bit] =
+                            database.get(columnKey(section, bit)).orElse(new byte[sectionSize / 8]);
+                }
+                setOffset(pendingColumns[bit], offset);
+            }
+        } else {
+            // a block stored in an earlier section, e.g. the fork point of a deep reorganization
+            for (int bit : bits) {
+                byte[] key = columnKey(section, bit);
+                byte[] column = database.get(key).orElse(new byte[sectionSize / 8]);
+                setOffset(column, offset);
+                database.put(key, column);
+            }
+        }
+    }
+
+    private void writePending() {
+        for (int bit = 0; bit < BLOOM_BITS; bit++) {
+            if (pendingColumns[bit] != null) {
+                database.put(columnKey(pendingSection, bit), pendingColumns[bit]);
+                pendingColumns[bit] = null;
+            }
+        }
+    }
+
+    private static void setOffset(byte[] column, int offset) {
+        column[offset >>> 3] |= (byte) (1 << (offset & 7));
+    }
+
+    private static byte[] columnKey(long section, int bit) {
+        byte[] key = new byte[10];
+        System.arraycopy(ByteUtil.longToBytes(section), 0, key, 0, 8);
+        key[8] = (byte) (bit >>> 8);
+        key[9] = (byte) bit;
+        return key;
+    }
+}
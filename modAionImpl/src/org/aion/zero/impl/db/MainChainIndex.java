@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ */
+
+
+package org.aion.zero.impl.db;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width, off-heap index of the most recent levels of the main chain, mapping block numbers
+ * to the block hash and total difficulty.
+ *
+ * <p>Each level uses one {@value #RECORD_SIZE} byte record in a ring of {@code capacity} records,
+ * so a lookup is a bounds check and a copy instead of a database read and the decoding of all the
+ * block information stored at that level. Records live in direct buffers that are allocated per
+ * chunk of at most {@value #CHUNK_RECORDS} records when first written, so the index never takes
+ * more than {@code capacity * RECORD_SIZE} bytes of direct memory, whatever the chain height.
+ *
+ * <p>The index covers the {@code capacity} levels up to the highest level written. Writing a
+ * higher level moves the window up and drops the levels that fall below it; levels below the
+ * window are not indexed and are read from the database.
+ *
+ * <p>The index only mirrors the block information stored in the index database, which remains the
+ * source of truth. Levels are filled when read or written and are invalidated whenever the block
+ * information at their level changes without a known main chain block.
+ *
+ * @implNote The methods are synchronized so that records are never read while partially written.
+ *     No database access happens while holding the monitor.
+ */
+final class MainChainIndex {
+
+    /** 131072 levels, about 15 days of 10 second blocks, in 6.1 MB. */
+    static final int DEFAULT_CAPACITY = 1 << 17;
+
+    static final int CHUNK_RECORDS = 1 << 16;
+
+    // record layout: [state (1) | hash (32) | td (16, unsigned)]
+    private static final byte STATE_EMPTY = 0;
+    private static final byte STATE_SET = 1;
+    private static final int HASH_OFFSET = 1;
+    private static final int HASH_SIZE = 32;
+    private static final int TD_OFFSET = HASH_OFFSET + HASH_SIZE;
+    private static final int TD_SIZE = 16;
+    static final int RECORD_SIZE = TD_OFFSET + TD_SIZE;
+
+    private final int capacity;
+    private final int chunkRecords;
+    private ByteBuffer[] chunks;
+
+    // lowest level of the window, the window covers [base, base + capacity)
+    private long base = 0;
+
+    /** Main chain entry returned by the index. */
+    static final class Entry {
+        final byte[] hash;
+        final BigInteger totalDifficulty;
+
+        Entry(byte[] hash, BigInteger totalDifficulty) {
+            this.hash = hash;
+            this.totalDifficulty = totalDifficulty;
+        }
+    }
+
+    MainChainIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of levels indexed, at most {@value #CHUNK_RECORDS} or a multiple
+     *     of it
+     */
+    MainChainIndex(int capacity) {
+        if (capacity <= 0 || (capacity > CHUNK_RECORDS && capacity % CHUNK_RECORDS != 0)) {
+            throw new IllegalArgumentException("Invalid main chain index capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.chunkRecords = Math.min(capacity, CHUNK_RECORDS);
+        this.chunks = new ByteBuffer[capacity / chunkRecords];
+    }
+
+    /** @return the main chain entry at the given level or {@code null} if it is not indexed */
+    synchronized Entry get(long number) {
+        ByteBuffer chunk = chunkFor(number, false);
+        if (chunk == null) {
+            return null;
+        }
+
+        int offset = offsetOf(number);
+        if (chunk.get(offset) != STATE_SET) {
+            return null;
+        }
+
+        byte[] hash = new byte[HASH_SIZE];
+        chunk.position(offset + HASH_OFFSET);
+        chunk.get(hash);
+
+        byte[] td = new byte[TD_SIZE];
+        chunk.get(td);
+
+        return new Entry(hash, new BigInteger(1, td));
+    }
+
+    /** @return the main chain hash at the given level or {@code null} if it is not indexed */
+    synchronized byte[] getHash(long number) {
+        ByteBuffer chunk = chunkFor(number, false);
+        if (chunk == null) {
+            return null;
+        }
+
+        int offset = offsetOf(number);
+        if (chunk.get(offset) != STATE_SET) {
+            return null;
+        }
+
+        byte[] hash = new byte[HASH_SIZE];
+        chunk.position(offset + HASH_OFFSET);
+        chunk.get(hash);
+        return hash;
+    }
+
+    /**
+     * Records the main chain block at the given level. Levels below the window and entries that do
+     * not fit the fixed-width record are not indexed and keep being read from the database.
+     */
+    synchronized void set(long number, byte[] hash, BigInteger totalDifficulty) {
+        if (hash == null || totalDifficulty == null) {
+            invalidate(number);
+            return;
+        }
+
+        if (number < base || hash.length != HASH_SIZE || totalDifficulty.signum() < 0
+                || totalDifficulty.bitLength() > TD_SIZE * 8) {
+            invalidate(number);
+            return;
+        }
+
+        if (number - base >= capacity) {
+            moveWindow(number - capacity + 1);
+        }
+
+        ByteBuffer chunk = chunkFor(number, true);
+        int offset = offsetOf(number);
+
+        chunk.put(offset, STATE_SET);
+        chunk.position(offset + HASH_OFFSET);
+        chunk.put(hash);
+
+        // left-pad the unsigned value, without the sign byte of values with the highest bit set
+        byte[] td = totalDifficulty.toByteArray();
+        int length = Math.min(td.length, TD_SIZE);
+        for (int i = 0; i < TD_SIZE - length; i++) {
+            chunk.put((byte) 0);
+        }
+        chunk.put(td, td.length - length, length);
+    }
+
+    /** Removes the entry at the given level. */
+    synchronized void invalidate(long number) {
+        ByteBuffer chunk = chunkFor(number, false);
+        if (chunk != null) {
+            chunk.put(offsetOf(number), STATE_EMPTY);
+        }
+    }
+
+    /** Releases all the entries. */
+    synchronized void clear() {
+        chunks = new ByteBuffer[chunks.length];
+        base = 0;
+    }
+
+    /** Moves the lowest level of the window up to {@code newBase}, dropping the levels below. */
+    private void moveWindow(long newBase) {
+        long end = Math.min(newBase, base + capacity);
+        for (long number = base; number < end; number++) {
+            invalidate(number);
+        }
+        base = newBase;
+    }
+
+    private ByteBuffer chunkFor(long number, boolean create) {
+        if (number < base || number - base >= capacity) {
+            return null;
+        }
+
+        int index = (int) (number % capacity) / chunkRecords;
+        ByteBuffer chunk = chunks[index];
+        if (chunk == null && create) {
+            chunk = ByteBuffer.allocateDirect(chunkRecords * RECORD_SIZE);
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    private int offsetOf(long number) {
+        return (int) (number % capacity) % chunkRecords * RECORD_SIZE;
+    }
+}
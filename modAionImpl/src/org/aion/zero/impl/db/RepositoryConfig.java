@@ -36,6 +36,7 @@ public class RepositoryConfig implements IRepositoryConfig {
     private final IPruneConfig cfgPrune;
     private final DetailsProvider detailsProvider;
     private final Map<String, Properties> cfg;
+    private final long trieCacheSize;
 
     @Override
     public String getDbPath() {
@@ -61,11 +62,17 @@ public class RepositoryConfig implements IRepositoryConfig {
         return new Properties(prop);
     }
 
+    @Override
+    public long getTrieCacheSize() {
+        return trieCacheSize;
+    }
+
     public RepositoryConfig(
             final String dbPath, final DetailsProvider detailsProvider, final CfgDb cfgDb) {
         this.dbPath = dbPath;
         this.detailsProvider = detailsProvider;
         this.cfg = cfgDb.asProperties();
         this.cfgPrune = cfgDb.getPrune();
+        this.trieCacheSize = cfgDb.getTrieCacheSize();
     }
 }
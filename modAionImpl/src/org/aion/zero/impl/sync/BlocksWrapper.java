@@ -30,7 +30,10 @@
 package org.aion.zero.impl.sync;
 
 import org.aion.zero.impl.types.AionBlock;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * @author chris
@@ -44,6 +47,8 @@ final class BlocksWrapper {
 
     private List<AionBlock> blocks;
 
+    private final Map<AionBlock, Future<Boolean>> validations = new IdentityHashMap<>();
+
     /**
      *
      * @param _nodeIdHash int
@@ -75,4 +80,29 @@ final class BlocksWrapper {
         return this.blocks;
     }
 
+    /**
+     * @param _block AionBlock
+     * @param _validation Future - pending result of the stateless checks on the block
+     */
+    synchronized void setValidation(final AionBlock _block, final Future<Boolean> _validation) {
+        this.validations.put(_block, _validation);
+    }
+
+    /**
+     * @param _block AionBlock
+     * @return Future - pending result of the stateless checks, null if not submitted
+     */
+    synchronized Future<Boolean> getValidation(final AionBlock _block) {
+        return this.validations.get(_block);
+    }
+
+    /**
+     * cancel the checks on blocks that will not be imported
+     */
+    synchronized void cancelValidations() {
+        for (Future<Boolean> validation : this.validations.values()) {
+            validation.cancel(false);
+        }
+    }
+
 }
@@ -42,6 +42,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -71,6 +72,8 @@ public final class SyncMgr {
 
     // interval - show status
     private static final int INTERVAL_SHOW_STATUS = 10000;
+    // batches checked ahead of the import
+    private static final int VALIDATED_BLOCKS_MAX = 2;
 
     private final static Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
     private final NetworkStatus networkStatus = new NetworkStatus();
@@ -82,6 +85,9 @@ public final class SyncMgr {
     private final ConcurrentHashMap<Integer, HeadersWrapper> headersWithBodiesRequested = new ConcurrentHashMap<>();
     // store the downloaded blocks that are ready to import
     private final BlockingQueue<BlocksWrapper> downloadedBlocks = new LinkedBlockingQueue<>();
+    // store the downloaded blocks whose stateless checks have been started
+    private final BlockingQueue<BlocksWrapper> validatedBlocks =
+        new LinkedBlockingQueue<>(VALIDATED_BLOCKS_MAX);
     // store the hashes of blocks which have been successfully imported
     private final Map<ByteArrayWrapper, Object> importedBlockHashes = Collections
         .synchronizedMap(new LRUMap<>(4096));
@@ -100,8 +106,20 @@ public final class SyncMgr {
             return new Thread(r, "sync-gh-" + cnt.incrementAndGet());
         }
     });
+    // run the stateless block checks ahead of the import
+    private ExecutorService validators = Executors.newFixedThreadPool(
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 1), new ThreadFactory() {
+
+            private AtomicInteger cnt = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "sync-pv-" + cnt.incrementAndGet());
+            }
+        });
 
     private Thread syncGb = null;
+    private Thread syncVb = null;
     private Thread syncIb = null;
     private Thread syncGs = null;
     private Thread syncSs = null;
@@ -188,10 +206,18 @@ public final class SyncMgr {
                                               this.peerStates,
                                               log), "sync-gb");
         syncGb.start();
+        syncVb = new Thread(new TaskValidateBlocks(this.chain,
+                                                   this.start,
+                                                   this.downloadedBlocks,
+                                                   this.validatedBlocks,
+                                                   this.importedBlockHashes,
+                                                   this.validators,
+                                                   log), "sync-vb");
+        syncVb.start();
         syncIb = new Thread(new TaskImportBlocks(this.chain,
                                                  this.start,
                                                  statics,
-                                                 this.downloadedBlocks,
+                                                 this.validatedBlocks,
                                                  this.importedBlockHashes,
                                                  this.peerStates,
                                                  log), "sync-ib");
@@ -350,8 +376,15 @@ public final class SyncMgr {
     public synchronized void shutdown() {
         start.set(false);
         workers.shutdown();
+        // cancel the queued checks so the import does not wait on them
+        for (Runnable r : validators.shutdownNow()) {
+            if (r instanceof Future) {
+                ((Future<?>) r).cancel(false);
+            }
+        }
 
         interruptAndWait(syncGb, 10000);
+        interruptAndWait(syncVb, 10000);
         interruptAndWait(syncIb, 10000);
         interruptAndWait(syncGs, 10000);
         interruptAndWait(syncSs, 10000);
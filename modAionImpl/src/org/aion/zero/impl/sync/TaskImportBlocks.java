@@ -32,6 +32,9 @@ package org.aion.zero.impl.sync;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import org.aion.base.util.ByteArrayWrapper;
@@ -54,7 +57,7 @@ final class TaskImportBlocks implements Runnable {
 
     private final AtomicBoolean start;
 
-    private final BlockingQueue<BlocksWrapper> downloadedBlocks;
+    private final BlockingQueue<BlocksWrapper> validatedBlocks;
 
     private final SyncStatics statis;
 
@@ -68,14 +71,14 @@ final class TaskImportBlocks implements Runnable {
             final AionBlockchainImpl _chain,
             final AtomicBoolean _start,
             final SyncStatics _statis,
-            final BlockingQueue<BlocksWrapper> downloadedBlocks,
+            final BlockingQueue<BlocksWrapper> validatedBlocks,
             final Map<ByteArrayWrapper, Object> importedBlockHashes,
             final Map<Integer, PeerState> peerStates,
             final Logger log) {
         this.chain = _chain;
         this.start = _start;
         this.statis = _statis;
-        this.downloadedBlocks = downloadedBlocks;
+        this.validatedBlocks = validatedBlocks;
         this.importedBlockHashes = importedBlockHashes;
         this.peerStates = peerStates;
         this.log = log;
@@ -88,7 +91,7 @@ final class TaskImportBlocks implements Runnable {
 
             BlocksWrapper bw;
             try {
-                bw = downloadedBlocks.take();
+                bw = validatedBlocks.take();
             } catch (InterruptedException ex) {
                 return;
             }
@@ -102,6 +105,7 @@ final class TaskImportBlocks implements Runnable {
             if (state == null) {
                 log.warn("Peer {} sent blocks that were not requested.", bw.getDisplayId());
                 // ignoring these blocks
+                bw.cancelValidations();
                 continue;
             }
 
@@ -112,7 +116,9 @@ final class TaskImportBlocks implements Runnable {
                 AionBlock b = batch.get(batch.size() - 1);
 
                 try {
-                    importResult = importBlock(b, bw.getDisplayId(), state);
+                    importResult = importBlock(b, bw, state);
+                } catch (InterruptedException e) {
+                    return;
                 } catch (Throwable e) {
                     log.error("<import-block throw> {}", e.toString());
                     if (e.getMessage() != null && e.getMessage().contains("No space left on device")) {
@@ -134,6 +140,7 @@ final class TaskImportBlocks implements Runnable {
                             forwardModeUpdate(state, lastBlock, importResult, b.getNumber());
 
                             // since last import worked skipping the batch
+                            bw.cancelValidations();
                             batch.clear();
                             log.info("Forward skip.");
                             break;
@@ -145,7 +152,9 @@ final class TaskImportBlocks implements Runnable {
 
             for (AionBlock b : batch) {
                 try {
-                    importResult = importBlock(b, bw.getDisplayId(), state);
+                    importResult = importBlock(b, bw, state);
+                } catch (InterruptedException e) {
+                    return;
                 } catch (Throwable e) {
                     log.error("<import-block throw> {}", e.toString());
                     if (e.getMessage() != null && e.getMessage().contains("No space left on device")) {
@@ -223,14 +232,20 @@ final class TaskImportBlocks implements Runnable {
         }
     }
 
-    private ImportResult importBlock(AionBlock b, String displayId, PeerState state) {
+    private ImportResult importBlock(AionBlock b, BlocksWrapper bw, PeerState state)
+            throws InterruptedException {
         ImportResult importResult;
         long t1 = System.currentTimeMillis();
-        importResult = this.chain.tryToConnect(b);
+        if (awaitValidation(b, bw)) {
+            importResult = this.chain.tryToConnect(b);
+        } else {
+            // fails the same checks on connect, no need to take the chain lock
+            importResult = ImportResult.INVALID_BLOCK;
+        }
         long t2 = System.currentTimeMillis();
         log.info(
                 "<import-status: node = {}, sync mode = {}, hash = {}, number = {}, txs = {}, result = {}, time elapsed = {} ms>",
-                displayId,
+                bw.getDisplayId(),
                 (state != null ? state.getMode() : PeerState.Mode.NORMAL),
                 b.getShortHash(),
                 b.getNumber(),
@@ -240,6 +255,25 @@ final class TaskImportBlocks implements Runnable {
         return importResult;
     }
 
+    /**
+     * Waits for the stateless checks started on the block by {@link TaskValidateBlocks}.
+     *
+     * @return {@code false} only if the checks completed and rejected the block
+     */
+    private boolean awaitValidation(AionBlock b, BlocksWrapper bw) throws InterruptedException {
+        Future<Boolean> validation = bw.getValidation(b);
+        if (validation == null) {
+            // all the checks run on connect
+            return true;
+        }
+        try {
+            return validation.get();
+        } catch (CancellationException | ExecutionException e) {
+            log.debug("<pre-validation failed num={} err={}>", b.getNumber(), e.toString());
+            return true;
+        }
+    }
+
     private void forwardModeUpdate(PeerState state, long lastBlock, ImportResult importResult, long blockNumber) {
         // continue
         state.setBase(lastBlock);
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ */
+
+package org.aion.zero.impl.sync;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.zero.impl.AionBlockchainImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.slf4j.Logger;
+
+/**
+ * First stage of the block import pipeline. Starts the stateless checks of every downloaded block
+ * on a worker pool and hands the batch over to {@link TaskImportBlocks}, which only waits on the
+ * result of a block right before connecting it. The checks on the following blocks and batches
+ * therefore run while earlier blocks are being executed.
+ *
+ * <p>The hand over queue is bounded, limiting how far the checks can run ahead of the import.
+ */
+final class TaskValidateBlocks implements Runnable {
+
+    private final AionBlockchainImpl chain;
+
+    private final AtomicBoolean start;
+
+    private final BlockingQueue<BlocksWrapper> downloadedBlocks;
+
+    private final BlockingQueue<BlocksWrapper> validatedBlocks;
+
+    private final Map<ByteArrayWrapper, Object> importedBlockHashes;
+
+    private final ExecutorService validators;
+
+    private final Logger log;
+
+    TaskValidateBlocks(
+            final AionBlockchainImpl _chain,
+            final AtomicBoolean _start,
+            final BlockingQueue<BlocksWrapper> downloadedBlocks,
+            final BlockingQueue<BlocksWrapper> validatedBlocks,
+            final Map<ByteArrayWrapper, Object> importedBlockHashes,
+            final ExecutorService validators,
+            final Logger log) {
+        this.chain = _chain;
+        this.start = _start;
+        this.downloadedBlocks = downloadedBlocks;
+        this.validatedBlocks = validatedBlocks;
+        this.importedBlockHashes = importedBlockHashes;
+        this.validators = validators;
+        this.log = log;
+    }
+
+    @Override
+    public void run() {
+        while (start.get()) {
+
+            BlocksWrapper bw;
+            try {
+                bw = downloadedBlocks.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+
+            try {
+                for (AionBlock b : bw.getBlocks()) {
+                    // no need to check blocks that will be filtered out on import
+                    if (importedBlockHashes.get(ByteArrayWrapper.wrap(b.getHash())) == null) {
+                        bw.setValidation(b, validators.submit(() -> chain.preValidate(b)));
+                    }
+                }
+            } catch (RejectedExecutionException e) {
+                // shutting down, the blocks get checked on import
+                log.debug("<validate-blocks rejected node={}>", bw.getDisplayId());
+            }
+
+            try {
+                validatedBlocks.put(bw);
+            } catch (InterruptedException ex) {
+                bw.cancelValidations();
+                return;
+            }
+        }
+    }
+}
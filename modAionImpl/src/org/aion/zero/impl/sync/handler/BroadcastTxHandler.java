@@ -35,7 +35,6 @@
 
 package org.aion.zero.impl.sync.handler;
 
-import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.ByteUtil;
 import org.aion.mcf.blockchain.IPendingStateInternal;
 import org.aion.p2p.Ctrl;
@@ -44,16 +43,10 @@ import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.Ver;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.sync.msg.BroadcastTx;
-import org.aion.zero.impl.valid.TXValidator;
-import org.aion.zero.types.AionTransaction;
+import org.aion.zero.impl.tx.TxIngestPipeline;
 import org.slf4j.Logger;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author chris
@@ -67,47 +60,24 @@ public final class BroadcastTxHandler extends Handler {
 
     private final IP2pMgr p2pMgr;
 
-    private LinkedBlockingQueue<AionTransaction> txQueue;
-
-    private ScheduledExecutorService ex;
+    private TxIngestPipeline pipeline;
 
     private final boolean isSyncOnlyNode;
 
+    @SuppressWarnings("unchecked")
     public BroadcastTxHandler(final Logger _log, final IPendingStateInternal _pendingState, final IP2pMgr _p2pMgr, final boolean isSyncOnlyNode) {
         super(Ver.V0, Ctrl.SYNC, Act.BROADCAST_TX);
         this.log = _log;
         this.pendingState = _pendingState;
         this.p2pMgr = _p2pMgr;
-        this.txQueue = new LinkedBlockingQueue<>(50_000);
         this.isSyncOnlyNode = isSyncOnlyNode;
 
         if(isSyncOnlyNode)
             return;
-        // don't run the buffertask in sync-node mode
-
-        this.ex = Executors.newSingleThreadScheduledExecutor();
-        this.ex.scheduleWithFixedDelay(new BufferTask(), 5000, 500, TimeUnit.MILLISECONDS);
-    }
+        // don't run the ingest pipeline in sync-node mode
 
-    private class BufferTask implements Runnable {
-        @Override
-        public void run() {
-            if (!txQueue.isEmpty()) {
-                List<AionTransaction> txs = new ArrayList<>();
-                try {
-                    txQueue.drainTo(txs);
-                } catch (Throwable e) {
-                    log.error("BufferTask throw{}", e.toString());
-                }
-                if (!txs.isEmpty()) {
-                    if (log.isTraceEnabled()) {
-                        log.trace("BufferTask add txs into pendingState:{}", txs.size());
-                    }
-
-                    pendingState.addPendingTransactions(txs);
-                }
-            }
-        }
+        this.pipeline = new TxIngestPipeline(txs -> pendingState.addPendingTransactions(txs),
+            TxIngestPipeline.DEFAULT_CAPACITY, _log);
     }
 
     @Override
@@ -118,6 +88,14 @@ public final class BroadcastTxHandler extends Handler {
         if (_msgBytes == null || _msgBytes.length == 0)
             return;
 
+        // backpressure, drop the message before decoding it while the pipeline catches up
+        if (pipeline.isSaturated()) {
+            if (log.isTraceEnabled()) {
+                log.trace("<BroadcastTxHandler pipeline saturated! {}>", _displayId);
+            }
+            return;
+        }
+
         List<byte[]> broadCastTx = BroadcastTx.decode(_msgBytes);
 
         if (broadCastTx == null) {
@@ -136,54 +114,18 @@ public final class BroadcastTxHandler extends Handler {
             return;
         }
 
-        try {
-            for (AionTransaction tx : castRawTx(broadCastTx)) {
-                if (!txQueue.offer(tx)) {
-                    if (log.isTraceEnabled()) {
-                        log.trace("<BroadcastTxHandler txQueue full! {}>", _displayId);
-                    }
-                    break;
-                }
-            }
-
-        } catch (Throwable e) {
-            log.error("BroadcastTxHandler throw {}", e.toString());
-        }
-    }
-
-    private List<AionTransaction> castRawTx(List<byte[]> broadCastTx) {
-        List<AionTransaction> rtn = new ArrayList<>();
-
-        for (byte[] raw : broadCastTx) {
-            try {
-                AionTransaction tx = new AionTransaction(raw);
-                if (tx.getHash() != null) {
-                    if (!TXValidator.isInCache(ByteArrayWrapper.wrap(tx.getHash()))) {
-                        if (TXValidator.isValid(tx)) {
-                            rtn.add(tx);
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                // do nothing, invalid transaction from bad peer
-                if (log.isDebugEnabled()) {
-                    log.debug("castRawTx exception: " + e.toString());
-                }
+        if (!pipeline.submit(broadCastTx)) {
+            if (log.isTraceEnabled()) {
+                log.trace("<BroadcastTxHandler pipeline full! {}>", _displayId);
             }
         }
-
-        if (log.isTraceEnabled()) {
-            log.trace("BroadcastTxHandler.castRawTx Tx#{} validTx#{}", broadCastTx.size(), rtn.size());
-        }
-
-        return rtn;
     }
 
     @Override
     public void shutDown() {
         log.info("BroadcastTxHandler shutting down!");
-        if (ex != null) {
-            ex.shutdown();
+        if (pipeline != null) {
+            pipeline.shutDown();
         }
     }
 }
@@ -40,10 +40,9 @@ import java.util.List;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Msg;
 import org.aion.p2p.Ver;
-import org.aion.rlp.RLPElement;
 import org.aion.zero.impl.sync.Act;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.zero.types.A0BlockHeader;
 
 /**
@@ -65,11 +64,10 @@ public final class ResBlocksHeaders extends Msg {
             return null;
         else {
             try {
-                RLPList list = (RLPList) RLP.decode2(_msgBytes).get(0);
-                List<A0BlockHeader> blockHeaders = new ArrayList<>();
-                for (RLPElement aList : list) {
-                    RLPList rlpData = ((RLPList) aList);
-                    blockHeaders.add(A0BlockHeader.fromRLP(rlpData, true));
+                RLPView list = RLPView.wrap(_msgBytes);
+                List<A0BlockHeader> blockHeaders = new ArrayList<>(list.size());
+                for (int i = 0; i < list.size(); i++) {
+                    blockHeaders.add(A0BlockHeader.fromRLP(list.get(i), true));
                 }
                 return new ResBlocksHeaders(blockHeaders);
             } catch (Exception ex) {
@@ -24,9 +24,11 @@
 package org.aion.zero.impl.tx;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.aion.mcf.tx.AbstractTxTask;
 import org.aion.mcf.types.AbstractTransaction;
 
@@ -43,7 +45,15 @@ public class TxBroadcaster<TX extends AbstractTransaction, TXTASK extends Abstra
         return Holder.INSTANCE;
     }
 
-    private ExecutorService executor = Executors.newFixedThreadPool(1);
+    // bounded, a batch that finds the queue full is dropped, the peers get the tx from others
+    private ExecutorService executor =
+            new ThreadPoolExecutor(
+                    1,
+                    1,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(1024),
+                    new ThreadPoolExecutor.DiscardPolicy());
 
     @SuppressWarnings("unchecked")
     public Future<List<TX>> submitTransaction(TXTASK task) {
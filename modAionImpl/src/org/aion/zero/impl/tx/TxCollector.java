@@ -2,8 +2,8 @@ package org.aion.zero.impl.tx;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -30,13 +30,16 @@ public class TxCollector {
 
     // Soft cap max bytes per batch
     private final int maxTxBufferSize = avgTxSize * avgNumTxBatch;
-    private final int offerTimeout = 100;
+
+    // Tx waiting for broadcast, beyond this new tx are dropped rather than queued
+    private final int maxQueueSize = 50_000;
 
     private IP2pMgr p2p;
 
     private AtomicInteger queueSizeBytes = new AtomicInteger();
     private AtomicLong lastBroadcast = new AtomicLong(System.currentTimeMillis());
-    private LinkedBlockingQueue<AionTransaction> transactionQueue;
+    private AtomicLong dropped = new AtomicLong();
+    private ArrayBlockingQueue<AionTransaction> transactionQueue;
 
     private ReentrantLock broadcastLock = new ReentrantLock();
     private Logger LOG;
@@ -45,9 +48,9 @@ public class TxCollector {
         this.p2p = p2p;
         this.LOG = logTx;
 
-        // Leave unbounded for now, may need to restrict queue size and drop tx until able to
-        // process tx
-        transactionQueue = new LinkedBlockingQueue<>();
+        // Bounded, the submitters hold the pending state lock so a full queue drops tx instead
+        // of making them wait
+        transactionQueue = new ArrayBlockingQueue<>(maxQueueSize);
 
         ScheduledExecutorService broadcastTxExec = Executors.newSingleThreadScheduledExecutor();
         int broadcastLoop = 1;
@@ -64,14 +67,7 @@ public class TxCollector {
     public void submitTx(List<AionTransaction> txs) {
         // addAll potentially dangerous for blocking queue, add manually
         for (AionTransaction tx : txs) {
-            try {
-                transactionQueue.offer(tx, offerTimeout, TimeUnit.MILLISECONDS);
-                if (queueSizeBytes.addAndGet(tx.getEncoded().length) >= this.maxTxBufferSize)
-                    broadcastTx();
-
-            } catch (InterruptedException e) {
-                // Interrupted, no problem
-            }
+            submitTx(tx);
         }
     }
 
@@ -79,14 +75,15 @@ public class TxCollector {
      * Submit a single Tx
      */
     public void submitTx(AionTransaction tx) {
-        try {
-            transactionQueue.offer(tx, offerTimeout, TimeUnit.MILLISECONDS);
-            if (queueSizeBytes.addAndGet(tx.getEncoded().length) >= this.maxTxBufferSize)
-                broadcastTx();
-
-        } catch (InterruptedException e) {
-            // Interrupted, no problem
+        if (!transactionQueue.offer(tx)) {
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                LOG.warn("TxCollector queue full, dropped tx#{}", dropped.get());
+            }
+            return;
         }
+
+        if (queueSizeBytes.addAndGet(tx.getEncoded().length) >= this.maxTxBufferSize)
+            broadcastTx();
     }
 
     private void broadcastTx() {
@@ -0,0 +1,327 @@
+/* ******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *
+ ******************************************************************************/
+
+package org.aion.zero.impl.tx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.zero.impl.valid.TXValidator;
+import org.aion.zero.types.AionTransaction;
+import org.apache.commons.collections4.map.LRUMap;
+import org.slf4j.Logger;
+
+/**
+ * Intake for transactions gossiped by peers, in stages: decode and dedupe by hash, signature and
+ * validity check, then insertion into the pending state. Each stage has a bounded queue and a
+ * thread that drains it in batches, and hands its output to the next stage with a blocking put.
+ * A stage that falls behind therefore stalls the ones before it, until {@link #submit} refuses
+ * new messages, instead of letting a flood of transactions pile up in memory.
+ */
+public final class TxIngestPipeline {
+
+    /** Queue capacity of each stage. */
+    public static final int DEFAULT_CAPACITY = 16_384;
+
+    /** Most items a stage takes from its queue at once. */
+    private static final int MAX_BATCH = 1024;
+
+    /** Hashes of transactions taken into the pending state, remembered by the dedupe step. */
+    private static final int SEEN_SIZE = 64 * 1024;
+
+    private final Logger log;
+
+    private final Stage<byte[]> decode;
+    private final Stage<AionTransaction> verify;
+    private final Stage<AionTransaction> insert;
+
+    /*
+     * A hash is only remembered once the pending state took its transaction. One it refused for
+     * now, e.g. for a nonce gap or a full pool, gets another chance when it is gossiped again.
+     */
+    private final Map<ByteArrayWrapper, Boolean> seen =
+            Collections.synchronizedMap(new LRUMap<>(SEEN_SIZE));
+    /* transactions between the dedupe step and the pending state, so copies from other peers are
+     * not checked in parallel */
+    private final Set<ByteArrayWrapper> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Function<List<AionTransaction>, List<AionTransaction>> sink;
+
+    /**
+     * @param sink receives the checked transactions in batches and returns the ones it took,
+     *     typically {@code addPendingTransactions} of the pending state
+     */
+    public TxIngestPipeline(
+            Function<List<AionTransaction>, List<AionTransaction>> sink, int capacity, Logger log) {
+        this.log = log;
+        this.sink = sink;
+        this.insert = new Stage<>("txInsert", capacity, this::insert);
+        this.verify = new Stage<>("txVerify", capacity, this::verify);
+        this.decode = new Stage<>("txDecode", capacity, this::decode);
+
+        insert.start();
+        verify.start();
+        decode.start();
+    }
+
+    /**
+     * Queues the encoded transactions of one gossip message. The message is refused as a whole
+     * when the first stage cannot take all of it.
+     *
+     * @return false if the pipeline is saturated and the message was dropped
+     */
+    public boolean submit(List<byte[]> encodedTxs) {
+        return decode.offerAll(encodedTxs);
+    }
+
+    /** True while the first stage is more than three quarters full. */
+    public boolean isSaturated() {
+        return decode.queue.remainingCapacity() < decode.capacity / 4;
+    }
+
+    public List<Stage<?>> getStages() {
+        List<Stage<?>> stages = new ArrayList<>();
+        stages.add(decode);
+        stages.add(verify);
+        stages.add(insert);
+        return stages;
+    }
+
+    public void shutDown() {
+        decode.shutDown();
+        verify.shutDown();
+        insert.shutDown();
+
+        if (log.isInfoEnabled()) {
+            for (Stage<?> stage : getStages()) {
+                log.info("TxIngestPipeline {}", stage);
+            }
+        }
+    }
+
+    private void decode(List<byte[]> encodedTxs) {
+        for (byte[] encoded : encodedTxs) {
+            AionTransaction tx;
+            try {
+                tx = new AionTransaction(encoded);
+                if (tx.getHash() == null) {
+                    continue;
+                }
+            } catch (Exception e) {
+                // do nothing, invalid transaction from bad peer
+                if (log.isDebugEnabled()) {
+                    log.debug("TxIngestPipeline decode exception: " + e.toString());
+                }
+                continue;
+            }
+
+            ByteArrayWrapper hash = ByteArrayWrapper.wrap(tx.getHash());
+            if (seen.containsKey(hash) || !inFlight.add(hash)) {
+                decode.dropped.incrementAndGet();
+                continue;
+            }
+
+            if (!verify.put(tx)) {
+                return;
+            }
+        }
+    }
+
+    private void verify(List<AionTransaction> txs) {
+        // the signatures of the batch are verified in parallel, known ones come from the cache
+        boolean[] valid = TXValidator.isValid(txs);
+        for (int i = 0; i < valid.length; i++) {
+            if (!valid[i]) {
+                verify.dropped.incrementAndGet();
+                inFlight.remove(ByteArrayWrapper.wrap(txs.get(i).getHash()));
+            } else if (!insert.put(txs.get(i))) {
+                return;
+            }
+        }
+    }
+
+    private void insert(List<AionTransaction> txs) {
+        try {
+            List<AionTransaction> taken = sink.apply(txs);
+            if (taken != null) {
+                for (AionTransaction tx : taken) {
+                    seen.put(ByteArrayWrapper.wrap(tx.getHash()), Boolean.TRUE);
+                }
+            }
+        } finally {
+            for (AionTransaction tx : txs) {
+                inFlight.remove(ByteArrayWrapper.wrap(tx.getHash()));
+            }
+        }
+    }
+
+    /**
+     * A bounded queue drained in batches by its own thread.
+     *
+     * <p>The counters are the stage metrics: items accepted into the queue, items refused because
+     * it was full, items dropped by the stage itself, batches run and the time spent running them.
+     */
+    public final class Stage<T> implements Runnable {
+
+        private final String name;
+        private final int capacity;
+        private final ArrayBlockingQueue<T> queue;
+        private final Consumer<List<T>> action;
+        private final Thread thread;
+
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong refused = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        private volatile boolean run = true;
+
+        Stage(String name, int capacity, Consumer<List<T>> action) {
+            this.name = name;
+            this.capacity = capacity;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.action = action;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void shutDown() {
+            run = false;
+            thread.interrupt();
+        }
+
+        /**
+         * Queues all of {@code items} or, if they do not fit, none of them. Submitters are
+         * serialized and the stage thread only makes room, so the room checked is still there when
+         * the items are queued; this holds as long as the stage is not also fed with {@link #put}.
+         */
+        synchronized boolean offerAll(List<T> items) {
+            if (queue.remainingCapacity() < items.size()) {
+                refused.addAndGet(items.size());
+                return false;
+            }
+            queue.addAll(items);
+            accepted.addAndGet(items.size());
+            return true;
+        }
+
+        /**
+         * Waits for room in the queue, which is how a slow stage holds back the one before it.
+         *
+         * @return false if interrupted by {@link #shutDown}
+         */
+        boolean put(T item) {
+            try {
+                queue.put(item);
+                accepted.incrementAndGet();
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public void run() {
+            List<T> batch = new ArrayList<>();
+            while (run) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                queue.drainTo(batch, MAX_BATCH - 1);
+
+                long start = System.nanoTime();
+                try {
+                    action.accept(batch);
+                } catch (Exception e) {
+                    log.error("TxIngestPipeline " + name + " throw", e);
+                }
+                busyNanos.addAndGet(System.nanoTime() - start);
+                batches.incrementAndGet();
+                batch.clear();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQueued() {
+            return queue.size();
+        }
+
+        public long getAccepted() {
+            return accepted.get();
+        }
+
+        public long getRefused() {
+            return refused.get();
+        }
+
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        public long getBatches() {
+            return batches.get();
+        }
+
+        public long getBusyNanos() {
+            return busyNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return name
+                    + " queued: "
+                    + getQueued()
+                    + " accepted: "
+                    + getAccepted()
+                    + " refused: "
+                    + getRefused()
+                    + " dropped: "
+                    + getDropped()
+                    + " batches: "
+                    + getBatches()
+                    + " busy: "
+                    + getBusyNanos() / 1_000_000
+                    + " ms";
+        }
+    }
+}
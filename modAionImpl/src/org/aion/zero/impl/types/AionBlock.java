@@ -31,8 +31,8 @@ import org.aion.mcf.trie.Trie;
 import org.aion.mcf.trie.TrieImpl;
 import org.aion.mcf.types.AbstractBlock;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 import org.aion.zero.exceptions.HeaderStructureException;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.AionTransaction;
@@ -150,15 +150,14 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
             if (this.parsed)
                 return;
             
-            RLPList params = RLP.decode2(rlpEncoded);
-            RLPList block = (RLPList) params.get(0);
+            RLPView block = RLPView.wrap(rlpEncoded);
 
             // Parse Header
-            RLPList header = (RLPList) block.get(0);
+            RLPView header = block.get(0);
             this.header = new A0BlockHeader(header);
 
             // Parse Transactions
-            RLPList txTransactions = (RLPList) block.get(1);
+            RLPView txTransactions = block.get(1);
             this.parseTxs(this.header.getTxTrieRoot(), txTransactions);
 
             this.parsed = true;
@@ -355,17 +354,17 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         return toStringBuff.toString();
     }
 
-    private void parseTxs(RLPList txTransactions) {
+    private void parseTxs(RLPView txTransactions) {
 
         this.txsState = new TrieImpl(null);
         for (int i = 0; i < txTransactions.size(); i++) {
-            RLPElement transactionRaw = txTransactions.get(i);
-            this.transactionsList.add(new AionTransaction(transactionRaw.getRLPData()));
-            this.txsState.update(RLP.encodeInt(i), transactionRaw.getRLPData());
+            byte[] transactionRaw = txTransactions.get(i).encoded();
+            this.transactionsList.add(new AionTransaction(transactionRaw));
+            this.txsState.update(RLP.encodeInt(i), transactionRaw);
         }
     }
 
-    private boolean parseTxs(byte[] expectedRoot, RLPList txTransactions) {
+    private boolean parseTxs(byte[] expectedRoot, RLPView txTransactions) {
 
         parseTxs(txTransactions);
         String calculatedRoot = Hex.toHexString(txsState.getRootHash());
@@ -387,17 +386,38 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
 
     public byte[] getEncoded() {
         if (rlpEncoded == null) {
-            byte[] header = this.header.getEncoded();
+            byte[][] transactions = getTransactionEncodings();
+            int payloadLength = getBlockPayloadLength(transactions);
 
-            List<byte[]> block = getBodyElements();
-            block.add(0, header);
-            byte[][] elements = block.toArray(new byte[block.size()][]);
-
-            this.rlpEncoded = RLP.encodeList(elements);
+            RLPWriter out = new RLPWriter(RLPWriter.listLength(payloadLength));
+            writeBlock(out, transactions, payloadLength);
+            this.rlpEncoded = out.toByteArray();
         }
         return rlpEncoded;
     }
 
+    /** Writes the encoding returned by {@link #getEncoded()} to the given writer. */
+    public void encodeTo(RLPWriter out) {
+        if (rlpEncoded != null) {
+            out.writeEncoded(rlpEncoded);
+        } else {
+            byte[][] transactions = getTransactionEncodings();
+            writeBlock(out, transactions, getBlockPayloadLength(transactions));
+        }
+    }
+
+    /** @return the length of the block payload: the encoded header and the transaction list */
+    private int getBlockPayloadLength(byte[][] transactions) {
+        return header.getEncodedLength(true)
+                + RLPWriter.listLength(getPayloadLength(transactions));
+    }
+
+    private void writeBlock(RLPWriter out, byte[][] transactions, int payloadLength) {
+        out.writeListHeader(payloadLength);
+        header.encodeTo(out, true);
+        writeList(out, transactions);
+    }
+
     public byte[] getEncodedWithoutNonce() {
         parseRLP();
         return this.header.getEncodedWithoutNonce();
@@ -435,8 +455,7 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         block.header = header;
         block.parsed = true;
 
-        RLPList items = (RLPList) RLP.decode2(body).get(0);
-        RLPList transactions = (RLPList) items.get(0);
+        RLPView transactions = RLPView.wrap(body).get(0);
 
         if (!block.parseTxs(header.getTxTrieRoot(), transactions)) {
             return null;
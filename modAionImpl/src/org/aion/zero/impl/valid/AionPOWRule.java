@@ -30,7 +30,7 @@ import java.util.List;
 import org.aion.base.util.ByteUtil;
 import org.aion.mcf.blockchain.valid.BlockHeaderRule;
 import org.aion.zero.types.A0BlockHeader;
-import org.aion.crypto.HashUtil;
+import org.aion.crypto.H256Hasher;
 
 import static org.aion.base.util.Hex.toHexString;
 
@@ -44,14 +44,15 @@ public class AionPOWRule extends BlockHeaderRule<A0BlockHeader> {
         BigInteger boundary = header.getPowBoundaryBI();
 
         byte[] hdrBytes = header.getMineHash();
-        byte[] input = new byte[32 + 32 + 1408]; // H(Hdr) + nonce + solution
+        byte[] nonce = header.getNonce();
+        byte[] solution = header.getSolution();
 
-        int pos = 0;
-        System.arraycopy(hdrBytes, 0, input, pos, hdrBytes.length);
-        System.arraycopy(header.getNonce(), 0, input, pos+=32, 32);
-        System.arraycopy(header.getSolution(), 0, input, pos+=32, 1408);
-
-        BigInteger hash = new BigInteger(1, HashUtil.h256(input));
+        // H(Hdr) + nonce + solution
+        BigInteger hash = new BigInteger(1, H256Hasher.get()
+                .update(hdrBytes)
+                .update(nonce, 0, 32)
+                .update(solution, 0, 1408)
+                .digest());
 
         if (hash.compareTo(boundary) >= 0) {
             addError(formatError(hash, boundary), errors);
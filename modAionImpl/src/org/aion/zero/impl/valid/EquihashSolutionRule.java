@@ -24,33 +24,47 @@
 
 package org.aion.zero.impl.valid;
 
-import org.aion.base.util.ByteUtil;
-import org.aion.crypto.HashUtil;
-import org.aion.equihash.OptimizedEquiValidator;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.equihash.FlatEquiValidator;
 import org.aion.mcf.blockchain.valid.BlockHeaderRule;
 import org.aion.zero.types.A0BlockHeader;
-import org.aion.equihash.EquiValidator;
-
-import java.math.BigInteger;
-import java.util.List;
-
-import static org.aion.base.util.Hex.toHexString;
+import org.apache.commons.collections4.map.LRUMap;
 
 /**
  * Checks if {@link A0BlockHeader#solution} is a valid Equihash solution.
  *
+ * <p>The same header usually arrives from several peers, so verdicts are remembered by header
+ * hash. The hash covers the nonce and the solution, so a hit is the exact same check.
  */
 public class EquihashSolutionRule extends BlockHeaderRule<A0BlockHeader> {
 
-    private OptimizedEquiValidator validator;
+    private static final int CACHE_SIZE = 1024;
+
+    private static final Map<ByteArrayWrapper, Boolean> verdicts =
+            Collections.synchronizedMap(new LRUMap<>(CACHE_SIZE));
 
-    public EquihashSolutionRule(OptimizedEquiValidator validator) {
+    private FlatEquiValidator validator;
+
+    public EquihashSolutionRule(FlatEquiValidator validator) {
         this.validator = validator;
     }
 
     @Override
     public boolean validate(A0BlockHeader header, List<RuleError> errors) {
-        if (!validator.isValidSolutionNative(header.getSolution(), header.getMineHash(), header.getNonce())) {
+        ByteArrayWrapper hash = ByteArrayWrapper.wrap(header.getHash());
+
+        Boolean valid = verdicts.get(hash);
+        if (valid == null) {
+            valid =
+                    validator.isValidSolutionNative(
+                            header.getSolution(), header.getMineHash(), header.getNonce());
+            verdicts.put(hash, valid);
+        }
+
+        if (!valid) {
             addError("Invalid solution", errors);
             return false;
         }
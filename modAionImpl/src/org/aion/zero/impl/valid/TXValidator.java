@@ -36,7 +36,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import static org.aion.mcf.valid.TxNrgRule.isValidNrgContractCreate;
 import static org.aion.mcf.valid.TxNrgRule.isValidNrgTx;
@@ -45,21 +47,61 @@ public class TXValidator {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogEnum.TX.name());
 
-    private static final Map<ByteArrayWrapper, Boolean> cache = Collections.synchronizedMap(new LRUMap<>(128 * 1024));
+    private static final int CACHE_SIZE = 128 * 1024;
+    private static final int CACHE_SEGMENTS = 16;
+
+    /**
+     * Verdicts keyed by the tx hash, which covers the signature, so a transaction checked when it
+     * entered the pool is not verified again when its block arrives. The LRU is split into
+     * segments picked by the hash so the parallel block checks do not queue on a single lock.
+     */
+    private static final Map<ByteArrayWrapper, Boolean>[] cache = newCache();
+
+    @SuppressWarnings("unchecked")
+    private static Map<ByteArrayWrapper, Boolean>[] newCache() {
+        Map<ByteArrayWrapper, Boolean>[] segments = new Map[CACHE_SEGMENTS];
+        for (int i = 0; i < CACHE_SEGMENTS; i++) {
+            segments[i] = Collections.synchronizedMap(new LRUMap<>(CACHE_SIZE / CACHE_SEGMENTS));
+        }
+        return segments;
+    }
+
+    private static Map<ByteArrayWrapper, Boolean> cacheFor(ByteArrayWrapper hash) {
+        return cache[(hash.getData()[0] & 0xFF) % CACHE_SEGMENTS];
+    }
 
     public static boolean isValid(AionTransaction tx) {
-        Boolean valid = cache.get(ByteArrayWrapper.wrap(tx.getHash()));
+        ByteArrayWrapper hash = ByteArrayWrapper.wrap(tx.getHash());
+        Map<ByteArrayWrapper, Boolean> segment = cacheFor(hash);
+
+        Boolean valid = segment.get(hash);
         if (valid != null) {
             return valid;
         } else {
             valid = isValid0(tx);
-            cache.put(ByteArrayWrapper.wrap(tx.getHash()), valid);
+            segment.put(hash, valid);
             return valid;
         }
     }
 
+    /**
+     * Checks the transactions of a block or of a gossip batch together. Cached verdicts are reused
+     * and the signatures of the remaining transactions are verified in parallel.
+     *
+     * @return the verdict of each transaction, in the order of the given list
+     */
+    public static boolean[] isValid(List<AionTransaction> txs) {
+        boolean[] valid = new boolean[txs.size()];
+        if (txs.size() == 1) {
+            valid[0] = isValid(txs.get(0));
+        } else if (!txs.isEmpty()) {
+            IntStream.range(0, valid.length).parallel().forEach(i -> valid[i] = isValid(txs.get(i)));
+        }
+        return valid;
+    }
+
     public static boolean isInCache(ByteArrayWrapper hash) {
-        return cache.get(hash) != null;
+        return cacheFor(hash).get(hash) != null;
     }
 
     public static boolean isValid0(AionTransaction tx) {
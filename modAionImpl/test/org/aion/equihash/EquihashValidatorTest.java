@@ -1648,6 +1648,12 @@ public class EquihashValidatorTest {
         isValidNative = ov.isValidSolutionNative(minimal, header, nonce);
         assertEquals(true, isValid);
         assertEquals(true, isValidNative);
+
+        FlatEquiValidator fv = new FlatEquiValidator(n, k);
+        assertTrue(fv.isValidSolution(minimal, header, nonce));
+        assertTrue(fv.isValidSolutionNative(minimal, header, nonce));
+        assertFalse(fv.isValidSolution(minimal_updated, header, nonce));
+        assertFalse(fv.isValidSolutionNative(minimal_updated, header, nonce));
     }
 
     @Test
@@ -1665,6 +1671,10 @@ public class EquihashValidatorTest {
         EquiValidator v = new EquiValidator(210, 9);
         assertTrue(v.isValidSolution(solution, header, nonce));
 
+        FlatEquiValidator fv = new FlatEquiValidator(210, 9);
+        assertTrue(fv.isValidSolution(solution, header, nonce));
+        assertTrue(fv.isValidSolutionNative(solution, header, nonce));
+
         // break original solution
         solution[solution.length - 1] += 1;
 
@@ -1672,6 +1682,8 @@ public class EquihashValidatorTest {
         assertFalse(ov.isValidSolution(solution, header, nonce));
         assertFalse(ov.isValidSolutionNative(solution, header, nonce));
         assertFalse(v.isValidSolution(solution, header, nonce));
+        assertFalse(fv.isValidSolution(solution, header, nonce));
+        assertFalse(fv.isValidSolutionNative(solution, header, nonce));
     }
 
     public static Object blockHeaders() {
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ */
+package org.aion.equihash.benchmark;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.equihash.EquiValidator;
+import org.aion.equihash.FlatEquiValidator;
+import org.aion.equihash.OptimizedEquiValidator;
+import org.aion.util.TestResources;
+import org.aion.zero.impl.valid.EquihashSolutionRule;
+import org.aion.zero.types.A0BlockHeader;
+import org.junit.Test;
+
+/**
+ * Header validation throughput of the Equihash validators on the same set of mainnet headers,
+ * and of the solution rule when the headers are seen again. Each run is warmed up first, then
+ * timed over {@link #ROUNDS} passes.
+ */
+public class EquiValidatorBenchmark {
+
+    private static final int WARMUP = 20;
+    private static final int ROUNDS = 100;
+
+    private interface Check {
+        boolean isValid(byte[] solution, byte[] header, byte[] nonce);
+    }
+
+    private interface HeaderCheck {
+        boolean isValid(A0BlockHeader header);
+    }
+
+    @Test
+    public void benchmarkValidators() {
+        List<A0BlockHeader> headers = TestResources.blockHeaders();
+
+        EquiValidator full = new EquiValidator(210, 9);
+        OptimizedEquiValidator optimized = new OptimizedEquiValidator(210, 9);
+        FlatEquiValidator flat = new FlatEquiValidator(210, 9);
+
+        run("EquiValidator", headers, full::isValidSolution);
+        run("OptimizedEquiValidator", headers, optimized::isValidSolution);
+        run("OptimizedEquiValidator native", headers, optimized::isValidSolutionNative);
+        run("FlatEquiValidator", headers, flat::isValidSolution);
+        run("FlatEquiValidator native", headers, flat::isValidSolutionNative);
+
+        // headers re-received from other peers hit the verdict cache of the rule
+        EquihashSolutionRule rule = new EquihashSolutionRule(flat);
+        run("EquihashSolutionRule repeated", headers, h -> rule.validate(h, new ArrayList<>()));
+    }
+
+    private void run(String name, List<A0BlockHeader> headers, Check check) {
+        run(
+                name,
+                headers,
+                (HeaderCheck) h -> check.isValid(h.getSolution(), h.getMineHash(), h.getNonce()));
+    }
+
+    private void run(String name, List<A0BlockHeader> headers, HeaderCheck check) {
+        for (int i = 0; i < WARMUP; i++) {
+            pass(headers, check);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            pass(headers, check);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long count = (long) ROUNDS * headers.size();
+        System.out.printf(
+                "%-30s %8.1f us/header %8.0f headers/s%n",
+                name, elapsed / 1000.0 / count, count * 1e9 / elapsed);
+    }
+
+    private void pass(List<A0BlockHeader> headers, HeaderCheck check) {
+        for (A0BlockHeader header : headers) {
+            assertTrue(check.isValid(header));
+        }
+    }
+}
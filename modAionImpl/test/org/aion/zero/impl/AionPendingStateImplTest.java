@@ -0,0 +1,526 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with the aion network
+ * project source files. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other open source projects. We
+ * greatly appreciate the effort that was invested in these projects and we thank the individual
+ * contributors for their work. For provenance information and contributors please see
+ * <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc.
+ * (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team. Bitcoinj team.
+ * ****************************************************************************
+ */
+package org.aion.zero.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.aion.base.db.IRepositoryCache;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.crypto.HashUtil;
+import org.aion.evtmgr.IEvent;
+import org.aion.evtmgr.IEventMgr;
+import org.aion.evtmgr.IHandler;
+import org.aion.evtmgr.impl.evt.EventBlock;
+import org.aion.evtmgr.impl.evt.EventTx;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.core.ImportResult;
+import org.aion.mcf.evt.IListenerBase.PendingTransactionState;
+import org.aion.vm.TransactionExecutor;
+import org.aion.zero.impl.blockchain.AionPendingStateImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.vm.AionExecutorProvider;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxReceipt;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+/**
+ * Checks the pending state kept on top of a {@link StandaloneBlockchain}: the sender chains carried
+ * over to a new best block must leave the same state as executing the whole pool again, and the
+ * transactions and reads served while the next state is rebuilt must be consistent with it.
+ */
+public class AionPendingStateImplTest {
+
+    private static final int SENDERS = 4;
+    private static final long NRG_PRICE = 10_000_000_000L;
+    private static final Logger LOGGER_VM = AionLoggerFactory.getLogger(LogEnum.VM.toString());
+
+    /** the state expansion contract of BlockchainAccountStateBenchmark */
+    private static final String STORAGE_BYTECODE =
+            "0x605060405260006001600050909055341561001a5760006000fd5b61001f565b6101688061002e6000396000f30060506040526000356c01000000000000000000000000900463ffffffff16806331e658a514610049578063549262ba1461008957806361bc221a1461009f57610043565b60006000fd5b34156100555760006000fd5b610073600480808060100135903590916020019091929050506100c9565b6040518082815260100191505060405180910390f35b34156100955760006000fd5b61009d6100eb565b005b34156100ab5760006000fd5b6100b3610133565b6040518082815260100191505060405180910390f35b6000600050602052818160005260105260306000209050600091509150505481565b6001600060005060006001600050546000825281601001526020019081526010016000209050600050819090905550600160008181505480929190600101919050909055505b565b600160005054815600a165627a7a72305820c615f3373321aa7e9c05d9a69e49508147861fb2a54f2945fbbaa7d851125fe80029";
+
+    private final List<ECKey> keys = new ArrayList<>();
+    private final List<Address> accounts = new ArrayList<>();
+
+    /** the last receipt reported for each pool tx as new pending or pending */
+    private final Map<ByteArrayWrapper, AionTxReceipt> reported = new ConcurrentHashMap<>();
+
+    /** the txs reported as included in a block */
+    private final Set<ByteArrayWrapper> included = ConcurrentHashMap.newKeySet();
+
+    /** run once on the first pending update of a rebuild, while the next state is being built */
+    private final AtomicReference<Runnable> duringRebuild = new AtomicReference<>();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private StandaloneBlockchain bc;
+    private AionPendingStateImpl ps;
+    private volatile List<AionTxReceipt> bestReceipts;
+    private long time = System.currentTimeMillis() / 1000L;
+
+    @Before
+    public void setup() {
+        for (int i = 0; i < SENDERS; i++) {
+            ECKey key = ECKeyFac.inst().create();
+            keys.add(key);
+            accounts.add(Address.wrap(key.getAddress()));
+        }
+
+        bc =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(keys)
+                        .build()
+                        .bc;
+        IEventMgr evtMgr = mock(IEventMgr.class);
+        doAnswer(
+                        invocation -> {
+                            onEvent(invocation.getArgument(0));
+                            return true;
+                        })
+                .when(evtMgr)
+                .newEvent(any());
+        bc.setEventManager(evtMgr);
+        ps = AionPendingStateImpl.createForTesting(bc);
+        ps.processBest(bc.getBestBlock(), null);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+        ps.shutDown();
+    }
+
+    private void onEvent(IEvent evt) {
+        if (evt.getEventType() == IHandler.TYPE.BLOCK0.getValue()
+                && evt.getCallbackType() == EventBlock.CALLBACK.ONBEST0.getValue()) {
+            @SuppressWarnings("unchecked")
+            List<AionTxReceipt> receipts = (List<AionTxReceipt>) evt.getFuncArgs().get(1);
+            bestReceipts = receipts;
+        } else if (evt.getEventType() == IHandler.TYPE.TX0.getValue()
+                && evt.getCallbackType() == EventTx.CALLBACK.PENDINGTXUPDATE0.getValue()) {
+            AionTxReceipt receipt = (AionTxReceipt) evt.getFuncArgs().get(0);
+            int state = (int) evt.getFuncArgs().get(1);
+            if (state == PendingTransactionState.NEW_PENDING.getValue()
+                    || state == PendingTransactionState.PENDING.getValue()) {
+                reported.put(ByteArrayWrapper.wrap(receipt.getTransaction().getHash()), receipt);
+            } else if (state == PendingTransactionState.INCLUDED.getValue()) {
+                included.add(ByteArrayWrapper.wrap(receipt.getTransaction().getHash()));
+            }
+
+            Runnable r;
+            if (state == PendingTransactionState.PENDING.getValue()
+                    && (r = duringRebuild.getAndSet(null)) != null) {
+                r.run();
+            }
+        }
+    }
+
+    private AionTransaction transfer(int sender, long nonce, Address to, BigInteger value) {
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        to,
+                        value.toByteArray(),
+                        ByteUtil.EMPTY_BYTE_ARRAY,
+                        21000L,
+                        NRG_PRICE);
+        tx.sign(keys.get(sender));
+        return tx;
+    }
+
+    /** A transfer of one to a recipient that only this sender and nonce use. */
+    private AionTransaction transfer(int sender, long nonce) {
+        return transfer(sender, nonce, recipient(sender, nonce), BigInteger.ONE);
+    }
+
+    private static Address recipient(int sender, long nonce) {
+        return Address.wrap(HashUtil.h256(ByteUtil.longToBytes(nonce * SENDERS + sender)));
+    }
+
+    /** Adds a chain of {@code length} transfers from nonce zero for each of the given senders. */
+    private List<AionTransaction> fillPool(int length, int... senders) {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int sender : senders) {
+            for (long nonce = 0; nonce < length; nonce++) {
+                txs.add(transfer(sender, nonce));
+            }
+        }
+        assertThat(ps.addPendingTransactions(txs)).isEqualTo(txs);
+        return txs;
+    }
+
+    /** Imports a block with {@code txs} on {@code parent}, on a clock of its own. */
+    private AionBlock connect(AionBlock parent, List<AionTransaction> txs, ImportResult result) {
+        // blocks come faster than one per second, so they run on their own clock
+        time += 10;
+        AionBlock block = bc.createNewBlockInternal(parent, txs, false, time).block;
+        assertThat(block.getTransactionsList().size()).isEqualTo(txs.size());
+        assertThat(bc.tryToConnectInternal(block, time)).isEqualTo(result);
+        return block;
+    }
+
+    /** Imports a block with {@code txs} on the best block and moves the pending state to it. */
+    private AionBlock processBest(List<AionTransaction> txs) {
+        AionBlock block = connect(bc.getBestBlock(), txs, ImportResult.IMPORTED_BEST);
+        ps.processBest(block, bestReceipts);
+        return block;
+    }
+
+    /**
+     * Executes {@code pool} on the best block from scratch and checks that the pending state has
+     * the same nonces and balances for the senders, the recipients and the coinbase.
+     */
+    @SuppressWarnings("unchecked")
+    private void assertSameAsExecution(List<AionTransaction> pool) {
+        AionBlock best = bc.getBestBlock();
+        IRepositoryCache expected = bc.getRepository().startTracking();
+        List<Address> checked = new ArrayList<>(accounts);
+        checked.add(best.getCoinbase());
+        for (AionTransaction tx : pool) {
+            TransactionExecutor txExe = new TransactionExecutor(tx, best, expected, LOGGER_VM);
+            txExe.setExecutorProvider(AionExecutorProvider.getInstance());
+            txExe.execute();
+            checked.add(tx.getTo());
+        }
+
+        IRepositoryCache<?, ?, ?> pending = ps.getRepository();
+        for (Address addr : checked) {
+            assertThat(pending.getNonce(addr)).isEqualTo(expected.getNonce(addr));
+            assertThat(pending.getBalance(addr)).isEqualTo(expected.getBalance(addr));
+        }
+    }
+
+    /** Checks whether the pending receipt of each tx is still the one cached before. */
+    private void assertCarried(
+            Map<ByteArrayWrapper, AionTxReceipt> before, List<AionTransaction> txs, boolean carried) {
+        for (AionTransaction tx : txs) {
+            ByteArrayWrapper key = ByteArrayWrapper.wrap(tx.getHash());
+            assertThat(reported.get(key)).isNotNull();
+            if (carried) {
+                assertThat(reported.get(key)).isSameAs(before.get(key));
+            } else {
+                assertThat(reported.get(key)).isNotSameAs(before.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void testCarriedChainsMatchExecution() {
+        List<AionTransaction> pool = fillPool(4, 0, 1, 2, 3);
+
+        // sender 3 is in the block, the other chains are carried over
+        Map<ByteArrayWrapper, AionTxReceipt> before = new HashMap<>(reported);
+        processBest(List.of(pool.get(12)));
+        pool.remove(12);
+
+        assertCarried(before, pool.subList(0, 12), true);
+        assertCarried(before, pool.subList(12, 15), false);
+        assertSameAsExecution(pool);
+        for (int i = 0; i < SENDERS; i++) {
+            assertThat(ps.bestPendingStateNonce(accounts.get(i))).isEqualTo(BigInteger.valueOf(4));
+        }
+
+        // an empty block carries every chain, including the one executed on the last block
+        before = new HashMap<>(reported);
+        processBest(new ArrayList<>());
+
+        assertCarried(before, pool, true);
+        assertSameAsExecution(pool);
+    }
+
+    @Test
+    public void testChainBrokenByNonceInBlock() {
+        List<AionTransaction> pool = fillPool(4, 0, 1);
+
+        // the block uses the first two nonces of sender 0 for other transactions
+        List<AionTransaction> included = new ArrayList<>();
+        included.add(transfer(0, 0, recipient(2, 0), BigInteger.TEN));
+        included.add(transfer(0, 1, recipient(2, 1), BigInteger.TEN));
+        Map<ByteArrayWrapper, AionTxReceipt> before = new HashMap<>(reported);
+        processBest(included);
+
+        List<AionTransaction> remaining = new ArrayList<>(pool.subList(2, 8));
+        assertCarried(before, remaining.subList(0, 2), false);
+        assertCarried(before, remaining.subList(2, 6), true);
+        assertSameAsExecution(remaining);
+        assertThat(ps.bestPendingStateNonce(accounts.get(0))).isEqualTo(BigInteger.valueOf(4));
+        assertThat(ps.bestPendingStateNonce(accounts.get(1))).isEqualTo(BigInteger.valueOf(4));
+    }
+
+    @Test
+    public void testChainBrokenByBalanceInBlock() {
+        List<AionTransaction> pool = fillPool(4, 0, 1);
+
+        // sender 0 spends its whole balance in the block
+        BigInteger fee = BigInteger.valueOf(21000L * NRG_PRICE);
+        BigInteger value = bc.getRepository().getBalance(accounts.get(0)).subtract(fee);
+        Map<ByteArrayWrapper, AionTxReceipt> before = new HashMap<>(reported);
+        processBest(List.of(transfer(0, 0, recipient(2, 0), value)));
+
+        assertCarried(before, pool.subList(4, 8), true);
+        assertSameAsExecution(pool.subList(1, 8));
+        assertThat(ps.bestPendingStateNonce(accounts.get(0))).isEqualTo(BigInteger.ONE);
+        assertThat(ps.bestPendingStateNonce(accounts.get(1))).isEqualTo(BigInteger.valueOf(4));
+        for (AionTransaction tx : ps.getPendingTransactions()) {
+            assertThat(tx.getFrom()).isNotEqualTo(accounts.get(0));
+        }
+    }
+
+    @Test
+    public void testRecipientGainsCode() {
+        AionTransaction deploy =
+                new AionTransaction(
+                        BigInteger.ZERO.toByteArray(),
+                        Address.EMPTY_ADDRESS(),
+                        BigInteger.ZERO.toByteArray(),
+                        ByteUtil.hexStringToBytes(STORAGE_BYTECODE),
+                        1_000_000L,
+                        NRG_PRICE);
+        deploy.sign(keys.get(0));
+        Address contract = deploy.getContractAddress();
+
+        // a plain transfer to the contract address while it has no code yet
+        List<AionTransaction> pool = new ArrayList<>();
+        pool.add(transfer(1, 0));
+        pool.add(transfer(1, 1, contract, BigInteger.ONE));
+        pool.add(transfer(1, 2));
+        assertThat(ps.addPendingTransactions(pool)).isEqualTo(pool);
+
+        Map<ByteArrayWrapper, AionTxReceipt> before = new HashMap<>(reported);
+        processBest(List.of(deploy));
+        assertThat(bc.getRepository().getCode(contract).length).isGreaterThan(0);
+
+        // the chain is carried up to the transfer that now calls code
+        assertCarried(before, pool.subList(0, 1), true);
+        assertCarried(before, pool.subList(1, 3), false);
+        assertSameAsExecution(pool);
+    }
+
+    @Test
+    public void testForkSwitch() {
+        AionBlock parent = bc.getBestBlock();
+        List<AionTransaction> pool = fillPool(4, 0, 1);
+        processBest(List.of(pool.get(0)));
+        assertThat(ps.bestPendingStateNonce(accounts.get(0))).isEqualTo(BigInteger.valueOf(4));
+
+        // a longer fork without the included tx, which returns to the pool
+        AionBlock fork = connect(parent, new ArrayList<>(), ImportResult.IMPORTED_NOT_BEST);
+        fork = connect(fork, new ArrayList<>(), ImportResult.IMPORTED_BEST);
+        Map<ByteArrayWrapper, AionTxReceipt> before = new HashMap<>(reported);
+        ps.processBest(fork, bestReceipts);
+
+        // every chain is executed again on the new fork
+        assertCarried(before, pool, false);
+        assertSameAsExecution(pool);
+        assertThat(ps.bestPendingStateNonce(accounts.get(0))).isEqualTo(BigInteger.valueOf(4));
+        assertThat(ps.bestPendingStateNonce(accounts.get(1))).isEqualTo(BigInteger.valueOf(4));
+        assertThat(ps.getBestBlock().getHash()).isEqualTo(fork.getHash());
+    }
+
+    /**
+     * Adds {@code txs} from another thread while {@link AionPendingStateImpl#processBest} on the
+     * best block is rebuilding the next state, and waits for the call to return.
+     */
+    private List<AionTransaction> addDuringRebuild(List<AionTransaction> txs) {
+        AtomicReference<List<AionTransaction>> added = new AtomicReference<>();
+        duringRebuild.set(
+                () -> {
+                    try {
+                        // the rebuild holds no lock that the new transactions need
+                        added.set(
+                                executor.submit(() -> ps.addPendingTransactions(txs))
+                                        .get(30, TimeUnit.SECONDS));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+        processBest(new ArrayList<>());
+        assertThat(duringRebuild.get()).isNull();
+        return added.get();
+    }
+
+    private static List<ByteArrayWrapper> hashes(List<AionTransaction> txs) {
+        List<ByteArrayWrapper> hashes = new ArrayList<>();
+        for (AionTransaction tx : txs) {
+            hashes.add(ByteArrayWrapper.wrap(tx.getHash()));
+        }
+        return hashes;
+    }
+
+    @Test
+    public void testTxsAcceptedDuringRebuild() {
+        List<AionTransaction> pool = fillPool(3, 0, 1);
+
+        // the next nonce of a pool chain and the first tx of a new sender
+        List<AionTransaction> txs = List.of(transfer(0, 3), transfer(2, 0));
+        assertThat(addDuringRebuild(txs)).isEqualTo(txs);
+
+        // replayed on the swapped-in state
+        pool.addAll(txs);
+        assertSameAsExecution(pool);
+        assertThat(ps.bestPendingStateNonce(accounts.get(0))).isEqualTo(BigInteger.valueOf(4));
+        assertThat(ps.bestPendingStateNonce(accounts.get(1))).isEqualTo(BigInteger.valueOf(3));
+        assertThat(ps.bestPendingStateNonce(accounts.get(2))).isEqualTo(BigInteger.ONE);
+        assertThat(hashes(ps.getPendingTransactions())).containsAllIn(hashes(pool));
+
+        // and carried on from there
+        processBest(new ArrayList<>());
+        assertSameAsExecution(pool);
+        assertThat(ps.bestPendingStateNonce(accounts.get(0))).isEqualTo(BigInteger.valueOf(4));
+    }
+
+    @Test
+    public void testReplacementDuringRebuild() {
+        List<AionTransaction> pool = fillPool(3, 0);
+
+        // twice the energy price replaces the pool tx with the same nonce
+        AionTransaction replaced = pool.get(1);
+        AionTransaction replacement =
+                new AionTransaction(
+                        BigInteger.ONE.toByteArray(),
+                        recipient(1, 1),
+                        BigInteger.TEN.toByteArray(),
+                        ByteUtil.EMPTY_BYTE_ARRAY,
+                        21000L,
+                        2 * NRG_PRICE);
+        replacement.sign(keys.get(0));
+        assertThat(addDuringRebuild(List.of(replacement))).containsExactly(replacement);
+
+        assertThat(ps.bestPendingStateNonce(accounts.get(0))).isEqualTo(BigInteger.valueOf(3));
+        List<ByteArrayWrapper> pending = hashes(ps.getPendingTransactions());
+        assertThat(pending).contains(ByteArrayWrapper.wrap(replacement.getHash()));
+        assertThat(pending).doesNotContain(ByteArrayWrapper.wrap(replaced.getHash()));
+
+        // the next state only has the replacement
+        pool.set(1, replacement);
+        processBest(new ArrayList<>());
+        assertSameAsExecution(pool);
+        assertThat(ps.getRepository().getBalance(replaced.getTo())).isEqualTo(BigInteger.ZERO);
+        assertThat(ps.bestPendingStateNonce(accounts.get(0))).isEqualTo(BigInteger.valueOf(3));
+    }
+
+    @Test
+    public void testBestBlockReadBeforeProcessBest() {
+        List<AionTransaction> pool = fillPool(3, 0, 1);
+
+        // e.g. a block template request between the import and the best block event
+        AionBlock block =
+                connect(bc.getBestBlock(), List.of(pool.get(0)), ImportResult.IMPORTED_BEST);
+        assertThat(ps.getBestBlock().getHash()).isEqualTo(block.getHash());
+        Map<ByteArrayWrapper, AionTxReceipt> before = new HashMap<>(reported);
+        ps.processBest(block, bestReceipts);
+
+        // the block is processed as the child of the previous best, not as a fork
+        assertThat(included).contains(ByteArrayWrapper.wrap(pool.get(0).getHash()));
+        assertCarried(before, pool.subList(3, 6), true);
+        assertThat(hashes(ps.getPendingTransactions()))
+                .doesNotContain(ByteArrayWrapper.wrap(pool.get(0).getHash()));
+        assertSameAsExecution(pool.subList(1, 6));
+    }
+
+    @Test
+    public void testReadsDuringProcessBest() throws Exception {
+        int length = 8;
+        List<AionTransaction> pool = fillPool(length, 0, 1, 2, 3);
+
+        AtomicBoolean done = new AtomicBoolean();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(
+                    executor.submit(
+                            () -> {
+                                long lastNumber = -1;
+                                while (!done.get()) {
+                                    try {
+                                        long number = ps.getBestBlock().getNumber();
+                                        assertThat(number).isAtLeast(lastNumber);
+                                        lastNumber = number;
+
+                                        // pool txs are either pending or in the chain, never both
+                                        for (Address addr : accounts) {
+                                            assertThat(ps.bestPendingStateNonce(addr))
+                                                    .isEqualTo(BigInteger.valueOf(length));
+                                        }
+                                        ps.getPendingTransactions();
+                                        ps.getRepository().getBalance(accounts.get(0));
+                                    } catch (Throwable t) {
+                                        errors.add(t);
+                                        return;
+                                    }
+                                }
+                            }));
+        }
+
+        // every block includes the next tx of each sender
+        for (int nonce = 0; nonce < length; nonce++) {
+            List<AionTransaction> included = new ArrayList<>();
+            for (int sender = 0; sender < SENDERS; sender++) {
+                included.add(pool.get(sender * length + nonce));
+            }
+            processBest(included);
+        }
+        done.set(true);
+        for (Future<?> reader : readers) {
+            reader.get(30, TimeUnit.SECONDS);
+        }
+
+        assertThat(errors).isEmpty();
+        assertThat(ps.getBestBlock().getNumber()).isEqualTo(length);
+    }
+}
@@ -35,6 +35,7 @@ package org.aion.zero.impl;
 import static com.google.common.truth.Truth.assertThat;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import org.aion.base.db.IRepository;
@@ -182,6 +183,49 @@ public class BlockchainIntegrationTest {
                                 .subtract(BigInteger.valueOf(100)));
     }
 
+    @Test
+    public void testPreValidatedBlockImport() {
+        final Address receiverAddress =
+                Address.wrap(
+                        ByteUtil.hexStringToBytes(
+                                "CAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFE"));
+
+        StandaloneBlockchain.Bundle bundle =
+                (new StandaloneBlockchain.Builder())
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts()
+                        .build();
+        StandaloneBlockchain bc = bundle.bc;
+
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.valueOf(0).toByteArray(),
+                        receiverAddress,
+                        BigInteger.valueOf(100).toByteArray(),
+                        ByteUtil.EMPTY_BYTE_ARRAY,
+                        21000L,
+                        1L);
+        tx.sign(bundle.privateKeys.get(0));
+
+        AionBlock block = bc.createNewBlock(bc.getBestBlock(), Collections.singletonList(tx), true);
+        assertThat(block.getTransactionsList().size()).isEqualTo(1);
+
+        // same header with the transactions dropped
+        AionBlock tampered = new AionBlock(block.getHeader(), new ArrayList<>());
+        assertThat(tampered.getHash()).isEqualTo(block.getHash());
+
+        assertThat(bc.preValidate(block)).isTrue();
+        assertThat(bc.preValidate(tampered)).isFalse();
+
+        // the checks on one instance do not carry over to another with the same hash
+        assertThat(bc.tryToConnect(tampered)).isEqualTo(ImportResult.INVALID_BLOCK);
+
+        assertThat(bc.preValidate(block)).isTrue();
+        assertThat(bc.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(bc.getRepository().getBalance(receiverAddress))
+                .isEqualTo(BigInteger.valueOf(100));
+    }
+
     @Test
     public void testAppendIncorrectTimestampBlock() {
         StandaloneBlockchain.Bundle bundle =
@@ -0,0 +1,122 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with the aion network
+ * project source files. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other open source projects. We
+ * greatly appreciate the effort that was invested in these projects and we thank the individual
+ * contributors for their work. For provenance information and contributors please see
+ * <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc.
+ * (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team. Bitcoinj team.
+ * ****************************************************************************
+ */
+package org.aion.zero.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.crypto.HashUtil;
+import org.aion.mcf.core.ImportResult;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Test;
+
+/**
+ * Compares the time to import blocks of independent transfers with serial and with parallel
+ * transaction execution.
+ */
+public class BlockchainParallelExecutionBenchmark {
+
+    private static final int SENDERS = 400;
+    private static final int BLOCKS = 10;
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    @Test
+    public void testSerialVersusParallelImport() {
+        List<ECKey> keys = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+
+        StandaloneBlockchain creator = buildChain(keys, 1);
+        StandaloneBlockchain serial = buildChain(keys, 1);
+        StandaloneBlockchain parallel = buildChain(keys, THREADS);
+
+        long serialTime = 0;
+        long parallelTime = 0;
+        for (int b = 0; b < BLOCKS; b++) {
+            List<AionTransaction> txs = new ArrayList<>();
+            for (int i = 0; i < SENDERS; i++) {
+                AionTransaction tx =
+                        new AionTransaction(
+                                BigInteger.valueOf(b).toByteArray(),
+                                Address.wrap(HashUtil.h256(ByteUtil.intToBytes(b * SENDERS + i))),
+                                BigInteger.ONE.toByteArray(),
+                                ByteUtil.EMPTY_BYTE_ARRAY,
+                                21000L,
+                                1L);
+                tx.sign(keys.get(i));
+                txs.add(tx);
+            }
+
+            AionBlock block = creator.createNewBlock(creator.getBestBlock(), txs, true);
+            assertThat(block.getTransactionsList().size()).isEqualTo(SENDERS);
+            assertThat(creator.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+            long startTime = System.nanoTime();
+            assertThat(serial.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+            serialTime += System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            assertThat(parallel.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+            parallelTime += System.nanoTime() - startTime;
+
+            assertThat(parallel.getRepository().getRoot())
+                    .isEqualTo(serial.getRepository().getRoot());
+        }
+
+        System.out.println("blocks: " + BLOCKS + ", txs per block: " + SENDERS);
+        System.out.println("serial processing time: " + serialTime / BLOCKS + " ns per block");
+        System.out.println(
+                "parallel ("
+                        + THREADS
+                        + " threads) processing time: "
+                        + parallelTime / BLOCKS
+                        + " ns per block");
+    }
+
+    private static StandaloneBlockchain buildChain(List<ECKey> keys, int execThreads) {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(keys)
+                .withExecThreads(execThreads)
+                .build()
+                .bc;
+    }
+}
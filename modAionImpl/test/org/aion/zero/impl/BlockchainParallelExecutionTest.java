@@ -0,0 +1,257 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with the aion network
+ * project source files. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other open source projects. We
+ * greatly appreciate the effort that was invested in these projects and we thank the individual
+ * contributors for their work. For provenance information and contributors please see
+ * <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc.
+ * (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team. Bitcoinj team.
+ * ****************************************************************************
+ */
+package org.aion.zero.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.crypto.HashUtil;
+import org.aion.mcf.core.ImportResult;
+import org.aion.mcf.vm.types.DataWord;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Test;
+
+/**
+ * Checks that executing the transactions of a block in parallel yields the same state as the serial
+ * execution used when the block was created.
+ */
+public class BlockchainParallelExecutionTest {
+
+    private static final int SENDERS = 10;
+
+    /** the state expansion contract of BlockchainAccountStateBenchmark, put() appends to storage */
+    private static final String STORAGE_BYTECODE =
+            "0x605060405260006001600050909055341561001a5760006000fd5b61001f565b6101688061002e6000396000f30060506040526000356c01000000000000000000000000900463ffffffff16806331e658a514610049578063549262ba1461008957806361bc221a1461009f57610043565b60006000fd5b34156100555760006000fd5b610073600480808060100135903590916020019091929050506100c9565b6040518082815260100191505060405180910390f35b34156100955760006000fd5b61009d6100eb565b005b34156100ab5760006000fd5b6100b3610133565b6040518082815260100191505060405180910390f35b6000600050602052818160005260105260306000209050600091509150505481565b6001600060005060006001600050546000825281601001526020019081526010016000209050600050819090905550600160008181505480929190600101919050909055505b565b600160005054815600a165627a7a72305820c615f3373321aa7e9c05d9a69e49508147861fb2a54f2945fbbaa7d851125fe80029";
+
+    /** storage slot of the number of put() calls */
+    private static final DataWord COUNTER = new DataWord(1);
+
+    private final List<ECKey> keys = new ArrayList<>();
+
+    public BlockchainParallelExecutionTest() {
+        for (int i = 0; i < SENDERS; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+    }
+
+    private StandaloneBlockchain buildChain(int execThreads) {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(keys)
+                .withExecThreads(execThreads)
+                .build()
+                .bc;
+    }
+
+    private static AionTransaction transfer(ECKey sender, BigInteger nonce, Address to, long value) {
+        AionTransaction tx =
+                new AionTransaction(
+                        nonce.toByteArray(),
+                        to,
+                        BigInteger.valueOf(value).toByteArray(),
+                        ByteUtil.EMPTY_BYTE_ARRAY,
+                        21000L,
+                        1L);
+        tx.sign(sender);
+        return tx;
+    }
+
+    private static AionTransaction call(ECKey sender, BigInteger nonce, Address contract, String function) {
+        AionTransaction tx =
+                new AionTransaction(
+                        nonce.toByteArray(),
+                        contract,
+                        BigInteger.ZERO.toByteArray(),
+                        Arrays.copyOf(HashUtil.keccak256(function.getBytes()), 4),
+                        200000L,
+                        1L);
+        tx.sign(sender);
+        return tx;
+    }
+
+    private static Address newAddress(int i) {
+        return Address.wrap(HashUtil.h256(BigInteger.valueOf(i).toByteArray()));
+    }
+
+    /** Creates the block on a serial chain and imports it into both a serial and a parallel one. */
+    private StandaloneBlockchain assertSameState(List<AionTransaction> txs) {
+        StandaloneBlockchain creator = buildChain(1);
+        StandaloneBlockchain serial = buildChain(1);
+        StandaloneBlockchain parallel = buildChain(4);
+        assertSameState(creator, serial, parallel, txs);
+        return parallel;
+    }
+
+    /** Creates the next block on the creator and imports it into all the chains. */
+    private static AionBlock assertSameState(
+            StandaloneBlockchain creator,
+            StandaloneBlockchain serial,
+            StandaloneBlockchain parallel,
+            List<AionTransaction> txs) {
+        AionBlock block = creator.createNewBlock(creator.getBestBlock(), txs, true);
+        assertThat(block.getTransactionsList().size()).isEqualTo(txs.size());
+
+        assertThat(creator.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(serial.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(parallel.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        assertThat(parallel.getRepository().getRoot()).isEqualTo(block.getStateRoot());
+        assertThat(parallel.getRepository().getRoot())
+                .isEqualTo(serial.getRepository().getRoot());
+        assertThat(parallel.getBestBlock().getHash()).isEqualTo(block.getHash());
+        return block;
+    }
+
+    @Test
+    public void testIndependentTransfers() {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            txs.add(transfer(keys.get(i), BigInteger.ZERO, newAddress(i), 100 + i));
+        }
+        assertSameState(txs);
+    }
+
+    @Test
+    public void testConflictingTransfers() {
+        List<AionTransaction> txs = new ArrayList<>();
+        BigInteger[] nonces = new BigInteger[SENDERS];
+        for (int i = 0; i < SENDERS; i++) {
+            nonces[i] = BigInteger.ZERO;
+        }
+
+        for (int i = 0; i < 40; i++) {
+            int sender = i % 3;
+            // same sender, same recipient and senders receiving funds
+            Address to = i % 5 == 0 ? Address.wrap(keys.get(sender + 1).getAddress()) : newAddress(i % 7);
+            txs.add(transfer(keys.get(sender), nonces[sender], to, i + 1));
+            nonces[sender] = nonces[sender].add(BigInteger.ONE);
+        }
+
+        // a transfer to the coinbase and one that fails for an invalid nonce
+        txs.add(transfer(keys.get(5), nonces[5], Address.ZERO_ADDRESS(), 1000));
+        nonces[5] = nonces[5].add(BigInteger.ONE);
+        txs.add(transfer(keys.get(6), BigInteger.TEN, newAddress(1), 1));
+
+        // rejected transactions are left out of the block
+        StandaloneBlockchain creator = buildChain(1);
+        AionBlock block = creator.createNewBlock(creator.getBestBlock(), txs, true);
+        assertSameState(block.getTransactionsList());
+    }
+
+    @Test
+    public void testFundsReceivedInBlock() {
+        // accounts that only hold what they receive earlier in the block
+        ECKey a = ECKeyFac.inst().create();
+        ECKey b = ECKeyFac.inst().create();
+        ECKey c = ECKeyFac.inst().create();
+        Address addrA = Address.wrap(a.getAddress());
+        Address addrB = Address.wrap(b.getAddress());
+        Address addrC = Address.wrap(c.getAddress());
+
+        List<AionTransaction> txs = new ArrayList<>();
+        txs.add(transfer(keys.get(0), BigInteger.ZERO, addrA, 1_000_000));
+        txs.add(transfer(a, BigInteger.ZERO, addrB, 500_000));
+        txs.add(transfer(b, BigInteger.ZERO, addrC, 200_000));
+        txs.add(transfer(c, BigInteger.ZERO, addrA, 100_000));
+        txs.add(transfer(a, BigInteger.ONE, addrC, 50_000));
+
+        // a ring where each sender is the recipient of the transfer before it
+        for (int i = 1; i < SENDERS; i++) {
+            Address to = Address.wrap(keys.get(i % (SENDERS - 1) + 1).getAddress());
+            txs.add(transfer(keys.get(i), BigInteger.ZERO, to, 1000 + i));
+        }
+
+        StandaloneBlockchain parallel = assertSameState(txs);
+
+        // executed ahead of their turn these would have found no funds
+        assertThat(parallel.getSpeculativeReexecutions()).isGreaterThan(0L);
+        long fee = 21000L;
+        assertThat(parallel.getRepository().getBalance(addrA))
+                .isEqualTo(BigInteger.valueOf(1_000_000 - 500_000 - fee + 100_000 - 50_000 - fee));
+        assertThat(parallel.getRepository().getBalance(addrB))
+                .isEqualTo(BigInteger.valueOf(500_000 - 200_000 - fee));
+        assertThat(parallel.getRepository().getBalance(addrC))
+                .isEqualTo(BigInteger.valueOf(200_000 - 100_000 - fee + 50_000));
+    }
+
+    @Test
+    public void testContractCallsOnSharedStorage() {
+        StandaloneBlockchain creator = buildChain(1);
+        StandaloneBlockchain serial = buildChain(1);
+        StandaloneBlockchain parallel = buildChain(4);
+
+        AionTransaction deploy =
+                new AionTransaction(
+                        BigInteger.ZERO.toByteArray(),
+                        Address.EMPTY_ADDRESS(),
+                        BigInteger.ZERO.toByteArray(),
+                        ByteUtil.hexStringToBytes(STORAGE_BYTECODE),
+                        1_000_000L,
+                        1L);
+        deploy.sign(keys.get(0));
+        assertSameState(creator, serial, parallel, List.of(deploy));
+        Address contract = deploy.getContractAddress();
+        assertThat(parallel.getRepository().getCode(contract)).isNotEmpty();
+
+        // every call appends to the same storage, and the transfers around the calls are started
+        // before the calls change the accounts they read
+        List<AionTransaction> txs = new ArrayList<>();
+        int calls = 0;
+        for (int i = 0; i < SENDERS; i++) {
+            BigInteger nonce = i == 0 ? BigInteger.ONE : BigInteger.ZERO;
+            Address next = Address.wrap(keys.get((i + 1) % SENDERS).getAddress());
+
+            txs.add(call(keys.get(i), nonce, contract, "put()"));
+            txs.add(transfer(keys.get(i), nonce.add(BigInteger.ONE), next, 100 + i));
+            txs.add(call(keys.get(i), nonce.add(BigInteger.TWO), contract, "put()"));
+            calls += 2;
+        }
+        assertSameState(creator, serial, parallel, txs);
+
+        assertThat(parallel.getSpeculativeReexecutions()).isGreaterThan(0L);
+        for (AionTransaction tx : txs) {
+            assertThat(parallel.getTransactionInfo(tx.getHash()).getReceipt().isSuccessful())
+                    .isTrue();
+        }
+        assertThat(parallel.getRepository().getStorageValue(contract, COUNTER))
+                .isEqualTo(new DataWord(calls));
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with the aion network
+ * project source files. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other open source projects. We
+ * greatly appreciate the effort that was invested in these projects and we thank the individual
+ * contributors for their work. For provenance information and contributors please see
+ * <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc.
+ * (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team. Bitcoinj team.
+ * ****************************************************************************
+ */
+package org.aion.zero.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.crypto.HashUtil;
+import org.aion.evtmgr.IEvent;
+import org.aion.evtmgr.IEventMgr;
+import org.aion.evtmgr.IHandler;
+import org.aion.evtmgr.impl.evt.EventBlock;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.core.ImportResult;
+import org.aion.zero.impl.blockchain.AionPendingStateImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxReceipt;
+import org.junit.Test;
+
+/**
+ * Measures processBest latency against the mempool size, once for an empty new block, where every
+ * sender chain can be carried over, and once for a block with one transaction of every sender,
+ * where every chain is executed again.
+ */
+public class PendingStateBenchmark {
+
+    private static final int SENDERS = 256;
+    private static final int[] CHAIN_LENGTHS = {2, 4, 8, 16, 31};
+    private static final int ROUNDS = 5;
+
+    private StandaloneBlockchain bc;
+    private AionPendingStateImpl ps;
+    private List<ECKey> keys;
+    private long[] poolNonce;
+    private long[] chainNonce;
+    private List<AionTxReceipt> bestReceipts;
+    private long time = System.currentTimeMillis() / 1000L;
+
+    @Test
+    public void testProcessBestLatency() {
+        Map<String, String> cfg = new HashMap<>();
+        for (LogEnum module : LogEnum.values()) {
+            cfg.put(module.name(), "ERROR");
+        }
+        AionLoggerFactory.init(cfg);
+
+        keys = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+        poolNonce = new long[SENDERS];
+        chainNonce = new long[SENDERS];
+
+        bc =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(keys)
+                        .build()
+                        .bc;
+        // stub only, recording the pending tx events would dominate the timings
+        IEventMgr evtMgr = mock(IEventMgr.class, withSettings().stubOnly());
+        doAnswer(
+                        invocation -> {
+                            IEvent evt = invocation.getArgument(0);
+                            if (evt.getEventType() == IHandler.TYPE.BLOCK0.getValue()
+                                    && evt.getCallbackType()
+                                            == EventBlock.CALLBACK.ONBEST0.getValue()) {
+                                @SuppressWarnings("unchecked")
+                                List<AionTxReceipt> receipts =
+                                        (List<AionTxReceipt>) evt.getFuncArgs().get(1);
+                                bestReceipts = receipts;
+                            }
+                            return true;
+                        })
+                .when(evtMgr)
+                .newEvent(any());
+        bc.setEventManager(evtMgr);
+        ps = AionPendingStateImpl.createForTesting(bc);
+        ps.processBest(bc.getBestBlock(), null);
+
+        try {
+            for (int length : CHAIN_LENGTHS) {
+                long carried = 0;
+                long executed = 0;
+                for (int r = 0; r < ROUNDS; r++) {
+                    fillPool(length);
+                    assertThat(ps.getPendingTxSize()).isEqualTo(SENDERS * length);
+                    // untimed, loads the new accounts so that both timings below start warm
+                    connect(new ArrayList<>());
+
+                    carried += connect(new ArrayList<>());
+                    for (int i = 0; i < SENDERS; i++) {
+                        assertThat(ps.bestPendingStateNonce(Address.wrap(keys.get(i).getAddress())))
+                                .isEqualTo(BigInteger.valueOf(poolNonce[i]));
+                    }
+
+                    List<AionTransaction> included = new ArrayList<>();
+                    for (int i = 0; i < SENDERS; i++) {
+                        included.add(transfer(i, chainNonce[i]++));
+                    }
+                    executed += connect(included);
+                }
+
+                System.out.println(
+                        "pool: "
+                                + SENDERS * length
+                                + " txs, processBest: "
+                                + carried / ROUNDS / 1000
+                                + " us with an empty block, "
+                                + executed / ROUNDS / 1000
+                                + " us with every sender in the block");
+            }
+        } finally {
+            ps.shutDown();
+        }
+    }
+
+    /** Tops every sender chain in the pool up to {@code length} transactions. */
+    private void fillPool(int length) {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            while (poolNonce[i] < chainNonce[i] + length) {
+                txs.add(transfer(i, poolNonce[i]++));
+            }
+        }
+        ps.addPendingTransactions(txs);
+    }
+
+    /** Imports a block with {@code txs} and times processBest on it with the import receipts. */
+    private long connect(List<AionTransaction> txs) {
+        // blocks come faster than one per second, so they run on their own clock
+        time += 10;
+        AionBlock block = bc.createNewBlockInternal(bc.getBestBlock(), txs, false, time).block;
+        assertThat(block.getTransactionsList().size()).isEqualTo(txs.size());
+        assertThat(bc.tryToConnectInternal(block, time)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        long startTime = System.nanoTime();
+        ps.processBest(block, bestReceipts);
+        return System.nanoTime() - startTime;
+    }
+
+    /** The same transfer for a sender and nonce every time, so pool and block agree on it. */
+    private AionTransaction transfer(int sender, long nonce) {
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        Address.wrap(HashUtil.h256(ByteUtil.longToBytes(nonce * SENDERS + sender))),
+                        BigInteger.ONE.toByteArray(),
+                        ByteUtil.EMPTY_BYTE_ARRAY,
+                        21000L,
+                        10_000_000_000L);
+        tx.sign(keys.get(sender));
+        return tx;
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with the aion network
+ * project source files. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other open source projects. We
+ * greatly appreciate the effort that was invested in these projects and we thank the individual
+ * contributors for their work. For provenance information and contributors please see
+ * <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc.
+ * (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team. Bitcoinj team.
+ * ****************************************************************************
+ */
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.BitSet;
+import org.aion.base.util.ByteUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.vm.types.Bloom;
+import org.aion.zero.impl.core.BloomFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for {@link LogBloomIndex}. */
+public class LogBloomIndexTest {
+
+    private static final int SECTION_SIZE = 8;
+
+    private final byte[] topicA = "topicA".getBytes();
+    private final byte[] topicB = "topicB".getBytes();
+
+    private MockDB database;
+
+    @Before
+    public void setup() {
+        database = new MockDB("bloomIndex");
+        database.open();
+    }
+
+    @After
+    public void teardown() {
+        database.close();
+    }
+
+    private static BitSet column(LogBloomIndex index, long section, int bit) {
+        return BitSet.valueOf(index.getColumn(section, bit));
+    }
+
+    @Test
+    public void testGetBits() {
+        Bloom bloom = BloomFilter.create(topicA);
+        int[] bits = LogBloomIndex.getBits(bloom);
+
+        assertThat(bits.length).isAtLeast(1);
+        assertThat(bits.length).isAtMost(3);
+
+        Bloom rebuilt = new Bloom();
+        for (int bit : bits) {
+            ByteUtil.setBit(rebuilt.getData(), bit, 1);
+        }
+        assertThat(rebuilt).isEqualTo(bloom);
+
+        assertThat(LogBloomIndex.getBits(new Bloom())).isEmpty();
+    }
+
+    @Test
+    public void testAdd() {
+        LogBloomIndex index = new LogBloomIndex(database, SECTION_SIZE);
+        assertThat(index.getIndexedHead()).isEqualTo(-1L);
+
+        byte[] bloomA = BloomFilter.create(topicA).getData();
+        byte[] bloomB = BloomFilter.create(topicB).getData();
+
+        for (long i = 0; i < 20; i++) {
+            index.add(i, i % 3 == 0 ? bloomA : bloomB);
+        }
+        assertThat(index.getIndexedHead()).isEqualTo(19L);
+
+        int bitA = onlyIn(topicA, topicB);
+        for (long i = 0; i < 20; i++) {
+            assertThat(column(index, i / SECTION_SIZE, bitA).get((int) (i % SECTION_SIZE)))
+                    .isEqualTo(i % 3 == 0);
+        }
+    }
+
+    /** @return a bloom bit of the first topic that the second topic does not set */
+    private static int onlyIn(byte[] topic, byte[] other) {
+        Bloom otherBloom = BloomFilter.create(other);
+        for (int bit : LogBloomIndex.getBits(BloomFilter.create(topic))) {
+            if (ByteUtil.getBit(otherBloom.getData(), bit) == 0) {
+                return bit;
+            }
+        }
+        throw new IllegalStateException("bloom bits overlap");
+    }
+
+    @Test
+    public void testGapIsSkipped() {
+        LogBloomIndex index = new LogBloomIndex(database, SECTION_SIZE);
+        byte[] bloom = BloomFilter.create(topicA).getData();
+        int bit = LogBloomIndex.getBits(BloomFilter.create(topicA))[0];
+
+        index.add(0, bloom);
+        index.add(5, bloom);
+
+        assertThat(index.getIndexedHead()).isEqualTo(0L);
+        assertThat(column(index, 0, bit).get(0)).isTrue();
+        assertThat(column(index, 0, bit).get(5)).isFalse();
+    }
+
+    @Test
+    public void testSideChainBlockInEarlierSection() {
+        LogBloomIndex index = new LogBloomIndex(database, SECTION_SIZE);
+        byte[] empty = new Bloom().getData();
+        for (long i = 0; i < 20; i++) {
+            index.add(i, empty);
+        }
+
+        int bit = LogBloomIndex.getBits(BloomFilter.create(topicA))[0];
+        assertThat(column(index, 0, bit).isEmpty()).isTrue();
+
+        // a fork block stored at a number of a completed section
+        index.add(3, BloomFilter.create(topicA).getData());
+
+        assertThat(column(index, 0, bit).get(3)).isTrue();
+        assertThat(column(index, 0, bit).cardinality()).isEqualTo(1);
+        assertThat(index.getIndexedHead()).isEqualTo(19L);
+    }
+
+    @Test
+    public void testFlushAndReload() {
+        LogBloomIndex index = new LogBloomIndex(database, SECTION_SIZE);
+        byte[] bloom = BloomFilter.create(topicA).getData();
+        int bit = LogBloomIndex.getBits(BloomFilter.create(topicA))[0];
+
+        for (long i = 0; i < 12; i++) {
+            index.add(i, bloom);
+        }
+        index.flush();
+
+        LogBloomIndex reloaded = new LogBloomIndex(database, SECTION_SIZE);
+        assertThat(reloaded.getIndexedHead()).isEqualTo(11L);
+        assertThat(column(reloaded, 0, bit).cardinality()).isEqualTo(8);
+        assertThat(column(reloaded, 1, bit).cardinality()).isEqualTo(4);
+
+        // the partially filled section is extended after the reload
+        reloaded.add(12, bloom);
+        assertThat(column(reloaded, 1, bit).cardinality()).isEqualTo(5);
+    }
+
+    @Test
+    public void testCloseStopsUpdates() {
+        LogBloomIndex index = new LogBloomIndex(database, SECTION_SIZE);
+        index.add(0, BloomFilter.create(topicA).getData());
+        index.close();
+        index.add(1, BloomFilter.create(topicA).getData());
+
+        assertThat(new LogBloomIndex(database, SECTION_SIZE).getIndexedHead()).isEqualTo(0L);
+    }
+}
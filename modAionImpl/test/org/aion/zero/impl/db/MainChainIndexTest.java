@@ -0,0 +1,183 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with the aion network
+ * project source files. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other open source projects. We
+ * greatly appreciate the effort that was invested in these projects and we thank the individual
+ * contributors for their work. For provenance information and contributors please see
+ * <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc.
+ * (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team. Bitcoinj team.
+ * ****************************************************************************
+ */
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import org.aion.crypto.HashUtil;
+import org.junit.Test;
+
+public class MainChainIndexTest {
+
+    private static byte[] hash(long number) {
+        return HashUtil.h256(BigInteger.valueOf(number).toByteArray());
+    }
+
+    @Test
+    public void testSetAndGet() {
+        MainChainIndex index = new MainChainIndex();
+        BigInteger td = new BigInteger("123456789012345678901234567890");
+
+        assertThat(index.get(5)).isNull();
+        assertThat(index.getHash(5)).isNull();
+
+        index.set(5, hash(5), td);
+
+        MainChainIndex.Entry entry = index.get(5);
+        assertThat(entry.hash).isEqualTo(hash(5));
+        assertThat(entry.totalDifficulty).isEqualTo(td);
+        assertThat(index.getHash(5)).isEqualTo(hash(5));
+
+        // neighbouring levels are not affected
+        assertThat(index.get(4)).isNull();
+        assertThat(index.get(6)).isNull();
+    }
+
+    @Test
+    public void testOverwriteAndInvalidate() {
+        MainChainIndex index = new MainChainIndex();
+
+        index.set(7, hash(7), BigInteger.TEN);
+        index.set(7, hash(8), BigInteger.ONE);
+        assertThat(index.getHash(7)).isEqualTo(hash(8));
+        assertThat(index.get(7).totalDifficulty).isEqualTo(BigInteger.ONE);
+
+        index.invalidate(7);
+        assertThat(index.get(7)).isNull();
+
+        // invalidating levels that were never written is allowed
+        index.invalidate(-1);
+        index.invalidate(10 * MainChainIndex.CHUNK_RECORDS);
+    }
+
+    @Test
+    public void testLevelsAcrossChunks() {
+        MainChainIndex index = new MainChainIndex(4 * MainChainIndex.CHUNK_RECORDS);
+        long[] levels = {
+            0,
+            MainChainIndex.CHUNK_RECORDS - 1,
+            MainChainIndex.CHUNK_RECORDS,
+            3L * MainChainIndex.CHUNK_RECORDS + 17
+        };
+
+        for (long level : levels) {
+            index.set(level, hash(level), BigInteger.valueOf(level + 1));
+        }
+        for (long level : levels) {
+            assertThat(index.getHash(level)).isEqualTo(hash(level));
+            assertThat(index.get(level).totalDifficulty).isEqualTo(BigInteger.valueOf(level + 1));
+        }
+        assertThat(index.get(2L * MainChainIndex.CHUNK_RECORDS)).isNull();
+
+        index.clear();
+        for (long level : levels) {
+            assertThat(index.get(level)).isNull();
+        }
+    }
+
+    @Test
+    public void testTotalDifficultyBoundaries() {
+        MainChainIndex index = new MainChainIndex();
+
+        index.set(1, hash(1), BigInteger.ZERO);
+        assertThat(index.get(1).totalDifficulty).isEqualTo(BigInteger.ZERO);
+
+        // the highest bit set must not be confused with a sign
+        BigInteger largest = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+        index.set(2, hash(2), largest);
+        assertThat(index.get(2).totalDifficulty).isEqualTo(largest);
+
+        // values not fitting the record are left to the database
+        index.set(3, hash(3), BigInteger.TEN);
+        index.set(3, hash(3), largest.add(BigInteger.ONE));
+        assertThat(index.get(3)).isNull();
+
+        index.set(4, new byte[20], BigInteger.ONE);
+        assertThat(index.get(4)).isNull();
+    }
+
+    @Test
+    public void testRecordSize() {
+        // state, hash and a 128 bit total difficulty
+        assertThat(MainChainIndex.RECORD_SIZE).isEqualTo(1 + 32 + 16);
+    }
+
+    @Test
+    public void testWindowMovesUp() {
+        MainChainIndex index = new MainChainIndex(8);
+        for (long level = 0; level < 8; level++) {
+            index.set(level, hash(level), BigInteger.valueOf(level));
+        }
+
+        // level 8 takes the record of level 0, which drops out of the window
+        index.set(8, hash(8), BigInteger.valueOf(8));
+        assertThat(index.get(0)).isNull();
+        assertThat(index.getHash(0)).isNull();
+        for (long level = 1; level <= 8; level++) {
+            assertThat(index.getHash(level)).isEqualTo(hash(level));
+            assertThat(index.get(level).totalDifficulty).isEqualTo(BigInteger.valueOf(level));
+        }
+
+        // levels below the window are left to the database
+        index.set(0, hash(0), BigInteger.ZERO);
+        assertThat(index.get(0)).isNull();
+        assertThat(index.getHash(1)).isEqualTo(hash(1));
+
+        // a jump past the window drops every level, including the ones sharing records
+        index.set(100, hash(100), BigInteger.TEN);
+        assertThat(index.getHash(100)).isEqualTo(hash(100));
+        for (long level = 0; level < 100; level++) {
+            assertThat(index.get(level)).isNull();
+        }
+        index.set(93, hash(93), BigInteger.ONE);
+        assertThat(index.getHash(93)).isEqualTo(hash(93));
+        assertThat(index.get(101)).isNull();
+
+        // clearing starts over from the lowest levels
+        index.clear();
+        assertThat(index.get(100)).isNull();
+        index.set(3, hash(3), BigInteger.ONE);
+        assertThat(index.getHash(3)).isEqualTo(hash(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCapacity() {
+        new MainChainIndex(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityNotInWholeChunks() {
+        new MainChainIndex(MainChainIndex.CHUNK_RECORDS + 1);
+    }
+}
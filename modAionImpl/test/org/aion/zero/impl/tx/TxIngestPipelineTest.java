@@ -0,0 +1,240 @@
+/* ******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ *
+ ******************************************************************************/
+
+package org.aion.zero.impl.tx;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.zero.types.AionTransaction;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+public class TxIngestPipelineTest {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.TX.name());
+
+    private TxIngestPipeline pipeline;
+
+    @After
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutDown();
+        }
+    }
+
+    private static List<byte[]> encodedTxs(int count) {
+        ECKey key = ECKeyFac.inst().create();
+        List<byte[]> encoded = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            AionTransaction tx =
+                    new AionTransaction(
+                            BigInteger.valueOf(i).toByteArray(),
+                            Address.wrap(key.getAddress()),
+                            BigInteger.ONE.toByteArray(),
+                            ByteUtil.EMPTY_BYTE_ARRAY,
+                            21000L,
+                            10_000_000_000L);
+            tx.sign(key);
+            encoded.add(tx.getEncoded());
+        }
+        return encoded;
+    }
+
+    private static void waitFor(List<?> list, int size) throws InterruptedException {
+        for (int i = 0; i < 100 && list.size() < size; i++) {
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    public void testValidTxReachSinkOnce() throws InterruptedException {
+        List<AionTransaction> received = Collections.synchronizedList(new ArrayList<>());
+        pipeline =
+                new TxIngestPipeline(
+                        txs -> {
+                            received.addAll(txs);
+                            return txs;
+                        },
+                        1024,
+                        LOG);
+
+        List<byte[]> txs = encodedTxs(10);
+        assertThat(pipeline.submit(txs)).isTrue();
+        // the same message again and a transaction that does not decode
+        assertThat(pipeline.submit(txs)).isTrue();
+        assertThat(pipeline.submit(Collections.singletonList(new byte[] {1, 2, 3}))).isTrue();
+
+        waitFor(received, 10);
+        Thread.sleep(100);
+        assertThat(received).hasSize(10);
+
+        List<TxIngestPipeline.Stage<?>> stages = pipeline.getStages();
+        assertThat(stages.get(0).getAccepted()).isEqualTo(21);
+        assertThat(stages.get(0).getDropped()).isEqualTo(10);
+        assertThat(stages.get(1).getAccepted()).isEqualTo(10);
+        assertThat(stages.get(2).getAccepted()).isEqualTo(10);
+    }
+
+    @Test
+    public void testRefusedTxPassedAgainWhenGossipedAgain() throws InterruptedException {
+        List<AionTransaction> received = Collections.synchronizedList(new ArrayList<>());
+        Set<ByteArrayWrapper> refusedOnce = ConcurrentHashMap.newKeySet();
+        pipeline =
+                new TxIngestPipeline(
+                        txs -> {
+                            received.addAll(txs);
+                            // e.g. a nonce gap: refused the first time, taken the second
+                            List<AionTransaction> taken = new ArrayList<>();
+                            for (AionTransaction tx : txs) {
+                                if (!refusedOnce.add(ByteArrayWrapper.wrap(tx.getHash()))) {
+                                    taken.add(tx);
+                                }
+                            }
+                            return taken;
+                        },
+                        1024,
+                        LOG);
+
+        List<byte[]> txs = encodedTxs(5);
+        assertThat(pipeline.submit(txs)).isTrue();
+        waitFor(received, 5);
+        Thread.sleep(100);
+        assertThat(received).hasSize(5);
+
+        assertThat(pipeline.submit(txs)).isTrue();
+        waitFor(received, 10);
+        Thread.sleep(100);
+        assertThat(received).hasSize(10);
+
+        // taken now, so further copies are dropped
+        assertThat(pipeline.submit(txs)).isTrue();
+        Thread.sleep(200);
+        assertThat(received).hasSize(10);
+        assertThat(pipeline.getStages().get(0).getDropped()).isEqualTo(5);
+    }
+
+    @Test
+    public void testOfferAllIsAllOrNone() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<AionTransaction> received = Collections.synchronizedList(new ArrayList<>());
+        pipeline =
+                new TxIngestPipeline(
+                        txs -> {
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                return Collections.emptyList();
+                            }
+                            received.addAll(txs);
+                            return txs;
+                        },
+                        16,
+                        LOG);
+
+        // messages of 3 from several threads, none of them may be queued in part
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        AtomicInteger queued = new AtomicInteger();
+        List<List<byte[]>> messages = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            messages.add(encodedTxs(3));
+        }
+        for (List<byte[]> message : messages) {
+            submitters.execute(
+                    () -> {
+                        if (pipeline.submit(message)) {
+                            queued.addAndGet(message.size());
+                        }
+                    });
+        }
+        submitters.shutdown();
+        assertThat(submitters.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        TxIngestPipeline.Stage<?> decode = pipeline.getStages().get(0);
+        assertThat(decode.getAccepted()).isEqualTo(queued.get());
+        assertThat(decode.getAccepted() + decode.getRefused()).isEqualTo(120);
+        assertThat(decode.getRefused() % 3).isEqualTo(0);
+
+        release.countDown();
+        waitFor(received, queued.get());
+        assertThat(received).hasSize(queued.get());
+    }
+
+    @Test
+    public void testSlowSinkRefusesNewMessages() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<AionTransaction> received = Collections.synchronizedList(new ArrayList<>());
+        pipeline =
+                new TxIngestPipeline(
+                        txs -> {
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                return Collections.emptyList();
+                            }
+                            received.addAll(txs);
+                            return txs;
+                        },
+                        16,
+                        LOG);
+
+        // one batch held by the sink, then each of the three queues fills up
+        int submitted = 0;
+        boolean refused = false;
+        for (int i = 0; i < 100 && !refused; i++) {
+            if (pipeline.submit(encodedTxs(4))) {
+                submitted += 4;
+            } else {
+                refused = true;
+            }
+            Thread.sleep(20);
+        }
+        assertThat(refused).isTrue();
+        assertThat(pipeline.isSaturated()).isTrue();
+        assertThat(pipeline.getStages().get(0).getRefused()).isEqualTo(4);
+
+        release.countDown();
+        waitFor(received, submitted);
+        assertThat(received).hasSize(submitted);
+        assertThat(pipeline.isSaturated()).isFalse();
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with the aion network
+ * project source files. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other open source projects. We
+ * greatly appreciate the effort that was invested in these projects and we thank the individual
+ * contributors for their work. For provenance information and contributors please see
+ * <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ * <ether.camp> team through the ethereumJ library.
+ * Ether.Camp Inc.
+ * (US) team through Ethereum Harmony.
+ * John Tromp through the Equihash solver.
+ * Samuel Neves through the BLAKE2 implementation.
+ * Zcash project team. Bitcoinj team.
+ * ****************************************************************************
+ */
+package org.aion.zero.impl.types;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.crypto.HashUtil;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.zero.impl.StandaloneBlockchain;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Test;
+
+/**
+ * Compares decoding block encodings with {@link RLP#decode2(byte[])} against {@link RLPView}.
+ *
+ * <p>Both variants read every header field and every transaction field of the block, the way
+ * {@link AionBlock#parseRLP()} does.
+ */
+public class BlockDecodeBenchmark {
+
+    private static final int[] TXS_PER_BLOCK = {0, 10, 100, 300};
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 10_000;
+
+    @Test
+    public void testDecode2VersusView() {
+        List<ECKey> keys = new ArrayList<>();
+        keys.add(ECKeyFac.inst().create());
+        StandaloneBlockchain bc =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(keys)
+                        .build()
+                        .bc;
+
+        for (int count : TXS_PER_BLOCK) {
+            List<AionTransaction> txs = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                AionTransaction tx =
+                        new AionTransaction(
+                                BigInteger.valueOf(i).toByteArray(),
+                                Address.wrap(HashUtil.h256(ByteUtil.intToBytes(i))),
+                                BigInteger.ONE.toByteArray(),
+                                new byte[i % 64],
+                                100_000L,
+                                10_000_000_000L);
+                tx.sign(keys.get(0));
+                txs.add(tx);
+            }
+            AionBlock block = bc.createNewBlock(bc.getBestBlock(), txs, false);
+            assertThat(block.getTransactionsList().size()).isEqualTo(count);
+            byte[] encoded = block.getEncoded();
+
+            assertThat(decodeWithView(encoded)).isEqualTo(decodeWithDecode2(encoded));
+
+            for (int i = 0; i < WARMUP; i++) {
+                decodeWithDecode2(encoded);
+                decodeWithView(encoded);
+            }
+
+            long checksum = 0;
+            long startTime = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                checksum += decodeWithDecode2(encoded);
+            }
+            long decode2Time = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                checksum -= decodeWithView(encoded);
+            }
+            long viewTime = System.nanoTime() - startTime;
+
+            assertThat(checksum).isEqualTo(0L);
+            System.out.println(
+                    "txs: "
+                            + count
+                            + ", block size: "
+                            + encoded.length
+                            + " bytes, decode2: "
+                            + decode2Time / ITERATIONS
+                            + " ns/op, view: "
+                            + viewTime / ITERATIONS
+                            + " ns/op");
+        }
+    }
+
+    /** Decodes the block as the parsers did before the introduction of views. */
+    private static long decodeWithDecode2(byte[] encoded) {
+        RLPList block = (RLPList) RLP.decode2(encoded).get(0);
+
+        long sum = 0;
+        for (RLPElement field : (RLPList) block.get(0)) {
+            sum += field.getRLPData().length;
+        }
+        for (RLPElement txRaw : (RLPList) block.get(1)) {
+            // the transaction keeps its own encoding and decodes it separately
+            RLPList tx = (RLPList) RLP.decode2(txRaw.getRLPData()).get(0);
+            for (RLPElement field : tx) {
+                sum += field.getRLPData().length;
+            }
+        }
+        return sum;
+    }
+
+    private static long decodeWithView(byte[] encoded) {
+        RLPView block = RLPView.wrap(encoded);
+
+        long sum = 0;
+        RLPView header = block.get(0);
+        for (int i = 0; i < header.size(); i++) {
+            sum += header.get(i).bytes().length;
+        }
+        RLPView txs = block.get(1);
+        for (int i = 0; i < txs.size(); i++) {
+            RLPView tx = RLPView.wrap(txs.get(i).encoded());
+            for (int j = 0; j < tx.size(); j++) {
+                sum += tx.get(j).bytes().length;
+            }
+        }
+        return sum;
+    }
+}
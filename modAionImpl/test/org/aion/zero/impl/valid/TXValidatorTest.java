@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.valid;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for {@link TXValidator} */
+public class TXValidatorTest {
+
+    private static final byte[] DATA = {0x11, 0x22, 0x33, 0x44};
+
+    private ECKey key;
+
+    @Before
+    public void setup() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        key = ECKeyFac.inst().create();
+    }
+
+    private AionTransaction signedTx(long nonce) {
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        Address.wrap(key.getAddress()),
+                        Address.wrap(
+                                "a000000000000000000000000000000000000000000000000000000000000001"),
+                        BigInteger.ONE.toByteArray(),
+                        DATA,
+                        100_000L,
+                        10_000_000_000L);
+        tx.sign(key);
+        return tx;
+    }
+
+    /** Changes the signed data, so the signature no longer matches the raw hash. */
+    private static AionTransaction tamper(AionTransaction tx) {
+        byte[] encoded = tx.getEncoded().clone();
+        for (int i = 0; i + DATA.length <= encoded.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(encoded, i, i + DATA.length), DATA)) {
+                encoded[i] = 0x55;
+                return new AionTransaction(encoded);
+            }
+        }
+        throw new IllegalStateException("data not found in the encoding");
+    }
+
+    @Test
+    public void testSingle() {
+        AionTransaction tx = signedTx(0);
+        AionTransaction bad = tamper(signedTx(1));
+
+        assertThat(TXValidator.isValid(tx)).isTrue();
+        assertThat(TXValidator.isValid(bad)).isFalse();
+
+        assertThat(TXValidator.isInCache(ByteArrayWrapper.wrap(tx.getHash()))).isTrue();
+        assertThat(TXValidator.isInCache(ByteArrayWrapper.wrap(bad.getHash()))).isTrue();
+        // the cached verdicts are returned again
+        assertThat(TXValidator.isValid(tx)).isTrue();
+        assertThat(TXValidator.isValid(bad)).isFalse();
+    }
+
+    @Test
+    public void testBatch() {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            txs.add(i % 5 == 3 ? tamper(signedTx(i)) : signedTx(i));
+        }
+        // one of them is already cached
+        assertThat(TXValidator.isValid(txs.get(0))).isTrue();
+
+        boolean[] valid = TXValidator.isValid(txs);
+
+        assertThat(valid.length).isEqualTo(txs.size());
+        for (int i = 0; i < valid.length; i++) {
+            assertThat(valid[i]).isEqualTo(i % 5 != 3);
+            assertThat(TXValidator.isInCache(ByteArrayWrapper.wrap(txs.get(i).getHash()))).isTrue();
+        }
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        assertThat(TXValidator.isValid(new ArrayList<>()).length).isEqualTo(0);
+    }
+}
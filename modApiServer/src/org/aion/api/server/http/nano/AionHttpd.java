@@ -2,6 +2,7 @@ package org.aion.api.server.http.nano;
 
 import fi.iki.elonen.NanoHTTPD;
 import org.aion.api.server.rpc.RpcProcessor;
+import org.aion.api.server.rpc.RpcResponseStream;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
@@ -36,10 +37,19 @@ public class AionHttpd extends NanoHTTPD {
 
         String requestBody = body.getOrDefault("postData", null);
 
+        RpcResponseStream response = rpcProcessor.stream(requestBody);
+        if (response.isBatch()) {
+            // sent chunk by chunk as the responses of the batch complete, in request order
+            return NanoHTTPD.newChunkedResponse(
+                    Response.Status.OK,
+                    "application/json",
+                    response);
+        }
+
         return NanoHTTPD.newFixedLengthResponse(
                 Response.Status.OK,
                 "application/json",
-                rpcProcessor.process(requestBody));
+                response.collect());
     }
 
     @Override
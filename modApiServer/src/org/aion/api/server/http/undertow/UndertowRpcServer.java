@@ -1,5 +1,6 @@
 package org.aion.api.server.http.undertow;
 
+import io.undertow.Handlers;
 import io.undertow.Undertow;
 import io.undertow.io.Receiver;
 import io.undertow.server.HttpHandler;
@@ -12,8 +13,13 @@ import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
 import io.undertow.util.Methods;
 import io.undertow.util.StatusCodes;
+import io.undertow.websockets.core.AbstractReceiveListener;
+import io.undertow.websockets.core.BufferedTextMessage;
+import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.spi.WebSocketHttpExchange;
 import org.aion.api.server.http.RpcServer;
 import org.aion.api.server.http.RpcServerBuilder;
+import org.aion.api.server.rpc.RpcResponseStream;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
@@ -22,6 +28,8 @@ import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.security.KeyStore;
 import java.util.Map;
 
@@ -31,6 +39,7 @@ public class UndertowRpcServer extends RpcServer {
     Undertow server;
 
     private final int STUCK_THREAD_TIMEOUT_SECONDS = 600; // 10 min
+    private final long MAX_WEBSOCKET_MESSAGE_SIZE = 16 * 1024 * 1024;
     private final Map<HttpString, String> CORS_HEADERS = Map.of(
             HttpString.tryFromString("Access-Control-Allow-Origin"), corsOrigin,
             HttpString.tryFromString("Access-Control-Allow-Headers"), "origin,accept,content-type",
@@ -76,7 +85,15 @@ public class UndertowRpcServer extends RpcServer {
 
             ex3.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
             addCorsHeaders(ex3);
-            ex3.getResponseSender().send(rpcProcessor.process(body));
+            // batch responses are written out in request order as they complete, chunked unless the
+            // whole reply fits undertow's buffer
+            try (RpcResponseStream response = rpcProcessor.stream(body);
+                 OutputStream out = ex3.getOutputStream()) {
+                response.writeTo(out);
+            } catch (IOException e) {
+                LOG.debug("<rpc-server - failed to write rpc response>", e);
+                ex3.endExchange();
+            }
         };
         HttpHandler corsPreflightHandler = ex1 -> {
             if (corsEnabled && Methods.OPTIONS.equals(ex1.getRequestMethod())) {
@@ -110,6 +127,62 @@ public class UndertowRpcServer extends RpcServer {
         blockingHandler.handleRequest(ex0);
     }
 
+    /**
+     * Browsers let any page open a websocket to any host, so a connection from a page is only
+     * accepted if cors would have let that page call the http endpoint.
+     */
+    private boolean isOriginAllowed(HttpServerExchange exchange) {
+        String origin = exchange.getRequestHeaders().getFirst(Headers.ORIGIN);
+        if (origin == null)
+            return true; // not a browser
+        return corsEnabled && (corsOrigin.equals("*") || corsOrigin.equals(origin));
+    }
+
+    private void handleUpgrade(HttpServerExchange exchange, HttpHandler websocketHandler) throws Exception {
+        if ("websocket".equalsIgnoreCase(exchange.getRequestHeaders().getFirst(Headers.UPGRADE))
+                && !isOriginAllowed(exchange)) {
+            exchange.setStatusCode(StatusCodes.FORBIDDEN);
+            exchange.endExchange();
+            return;
+        }
+        websocketHandler.handleRequest(exchange);
+    }
+
+    private void onConnect(WebSocketHttpExchange exchange, WebSocketChannel channel) {
+        UndertowRpcSession session = new UndertowRpcSession(channel);
+        channel.addCloseTask(ch -> {
+            session.close();
+            rpcProcessor.close(session);
+        });
+        channel.getReceiveSetter().set(new AbstractReceiveListener() {
+            @Override
+            protected void onFullTextMessage(WebSocketChannel ch, BufferedTextMessage message) {
+                String body = message.getData();
+                // calls may wait on the database, keep them off the io thread
+                ch.getWorker().execute(() -> handleMessage(session, body));
+            }
+
+            @Override
+            protected long getMaxTextBufferSize() {
+                return MAX_WEBSOCKET_MESSAGE_SIZE;
+            }
+        });
+        channel.resumeReceives();
+    }
+
+    private void handleMessage(UndertowRpcSession session, String body) {
+        try (RpcResponseStream response = rpcProcessor.stream(body, session)) {
+            // the reply goes out before any notification for a subscription it returns
+            if (session.push(response.readAllBytes()))
+                rpcProcessor.activate(session);
+            else
+                // closed while the request ran, possibly before the request subscribed
+                rpcProcessor.close(session);
+        } catch (Exception e) {
+            LOG.debug("<rpc-server - failed to process websocket message>", e);
+        }
+    }
+
     private SSLContext sslContext() throws Exception {
         try {
             KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
@@ -145,7 +218,9 @@ public class UndertowRpcServer extends RpcServer {
             else
                 undertowBuilder.addHttpListener(port, hostName);
 
-            undertowBuilder.setHandler(this::handleRequest);
+            // websocket upgrades on the same port, everything else is a plain http request
+            HttpHandler websocketHandler = Handlers.websocket(this::onConnect, this::handleRequest);
+            undertowBuilder.setHandler(ex -> handleUpgrade(ex, websocketHandler));
 
             if (getWorkerPoolSize().isPresent()) {
                 LOG.info("<rpc-server - setting worker thread count manually not recommended. recommended worker thread-pool size: {}>",
@@ -155,7 +230,8 @@ public class UndertowRpcServer extends RpcServer {
             server = undertowBuilder.build();
             server.start();
 
-            LOG.info("<rpc-server - (UNDERTOW) started on {}://{}:{}>", sslEnabled ? "https" : "http", hostName, port);
+            LOG.info("<rpc-server - (UNDERTOW) started on {}://{}:{}, websockets on {}://{}:{}>",
+                    sslEnabled ? "https" : "http", hostName, port, sslEnabled ? "wss" : "ws", hostName, port);
         } catch (Exception e) {
             LOG.error("<rpc-server - failed bind on {}:{}>", hostName, port);
             LOG.error("<rpc-server - " + e.getMessage() + ">");
@@ -0,0 +1,106 @@
+package org.aion.api.server.http.undertow;
+
+import io.undertow.websockets.core.WebSocketCallback;
+import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.core.WebSockets;
+import org.aion.api.server.rpc.RpcSession;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A websocket connection to the rpc server. Responses and notifications are queued and sent one
+ * message at a time; a client that lets more than {@link #MAX_QUEUED} of them pile up is cut off
+ * instead of the server holding on to an ever growing backlog for it.
+ */
+final class UndertowRpcSession implements RpcSession {
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
+
+    static final int MAX_QUEUED = 4096;
+
+    private final WebSocketChannel channel;
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(MAX_QUEUED);
+    // a message is being sent; the one sending it takes the next off the queue when done
+    private final AtomicBoolean sending = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    UndertowRpcSession(WebSocketChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public boolean push(byte[] message) {
+        if (closed)
+            return false;
+
+        if (!queue.offer(message)) {
+            LOG.debug("<rpc-server - websocket client {} fell {} messages behind; closing>",
+                    channel.getPeerAddress(), MAX_QUEUED);
+            close();
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    void close() {
+        if (closed)
+            return;
+        closed = true;
+        queue.clear();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.debug("<rpc-server - failed to close websocket>", e);
+        }
+    }
+
+    private void drain() {
+        // loops rather than recursing when sends complete right away
+        while (!closed && sending.compareAndSet(false, true)) {
+            byte[] message = queue.poll();
+            if (message == null) {
+                sending.set(false);
+                // a push may have come in between the poll and the reset
+                if (queue.isEmpty())
+                    return;
+                continue;
+            }
+
+            Send send = new Send();
+            WebSockets.sendText(ByteBuffer.wrap(message), channel, send);
+            if (!send.returned.getAndSet(true))
+                // still in flight, its completion drains on
+                return;
+        }
+    }
+
+    private final class Send implements WebSocketCallback<Void> {
+        // set by whichever of drain() and complete() gets there first; the second one goes on
+        private final AtomicBoolean returned = new AtomicBoolean(false);
+
+        @Override
+        public void complete(WebSocketChannel channel, Void context) {
+            sending.set(false);
+            if (returned.getAndSet(true))
+                drain();
+        }
+
+        @Override
+        public void onError(WebSocketChannel channel, Void context, Throwable throwable) {
+            LOG.debug("<rpc-server - failed to write to websocket>", throwable);
+            close();
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package org.aion.api.server.json;
+
+import java.util.Arrays;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Pull parser over a json document. The caller steps through it token by token and only
+ * materializes the values it asks for with {@link #nextValue()}; everything else is skipped
+ * without building {@link JSONObject}s or {@link JSONArray}s for it.
+ *
+ * Values that are materialized come out as org.json would parse them: strings, the number types
+ * of {@link JSONObject#stringToValue(String)}, booleans, {@link JSONObject#NULL}, {@link
+ * JSONObject}s and {@link JSONArray}s.
+ *
+ * Malformed input raises a {@link JSONException}.
+ */
+public final class JsonReader {
+
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        NAME,
+        STRING,
+        NUMBER,
+        TRUE,
+        FALSE,
+        NULL,
+        END_DOCUMENT
+    }
+
+    private static final int MAX_DEPTH = 512;
+
+    // what comes next within the innermost open container
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int DANGLING_NAME = 6;
+
+    private final String in;
+    private int pos = 0;
+
+    private int[] stack = new int[16];
+    private int depth = 0;
+
+    private Token peeked = null;
+
+    public JsonReader(String in) {
+        this.in = in;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * @return the next token without consuming it
+     */
+    public Token peek() {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int ctx = stack[depth - 1];
+        int c;
+        switch (ctx) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                if (peekNonWhitespace() == ']') {
+                    pos++;
+                    return peeked = Token.END_ARRAY;
+                }
+                break;
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                } else if (c != ',') {
+                    throw syntaxError("expected ',' or ']'");
+                }
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (ctx == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("expected a name");
+                }
+                stack[depth - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("expected ':'");
+                }
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case NONEMPTY_DOCUMENT:
+                if (peekNonWhitespace() != -1) {
+                    throw syntaxError("trailing content");
+                }
+                return peeked = Token.END_DOCUMENT;
+            default:
+                throw new IllegalStateException();
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            case '"':
+                return peeked = Token.STRING;
+            case 't':
+                expect("rue");
+                return peeked = Token.TRUE;
+            case 'f':
+                expect("alse");
+                return peeked = Token.FALSE;
+            case 'n':
+                expect("ull");
+                return peeked = Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return peeked = Token.NUMBER;
+                }
+                throw syntaxError(c == -1 ? "unexpected end" : "unexpected character");
+        }
+    }
+
+    public boolean hasNext() {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() {
+        consume(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() {
+        consume(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() {
+        consume(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() {
+        consume(Token.END_ARRAY);
+        depth--;
+    }
+
+    /** Checks that nothing but whitespace follows the document. */
+    public void endDocument() {
+        consume(Token.END_DOCUMENT);
+    }
+
+    public String nextName() {
+        consume(Token.NAME);
+        return readString();
+    }
+
+    public String nextString() {
+        consume(Token.STRING);
+        return readString();
+    }
+
+    /**
+     * @return the next value, materialized as org.json would parse it
+     */
+    public Object nextValue() {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                JSONObject o = new JSONObject();
+                beginObject();
+                while (hasNext()) {
+                    String name = nextName();
+                    o.put(name, nextValue());
+                }
+                endObject();
+                return o;
+            case BEGIN_ARRAY:
+                JSONArray a = new JSONArray();
+                beginArray();
+                while (hasNext()) {
+                    a.put(nextValue());
+                }
+                endArray();
+                return a;
+            case STRING:
+                return nextString();
+            case NUMBER:
+                peeked = null;
+                return readNumber();
+            case TRUE:
+                peeked = null;
+                return Boolean.TRUE;
+            case FALSE:
+                peeked = null;
+                return Boolean.FALSE;
+            case NULL:
+                peeked = null;
+                return JSONObject.NULL;
+            default:
+                throw syntaxError("expected a value");
+        }
+    }
+
+    /** Steps over the next value, however deeply nested, without materializing it. */
+    public void skipValue() {
+        int open = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    open++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    open++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    open--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    open--;
+                    break;
+                case NAME:
+                case STRING:
+                    peeked = null;
+                    readString();
+                    break;
+                case NUMBER:
+                    peeked = null;
+                    readNumber();
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("unexpected end");
+                default:
+                    peeked = null;
+            }
+        } while (open > 0);
+    }
+
+    /* -------------------------------------------------------------------------
+     * scanning
+     */
+
+    private void consume(Token expected) {
+        Token t = peek();
+        if (t != expected) {
+            throw syntaxError("expected " + expected + " but was " + t);
+        }
+        peeked = null;
+    }
+
+    private void push(int ctx) {
+        if (depth == MAX_DEPTH) {
+            throw syntaxError("nested too deep");
+        }
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = ctx;
+    }
+
+    private int peekNonWhitespace() {
+        while (pos < in.length()) {
+            char c = in.charAt(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private int nextNonWhitespace() {
+        int c = peekNonWhitespace();
+        if (c != -1) {
+            pos++;
+        }
+        return c;
+    }
+
+    private void expect(String rest) {
+        if (!in.startsWith(rest, pos)) {
+            throw syntaxError("unexpected literal");
+        }
+        pos += rest.length();
+    }
+
+    /** Reads a string whose opening quote was consumed. */
+    private String readString() {
+        int start = pos;
+        StringBuilder sb = null;
+        while (pos < in.length()) {
+            char c = in.charAt(pos++);
+            if (c == '"') {
+                if (sb == null) {
+                    return in.substring(start, pos - 1);
+                }
+                sb.append(in, start, pos - 1);
+                return sb.toString();
+            } else if (c == '\\') {
+                if (sb == null) {
+                    sb = new StringBuilder();
+                }
+                sb.append(in, start, pos - 1);
+                sb.append(readEscape());
+                start = pos;
+            } else if (c == '\n' || c == '\r') {
+                // as org.json, which tolerates the other control characters
+                throw syntaxError("unterminated string");
+            }
+        }
+        throw syntaxError("unterminated string");
+    }
+
+    private char readEscape() {
+        if (pos == in.length()) {
+            throw syntaxError("unterminated escape");
+        }
+        char c = in.charAt(pos++);
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'f':
+                return '\f';
+            case 'r':
+                return '\r';
+            case 'u':
+                if (pos + 4 > in.length()) {
+                    throw syntaxError("unterminated escape");
+                }
+                try {
+                    char u = (char) Integer.parseInt(in.substring(pos, pos + 4), 16);
+                    pos += 4;
+                    return u;
+                } catch (NumberFormatException e) {
+                    throw syntaxError("bad unicode escape");
+                }
+            case '"':
+            case '\'':
+            case '\\':
+            case '/':
+                return c;
+            default:
+                throw syntaxError("bad escape");
+        }
+    }
+
+    private Object readNumber() {
+        int start = pos;
+        if (pos < in.length() && in.charAt(pos) == '-') {
+            pos++;
+        }
+        int intStart = pos;
+        skipDigits();
+        if (pos == intStart) {
+            throw syntaxError("bad number");
+        }
+        if (pos < in.length() && in.charAt(pos) == '.') {
+            pos++;
+            int fracStart = pos;
+            skipDigits();
+            if (pos == fracStart) {
+                throw syntaxError("bad number");
+            }
+        }
+        if (pos < in.length() && (in.charAt(pos) == 'e' || in.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < in.length() && (in.charAt(pos) == '+' || in.charAt(pos) == '-')) {
+                pos++;
+            }
+            int expStart = pos;
+            skipDigits();
+            if (pos == expStart) {
+                throw syntaxError("bad number");
+            }
+        }
+        return JSONObject.stringToValue(in.substring(start, pos));
+    }
+
+    private void skipDigits() {
+        while (pos < in.length() && in.charAt(pos) >= '0' && in.charAt(pos) <= '9') {
+            pos++;
+        }
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at " + pos);
+    }
+}
@@ -0,0 +1,22 @@
+package org.aion.api.server.json;
+
+import org.json.JSONString;
+
+/**
+ * A value that serializes itself with a {@link JsonWriter}, e.g. the result of an rpc call that
+ * would otherwise be built up as a {@link org.json.JSONObject} only to be turned into a string.
+ *
+ * Also a {@link JSONString}, so that it can still be put into org.json containers.
+ */
+@FunctionalInterface
+public interface JsonWritable extends JSONString {
+
+    void writeTo(JsonWriter w);
+
+    @Override
+    default String toJSONString() {
+        JsonWriter w = new JsonWriter(256);
+        writeTo(w);
+        return w.toString();
+    }
+}
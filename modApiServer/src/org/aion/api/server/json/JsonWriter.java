@@ -0,0 +1,443 @@
+package org.aion.api.server.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+/**
+ * Writes json straight into a byte buffer, as utf-8, without building a {@link JSONObject} tree
+ * or intermediate strings first. Hex fields are encoded from the bytes right into the buffer.
+ *
+ * Commas and colons are placed by the writer; a caller only opens and closes containers, names
+ * the members of objects and writes values:
+ * <pre>
+ * w.beginObject().name("number").value(1).name("hash").hex(hash).endObject();
+ * </pre>
+ *
+ * Not thread safe. Every thread has one writer with a buffer kept from response to response, see
+ * {@link #pooled()}.
+ */
+public final class JsonWriter {
+
+    // a pooled buffer grown past this by one large response is dropped after it
+    static final int MAX_POOLED_SIZE = 1 << 20;
+    private static final int INITIAL_SIZE = 4096;
+    private static final int MAX_DEPTH = 512;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<JsonWriter> POOL = ThreadLocal.withInitial(JsonWriter::new);
+
+    private byte[] buf;
+    private int len = 0;
+
+    // per open container whether it has a value yet, i.e. needs a comma before the next one
+    private boolean[] hasValue = new boolean[16];
+    private int depth = 0;
+    // a name was written, its value goes right after the colon
+    private boolean afterName = false;
+    private boolean inUse = false;
+
+    public JsonWriter() {
+        this(INITIAL_SIZE);
+    }
+
+    public JsonWriter(int size) {
+        this.buf = new byte[Math.max(size, 16)];
+    }
+
+    /**
+     * @return this thread's writer, empty; a new one while the pooled one is still in use, e.g.
+     *     when a value being written serializes something on its own. Hand it back with {@link
+     *     #release()}.
+     */
+    public static JsonWriter pooled() {
+        JsonWriter w = POOL.get();
+        if (w.inUse) {
+            return new JsonWriter();
+        }
+        w.inUse = true;
+        w.reset();
+        return w;
+    }
+
+    /** Empties a pooled writer for the next response, dropping its buffer if it grew too large. */
+    public void release() {
+        if (buf.length > MAX_POOLED_SIZE) {
+            buf = new byte[INITIAL_SIZE];
+        }
+        reset();
+        inUse = false;
+    }
+
+    public void reset() {
+        len = 0;
+        depth = 0;
+        afterName = false;
+    }
+
+    public int size() {
+        return len;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, len);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /* -------------------------------------------------------------------------
+     * structure
+     */
+
+    public JsonWriter beginObject() {
+        beforeValue();
+        put((byte) '{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        pop();
+        put((byte) '}');
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        beforeValue();
+        put((byte) '[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        pop();
+        put((byte) ']');
+        return this;
+    }
+
+    public JsonWriter name(String name) {
+        if (depth == 0 || afterName) {
+            throw new IllegalStateException("name outside of an object");
+        }
+        beforeValue();
+        string(name);
+        put((byte) ':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes the member unless {@code value} is null, which is how {@link JSONObject#put(String,
+     * Object)} treats null.
+     */
+    public JsonWriter opt(String name, Object value) {
+        if (value != null) {
+            name(name).value(value);
+        }
+        return this;
+    }
+
+    private void push() {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("json nested too deep");
+        }
+        if (depth == hasValue.length) {
+            hasValue = Arrays.copyOf(hasValue, depth * 2);
+        }
+        hasValue[depth++] = false;
+    }
+
+    private void pop() {
+        if (depth == 0 || afterName) {
+            throw new IllegalStateException("unbalanced json");
+        }
+        depth--;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasValue[depth - 1]) {
+                put((byte) ',');
+            }
+            hasValue[depth - 1] = true;
+        }
+    }
+
+    /* -------------------------------------------------------------------------
+     * values
+     */
+
+    public JsonWriter nullValue() {
+        beforeValue();
+        put(NULL);
+        return this;
+    }
+
+    public JsonWriter value(boolean b) {
+        beforeValue();
+        put(b ? TRUE : FALSE);
+        return this;
+    }
+
+    public JsonWriter value(long n) {
+        beforeValue();
+        if (n == Long.MIN_VALUE) {
+            ascii(Long.toString(n));
+            return this;
+        }
+        if (n < 0) {
+            put((byte) '-');
+            n = -n;
+        }
+        int digits = 1;
+        for (long m = n; m >= 10; m /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        for (int i = len + digits - 1; i >= len; i--) {
+            buf[i] = (byte) ('0' + n % 10);
+            n /= 10;
+        }
+        len += digits;
+        return this;
+    }
+
+    public JsonWriter value(String s) {
+        if (s == null) {
+            return nullValue();
+        }
+        beforeValue();
+        string(s);
+        return this;
+    }
+
+    /**
+     * Writes any value the org.json types accept: strings, numbers, booleans, null, {@link
+     * JsonWritable}s, {@link JSONObject}s and {@link JSONArray}s, the latter walked without
+     * serializing them to a string first.
+     */
+    public JsonWriter value(Object v) {
+        if (v == null || v == JSONObject.NULL) {
+            return nullValue();
+        } else if (v instanceof String) {
+            return value((String) v);
+        } else if (v instanceof Boolean) {
+            return value(((Boolean) v).booleanValue());
+        } else if (v instanceof Long || v instanceof Integer || v instanceof Short
+                || v instanceof Byte) {
+            return value(((Number) v).longValue());
+        } else if (v instanceof BigInteger) {
+            return raw(v.toString());
+        } else if (v instanceof Number) {
+            return raw(JSONObject.numberToString((Number) v));
+        } else if (v instanceof JsonWritable) {
+            ((JsonWritable) v).writeTo(this);
+            return this;
+        } else if (v instanceof JSONObject) {
+            JSONObject o = (JSONObject) v;
+            beginObject();
+            for (String key : o.keySet()) {
+                name(key).value(o.opt(key));
+            }
+            return endObject();
+        } else if (v instanceof JSONArray) {
+            JSONArray a = (JSONArray) v;
+            beginArray();
+            for (int i = 0, n = a.length(); i < n; i++) {
+                value(a.opt(i));
+            }
+            return endArray();
+        } else if (v instanceof JSONString) {
+            return raw(((JSONString) v).toJSONString());
+        } else if (v instanceof Collection || v instanceof Map || v.getClass().isArray()) {
+            return value(JSONObject.wrap(v));
+        }
+        return raw(JSONObject.valueToString(v));
+    }
+
+    /** Writes already serialized json as the next value. */
+    public JsonWriter raw(String json) {
+        beforeValue();
+        ascii(json);
+        return this;
+    }
+
+    /** Writes {@code "0x"} followed by the lower case hex of {@code bytes}, {@code "0x"} if null. */
+    public JsonWriter hex(byte[] bytes) {
+        beforeValue();
+        int n = bytes == null ? 0 : bytes.length;
+        ensure(4 + 2 * n);
+        buf[len++] = '"';
+        buf[len++] = '0';
+        buf[len++] = 'x';
+        for (int i = 0; i < n; i++) {
+            buf[len++] = HEX[(bytes[i] >> 4) & 0xf];
+            buf[len++] = HEX[bytes[i] & 0xf];
+        }
+        buf[len++] = '"';
+        return this;
+    }
+
+    /** Writes {@code n} as {@code "0x"} followed by its unsigned hex, without leading zeros. */
+    public JsonWriter hex(long n) {
+        beforeValue();
+        int digits = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(n) + 3) / 4);
+        ensure(4 + digits);
+        buf[len++] = '"';
+        buf[len++] = '0';
+        buf[len++] = 'x';
+        for (int i = digits - 1; i >= 0; i--) {
+            buf[len++] = HEX[(int) (n >>> (i * 4)) & 0xf];
+        }
+        buf[len++] = '"';
+        return this;
+    }
+
+    public JsonWriter hex(BigInteger n) {
+        beforeValue();
+        put((byte) '"');
+        ascii("0x" + n.toString(16));
+        put((byte) '"');
+        return this;
+    }
+
+    /* -------------------------------------------------------------------------
+     * encoding
+     */
+
+    private void ensure(int n) {
+        if (len + n > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+        }
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buf[len++] = b;
+    }
+
+    private void put(byte[] b) {
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, len, b.length);
+        len += b.length;
+    }
+
+    /** Copies a string known to need no escaping, e.g. a number or serialized json. */
+    private void ascii(String s) {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                // not ascii after all, keep what was written and encode the rest
+                utf8(s, i);
+                return;
+            }
+            buf[len++] = (byte) c;
+        }
+    }
+
+    private void utf8(String s, int from) {
+        byte[] rest = s.substring(from).getBytes(StandardCharsets.UTF_8);
+        put(rest);
+    }
+
+    /** Writes a quoted and escaped string. */
+    private void string(String s) {
+        int n = s.length();
+        ensure(n + 2);
+        buf[len++] = '"';
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                ensure(1);
+                buf[len++] = (byte) c;
+                continue;
+            }
+
+            switch (c) {
+                case '"':
+                    put((byte) '\\');
+                    put((byte) '"');
+                    break;
+                case '\\':
+                    put((byte) '\\');
+                    put((byte) '\\');
+                    break;
+                case '\n':
+                    put((byte) '\\');
+                    put((byte) 'n');
+                    break;
+                case '\r':
+                    put((byte) '\\');
+                    put((byte) 'r');
+                    break;
+                case '\t':
+                    put((byte) '\\');
+                    put((byte) 't');
+                    break;
+                case '\b':
+                    put((byte) '\\');
+                    put((byte) 'b');
+                    break;
+                case '\f':
+                    put((byte) '\\');
+                    put((byte) 'f');
+                    break;
+                default:
+                    if (c < 0x20) {
+                        ensure(6);
+                        buf[len++] = '\\';
+                        buf[len++] = 'u';
+                        buf[len++] = '0';
+                        buf[len++] = '0';
+                        buf[len++] = HEX[c >> 4];
+                        buf[len++] = HEX[c & 0xf];
+                    } else if (Character.isHighSurrogate(c) && i + 1 < n
+                            && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, s.charAt(++i));
+                        ensure(4);
+                        buf[len++] = (byte) (0xf0 | (cp >> 18));
+                        buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                        buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                        buf[len++] = (byte) (0x80 | (cp & 0x3f));
+                    } else if (Character.isSurrogate(c)) {
+                        // unpaired surrogate, as String.getBytes would
+                        put((byte) '?');
+                    } else if (c < 0x800) {
+                        ensure(2);
+                        buf[len++] = (byte) (0xc0 | (c >> 6));
+                        buf[len++] = (byte) (0x80 | (c & 0x3f));
+                    } else {
+                        ensure(3);
+                        buf[len++] = (byte) (0xe0 | (c >> 12));
+                        buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                        buf[len++] = (byte) (0x80 | (c & 0x3f));
+                    }
+            }
+        }
+        put((byte) '"');
+    }
+}
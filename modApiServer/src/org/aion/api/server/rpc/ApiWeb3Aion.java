@@ -50,6 +50,7 @@ import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -65,6 +66,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.api.server.ApiAion;
+import org.aion.api.server.json.JsonWritable;
 import org.aion.api.server.rpc.RpcError;
 import org.aion.api.server.rpc.RpcMsg;
 import org.aion.api.server.types.ArgFltr;
@@ -152,6 +154,8 @@ public class ApiWeb3Aion extends ApiAion {
     private IEventMgr evtMgr;
     // doesn't need to be protected for concurrent access, since only one write in the constructor.
     private boolean isFilterEnabled;
+    // pushed the same events as the filters, so only there while filters are enabled
+    private RpcSubscriptions subscriptions;
 
     private boolean isSeedMode;
 
@@ -178,6 +182,11 @@ public class ApiWeb3Aion extends ApiAion {
                                             cbs.getBlock().getNumber());
                                 }
                             });
+
+            // subscribers only hear of the main chain
+            AionBlock mainBlock = this.ac.getBlockchain().getBlockByNumber(cbs.getBlock().getNumber());
+            if (mainBlock != null && Arrays.equals(mainBlock.getHash(), cbs.getBlock().getHash()))
+                subscriptions.onBlock(cbs);
         }
     }
 
@@ -202,6 +211,8 @@ public class ApiWeb3Aion extends ApiAion {
                                             TypeConverter.toJsonHex(_tx.getHash()));
                                 }
                             });
+
+            subscriptions.onPendingTransaction(_tx);
         }
     }
 
@@ -231,6 +242,7 @@ public class ApiWeb3Aion extends ApiAion {
         initNrgOracle(_ac);
 
         if (isFilterEnabled) {
+            subscriptions = new RpcSubscriptions();
             evtMgr = this.ac.getAionHub().getEventMgr();
 
             startES("EpWeb3");
@@ -304,6 +316,13 @@ public class ApiWeb3Aion extends ApiAion {
                 new ArrayBlockingQueue<>(1), new MinerStatsThreadFactory());
     }
 
+    /**
+     * @return the subscriptions of websocket sessions, null while filters are disabled
+     */
+    public RpcSubscriptions getSubscriptions() {
+        return subscriptions;
+    }
+
     // --------------------------------------------------------------------
     // Mining Pool
     // --------------------------------------------------------------------
@@ -778,7 +797,7 @@ public class ApiWeb3Aion extends ApiAion {
         } else {
             BigInteger totalDiff =
                     this.ac.getAionHub().getBlockStore().getTotalDifficultyForHash(hash);
-            return new RpcMsg(Blk.AionBlockToJson(block, totalDiff, _fullTx));
+            return new RpcMsg(Blk.AionBlockToWritable(block, totalDiff, _fullTx, null));
         }
     }
 
@@ -808,7 +827,7 @@ public class ApiWeb3Aion extends ApiAion {
         } else {
             BigInteger totalDiff =
                     this.ac.getAionHub().getBlockStore().getTotalDifficultyForHash(nb.getHash());
-            return new RpcMsg(Blk.AionBlockToJson(nb, totalDiff, _fullTx));
+            return new RpcMsg(Blk.AionBlockToWritable(nb, totalDiff, _fullTx, null));
         }
     }
 
@@ -833,7 +852,7 @@ public class ApiWeb3Aion extends ApiAion {
         AionBlock b = this.ac.getBlockchain().getBlockByHash(txInfo.getBlockHash());
         if (b == null) return null; // this is actually an internal error
 
-        return new RpcMsg(Tx.InfoToJSON(txInfo, b));
+        return new RpcMsg(Tx.InfoToWritable(txInfo, b));
     }
 
     public RpcMsg eth_getTransactionByBlockHashAndIndex(Object _params) {
@@ -864,7 +883,7 @@ public class ApiWeb3Aion extends ApiAion {
             return new RpcMsg(
                     JSONObject.NULL); // json rpc spec: 'or null when no transaction was found'
 
-        return new RpcMsg(Tx.AionTransactionToJSON(txs.get(idx), b, idx));
+        return new RpcMsg(Tx.AionTransactionToWritable(txs.get(idx), b, idx));
     }
 
     public RpcMsg eth_getTransactionByBlockNumberAndIndex(Object _params) {
@@ -895,7 +914,7 @@ public class ApiWeb3Aion extends ApiAion {
             return new RpcMsg(
                     JSONObject.NULL); // json rpc spec: 'or null when no transaction was found'
 
-        return new RpcMsg(Tx.AionTransactionToJSON(txs.get(idx), b, idx));
+        return new RpcMsg(Tx.AionTransactionToWritable(txs.get(idx), b, idx));
     }
 
     public RpcMsg eth_getTransactionReceipt(Object _params) {
@@ -926,7 +945,7 @@ public class ApiWeb3Aion extends ApiAion {
             return new RpcMsg(
                     JSONObject.NULL); // json rpc spec: 'or null when no receipt was found'
 
-        return new RpcMsg(r.toJson());
+        return new RpcMsg(r);
     }
 
     /* -------------------------------------------------------------------------
@@ -1002,12 +1021,11 @@ public class ApiWeb3Aion extends ApiAion {
             // installation.
 
             toBlock = toBlock == null ? getBestBlock() : toBlock;
-            for (long i = fromBlock.getNumber(); i <= toBlock.getNumber(); i++) {
-                if (filter.isFull()) break;
-                filter.onBlock(
-                        this.ac.getBlockchain().getBlockByNumber(i),
-                        this.ac.getAionHub().getBlockchain());
-            }
+            filter.onBlockRange(
+                    fromBlock.getNumber(),
+                    toBlock.getNumber(),
+                    this.ac.getAionHub().getBlockchain(),
+                    ((AionRepositoryImpl) this.ac.getRepository()).getBloomIndex());
         }
 
         return filter;
@@ -1081,16 +1099,19 @@ public class ApiWeb3Aion extends ApiAion {
                         != null);
     }
 
-    private JSONArray buildFilterResponse(Fltr filter) {
+    private JsonWritable buildFilterResponse(Fltr filter) {
+        // polled right away, only the serialization is left to when the response is written
         Object[] events = filter.poll();
-        JSONArray response = new JSONArray();
-        for (Object event : events) {
-            if (event instanceof Evt) {
-                // put the Object we get out of the Evt object in here
-                response.put(((Evt) event).toJSON());
+        return w -> {
+            w.beginArray();
+            for (Object event : events) {
+                if (event instanceof Evt) {
+                    // put the Object we get out of the Evt object in here
+                    ((Evt) event).writeTo(w);
+                }
             }
-        }
-        return response;
+            w.endArray();
+        };
     }
 
     public RpcMsg eth_getFilterChanges(Object _params) {
@@ -1219,14 +1240,14 @@ public class ApiWeb3Aion extends ApiAion {
             return new RpcMsg(null, RpcError.EXECUTION_ERROR, "Blocks requested not found.");
         }
 
-        JSONArray response = new JSONArray();
-        for (Map.Entry<AionBlock, Map.Entry<BigInteger, Boolean>> block : blocks) {
-            JSONObject b =
-                    (JSONObject)
-                            Blk.AionBlockToJson(block.getKey(), block.getValue().getKey(), _fullTx);
-            b.put("mainchain", block.getValue().getValue());
-            response.put(b);
-        }
+        JsonWritable response = w -> {
+            w.beginArray();
+            for (Map.Entry<AionBlock, Map.Entry<BigInteger, Boolean>> block : blocks) {
+                w.value(Blk.AionBlockToWritable(block.getKey(), block.getValue().getKey(), _fullTx,
+                        block.getValue().getValue()));
+            }
+            w.endArray();
+        };
         return new RpcMsg(response);
     }
 
@@ -15,9 +15,13 @@ public class RpcMethods {
     private ApiWeb3Aion api;
     private final Map<String, Map<String, RpcMethod>> groupMap;
     private Map<String, RpcMethod> enabledEndpoints;
+    // null while filters are disabled
+    private RpcSubscriptions subscriptions;
+    private Map<String, SessionRpcMethod> enabledSessionEndpoints;
 
     public RpcMethods(List<String> enabledGroups) {
         api = new ApiWeb3Aion(AionImpl.inst());
+        subscriptions = api.getSubscriptions();
 
         // find a way to autogen options in config using this enum, without generating circular
         // module dependency (right now it's manual)
@@ -34,14 +38,52 @@ public class RpcMethods {
         );
 
         enabledEndpoints = composite(enabledGroups);
+        // part of the eth group
+        enabledSessionEndpoints = enabledEndpoints.containsKey("eth_subscribe") ? ethSession : Map.of();
+    }
+
+    /**
+     * Serves exactly the given endpoints, without a backing api; for tests and benchmarks.
+     */
+    RpcMethods(Map<String, RpcMethod> endpoints) {
+        this(endpoints, null);
+    }
+
+    /**
+     * Serves the given endpoints and, to sessions, subscriptions to the given events; for tests.
+     */
+    RpcMethods(Map<String, RpcMethod> endpoints, RpcSubscriptions subscriptions) {
+        groupMap = Map.of();
+        enabledEndpoints = endpoints;
+        this.subscriptions = subscriptions;
+        enabledSessionEndpoints = subscriptions == null ? Map.of() : ethSession;
     }
 
     public RpcMethod get(String name) {
         return enabledEndpoints.get(name);
     }
 
+    /**
+     * @return the method as called by the session, which may differ from the plain one for
+     *     methods that push notifications to it; the plain one if session is null
+     */
+    public RpcMethod get(String name, RpcSession session) {
+        SessionRpcMethod m = session == null ? null : enabledSessionEndpoints.get(name);
+        if (m == null)
+            return get(name);
+        return params -> m.call(session, params);
+    }
+
+    /**
+     * @return the subscriptions made by sessions, null while filters are disabled
+     */
+    public RpcSubscriptions getSubscriptions() {
+        return subscriptions;
+    }
+
     public void shutdown() {
-        api.shutdown();
+        if (api != null)
+            api.shutdown();
     }
 
     private Map<String, RpcMethod> composite(List<String> groups) {
@@ -71,6 +113,10 @@ public class RpcMethods {
         RpcMsg call(Object params);
     }
 
+    public interface SessionRpcMethod {
+        RpcMsg call(RpcSession session, Object params);
+    }
+
     /**
      * ops
      */
@@ -168,9 +214,31 @@ public class RpcMethods {
             Map.entry("eth_uninstallFilter", (params) -> api.eth_uninstallFilter(params)),
             Map.entry("eth_getFilterChanges", (params) -> api.eth_getFilterChanges(params)),
             Map.entry("eth_getFilterLogs", (params) -> api.eth_getFilterChanges(params)),
-            Map.entry("eth_getLogs", (params) -> api.eth_getLogs(params))
+            Map.entry("eth_getLogs", (params) -> api.eth_getLogs(params)),
+
+            // sessions are served the ones in ethSession instead
+            Map.entry("eth_subscribe", (params) -> sessionRequired()),
+            Map.entry("eth_unsubscribe", (params) -> sessionRequired())
     );
 
+    /**
+     * eth, for sessions only: their notifications need a connection that stays open
+     */
+    private final Map<String, SessionRpcMethod> ethSession = Map.ofEntries(
+            Map.entry("eth_subscribe", (session, params) -> subscriptions == null
+                    ? filtersDisabled() : subscriptions.subscribe(session, params)),
+            Map.entry("eth_unsubscribe", (session, params) -> subscriptions == null
+                    ? filtersDisabled() : subscriptions.unsubscribe(session, params))
+    );
+
+    private static RpcMsg sessionRequired() {
+        return new RpcMsg(null, RpcError.NOT_ALLOWED, "Subscriptions need a websocket connection.");
+    }
+
+    private static RpcMsg filtersDisabled() {
+        return new RpcMsg(null, RpcError.NOT_ALLOWED, "Filters over rpc disabled.");
+    }
+
     /**
      * stratum
      */
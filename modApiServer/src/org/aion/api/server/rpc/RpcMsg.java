@@ -1,5 +1,6 @@
 package org.aion.api.server.rpc;
 
+import org.aion.api.server.json.JsonWriter;
 import org.json.JSONObject;
 
 /**
@@ -65,8 +66,47 @@ public class RpcMsg {
         return json;
     }
 
+    /**
+     * Writes the same response as {@link #toJson()}, without building it up as a tree first.
+     */
+    public void writeTo(JsonWriter w) {
+        w.beginObject();
+        w.name("jsonrpc").value("2.0");
+        w.name("id").value(this.id);
+
+        if (this.result == null) {
+            RpcError e = this.error;
+            if (e == null)
+                e = RpcError.INTERNAL_ERROR;
+
+            w.name("error").beginObject();
+            w.name("code").value(e.getCode());
+            w.name("message").value(e.getMessage());
+            w.opt("data", this.errorData);
+            w.endObject();
+        } else {
+            w.name("result").value(this.result);
+        }
+        w.endObject();
+    }
+
+    /**
+     * @return the response as utf-8 json
+     */
+    public byte[] toBytes() {
+        JsonWriter w = JsonWriter.pooled();
+        try {
+            writeTo(w);
+            return w.toByteArray();
+        } finally {
+            w.release();
+        }
+    }
+
     @Override
     public String toString() {
-        return this.toJson().toString();
+        JsonWriter w = new JsonWriter(256);
+        writeTo(w);
+        return w.toString();
     }
 }
\ No newline at end of file
@@ -1,167 +1,276 @@
 package org.aion.api.server.rpc;
 
+import org.aion.api.server.json.JsonReader;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.apache.commons.lang3.StringUtils;
-import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RpcProcessor {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
 
+    // the calls of a batch run concurrently on a shared pool of this many threads; calls mostly
+    // wait on the database, hence more threads than cores
+    static final int BATCH_THREADS = Math.max(Runtime.getRuntime().availableProcessors(), 2) * 2;
+    // calls queued beyond this run on the thread serving the batch, which slows that client down
+    static final int BATCH_QUEUE_CAPACITY = 1024;
+
     RpcMethods apiHolder;
+    private final ExecutorService batchExecutor;
 
     public RpcProcessor(List<String> enabled) {
-        this.apiHolder = new RpcMethods(enabled);
+        this(new RpcMethods(enabled), BATCH_THREADS);
+    }
+
+    /**
+     * @param batchThreads threads running the calls of batches, 0 to run them one after the other
+     *                     on the thread serving the batch
+     */
+    RpcProcessor(RpcMethods apiHolder, int batchThreads) {
+        this.apiHolder = apiHolder;
+
+        if (batchThreads > 0) {
+            AtomicInteger tnum = new AtomicInteger(1);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(batchThreads, batchThreads, 1, TimeUnit.MINUTES,
+                    new ArrayBlockingQueue<>(BATCH_QUEUE_CAPACITY),
+                    r -> {
+                        Thread t = new Thread(r, "rpc-batch-" + tnum.getAndIncrement());
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    // unlike CallerRunsPolicy, also runs the call after shutdown, so that no future is left pending
+                    (r, e) -> r.run());
+            executor.allowCoreThreadTimeOut(true);
+            this.batchExecutor = executor;
+        } else {
+            this.batchExecutor = null;
+        }
     }
 
     public String process(String _requestBody) {
-        String response = composeRpcResponse(new RpcMsg(null, RpcError.INVALID_REQUEST).toString());
+        return stream(_requestBody).collect();
+    }
+
+    /**
+     * Same as {@link #process(String)}, but the calls of a batch run concurrently and the reply can
+     * be written out as the responses become ready, in request order.
+     */
+    public RpcResponseStream stream(String _requestBody) {
+        return stream(_requestBody, null);
+    }
+
+    /**
+     * Serves a request of a session, which can also subscribe to events; see {@link
+     * RpcSubscriptions}. Once the reply is queued to the session, call {@link
+     * #activate(RpcSession)}.
+     */
+    public RpcResponseStream stream(String _requestBody, RpcSession session) {
+        byte[] response = null;
 
         try {
             String requestBody = _requestBody.trim();
             if (!StringUtils.isEmpty(requestBody)) {
                 char firstChar = requestBody.charAt(0);
                 if (firstChar == '{')
-                    response = handleSingle(requestBody);
+                    response = handleSingle(requestBody, session);
                 else if (firstChar == '[')
-                    response = handleBatch(requestBody);
+                    return handleBatch(requestBody, session);
             }
         } catch (Exception e) {
             LOG.debug("<rpc-server - failed to process rpc request body>", e);
         }
 
-        return response;
+        if (response == null)
+            response = new RpcMsg(null, RpcError.INVALID_REQUEST).toBytes();
+        return RpcResponseStream.single(CompletableFuture.completedFuture(response));
     }
 
-    private String composeRpcResponse(String _respBody) {
-        String respBody;
-        if (_respBody == null) {
-            respBody = new RpcMsg(null, RpcError.INTERNAL_ERROR).toString();
-        } else {
-            respBody = _respBody;
-        }
+    /**
+     * Starts the notifications of the subscriptions made by the requests of the session so far.
+     */
+    public void activate(RpcSession session) {
+        RpcSubscriptions subscriptions = apiHolder.getSubscriptions();
+        if (subscriptions != null)
+            subscriptions.activate(session);
+    }
 
-        return respBody;
+    /**
+     * Cancels the subscriptions of a session that was closed.
+     */
+    public void close(RpcSession session) {
+        RpcSubscriptions subscriptions = apiHolder.getSubscriptions();
+        if (subscriptions != null)
+            subscriptions.remove(session);
     }
 
-    private JSONObject processObject(JSONObject body) {
-        try {
-            String method;
-            Object params;
-            Object id = JSONObject.NULL;
-
-            try {
-                // not checking for 'jsonrpc' key == 2.0. can pass in anything
-                method = body.getString("method");
-                Object _id = body.opt("id");
-                if (_id != null) // loosen the rpc spec to allow client to not send an id.
-                    id = _id;
-                params = body.opt("params");
-            } catch (Exception e) {
-                LOG.debug("<rpc-server - invalid rpc request [0]>", e);
-                return new RpcMsg(null, RpcError.INVALID_REQUEST).toJson();
-            }
+    /**
+     * The members of a request object that matter here, as read off the pull parser.
+     */
+    private static final class Request {
+        private String method;
+        private Object id = JSONObject.NULL;
+        private Object params;
+        private boolean isObject = true;
+        private RpcSession session;
+    }
 
-            RpcMethods.RpcMethod rpc = apiHolder.get(method);
-            if (rpc == null) {
-                LOG.debug("rpc-server - invalid method: {} [1]", method);
-                return new RpcMsg(null, RpcError.METHOD_NOT_FOUND).setId(id).toJson();
-            }
+    private static Request readRequest(JsonReader reader, RpcSession session) {
+        Request req = new Request();
+        req.session = session;
+        if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            req.isObject = false;
+            return req;
+        }
 
-            try {
-                if (LOG.isDebugEnabled() && params != null)
-                    LOG.debug("<request mth=[{}] params={}>", method, params.toString());
-                else
-                    LOG.debug("<request mth=[{}]>", method);
-
-                /**
-                 * Note about using System.nanoTime():
-                 * It's slower (~5x) than using System.currentTimeMillis() based on emperical tests across machines
-                 * and operating systems. But since this only runs in debug mode, it's probably OK?
-                 */
-                boolean shouldTime = LOG.isDebugEnabled();
-                long t0 = 0L;
-                if (shouldTime) t0 = System.nanoTime();
-                RpcMsg response = rpc.call(params);
-                if (shouldTime) {
-                    long t1 = System.nanoTime();
-                    LOG.debug("<request mth=[{}] rpc-process time: {}ms>", method, (t1 - t0) / 10e6f);
-                }
-
-                return response.setId(id).toJson();
-
-
-
-            } catch (Exception e) {
-                LOG.debug("<rpc-server - internal error [2]>", e);
-                return new RpcMsg(null, RpcError.INTERNAL_ERROR).setId(id).toJson();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "method":
+                    Object method = reader.nextValue();
+                    req.method = method instanceof String ? (String) method : null;
+                    break;
+                case "id":
+                    // loosen the rpc spec to allow client to not send an id.
+                    req.id = reader.nextValue();
+                    break;
+                case "params":
+                    req.params = reader.nextValue();
+                    break;
+                default:
+                    // not checking for 'jsonrpc' key == 2.0. can pass in anything
+                    reader.skipValue();
             }
-        } catch (Exception e) {
-            LOG.debug("<rpc-server - internal error [3]>", e);
         }
-
-        return new RpcMsg(null, RpcError.INTERNAL_ERROR).toJson();
+        reader.endObject();
+        return req;
     }
 
-    // implementing http://www.jsonrpc.org/specification#batch
-    private String handleBatch(String _reqBody) {
+    private RpcMsg processObject(Request req) {
+        if (req.method == null) {
+            LOG.debug("<rpc-server - invalid rpc request [0]>");
+            return new RpcMsg(null, RpcError.INVALID_REQUEST);
+        }
+
+        String method = req.method;
+        Object params = req.params;
+        Object id = req.id;
+
+        RpcMethods.RpcMethod rpc = apiHolder.get(method, req.session);
+        if (rpc == null) {
+            LOG.debug("rpc-server - invalid method: {} [1]", method);
+            return new RpcMsg(null, RpcError.METHOD_NOT_FOUND).setId(id);
+        }
+
         try {
-            JSONArray reqBodies;
-
-            try {
-                reqBodies = new JSONArray(_reqBody);
-                if (reqBodies.length() < 1) throw new Exception();
-            } catch (Exception e) {
-                // rpc call Batch, invalid JSON
-                // rpc call with an empty Array
-                LOG.debug("<rpc-server - rpc call parse error [4]>", e);
-                return composeRpcResponse(new RpcMsg(null, RpcError.PARSE_ERROR).toString());
+            if (LOG.isDebugEnabled() && params != null)
+                LOG.debug("<request mth=[{}] params={}>", method, params.toString());
+            else
+                LOG.debug("<request mth=[{}]>", method);
+
+            /**
+             * Note about using System.nanoTime():
+             * It's slower (~5x) than using System.currentTimeMillis() based on emperical tests across machines
+             * and operating systems. But since this only runs in debug mode, it's probably OK?
+             */
+            boolean shouldTime = LOG.isDebugEnabled();
+            long t0 = 0L;
+            if (shouldTime) t0 = System.nanoTime();
+            RpcMsg response = rpc.call(params);
+            if (shouldTime) {
+                long t1 = System.nanoTime();
+                LOG.debug("<request mth=[{}] rpc-process time: {}ms>", method, (t1 - t0) / 10e6f);
             }
 
-            JSONArray respBodies = new JSONArray();
+            return response.setId(id);
+        } catch (Exception e) {
+            LOG.debug("<rpc-server - internal error [2]>", e);
+            return new RpcMsg(null, RpcError.INTERNAL_ERROR).setId(id);
+        }
+    }
 
-            for (int i = 0, n = reqBodies.length(); i < n; i++) {
-                try {
-                    JSONObject body = reqBodies.getJSONObject(i);
-                    respBodies.put(processObject(body));
-                } catch (Exception e) {
-                    LOG.debug("<rpc-server - invalid rpc request [5]>", e);
-                    respBodies.put(new RpcMsg(null, RpcError.INVALID_REQUEST).toJson());
-                }
-            }
+    /**
+     * Runs the call and serializes its response, which for results written by a {@link
+     * org.aion.api.server.json.JsonWritable} is when most of the work happens.
+     */
+    private byte[] processRequest(Request req) {
+        if (!req.isObject) {
+            LOG.debug("<rpc-server - invalid rpc request [5]>");
+            return new RpcMsg(null, RpcError.INVALID_REQUEST).toBytes();
+        }
 
-            String respBody = respBodies.toString();
+        try {
+            return processObject(req).toBytes();
+        } catch (Exception e) {
+            LOG.debug("<rpc-server - internal error [3]>", e);
+        }
 
-            if (LOG.isDebugEnabled())
-                LOG.debug("<rpc-server response={}>", respBody);
+        return new RpcMsg(null, RpcError.INTERNAL_ERROR).setId(req.id).toBytes();
+    }
 
-            return composeRpcResponse(respBody);
+    // implementing http://www.jsonrpc.org/specification#batch
+    private RpcResponseStream handleBatch(String _reqBody, RpcSession session) {
+        List<Request> requests = new ArrayList<>();
 
+        try {
+            JsonReader reader = new JsonReader(_reqBody);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                requests.add(readRequest(reader, session));
+            }
+            reader.endArray();
+            reader.endDocument();
+            if (requests.isEmpty()) throw new Exception();
         } catch (Exception e) {
-            LOG.debug("<rpc-server - internal error [6]>", e);
+            // rpc call Batch, invalid JSON
+            // rpc call with an empty Array
+            LOG.debug("<rpc-server - rpc call parse error [4]>", e);
+            return RpcResponseStream.single(CompletableFuture.completedFuture(
+                    new RpcMsg(null, RpcError.PARSE_ERROR).toBytes()));
+        }
+
+        int n = requests.size();
+        List<Future<byte[]>> respBodies = new ArrayList<>(n);
+        for (Request req : requests) {
+            if (batchExecutor == null || n == 1)
+                respBodies.add(CompletableFuture.completedFuture(processRequest(req)));
+            else
+                respBodies.add(batchExecutor.submit(() -> processRequest(req)));
         }
 
-        return composeRpcResponse(new RpcMsg(null, RpcError.INTERNAL_ERROR).toString());
+        return RpcResponseStream.batch(respBodies);
     }
 
-    private String handleSingle(String _reqBody) {
+    private byte[] handleSingle(String _reqBody, RpcSession session) {
+        Request req;
         try {
-            JSONObject obj = new JSONObject(_reqBody);
-            return composeRpcResponse(processObject(obj).toString());
+            JsonReader reader = new JsonReader(_reqBody);
+            req = readRequest(reader, session);
+            reader.endDocument();
         } catch (Exception e) {
             // rpc call with invalid JSON
             LOG.debug("<rpc-server - rpc call parse error [7]>", e);
+            return new RpcMsg(null, RpcError.PARSE_ERROR).toBytes();
         }
 
-        return composeRpcResponse(new RpcMsg(null, RpcError.PARSE_ERROR).toString());
+        return processRequest(req);
     }
 
     public void shutdown() {
+        if (batchExecutor != null)
+            batchExecutor.shutdown();
         apiHolder.shutdown();
     }
 }
@@ -0,0 +1,152 @@
+package org.aion.api.server.rpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * The reply to an rpc request, produced piece by piece.
+ *
+ * For a batch every piece is the response of one call, waited for in request order; the calls
+ * themselves may complete in any order. Writing out the first response therefore only waits on the
+ * first call and the reply never has to be held in memory as a whole.
+ */
+public final class RpcResponseStream extends InputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] OPEN = {'['};
+    private static final byte[] COMMA = {','};
+    private static final byte[] CLOSE = {']'};
+
+    private final List<Future<byte[]>> parts;
+    private final boolean batch;
+    // index into the pieces of the reply; for a batch "[", part 0, ",", part 1, ..., "]"
+    private int next = 0;
+    private byte[] buf = EMPTY;
+    private int pos = 0;
+
+    private RpcResponseStream(List<Future<byte[]>> parts, boolean batch) {
+        this.parts = parts;
+        this.batch = batch;
+    }
+
+    static RpcResponseStream single(Future<byte[]> response) {
+        return new RpcResponseStream(List.of(response), false);
+    }
+
+    static RpcResponseStream batch(List<Future<byte[]>> responses) {
+        return new RpcResponseStream(responses, true);
+    }
+
+    /**
+     * @return true if the reply is a json array of responses
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    private int pieces() {
+        return batch ? 2 * parts.size() + 1 : 1;
+    }
+
+    private byte[] piece(int i) {
+        if (batch) {
+            if (i == 0)
+                return OPEN;
+            if (i == pieces() - 1)
+                return CLOSE;
+            if (i % 2 == 0)
+                return COMMA;
+            i /= 2;
+        }
+
+        try {
+            return parts.get(i).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            // fall through
+        }
+        return new RpcMsg(null, RpcError.INTERNAL_ERROR).toBytes();
+    }
+
+    private boolean fill() {
+        while (pos == buf.length) {
+            if (next == pieces())
+                return false;
+            buf = piece(next++);
+            pos = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() {
+        if (!fill())
+            return -1;
+        return buf[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0)
+            return 0;
+        if (!fill())
+            return -1;
+        int n = Math.min(len, buf.length - pos);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return buf.length - pos;
+    }
+
+    /**
+     * Writes the remaining reply to {@code out} as the responses become ready; does not close it.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (pos < buf.length) {
+            out.write(buf, pos, buf.length - pos);
+            pos = buf.length;
+        }
+        while (next < pieces()) {
+            out.write(piece(next++));
+        }
+    }
+
+    /**
+     * @return the remaining reply as one string
+     */
+    public String collect() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            // not thrown by ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Cancels the calls whose responses were not read yet, e.g. after the client went away.
+     */
+    @Override
+    public void close() {
+        for (Future<byte[]> part : parts) {
+            part.cancel(false);
+        }
+        next = pieces();
+        buf = EMPTY;
+        pos = 0;
+    }
+}
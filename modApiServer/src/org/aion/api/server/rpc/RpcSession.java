@@ -0,0 +1,22 @@
+package org.aion.api.server.rpc;
+
+/**
+ * A connection that stays open between requests, so the server can push notifications to it, e.g.
+ * a websocket. Requests handled for a session may create subscriptions, see {@link
+ * RpcSubscriptions}.
+ */
+public interface RpcSession {
+
+    /**
+     * Queues a message for the client without blocking.
+     *
+     * @return false if the client does not keep up with its messages; the session is closed then
+     *     and will not take any more
+     */
+    boolean push(byte[] message);
+
+    /**
+     * @return false once the session is closed; it gets no more subscriptions then
+     */
+    boolean isOpen();
+}
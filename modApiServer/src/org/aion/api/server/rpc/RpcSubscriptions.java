@@ -0,0 +1,252 @@
+package org.aion.api.server.rpc;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.api.server.json.JsonWritable;
+import org.aion.api.server.json.JsonWriter;
+import org.aion.api.server.types.ArgFltr;
+import org.aion.api.server.types.Blk;
+import org.aion.api.server.types.FltrLg;
+import org.aion.base.type.ITransaction;
+import org.aion.base.util.TypeConverter;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.types.AionBlockSummary;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+
+/**
+ * Subscriptions made with eth_subscribe by clients holding a {@link RpcSession} open.
+ *
+ * Unlike the polled filters nothing is buffered here: every event is matched against the
+ * subscriptions as it arrives and pushed straight to the sessions as an eth_subscription
+ * notification. A session that cannot keep up is dropped together with its subscriptions.
+ *
+ * Results shared by all subscriptions to an event, the new head and the pending transaction hash,
+ * are serialized once per event.
+ */
+public final class RpcSubscriptions {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
+
+    // per session, as FLTRS_MAX for the polled filters
+    static final int SUBSCRIPTIONS_MAX = 1024;
+
+    private enum Kind {
+        NEW_HEADS, LOGS, NEW_PENDING_TRANSACTIONS
+    }
+
+    private static final class Subscription {
+        private final String id;
+        private final RpcSession session;
+        private final Kind kind;
+        // only for logs, matches the logs of a block; its event queue is not used
+        private final FltrLg filter;
+        // set once the response that returned the id is on its way
+        private volatile boolean live = false;
+
+        private Subscription(String id, RpcSession session, Kind kind, FltrLg filter) {
+            this.id = id;
+            this.session = session;
+            this.kind = kind;
+            this.filter = filter;
+        }
+    }
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<RpcSession, Set<String>> bySession = new ConcurrentHashMap<>();
+
+    /**
+     * eth_subscribe: {@code ["newHeads"]}, {@code ["logs", {"address": .., "topics": ..}]} or
+     * {@code ["newPendingTransactions"]}.
+     *
+     * The subscription only gets notifications after {@link #activate(RpcSession)}, so that the
+     * client sees its id before the first notification.
+     */
+    public RpcMsg subscribe(RpcSession session, Object params) {
+        if (!(params instanceof JSONArray) || ((JSONArray) params).length() < 1)
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid parameters");
+
+        JSONArray args = (JSONArray) params;
+        Kind kind;
+        FltrLg filter = null;
+        switch (args.optString(0)) {
+            case "newHeads":
+                kind = Kind.NEW_HEADS;
+                break;
+            case "logs":
+                kind = Kind.LOGS;
+                // fromBlock and toBlock do not apply, only new blocks are matched
+                JSONObject fltrObj = args.optJSONObject(1);
+                ArgFltr rf = fltrObj == null ? new ArgFltr() : ArgFltr.fromJSON(fltrObj);
+                if (rf == null)
+                    return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid filter");
+                filter = new FltrLg();
+                filter.setTopics(rf.topics);
+                filter.setContractAddress(rf.address);
+                break;
+            case "newPendingTransactions":
+                kind = Kind.NEW_PENDING_TRANSACTIONS;
+                break;
+            default:
+                return new RpcMsg(null, RpcError.INVALID_PARAMS, "Unsupported subscription type");
+        }
+
+        if (!session.isOpen())
+            return new RpcMsg(null, RpcError.NOT_ALLOWED, "Session closed");
+
+        String id = TypeConverter.toJsonHex(nextId.getAndIncrement());
+        subscriptions.put(id, new Subscription(id, session, kind, filter));
+
+        // counted and added in one step, so that concurrent requests of a session cannot overshoot
+        boolean[] added = {false};
+        bySession.compute(session, (s, ids) -> {
+            if (ids == null)
+                ids = ConcurrentHashMap.newKeySet();
+            if (ids.size() < SUBSCRIPTIONS_MAX)
+                added[0] = ids.add(id);
+            return ids;
+        });
+        if (!added[0]) {
+            subscriptions.remove(id);
+            return new RpcMsg(null, RpcError.NOT_ALLOWED, "Too many subscriptions");
+        }
+
+        // the session may have closed, and been removed, since the check above; a subscription
+        // added after its removal would never be notified, nor dropped
+        if (!session.isOpen()) {
+            remove(session);
+            return new RpcMsg(null, RpcError.NOT_ALLOWED, "Session closed");
+        }
+        return new RpcMsg(id);
+    }
+
+    /**
+     * eth_unsubscribe: {@code ["0x1"]}; only the session that made a subscription can cancel it.
+     */
+    public RpcMsg unsubscribe(RpcSession session, Object params) {
+        if (!(params instanceof JSONArray) || ((JSONArray) params).length() < 1)
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid parameters");
+
+        String id = ((JSONArray) params).optString(0);
+        Subscription s = subscriptions.get(id);
+        if (s == null || s.session != session)
+            return new RpcMsg(false);
+
+        subscriptions.remove(id);
+        bySession.computeIfPresent(session, (k, ids) -> {
+            ids.remove(id);
+            return ids;
+        });
+        return new RpcMsg(true);
+    }
+
+    /**
+     * Starts notifications for the subscriptions the session made so far; call once the responses
+     * to its requests are queued.
+     */
+    public void activate(RpcSession session) {
+        Set<String> ids = bySession.get(session);
+        if (ids == null)
+            return;
+        for (String id : ids) {
+            Subscription s = subscriptions.get(id);
+            if (s != null)
+                s.live = true;
+        }
+    }
+
+    /** Cancels all subscriptions of a session, e.g. when it was closed. */
+    public void remove(RpcSession session) {
+        Set<String> ids = bySession.remove(session);
+        if (ids == null)
+            return;
+        for (String id : ids) {
+            subscriptions.remove(id);
+        }
+    }
+
+    int size() {
+        return subscriptions.size();
+    }
+
+    /* -------------------------------------------------------------------------
+     * events, all from the api's event thread
+     */
+
+    /** Notifies the subscribers of a new main chain block. */
+    public void onBlock(AionBlockSummary cbs) {
+        if (subscriptions.isEmpty())
+            return;
+
+        JsonWritable head = null;
+        for (Subscription s : subscriptions.values()) {
+            if (!s.live)
+                continue;
+
+            if (s.kind == Kind.NEW_HEADS) {
+                if (head == null) {
+                    BigInteger td = cbs.getTotalDifficulty();
+                    String json = Blk.AionBlockOnlyToJson((AionBlock) cbs.getBlock(), td == null ? BigInteger.ZERO : td)
+                            .toString();
+                    head = w -> w.raw(json);
+                }
+                notify(s, head);
+            } else if (s.kind == Kind.LOGS) {
+                // every matching log is pushed, however many the block has; the session is the
+                // only buffer
+                s.filter.onBlock(cbs, e -> {
+                    if (s.session.isOpen())
+                        notify(s, (JsonWritable) e::writeTo);
+                });
+            }
+        }
+    }
+
+    /** Notifies the subscribers of a transaction newly in the pending state. */
+    public void onPendingTransaction(ITransaction tx) {
+        if (subscriptions.isEmpty())
+            return;
+
+        String hash = null;
+        for (Subscription s : subscriptions.values()) {
+            if (!s.live || s.kind != Kind.NEW_PENDING_TRANSACTIONS)
+                continue;
+            if (hash == null)
+                hash = TypeConverter.toJsonHex(tx.getHash());
+            notify(s, hash);
+        }
+    }
+
+    private boolean notify(Subscription s, Object result) {
+        if (s.session.push(notification(s.id, result)))
+            return true;
+
+        LOG.debug("<rpc-server - dropping session that fell behind on notifications, subscription={}>", s.id);
+        remove(s.session);
+        return false;
+    }
+
+    private static byte[] notification(String id, Object result) {
+        JsonWriter w = JsonWriter.pooled();
+        try {
+            w.beginObject()
+                    .name("jsonrpc").value("2.0")
+                    .name("method").value("eth_subscription")
+                    .name("params").beginObject()
+                    .name("subscription").value(id)
+                    .name("result").value(result)
+                    .endObject()
+                    .endObject();
+            return w.toByteArray();
+        } finally {
+            w.release();
+        }
+    }
+}
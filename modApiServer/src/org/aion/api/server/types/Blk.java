@@ -24,9 +24,12 @@
 
 package org.aion.api.server.types;
 
+import org.aion.api.server.json.JsonWritable;
+import org.aion.api.server.json.JsonWriter;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.TypeConverter;
 import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.AionTransaction;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -98,6 +101,79 @@ public class Blk {
         return obj;
     }
 
+    /**
+     * Same as {@link #AionBlockToJson}, but written straight into the response as it is
+     * serialized instead of built up as a tree first.
+     *
+     * @param mainchain written as the "mainchain" member unless null
+     */
+    public static JsonWritable AionBlockToWritable(AionBlock block, BigInteger totalDifficulty, boolean fullTransaction,
+                                                   Boolean mainchain) {
+        if (block == null) return null;
+        return w -> writeBlock(w, block, totalDifficulty, fullTransaction, mainchain);
+    }
+
+    private static void writeBlock(JsonWriter w, AionBlock block, BigInteger totalDifficulty, boolean fullTransaction,
+                                   Boolean mainchain) {
+        A0BlockHeader header = block.getHeader();
+
+        w.beginObject();
+        w.name("number").value(block.getNumber());
+        w.name("hash").hex(block.getHash());
+        w.name("parentHash").hex(block.getParentHash());
+        w.name("logsBloom").hex(block.getLogBloom());
+        w.name("transactionsRoot").hex(block.getTxTrieRoot());
+        w.name("stateRoot").hex(block.getStateRoot());
+        w.name("receiptsRoot").hex(block.getReceiptsRoot());
+        w.name("difficulty").hex(block.getDifficulty());
+        w.name("totalDifficulty").hex(totalDifficulty);
+
+        w.name("miner").hex(block.getCoinbase().toBytes());
+        w.name("timestamp").hex(block.getTimestamp());
+        w.name("nonce").hex(block.getNonce());
+        w.name("solution").hex(header.getSolution());
+        w.name("gasUsed").hex(header.getEnergyConsumed());
+        w.name("gasLimit").hex(header.getEnergyLimit());
+        w.name("nrgUsed").hex(header.getEnergyConsumed());
+        w.name("nrgLimit").hex(header.getEnergyLimit());
+        //
+        w.name("extraData").hex(block.getExtraData());
+        // as NumericalValue.toHexString
+        w.name("size").hex(BigInteger.valueOf(block.getEncoded().length).toByteArray());
+
+        w.name("transactions").beginArray();
+        List<AionTransaction> txs = block.getTransactionsList();
+        for (int i = 0; i < txs.size(); i++) {
+            AionTransaction tx = txs.get(i);
+            if (fullTransaction) {
+                w.beginObject();
+                if (tx.getContractAddress() != null)
+                    w.name("contractAddress").hex(tx.getContractAddress().toBytes());
+                w.name("hash").hex(tx.getHash());
+                w.name("transactionIndex").value(i);
+                w.name("value").hex(tx.getValue());
+                w.name("nrg").value(tx.getNrg());
+                w.name("nrgPrice").hex(tx.getNrgPrice());
+                w.name("gas").value(tx.getNrg());
+                w.name("gasPrice").hex(tx.getNrgPrice());
+                w.name("nonce").value(ByteUtil.byteArrayToLong(tx.getNonce()));
+                w.name("from").hex(tx.getFrom().toBytes());
+                w.name("to").hex(tx.getTo().toBytes());
+                w.name("timestamp").value(block.getTimestamp());
+                w.name("input").hex(tx.getData());
+                w.name("blockNumber").value(block.getNumber());
+                w.endObject();
+            } else {
+                w.hex(tx.getHash());
+            }
+        }
+        w.endArray();
+
+        if (mainchain != null)
+            w.name("mainchain").value(mainchain.booleanValue());
+        w.endObject();
+    }
+
     @SuppressWarnings("Duplicates")
     public static JSONObject AionBlockOnlyToJson(AionBlock block, BigInteger totalDifficulty) {
         if (block == null) return null;
@@ -26,9 +26,18 @@ package org.aion.api.server.types;
 
 import static org.aion.api.server.types.Fltr.Type;
 
+import org.aion.api.server.json.JsonWriter;
+
 public abstract class Evt {
     
     public abstract Type getType();
     
     public abstract Object toJSON();
+
+    /**
+     * Writes the same json as {@link #toJSON()}; overridden where building it first is wasteful.
+     */
+    public void writeTo(JsonWriter w) {
+        w.value(toJSON());
+    }
 }
\ No newline at end of file
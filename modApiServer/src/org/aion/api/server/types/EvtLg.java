@@ -24,6 +24,7 @@
 
 package org.aion.api.server.types;
 
+import org.aion.api.server.json.JsonWriter;
 import org.aion.api.server.types.Fltr.Type;
 import org.aion.base.util.TypeConverter;
 import org.json.JSONArray;
@@ -58,4 +59,23 @@ public class EvtLg extends Evt {
 
         return obj;
     }
-}
\ No newline at end of file
+
+    @Override
+    public void writeTo(JsonWriter w) {
+        w.beginObject();
+        w.name("removed").value(this.el.removed);
+        w.opt("logIndex", this.el.logIndex);
+        w.opt("transactionIndex", this.el.transactionIndex);
+        w.opt("transactionHash", this.el.transactionHash);
+        w.opt("blockHash", this.el.blockHash);
+        w.opt("blockNumber", this.el.blockNumber);
+        w.opt("address", this.el.address);
+        w.opt("data", this.el.data);
+        w.name("topics").beginArray();
+        for (String topic : this.el.topics) {
+            w.value(topic);
+        }
+        w.endArray();
+        w.endObject();
+    }
+}
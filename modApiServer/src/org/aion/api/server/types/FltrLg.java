@@ -28,6 +28,7 @@ import org.aion.base.type.*;
 import org.aion.mcf.vm.types.Log;
 import org.aion.mcf.vm.types.Bloom;
 import org.aion.zero.impl.core.BloomFilter;
+import org.aion.zero.impl.db.LogBloomIndex;
 import org.aion.zero.impl.types.AionTxInfo;
 import org.aion.zero.types.AionTxReceipt;
 import org.aion.zero.impl.types.AionBlockSummary;
@@ -36,7 +37,11 @@ import org.aion.zero.impl.core.IAionBlockchain;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * @author chris
@@ -69,6 +74,15 @@ public final class FltrLg extends Fltr {
 
     @Override
     public boolean onBlock(IBlockSummary bs) {
+        onBlock(bs, this::add);
+        return true;
+    }
+
+    /**
+     * Hands the matching logs of the block to the sink as they are found, bypassing the bounded
+     * event queue of the polled filter; used to push logs to subscribers.
+     */
+    public void onBlock(IBlockSummary bs, Consumer<Evt> sink) {
         List<AionTxReceipt> receipts = ((AionBlockSummary) bs).getReceipts();
         IBlock blk = bs.getBlock();
 
@@ -81,7 +95,7 @@ public final class FltrLg extends Fltr {
                         int logIndex = 0;
                         for (Log logInfo : receipt.getLogInfoList()) {
                             if (matchBloom(logInfo.getBloom()) && matchesExactly(logInfo)) {
-                                add(new EvtLg(new TxRecptLg(logInfo, blk, txIndex, receipt.getTransaction(), logIndex, true)));
+                                sink.accept(new EvtLg(new TxRecptLg(logInfo, blk, txIndex, receipt.getTransaction(), logIndex, true)));
                             }
                             logIndex++;
                         }
@@ -90,7 +104,6 @@ public final class FltrLg extends Fltr {
                 txIndex++;
             }
         }
-        return true;
     }
 
     // inelegant (distributing chain singleton ref. into here), tradeoff for efficiency and ease of impl.
@@ -121,6 +134,84 @@ public final class FltrLg extends Fltr {
         return true;
     }
 
+    /**
+     * Loads the matching logs of the main chain blocks in [from, to], until the filter is full.
+     * Blocks covered by the bloom index are only loaded when the index reports them as candidates.
+     */
+    public void onBlockRange(long from, long to, IAionBlockchain chain, LogBloomIndex index) {
+        long indexed = index == null ? -1 : index.getIndexedHead();
+        int sectionSize = index == null ? 0 : index.getSectionSize();
+
+        long section = -1;
+        BitSet candidates = null;
+
+        for (long i = from; i <= to; i++) {
+            if (isFull()) break;
+
+            if (i <= indexed) {
+                if (i / sectionSize != section) {
+                    section = i / sectionSize;
+                    candidates = matchSection(index, section);
+                }
+                int next = candidates.nextSetBit((int) (i % sectionSize));
+                if (next < 0) {
+                    // nothing left in this section up to the indexed head, the blocks past it
+                    // are scanned one by one
+                    i = Math.min((section + 1) * sectionSize - 1, indexed);
+                    continue;
+                }
+                long candidate = section * sectionSize + next;
+                if (candidate != i) {
+                    i = candidate - 1;
+                    continue;
+                }
+            }
+
+            onBlock(chain.getBlockByNumber(i), chain);
+        }
+    }
+
+    /**
+     * Combines the bloom index columns of a section the same way {@link #matchBloom(Bloom)}
+     * combines bloom bits: AND across topic positions, OR within a position.
+     *
+     * @return the offsets of the candidate blocks within the section
+     */
+    public BitSet matchSection(LogBloomIndex index, long section) {
+        initBlooms();
+        int sectionSize = index.getSectionSize();
+        Map<Integer, BitSet> columns = new HashMap<>();
+
+        BitSet result = new BitSet(sectionSize);
+        result.set(0, sectionSize);
+
+        for (Bloom[] andBloom : filterBlooms) {
+            BitSet orMatches = new BitSet(sectionSize);
+            for (Bloom orBloom : andBloom) {
+                int[] bits = LogBloomIndex.getBits(orBloom);
+                if (bits.length == 0) {
+                    // always matches
+                    orMatches.set(0, sectionSize);
+                    break;
+                }
+                BitSet bloomMatches = null;
+                for (int bit : bits) {
+                    BitSet column =
+                            columns.computeIfAbsent(
+                                    bit, b -> BitSet.valueOf(index.getColumn(section, b)));
+                    if (bloomMatches == null) {
+                        bloomMatches = (BitSet) column.clone();
+                    } else {
+                        bloomMatches.and(column);
+                    }
+                }
+                orMatches.or(bloomMatches);
+            }
+            result.and(orMatches);
+        }
+        return result;
+    }
+
     // -------------------------------------------------------------------------------
 
     private void initBlooms() {
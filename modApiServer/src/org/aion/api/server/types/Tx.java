@@ -24,6 +24,8 @@
 
 package org.aion.api.server.types;
 
+import org.aion.api.server.json.JsonWritable;
+import org.aion.api.server.json.JsonWriter;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.TypeConverter;
 import org.aion.zero.impl.types.AionBlock;
@@ -74,4 +76,47 @@ public class Tx {
 
         return json;
     }
-}
\ No newline at end of file
+
+    /**
+     * Same as {@link #InfoToJSON}, but written straight into the response as it is
+     * serialized.
+     */
+    public static JsonWritable InfoToWritable(AionTxInfo info, AionBlock b) {
+        if (info == null) return null;
+
+        AionTxReceipt receipt = info.getReceipt();
+        if (receipt == null) return null;
+
+        return AionTransactionToWritable(receipt.getTransaction(), b, info.getIndex());
+    }
+
+    /**
+     * Same as {@link #AionTransactionToJSON}, but written straight into the response as it is
+     * serialized.
+     */
+    public static JsonWritable AionTransactionToWritable(AionTransaction tx, AionBlock b, int index) {
+        if (tx == null) return null;
+        return w -> writeTransaction(w, tx, b, index);
+    }
+
+    private static void writeTransaction(JsonWriter w, AionTransaction tx, AionBlock b, int index) {
+        w.beginObject();
+        if (tx.getContractAddress() != null)
+            w.name("contractAddress").hex(tx.getContractAddress().toBytes());
+        w.name("hash").hex(tx.getHash());
+        w.name("transactionIndex").value(index);
+        w.name("value").hex(tx.getValue());
+        w.name("nrg").value(tx.getNrg());
+        w.name("nrgPrice").hex(tx.getNrgPrice());
+        w.name("gas").value(tx.getNrg());
+        w.name("gasPrice").hex(tx.getNrgPrice());
+        w.name("nonce").value(ByteUtil.byteArrayToLong(tx.getNonce()));
+        w.name("from").hex(tx.getFrom().toBytes());
+        w.name("to").hex(tx.getTo().toBytes());
+        w.name("timestamp").value(b.getTimestamp());
+        w.name("input").hex(tx.getData());
+        w.name("blockNumber").hex(b.getNumber());
+        w.name("blockHash").hex(b.getHash());
+        w.endObject();
+    }
+}
@@ -38,16 +38,20 @@ import org.aion.zero.types.AionTransaction;
 import org.aion.zero.types.AionTxReceipt;
 import org.aion.mcf.types.AbstractTransaction;
 import org.aion.mcf.types.AbstractTxReceipt;
+import org.aion.api.server.json.JsonWritable;
+import org.aion.api.server.json.JsonWriter;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.math.BigInteger;
+
 /**
  * 
  * @author chris
  * 
  */
 @SuppressWarnings("unused")
-public final class TxRecpt {
+public final class TxRecpt implements JsonWritable {
 
     /**
      * rpc api
@@ -228,4 +232,62 @@ public final class TxRecpt {
 
         return obj;
     }
+
+    /**
+     * Writes the same json as {@link #toJson()}.
+     */
+    @Override
+    public void writeTo(JsonWriter w) {
+        w.beginObject();
+
+        w.opt("transactionHash", transactionHash);
+        if (transactionIndex == null) w.name("transactionIndex").nullValue();
+        else w.name("transactionIndex").hex(transactionIndex.longValue());
+        w.name("blockHash").value(blockHash);
+        if (blockNumber == null) w.name("blockNumber").nullValue();
+        else w.name("blockNumber").hex(blockNumber);
+
+        for (String name : new String[] {"cumulativeGasUsed", "cumulativeNrgUsed"}) {
+            if (this.cumulativeNrgUsed == null) w.name(name).nullValue();
+            else w.name(name).hex(this.cumulativeNrgUsed);
+        }
+
+        // as NumericalValue.toHexString
+        byte[] nrgUsed = BigInteger.valueOf(this.nrgUsed).toByteArray();
+        byte[] gasPrice = BigInteger.valueOf(this.gasPrice).toByteArray();
+        w.name("gasUsed").hex(nrgUsed);
+        w.name("nrgUsed").hex(nrgUsed);
+        w.name("gasPrice").hex(gasPrice);
+        w.name("nrgPrice").hex(gasPrice);
+        w.name("gasLimit").hex(BigInteger.valueOf(nrgLimit).toByteArray());
+
+        w.name("contractAddress").value(contractAddress);
+        w.opt("from", from);
+        w.name("to").value(to);
+        w.name("logsBloom").value(logsBloom);
+        w.name("root").value(root);
+        w.name("status").value(successful ? "0x1" : "0x0");
+
+        w.name("logs").beginArray();
+        for (int i = 0; i < logs.length; i++) {
+            w.beginObject();
+            w.opt("address", logs[i].address);
+            w.opt("data", logs[i].data);
+            if (blockNumber == null) w.name("blockNumber").nullValue();
+            else w.name("blockNumber").hex(blockNumber);
+            if (transactionIndex == null) w.name("transactionIndex").nullValue();
+            else w.name("transactionIndex").hex(transactionIndex.longValue());
+            w.name("logIndex").hex(i);
+
+            w.name("topics").beginArray();
+            for (String topic : logs[i].topics) {
+                w.value(topic);
+            }
+            w.endArray();
+            w.endObject();
+        }
+        w.endArray();
+
+        w.endObject();
+    }
 }
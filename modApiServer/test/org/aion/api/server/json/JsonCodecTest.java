@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.api.server.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.List;
+import org.aion.base.util.TypeConverter;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class JsonCodecTest {
+
+    @Test
+    public void testWriterStructure() {
+        JsonWriter w = new JsonWriter(16);
+        w.beginObject()
+                .name("a").value(1)
+                .name("b").beginArray().value("x").nullValue().value(true).beginObject().endObject().endArray()
+                .name("c").beginObject().name("d").value(-42).endObject()
+                .name("e").beginArray().endArray()
+                .endObject();
+
+        assertEquals("{\"a\":1,\"b\":[\"x\",null,true,{}],\"c\":{\"d\":-42},\"e\":[]}", w.toString());
+    }
+
+    @Test
+    public void testWriterHex() {
+        JsonWriter w = new JsonWriter();
+        w.beginArray()
+                .hex(new byte[] {0x00, 0x0f, (byte) 0xab})
+                .hex(new byte[0])
+                .hex((byte[]) null)
+                .hex(0)
+                .hex(255)
+                .hex(Long.MAX_VALUE)
+                .hex(-1L)
+                .hex(new BigInteger("123456789abcdef0123", 16))
+                .endArray();
+
+        JSONArray a = new JSONArray(w.toString());
+        assertEquals(TypeConverter.toJsonHex(new byte[] {0x00, 0x0f, (byte) 0xab}), a.get(0));
+        assertEquals("0x", a.get(1));
+        assertEquals("0x", a.get(2));
+        assertEquals(TypeConverter.toJsonHex(0), a.get(3));
+        assertEquals(TypeConverter.toJsonHex(255), a.get(4));
+        assertEquals(TypeConverter.toJsonHex(Long.MAX_VALUE), a.get(5));
+        assertEquals(TypeConverter.toJsonHex(-1L), a.get(6));
+        assertEquals("0x123456789abcdef0123", a.get(7));
+    }
+
+    @Test
+    public void testWriterStrings() {
+        String s = "quote\" backslash\\ nl\n tab\t ctl\u0001 \u00e9 \u2603 \uD83D\uDE00 </";
+        JsonWriter w = new JsonWriter(8);
+        w.beginObject().name(s).value(s).endObject();
+
+        JSONObject o = new JSONObject(w.toString());
+        assertEquals(s, o.getString(s));
+    }
+
+    @Test
+    public void testWriterNumbers() {
+        JsonWriter w = new JsonWriter();
+        w.beginArray()
+                .value(Long.MIN_VALUE)
+                .value(Long.MAX_VALUE)
+                .value(0)
+                .value((Object) 1.5d)
+                .value((Object) new BigInteger("123456789012345678901234567890"))
+                .endArray();
+
+        assertEquals("[" + Long.MIN_VALUE + "," + Long.MAX_VALUE + ",0,1.5,123456789012345678901234567890]",
+                w.toString());
+    }
+
+    @Test
+    public void testWriterValueMatchesOrgJson() {
+        JSONObject o = new JSONObject();
+        o.put("n", 7);
+        o.put("s", "str");
+        o.put("b", false);
+        o.put("nil", JSONObject.NULL);
+        o.put("arr", new JSONArray().put(1).put("two").put(new JSONObject().put("three", 3)));
+        o.put("list", List.of(1, 2));
+        o.put("writable", (JsonWritable) w -> w.beginArray().hex(16).endArray());
+
+        JsonWriter w = new JsonWriter();
+        w.value(o);
+
+        assertTrue(o.similar(new JSONObject(w.toString())));
+        assertEquals(o.toString().length(), w.toString().length());
+    }
+
+    @Test
+    public void testWriterOpt() {
+        JsonWriter w = new JsonWriter();
+        w.beginObject().opt("a", null).opt("b", "x").opt("c", null).endObject();
+        assertEquals("{\"b\":\"x\"}", w.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWriterUnbalanced() {
+        new JsonWriter().beginArray().endObject().endObject();
+    }
+
+    @Test
+    public void testPooledWriter() {
+        JsonWriter w = JsonWriter.pooled();
+        w.beginArray().value("a").endArray();
+
+        // in use, so a nested caller gets its own
+        JsonWriter nested = JsonWriter.pooled();
+        assertNotSame(w, nested);
+        nested.release();
+        w.release();
+
+        JsonWriter again = JsonWriter.pooled();
+        assertSame(w, again);
+        assertEquals(0, again.size());
+        again.release();
+    }
+
+    @Test
+    public void testReaderValuesMatchOrgJson() {
+        String json = "{\"jsonrpc\":\"2.0\",\"id\":12345678901,\"method\":\"eth_call\","
+                + "\"params\":[{\"to\":\"0xab\",\"data\":\"0x\\u0041\\n\",\"gas\":21000,\"x\":1.5e3},"
+                + "\"latest\",true,false,null,[],{},-0.5,123456789012345678901234567890]}";
+
+        JsonReader r = new JsonReader(json);
+        Object parsed = r.nextValue();
+        r.endDocument();
+
+        JSONObject expected = new JSONObject(json);
+        assertTrue(expected.similar(parsed));
+
+        JSONObject o = (JSONObject) parsed;
+        assertEquals(expected.get("id").getClass(), o.get("id").getClass());
+        JSONArray params = o.getJSONArray("params");
+        assertEquals(Integer.class, params.getJSONObject(0).get("gas").getClass());
+        assertEquals("0xA\n", params.getJSONObject(0).get("data"));
+        assertSame(JSONObject.NULL, params.get(4));
+    }
+
+    @Test
+    public void testReaderSteps() {
+        JsonReader r = new JsonReader(" [ {\"skip\": {\"deep\": [1, {\"x\": \"]\"}]}, \"keep\": \"v\"}, 2 ] ");
+        r.beginArray();
+        assertTrue(r.hasNext());
+        assertEquals(JsonReader.Token.BEGIN_OBJECT, r.peek());
+        r.beginObject();
+        assertEquals("skip", r.nextName());
+        r.skipValue();
+        assertEquals("keep", r.nextName());
+        assertEquals("v", r.nextString());
+        assertFalse(r.hasNext());
+        r.endObject();
+        assertEquals(JsonReader.Token.NUMBER, r.peek());
+        assertEquals(2, r.nextValue());
+        assertFalse(r.hasNext());
+        r.endArray();
+        r.endDocument();
+    }
+
+    @Test
+    public void testReaderRejectsMalformed() {
+        String[] malformed = {
+            "", "{", "[1,]", "[1 2]", "{\"a\" 1}", "{\"a\":1,}", "{a:1}", "[\"open]", "[01x]", "[-]",
+            "[1.]", "[tru]", "{} {}", "[\"\\x\"]", "[\"\\u12\"]", "[\"a\nb\"]"
+        };
+        for (String json : malformed) {
+            try {
+                JsonReader r = new JsonReader(json);
+                r.nextValue();
+                r.endDocument();
+                fail("accepted " + json);
+            } catch (JSONException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = JSONException.class)
+    public void testReaderDepthLimit() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append('[');
+        }
+        new JsonReader(sb.toString()).skipValue();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.api.server.rpc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Load test of batch requests: a few clients keep sending batches of balance and receipt lookups,
+ * each call blocking for about as long as a database read. Reports throughput and the latency
+ * percentiles of whole batches and of their first byte, once with the calls of a batch run one
+ * after the other and once with them run on the batch executor.
+ */
+public class RpcBatchBenchmark {
+
+    private static final int CLIENTS = 4;
+    private static final int BATCH_SIZE = 500;
+    private static final int BATCHES_PER_CLIENT = 10;
+    // time one call blocks, like a lookup that misses the caches
+    private static final long CALL_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private static RpcMsg lookup(Object params) {
+        LockSupport.parkNanos(CALL_NANOS);
+        return new RpcMsg("0x" + Integer.toHexString(((JSONArray) params).getString(0).hashCode()));
+    }
+
+    private static String batch(int client) {
+        JSONArray req = new JSONArray();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            req.put(new JSONObject()
+                    .put("jsonrpc", "2.0")
+                    .put("id", i)
+                    .put("method", i % 2 == 0 ? "eth_getBalance" : "eth_getTransactionReceipt")
+                    .put("params", new JSONArray().put("0x" + client + "" + i).put("latest")));
+        }
+        return req.toString();
+    }
+
+    /** Counts the bytes written and notes when the first one came. */
+    private static final class TimingStream extends OutputStream {
+        long firstByte = -1;
+        long bytes = 0;
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (firstByte < 0 && len > 0)
+                firstByte = System.nanoTime();
+            bytes += len;
+        }
+    }
+
+    @Test
+    public void testBatchThroughput() throws Exception {
+        Map<String, String> cfg = new HashMap<>();
+        for (LogEnum module : LogEnum.values()) {
+            cfg.put(module.name(), "ERROR");
+        }
+        AionLoggerFactory.init(cfg);
+
+        RpcMethods methods = new RpcMethods(Map.of(
+                "eth_getBalance", RpcBatchBenchmark::lookup,
+                "eth_getTransactionReceipt", RpcBatchBenchmark::lookup));
+
+        run("serial", new RpcProcessor(methods, 0));
+        run("parallel(" + RpcProcessor.BATCH_THREADS + ")", new RpcProcessor(methods, RpcProcessor.BATCH_THREADS));
+    }
+
+    private void run(String name, RpcProcessor processor) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Long> firstBytes = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            // warm up
+            assertEquals(BATCH_SIZE, new JSONArray(processor.process(batch(0))).length());
+
+            long start = System.nanoTime();
+            List<Future<?>> done = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                String req = batch(c);
+                done.add(clients.submit(() -> {
+                    for (int b = 0; b < BATCHES_PER_CLIENT; b++) {
+                        long t0 = System.nanoTime();
+                        TimingStream out = new TimingStream();
+                        try (RpcResponseStream resp = processor.stream(req)) {
+                            resp.writeTo(out);
+                        }
+                        long t1 = System.nanoTime();
+                        latencies.add(t1 - t0);
+                        firstBytes.add(out.firstByte - t0);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            int batches = CLIENTS * BATCHES_PER_CLIENT;
+            System.out.println(String.format(
+                    "%s: %d batches of %d in %d ms, %.0f calls/s; batch p50 %d ms p99 %d ms max %d ms; first byte p50 %d ms p99 %d ms",
+                    name, batches, BATCH_SIZE, elapsed / 1_000_000,
+                    batches * (double) BATCH_SIZE / elapsed * 1e9,
+                    percentile(latencies, 50), percentile(latencies, 99), percentile(latencies, 100),
+                    percentile(firstBytes, 50), percentile(firstBytes, 99)));
+        } finally {
+            clients.shutdownNow();
+            processor.shutdown();
+        }
+    }
+
+    /** @return the percentile in ms */
+    private static long percentile(List<Long> nanos, int p) {
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+        int i = Math.min(sorted.size() - 1, (int) Math.ceil(p / 100d * sorted.size()) - 1);
+        return sorted.get(Math.max(i, 0)) / 1_000_000;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.api.server.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RpcProcessorTest {
+
+    private RpcProcessor processor;
+
+    @Before
+    public void setup() {
+        Map<String, RpcMethods.RpcMethod> endpoints = Map.of(
+                "echo", params -> new RpcMsg(params),
+                // the first calls of a batch take the longest, so they complete last
+                "sleep", params -> {
+                    try {
+                        Thread.sleep(((JSONArray) params).getLong(0));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new RpcMsg(((JSONArray) params).getLong(0));
+                },
+                "fail", params -> {
+                    throw new IllegalStateException();
+                });
+        processor = new RpcProcessor(new RpcMethods(endpoints), 4);
+    }
+
+    @After
+    public void teardown() {
+        processor.shutdown();
+    }
+
+    private static String call(int id, String method, Object param) {
+        return new JSONObject()
+                .put("jsonrpc", "2.0")
+                .put("id", id)
+                .put("method", method)
+                .put("params", new JSONArray().put(param))
+                .toString();
+    }
+
+    @Test
+    public void testSingle() {
+        RpcResponseStream stream = processor.stream(call(7, "echo", "a"));
+        assertFalse(stream.isBatch());
+
+        JSONObject resp = new JSONObject(stream.collect());
+        assertEquals(7, resp.getInt("id"));
+        assertEquals("a", resp.getJSONArray("result").getString(0));
+    }
+
+    @Test
+    public void testBatchKeepsRequestOrder() throws Exception {
+        StringBuilder req = new StringBuilder("[");
+        int n = 16;
+        for (int i = 0; i < n; i++) {
+            if (i > 0) req.append(',');
+            req.append(call(i, "sleep", (n - i) * 5));
+        }
+        req.append(']');
+
+        RpcResponseStream stream = processor.stream(req.toString());
+        assertTrue(stream.isBatch());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream.writeTo(out);
+
+        JSONArray resp = new JSONArray(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(n, resp.length());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, resp.getJSONObject(i).getInt("id"));
+            assertEquals((n - i) * 5, resp.getJSONObject(i).getLong("result"));
+        }
+    }
+
+    @Test
+    public void testBatchErrorsStayInPlace() {
+        String req = "[" + call(0, "echo", 1) + ",1," + call(2, "nope", 1) + "," + call(3, "fail", 1)
+                + "," + call(4, "echo", 4) + "]";
+
+        JSONArray resp = new JSONArray(processor.process(req));
+        assertEquals(5, resp.length());
+        assertEquals(1, resp.getJSONObject(0).getJSONArray("result").getInt(0));
+        assertEquals(RpcError.INVALID_REQUEST.getCode(),
+                resp.getJSONObject(1).getJSONObject("error").getInt("code"));
+        assertEquals(RpcError.METHOD_NOT_FOUND.getCode(),
+                resp.getJSONObject(2).getJSONObject("error").getInt("code"));
+        assertEquals(RpcError.INTERNAL_ERROR.getCode(),
+                resp.getJSONObject(3).getJSONObject("error").getInt("code"));
+        assertEquals(4, resp.getJSONObject(4).getJSONArray("result").getInt(0));
+    }
+
+    @Test
+    public void testStreamReadMatchesCollect() throws Exception {
+        StringBuilder req = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) req.append(',');
+            req.append(call(i, "echo", "x" + i));
+        }
+        req.append(']');
+
+        String collected = processor.process(req.toString());
+        String read;
+        try (RpcResponseStream stream = processor.stream(req.toString())) {
+            read = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertEquals(collected, read);
+    }
+
+    @Test
+    public void testInvalidBatch() {
+        JSONObject empty = new JSONObject(processor.process("[]"));
+        assertEquals(RpcError.PARSE_ERROR.getCode(), empty.getJSONObject("error").getInt("code"));
+
+        JSONObject broken = new JSONObject(processor.process("[{\"id\":1,"));
+        assertEquals(RpcError.PARSE_ERROR.getCode(), broken.getJSONObject("error").getInt("code"));
+    }
+
+    @Test
+    public void testSerialBatch() {
+        RpcProcessor serial = new RpcProcessor(processor.apiHolder, 0);
+        try {
+            String req = "[" + call(0, "sleep", 20) + "," + call(1, "sleep", 1) + "]";
+            JSONArray resp = new JSONArray(serial.process(req));
+            assertEquals(0, resp.getJSONObject(0).getInt("id"));
+            assertEquals(1, resp.getJSONObject(1).getInt("id"));
+        } finally {
+            serial.shutdown();
+        }
+    }
+}
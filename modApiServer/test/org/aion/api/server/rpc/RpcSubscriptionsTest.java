@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.api.server.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.aion.api.server.types.Fltr;
+import org.aion.base.type.Address;
+import org.aion.base.util.TypeConverter;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.mcf.vm.types.Log;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.types.AionBlockSummary;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxReceipt;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RpcSubscriptionsTest {
+
+    private static final Address CONTRACT =
+            Address.wrap("a000000000000000000000000000000000000000000000000000000000000001");
+    private static final Address OTHER =
+            Address.wrap("a000000000000000000000000000000000000000000000000000000000000002");
+
+    /** Keeps what was pushed to it, up to its capacity. */
+    private static final class Session implements RpcSession {
+        private final List<JSONObject> messages = new ArrayList<>();
+        private int capacity = Integer.MAX_VALUE;
+        private volatile boolean open = true;
+
+        @Override
+        public synchronized boolean push(byte[] message) {
+            if (!open || messages.size() >= capacity) {
+                open = false;
+                return false;
+            }
+            messages.add(new JSONObject(new String(message, StandardCharsets.UTF_8)));
+            return true;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+    }
+
+    private static ECKey key;
+
+    private RpcSubscriptions subscriptions;
+    private RpcProcessor processor;
+
+    @BeforeClass
+    public static void setupKey() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        key = ECKeyFac.inst().create();
+    }
+
+    @Before
+    public void setup() {
+        subscriptions = new RpcSubscriptions();
+        processor = new RpcProcessor(new RpcMethods(Collections.emptyMap(), subscriptions), 0);
+    }
+
+    private JSONObject call(Session session, String method, JSONArray params) {
+        String req = new JSONObject().put("jsonrpc", "2.0").put("id", 1).put("method", method).put("params", params)
+                .toString();
+        JSONObject resp = new JSONObject(processor.stream(req, session).collect());
+        processor.activate(session);
+        return resp;
+    }
+
+    private String subscribe(Session session, JSONArray params) {
+        return call(session, "eth_subscribe", params).getString("result");
+    }
+
+    private static AionTransaction tx(long nonce, Address to) {
+        AionTransaction tx = new AionTransaction(BigInteger.valueOf(nonce).toByteArray(), to,
+                BigInteger.ONE.toByteArray(), new byte[0], 100_000L, 10_000_000_000L);
+        tx.sign(key);
+        return tx;
+    }
+
+    private static AionBlockSummary summary(long number, Log log) {
+        return summary(number, List.of(log));
+    }
+
+    private static AionBlockSummary summary(long number, List<Log> logs) {
+        AionTransaction tx = tx(0, CONTRACT);
+        AionTxReceipt receipt = new AionTxReceipt();
+        receipt.setTransaction(tx);
+        receipt.setLogs(new ArrayList<>(logs));
+
+        AionBlock block = new AionBlock(new byte[32], CONTRACT, receipt.getBloomFilter().getData(),
+                BigInteger.TEN.toByteArray(), number, 1530000000L, new byte[0], new byte[32], new byte[32],
+                new byte[32], new byte[32], new ArrayList<>(List.of(tx)), new byte[1408], 21000L, 15_000_000L);
+        AionBlockSummary summary = new AionBlockSummary(block, Collections.emptyMap(), List.of(receipt), List.of());
+        summary.setTotalDifficulty(BigInteger.valueOf(1000));
+        return summary;
+    }
+
+    private static JSONObject params(JSONObject notification) {
+        assertEquals("eth_subscription", notification.getString("method"));
+        return notification.getJSONObject("params");
+    }
+
+    @Test
+    public void testPendingTransactions() {
+        Session session = new Session();
+        String id = subscribe(session, new JSONArray().put("newPendingTransactions"));
+
+        AionTransaction tx = tx(7, OTHER);
+        subscriptions.onPendingTransaction(tx);
+
+        assertEquals(1, session.messages.size());
+        JSONObject p = params(session.messages.get(0));
+        assertEquals(id, p.getString("subscription"));
+        assertEquals(TypeConverter.toJsonHex(tx.getHash()), p.getString("result"));
+    }
+
+    @Test
+    public void testNotifiedOnlyOnceActive() {
+        Session session = new Session();
+        String req = new JSONObject().put("id", 1).put("method", "eth_subscribe")
+                .put("params", new JSONArray().put("newPendingTransactions")).toString();
+        String id = new JSONObject(processor.stream(req, session).collect()).getString("result");
+
+        // the response is not queued yet
+        subscriptions.onPendingTransaction(tx(0, OTHER));
+        assertTrue(session.messages.isEmpty());
+
+        processor.activate(session);
+        subscriptions.onPendingTransaction(tx(1, OTHER));
+        assertEquals(1, session.messages.size());
+        assertEquals(id, params(session.messages.get(0)).getString("subscription"));
+    }
+
+    @Test
+    public void testNewHeadsAndLogs() {
+        Session heads = new Session();
+        Session logs = new Session();
+        Session otherLogs = new Session();
+        String headsId = subscribe(heads, new JSONArray().put("newHeads"));
+        String logsId = subscribe(logs, new JSONArray().put("logs")
+                .put(new JSONObject().put("address", CONTRACT.toString())));
+        subscribe(otherLogs, new JSONArray().put("logs").put(new JSONObject().put("address", OTHER.toString())));
+
+        Log log = new Log(CONTRACT, List.of(new byte[32]), new byte[] {0x01, 0x02});
+        subscriptions.onBlock(summary(42, log));
+
+        assertEquals(1, heads.messages.size());
+        JSONObject head = params(heads.messages.get(0));
+        assertEquals(headsId, head.getString("subscription"));
+        assertEquals(42, head.getJSONObject("result").getLong("number"));
+        assertEquals("0x3e8", head.getJSONObject("result").getString("totalDifficulty"));
+
+        assertEquals(1, logs.messages.size());
+        JSONObject lg = params(logs.messages.get(0));
+        assertEquals(logsId, lg.getString("subscription"));
+        assertEquals("0x0102", lg.getJSONObject("result").getString("data"));
+        assertEquals(TypeConverter.toJsonHex(42), lg.getJSONObject("result").getString("blockNumber"));
+
+        assertTrue(otherLogs.messages.isEmpty());
+    }
+
+    @Test
+    public void testAllLogsOfBlockPushed() {
+        Session session = new Session();
+        subscribe(session, new JSONArray().put("logs").put(new JSONObject().put("address", CONTRACT.toString())));
+
+        // more than a polled filter keeps
+        int n = Fltr.EVTS_MAX + 500;
+        List<Log> logs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            logs.add(new Log(CONTRACT, List.of(new byte[32]), BigInteger.valueOf(i).toByteArray()));
+        }
+        subscriptions.onBlock(summary(7, logs));
+
+        assertEquals(n, session.messages.size());
+        assertEquals(TypeConverter.toJsonHex(n - 1),
+                params(session.messages.get(n - 1)).getJSONObject("result").getString("logIndex"));
+    }
+
+    @Test
+    public void testUnsubscribe() {
+        Session owner = new Session();
+        Session other = new Session();
+        String id = subscribe(owner, new JSONArray().put("newPendingTransactions"));
+
+        assertFalse(call(other, "eth_unsubscribe", new JSONArray().put(id)).getBoolean("result"));
+        assertTrue(call(owner, "eth_unsubscribe", new JSONArray().put(id)).getBoolean("result"));
+        assertFalse(call(owner, "eth_unsubscribe", new JSONArray().put(id)).getBoolean("result"));
+
+        subscriptions.onPendingTransaction(tx(0, OTHER));
+        assertTrue(owner.messages.isEmpty());
+        assertEquals(0, subscriptions.size());
+    }
+
+    @Test
+    public void testSlowSessionDropped() {
+        Session slow = new Session();
+        Session fast = new Session();
+        subscribe(slow, new JSONArray().put("newPendingTransactions"));
+        subscribe(slow, new JSONArray().put("newHeads"));
+        subscribe(fast, new JSONArray().put("newPendingTransactions"));
+        slow.capacity = 2;
+
+        for (int i = 0; i < 5; i++) {
+            subscriptions.onPendingTransaction(tx(i, OTHER));
+        }
+
+        assertEquals(2, slow.messages.size());
+        assertEquals(5, fast.messages.size());
+        assertEquals(1, subscriptions.size());
+    }
+
+    @Test
+    public void testInvalidSubscriptions() {
+        Session session = new Session();
+        assertEquals(RpcError.INVALID_PARAMS.getCode(),
+                call(session, "eth_subscribe", new JSONArray().put("syncing")).getJSONObject("error").getInt("code"));
+        assertEquals(RpcError.INVALID_PARAMS.getCode(),
+                call(session, "eth_subscribe", new JSONArray()).getJSONObject("error").getInt("code"));
+
+        for (int i = 0; i < RpcSubscriptions.SUBSCRIPTIONS_MAX; i++) {
+            subscribe(session, new JSONArray().put("newHeads"));
+        }
+        assertEquals(RpcError.NOT_ALLOWED.getCode(),
+                call(session, "eth_subscribe", new JSONArray().put("newHeads")).getJSONObject("error").getInt("code"));
+    }
+
+    @Test
+    public void testClosedSessionNotSubscribed() {
+        Session session = new Session();
+        session.open = false;
+        assertEquals(RpcError.NOT_ALLOWED.getCode(),
+                call(session, "eth_subscribe", new JSONArray().put("newHeads")).getJSONObject("error").getInt("code"));
+        assertEquals(0, subscriptions.size());
+    }
+
+    @Test
+    public void testSessionClosedWhileSubscribing() {
+        // open on the first check only, as if closed and removed while the request ran
+        RpcSession session = new RpcSession() {
+            private int checks = 0;
+
+            @Override
+            public boolean push(byte[] message) {
+                return false;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return checks++ == 0;
+            }
+        };
+        RpcMsg msg = subscriptions.subscribe(session, new JSONArray().put("newHeads"));
+        assertEquals(RpcError.NOT_ALLOWED, msg.getError());
+        assertEquals(0, subscriptions.size());
+    }
+
+    @Test
+    public void testConcurrentSubscriptionsLimited() throws InterruptedException {
+        Session session = new Session();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < RpcSubscriptions.SUBSCRIPTIONS_MAX / 2; i++) {
+                    subscriptions.subscribe(session, new JSONArray().put("newHeads"));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(RpcSubscriptions.SUBSCRIPTIONS_MAX, subscriptions.size());
+    }
+
+    @Test
+    public void testNoSubscriptionsWithoutSession() {
+        String req = new JSONObject().put("id", 1).put("method", "eth_subscribe")
+                .put("params", new JSONArray().put("newHeads")).toString();
+        JSONObject resp = new JSONObject(processor.process(req));
+        assertEquals(RpcError.METHOD_NOT_FOUND.getCode(), resp.getJSONObject("error").getInt("code"));
+        assertEquals(0, subscriptions.size());
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.api.server.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.vm.types.Bloom;
+import org.aion.mcf.vm.types.Log;
+import org.aion.zero.impl.core.IAionBlockchain;
+import org.aion.zero.impl.db.LogBloomIndex;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.types.AionTxInfo;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxReceipt;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FltrLgTest {
+
+    private static final int SECTION_SIZE = 8;
+    private static final int BLOCKS = 40;
+
+    private static final Address CONTRACT =
+            Address.wrap("a000000000000000000000000000000000000000000000000000000000000001");
+    private static final byte[] TOPIC = "matched".getBytes();
+    private static final byte[] OTHER_TOPIC = "other".getBytes();
+
+    private static ECKey key;
+
+    private final Map<Long, AionBlock> blocks = new HashMap<>();
+    private final Map<ByteArrayWrapper, AionTxInfo> infos = new HashMap<>();
+    private IAionBlockchain chain;
+    private MockDB database;
+
+    @BeforeClass
+    public static void setupKey() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        key = ECKeyFac.inst().create();
+    }
+
+    @Before
+    public void setup() {
+        database = new MockDB("bloomIndex");
+        database.open();
+
+        // logs of the filtered topic in sections 0, 2 and 4; section 1 and 3 only have other logs
+        for (long n = 0; n < BLOCKS; n++) {
+            boolean matched = n == 3 || n == 17 || n == 21 || n == 22 || n == 38;
+            addBlock(n, matched ? TOPIC : OTHER_TOPIC);
+        }
+
+        // only the methods the filter uses
+        chain =
+                (IAionBlockchain)
+                        Proxy.newProxyInstance(
+                                IAionBlockchain.class.getClassLoader(),
+                                new Class<?>[] {IAionBlockchain.class},
+                                (proxy, method, args) -> {
+                                    switch (method.getName()) {
+                                        case "getBlockByNumber":
+                                            return blocks.get((Long) args[0]);
+                                        case "getTransactionInfo":
+                                            return infos.get(new ByteArrayWrapper((byte[]) args[0]));
+                                        default:
+                                            throw new UnsupportedOperationException(method.getName());
+                                    }
+                                });
+    }
+
+    @After
+    public void teardown() {
+        database.close();
+    }
+
+    private void addBlock(long number, byte[] topic) {
+        AionTransaction tx =
+                new AionTransaction(BigInteger.valueOf(number).toByteArray(), CONTRACT,
+                        BigInteger.ONE.toByteArray(), new byte[0], 100_000L, 10_000_000_000L);
+        tx.sign(key);
+
+        AionTxReceipt receipt = new AionTxReceipt();
+        receipt.setTransaction(tx);
+        List<Log> logs = new ArrayList<>();
+        logs.add(new Log(CONTRACT, List.of(topic), BigInteger.valueOf(number).toByteArray()));
+        receipt.setLogs(logs);
+        infos.put(new ByteArrayWrapper(tx.getHash()), new AionTxInfo(receipt));
+
+        AionBlock block = new AionBlock(new byte[32], CONTRACT, receipt.getBloomFilter().getData(),
+                BigInteger.TEN.toByteArray(), number, 1530000000L, new byte[0], new byte[32], new byte[32],
+                new byte[32], new byte[32], new ArrayList<>(List.of(tx)), new byte[1408], 21000L, 15_000_000L);
+        blocks.put(number, block);
+    }
+
+    /** @return an index over the blocks up to the given number */
+    private LogBloomIndex index(long head) {
+        LogBloomIndex index = new LogBloomIndex(database, SECTION_SIZE);
+        for (long n = 0; n <= head; n++) {
+            index.add(n, blocks.get(n).getLogBloom());
+        }
+        assertEquals(head, index.getIndexedHead());
+        return index;
+    }
+
+    private static FltrLg filter() {
+        FltrLg filter = new FltrLg();
+        filter.setContractAddress(List.of(CONTRACT.toBytes()));
+        List<byte[][]> topics = new ArrayList<>();
+        topics.add(new byte[][] {TOPIC});
+        filter.setTopics(topics);
+        return filter;
+    }
+
+    private static List<String> blockNumbers(FltrLg filter) {
+        List<String> numbers = new ArrayList<>();
+        for (Object evt : filter.poll()) {
+            JSONObject json = ((EvtLg) evt).toJSON();
+            numbers.add(json.getString("blockNumber"));
+        }
+        return numbers;
+    }
+
+    /** @return the logs found by scanning every block, without the index */
+    private List<String> linearScan(long from, long to) {
+        FltrLg filter = filter();
+        filter.onBlockRange(from, to, chain, null);
+        return blockNumbers(filter);
+    }
+
+    @Test
+    public void testRangePastPartlyIndexedHead() {
+        // the head stops in the middle of section 2, e.g. while the index catches up
+        LogBloomIndex index = index(19);
+
+        FltrLg filter = filter();
+        filter.onBlockRange(0, BLOCKS - 1, chain, index);
+        List<String> found = blockNumbers(filter);
+
+        assertEquals(5, found.size());
+        assertEquals(linearScan(0, BLOCKS - 1), found);
+    }
+
+    @Test
+    public void testRangeOverIndexedSections() {
+        LogBloomIndex index = index(BLOCKS - 1);
+
+        for (long[] range : new long[][] {{0, 39}, {4, 21}, {8, 15}, {18, 18}, {22, 37}}) {
+            FltrLg filter = filter();
+            filter.onBlockRange(range[0], range[1], chain, index);
+            assertEquals(linearScan(range[0], range[1]), blockNumbers(filter));
+        }
+    }
+
+    @Test
+    public void testMatchSection() {
+        LogBloomIndex index = index(BLOCKS - 1);
+        FltrLg filter = filter();
+
+        for (long section = 0; section < BLOCKS / SECTION_SIZE; section++) {
+            BitSet candidates = filter.matchSection(index, section);
+            for (int offset = 0; offset < SECTION_SIZE; offset++) {
+                long n = section * SECTION_SIZE + offset;
+                boolean matches = filter.matchBloom(new Bloom(blocks.get(n).getLogBloom()));
+                assertEquals(matches, candidates.get(offset));
+            }
+        }
+        assertFalse(filter.matchSection(index, 2).isEmpty());
+        assertTrue(filter.matchSection(index, 1).isEmpty());
+        assertTrue(filter.matchSection(index, 3).isEmpty());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.api.server.types;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.aion.api.server.json.JsonWriter;
+import org.aion.api.server.rpc.RpcMsg;
+import org.aion.base.type.Address;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Serializes the response of eth_getBlockByNumber with full transactions for a full block, once
+ * through the org.json builders and once through the json writer, and reports the time and the
+ * bytes allocated per response.
+ */
+public class JsonCodecBenchmark {
+
+    private static final int TXS = 1000;
+    private static final int WARMUP = 200;
+    private static final int ROUNDS = 500;
+
+    @Test
+    public void testLargeBlock() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        ECKey key = ECKeyFac.inst().create();
+
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < TXS; i++) {
+            AionTransaction tx = new AionTransaction(BigInteger.valueOf(i).toByteArray(),
+                    Address.wrap(key.getAddress()), BigInteger.TEN.pow(18).toByteArray(), new byte[64], 100_000L,
+                    10_000_000_000L);
+            tx.sign(key);
+            txs.add(tx);
+        }
+        byte[] h = new byte[32];
+        AionBlock b = new AionBlock(h, Address.wrap(key.getAddress()), new byte[256],
+                BigInteger.valueOf(1234567).toByteArray(), 42L, 1530000000L, new byte[32], new byte[32], h, h, h, txs,
+                new byte[1408], 21000L * TXS, 15_000_000L);
+        BigInteger td = BigInteger.valueOf(987654321L);
+
+        Supplier<byte[]> tree = () -> new RpcMsg(Blk.AionBlockToJson(b, td, true)).toJson().toString()
+                .getBytes(StandardCharsets.UTF_8);
+        Supplier<byte[]> writer = () -> new RpcMsg(Blk.AionBlockToWritable(b, td, true, null)).toBytes();
+
+        assertEquals(new JSONObject(new String(tree.get(), StandardCharsets.UTF_8)).toString().length(),
+                new JSONObject(new String(writer.get(), StandardCharsets.UTF_8)).toString().length());
+
+        run("org.json", tree);
+        run("writer", writer);
+    }
+
+    private static void run(String name, Supplier<byte[]> serialize) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        long size = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            size = serialize.get().length;
+        }
+
+        long alloc0 = mx.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            serialize.get();
+        }
+        long elapsed = System.nanoTime() - t0;
+        long alloc = mx.getThreadAllocatedBytes(tid) - alloc0;
+
+        System.out.println(String.format("%s: block of %d txs, %d bytes; %.2f ms and %d KB allocated per response",
+                name, TXS, size, elapsed / 1e6 / ROUNDS, alloc / ROUNDS / 1024));
+    }
+}
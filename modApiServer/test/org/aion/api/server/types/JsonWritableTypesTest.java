@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.api.server.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.api.server.json.JsonWritable;
+import org.aion.base.type.Address;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.mcf.vm.types.Log;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.types.AionTxInfo;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxReceipt;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Checks that the streaming writers produce the same json as the org.json builders. */
+public class JsonWritableTypesTest {
+
+    private ECKey key;
+
+    @Before
+    public void setup() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        key = ECKeyFac.inst().create();
+    }
+
+    private AionTransaction tx(long nonce, Address to) {
+        AionTransaction tx = new AionTransaction(
+                BigInteger.valueOf(nonce).toByteArray(),
+                to,
+                BigInteger.TEN.pow(18).toByteArray(),
+                new byte[] {0x01, 0x02, (byte) 0xff},
+                100_000L,
+                10_000_000_000L);
+        tx.sign(key);
+        return tx;
+    }
+
+    private AionBlock block(int txs) {
+        List<AionTransaction> list = new ArrayList<>();
+        for (int i = 0; i < txs; i++) {
+            // every other one creates a contract
+            list.add(tx(i, i % 2 == 0 ? Address.wrap(key.getAddress()) : Address.EMPTY_ADDRESS()));
+        }
+        byte[] h = new byte[32];
+        h[31] = 7;
+        return new AionBlock(h, Address.wrap(key.getAddress()), new byte[256], BigInteger.valueOf(1234567).toByteArray(),
+                42L, 1530000000L, "extra".getBytes(), new byte[32], h, h, h, list, new byte[1408], 21000L * txs,
+                15_000_000L);
+    }
+
+    private AionTxReceipt receipt(AionTransaction tx) {
+        List<byte[]> topics = new ArrayList<>();
+        topics.add(new byte[32]);
+        topics.add(tx.getHash());
+
+        List<Log> logs = new ArrayList<>();
+        logs.add(new Log(Address.wrap(key.getAddress()), topics, new byte[] {0x0a}));
+        logs.add(new Log(Address.wrap(key.getAddress()), new ArrayList<>(), new byte[0]));
+
+        AionTxReceipt r = new AionTxReceipt();
+        r.setTransaction(tx);
+        r.setLogs(logs);
+        r.setNrgUsed(21000L);
+        r.setPostTxState(new byte[32]);
+        r.setExecutionResult(new byte[0]);
+        r.setError("");
+        return r;
+    }
+
+    private static void assertSameJson(Object expected, JsonWritable actual) {
+        String json = actual.toJSONString();
+        // compare parsed back, the builders keep longs that parse as integers
+        if (expected instanceof JSONObject) {
+            assertTrue(json, new JSONObject(expected.toString()).similar(new JSONObject(json)));
+        } else {
+            assertTrue(json, new JSONArray(expected.toString()).similar(new JSONArray(json)));
+        }
+        // same members and values, so the same length unless a number or string came out differently
+        assertEquals(expected.toString().length(), json.length());
+    }
+
+    @Test
+    public void testBlock() {
+        AionBlock b = block(4);
+        BigInteger td = BigInteger.valueOf(987654321L);
+
+        assertSameJson(Blk.AionBlockToJson(b, td, false), Blk.AionBlockToWritable(b, td, false, null));
+        assertSameJson(Blk.AionBlockToJson(b, td, true), Blk.AionBlockToWritable(b, td, true, null));
+
+        JSONObject withMainchain = (JSONObject) Blk.AionBlockToJson(b, td, true);
+        withMainchain.put("mainchain", true);
+        assertSameJson(withMainchain, Blk.AionBlockToWritable(b, td, true, true));
+    }
+
+    @Test
+    public void testEmptyBlock() {
+        AionBlock b = block(0);
+        assertSameJson(Blk.AionBlockToJson(b, BigInteger.ONE, true), Blk.AionBlockToWritable(b, BigInteger.ONE, true, null));
+    }
+
+    @Test
+    public void testTransaction() {
+        AionBlock b = block(3);
+        for (int i = 0; i < 3; i++) {
+            AionTransaction tx = b.getTransactionsList().get(i);
+            assertSameJson(Tx.AionTransactionToJSON(tx, b, i), Tx.AionTransactionToWritable(tx, b, i));
+
+            AionTxInfo info = new AionTxInfo(receipt(tx), b.getHash(), i);
+            assertSameJson(Tx.InfoToJSON(info, b), Tx.InfoToWritable(info, b));
+        }
+    }
+
+    @Test
+    public void testReceiptAndLogs() {
+        AionBlock b = block(2);
+        for (int i = 0; i < 2; i++) {
+            AionTransaction tx = b.getTransactionsList().get(i);
+            TxRecpt r = new TxRecpt(receipt(tx), b, i, 42000L, true);
+            assertSameJson(r.toJson(), r);
+
+            for (TxRecptLg lg : r.logs) {
+                EvtLg e = new EvtLg(lg);
+                assertSameJson(e.toJSON(), e::writeTo);
+            }
+        }
+    }
+}
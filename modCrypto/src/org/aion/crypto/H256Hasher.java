@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.crypto;
+
+import org.aion.crypto.hash.Blake2bNative;
+import org.spongycastle.crypto.digests.KeccakDigest;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Incremental 256-bit hashing with the algorithm selected by {@link HashUtil#setType}.
+ * <p>
+ * Fragments are fed with {@code update} and hashed together by {@link #digest()} or
+ * {@link #digestInto(byte[], int)}, so callers no longer concatenate them first. Each thread owns
+ * one instance, obtained through {@link #get()} and released by the digest; it must not be kept
+ * after that or handed to another thread. A hash computed while the thread's instance is still in
+ * use, e.g. by a getter evaluated inside an {@code update} argument, gets a fresh instance.
+ * </p>
+ * <p>
+ * The native blake2b binding hashes one slice of an array in a single call, so blake2b fragments
+ * are gathered in a buffer that is kept by the thread and grown as needed; a single update is hashed
+ * in place, without any copy. Keccak fragments go straight into a reused digest.
+ * </p>
+ */
+public final class H256Hasher {
+
+    public static final int DIGEST_LENGTH = 32;
+
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<H256Hasher> HASHER = ThreadLocal.withInitial(H256Hasher::new);
+
+    private final KeccakDigest keccak = new KeccakDigest(256);
+    private HashUtil.H256Type type;
+
+    private byte[] buf = new byte[256];
+    private int size;
+    // the only fragment so far, hashed where it is unless another one follows
+    private byte[] slice;
+    private int sliceOff;
+    private int sliceLen;
+    private boolean inUse;
+
+    private H256Hasher() {
+    }
+
+    /**
+     * Returns the hasher of the current thread, reset and set to the current hash type.
+     */
+    public static H256Hasher get() {
+        H256Hasher h = HASHER.get();
+        if (h.inUse) {
+            h = new H256Hasher();
+        }
+        h.reset();
+        h.inUse = true;
+        return h;
+    }
+
+    public H256Hasher update(byte[] in) {
+        return update(in, 0, in.length);
+    }
+
+    public H256Hasher update(byte[] in, int off, int len) {
+        try {
+            if (type == HashUtil.H256Type.KECCAK_256) {
+                keccak.update(in, off, len);
+            } else if (size == 0 && slice == null) {
+                Objects.checkFromIndexSize(off, len, in.length);
+                slice = in;
+                sliceOff = off;
+                sliceLen = len;
+            } else {
+                spillSlice();
+                ensureCapacity(len);
+                System.arraycopy(in, off, buf, size, len);
+                size += len;
+            }
+        } catch (RuntimeException e) {
+            reset();
+            throw e;
+        }
+        return this;
+    }
+
+    /**
+     * Hashes the remaining bytes of the buffer and moves its position to the limit.
+     */
+    public H256Hasher update(ByteBuffer in) {
+        int len = in.remaining();
+        if (in.hasArray()) {
+            update(in.array(), in.arrayOffset() + in.position(), len);
+            in.position(in.limit());
+        } else if (type == HashUtil.H256Type.KECCAK_256) {
+            byte[] chunk = new byte[Math.min(len, 4096)];
+            while (in.hasRemaining()) {
+                int n = Math.min(chunk.length, in.remaining());
+                in.get(chunk, 0, n);
+                keccak.update(chunk, 0, n);
+            }
+        } else {
+            spillSlice();
+            ensureCapacity(len);
+            in.get(buf, size, len);
+            size += len;
+        }
+        return this;
+    }
+
+    /**
+     * Writes the 32-byte hash of everything given since {@link #get()} at {@code out[off]} and
+     * resets the hasher.
+     */
+    public void digestInto(byte[] out, int off) {
+        try {
+            if (type == HashUtil.H256Type.KECCAK_256) {
+                keccak.doFinal(out, off);
+            } else if (slice != null) {
+                Blake2bNative.blake256(slice, sliceOff, sliceLen, out, off);
+            } else {
+                Blake2bNative.blake256(buf, 0, size, out, off);
+            }
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * @return the 32-byte hash of everything given since {@link #get()}; the hasher is reset.
+     */
+    public byte[] digest() {
+        byte[] out = new byte[DIGEST_LENGTH];
+        digestInto(out, 0);
+        return out;
+    }
+
+    private void spillSlice() {
+        if (slice != null) {
+            byte[] in = slice;
+            slice = null;
+            ensureCapacity(sliceLen);
+            System.arraycopy(in, sliceOff, buf, size, sliceLen);
+            size += sliceLen;
+        }
+    }
+
+    private void ensureCapacity(int len) {
+        if (size + len > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, size + len));
+        }
+    }
+
+    private void reset() {
+        keccak.reset();
+        size = 0;
+        slice = null;
+        inUse = false;
+        if (buf.length > MAX_RETAINED_BUFFER) {
+            buf = new byte[256];
+        }
+
+        switch (HashUtil.type) {
+            case BLAKE2B_256:
+            case KECCAK_256:
+                type = HashUtil.type;
+                break;
+            default:
+                throw new RuntimeException("h256 hash type is not set!");
+        }
+    }
+}
@@ -58,7 +58,8 @@ import static org.aion.crypto.HashUtil.H256Type.BLAKE2B_256;
  * <p>
  * It's recommended to use {@link #h256(byte[])}, {@link #h256(byte[], byte[])}
  * and {@link #h256(byte[], int, int)} whenever possible, instead of using the
- * specific hash algorithms
+ * specific hash algorithms. Inputs made of several fragments can be hashed
+ * through {@link H256Hasher} without concatenating them.
  * </p>
  *
  * @author jin, cleaned by yulong
@@ -119,14 +120,7 @@ public class HashUtil {
             return null;
         }
 
-        switch (type) {
-            case BLAKE2B_256:
-                return blake256Native(in1, in2);
-            case KECCAK_256:
-                return keccak256(in1, in2);
-            default:
-                throw new RuntimeException("h256 hash type is not set!");
-        }
+        return H256Hasher.get().update(in1).update(in2).digest();
     }
 
     /**
@@ -142,15 +136,12 @@ public class HashUtil {
         if (in == null || start < 0 || len <= 0)
             return null;
 
-        byte[] buf = Arrays.copyOfRange(in, start, start + len);
-        switch (type) {
-            case BLAKE2B_256:
-                return blake256(buf);
-            case KECCAK_256:
-                return keccak256(buf);
-            default:
-                throw new RuntimeException("h256 hash type is not set!");
+        if (start + len > in.length) {
+            // keep the zero padding of the former copy-based version
+            return H256Hasher.get().update(Arrays.copyOfRange(in, start, start + len)).digest();
         }
+
+        return H256Hasher.get().update(in, start, len).digest();
     }
 
     /**
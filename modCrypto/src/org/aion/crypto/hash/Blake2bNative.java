@@ -24,10 +24,24 @@
  ******************************************************************************/
 package org.aion.crypto.hash;
 
+import java.util.Objects;
+
 public class Blake2bNative {
 
     public static native byte[] blake256(byte[] in);
 
+    private static native void blake256Into(byte[] in, int inOff, int inLen, byte[] out, int outOff);
+
+    /**
+     * Writes the 32-byte hash of {@code in[inOff, inOff + inLen)} at {@code out[outOff]}, reading
+     * the input in place.
+     */
+    public static void blake256(byte[] in, int inOff, int inLen, byte[] out, int outOff) {
+        Objects.checkFromIndexSize(inOff, inLen, in.length);
+        Objects.checkFromIndexSize(outOff, 32, out.length);
+        blake256Into(in, inOff, inLen, out, outOff);
+    }
+
     /*
     Generate hashes to validate an Equihash solution
      */
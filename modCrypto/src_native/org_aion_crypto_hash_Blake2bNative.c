@@ -56,6 +56,29 @@ JNIEXPORT jbyteArray JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256
     return ret;
 }
 
+/*
+ * Class:     org_aion_crypto_hash_Blake2bNative
+ * Method:    blake256Into
+ * Signature: ([BII[BI)V
+ *
+ * Hashes a slice of the input in place, bounds are checked by the caller.
+ */
+JNIEXPORT void JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256Into
+  (JNIEnv *env, jclass cls, jbyteArray in, jint inOff, jint inLen, jbyteArray out, jint outOff)
+{
+    uint8_t hash[HASH_LEN];
+
+    // no JNI calls until released, blake2b only reads the slice
+    jbyte* inBuf = (*env)->GetPrimitiveArrayCritical(env, in, NULL);
+    if (inBuf == NULL) {
+        return;
+    }
+    blake2b(hash, inBuf + inOff, NULL, HASH_LEN, inLen, 0);
+    (*env)->ReleasePrimitiveArrayCritical(env, in, inBuf, JNI_ABORT);
+
+    (*env)->SetByteArrayRegion(env, out, outOff, HASH_LEN, (jbyte*) hash);
+}
+
 /*
  * Class:     org_aion_crypto_hash_Blake2bNative
  * Method:    genSolutionHash
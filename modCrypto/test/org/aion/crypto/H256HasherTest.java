@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.crypto;
+
+import org.aion.crypto.HashUtil.H256Type;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class H256HasherTest {
+
+    private static final H256Type[] TYPES = {H256Type.BLAKE2B_256, H256Type.KECCAK_256};
+
+    private final Random rnd = new Random(42);
+
+    @After
+    public void restoreType() {
+        HashUtil.setType(H256Type.BLAKE2B_256);
+    }
+
+    private byte[] random(int len) {
+        byte[] b = new byte[len];
+        rnd.nextBytes(b);
+        return b;
+    }
+
+    private static byte[] expected(H256Type type, byte[] in) {
+        return type == H256Type.BLAKE2B_256 ? HashUtil.blake256(in) : HashUtil.keccak256(in);
+    }
+
+    @Test
+    public void testWholeArray() {
+        for (H256Type type : TYPES) {
+            HashUtil.setType(type);
+            for (int len : new int[] {0, 1, 32, 255, 256, 257, 5000}) {
+                byte[] in = random(len);
+                assertArrayEquals(expected(type, in), H256Hasher.get().update(in).digest());
+                assertArrayEquals(expected(type, in), HashUtil.h256(in));
+            }
+        }
+    }
+
+    @Test
+    public void testFragments() {
+        for (H256Type type : TYPES) {
+            HashUtil.setType(type);
+            byte[] in = random(3000);
+
+            H256Hasher h = H256Hasher.get().update(Arrays.copyOfRange(in, 0, 10));
+            h.update(in, 10, 1000);
+            h.update(ByteBuffer.wrap(in, 1010, 990).slice());
+            ByteBuffer direct = ByteBuffer.allocateDirect(1000);
+            direct.put(in, 2000, 1000).flip();
+            h.update(direct);
+            assertEquals(0, direct.remaining());
+
+            byte[] out = new byte[40];
+            h.digestInto(out, 4);
+            assertArrayEquals(expected(type, in), Arrays.copyOfRange(out, 4, 36));
+
+            // the hasher has been reset by the digest
+            assertArrayEquals(expected(type, new byte[0]), H256Hasher.get().digest());
+        }
+    }
+
+    @Test
+    public void testHashUtilVariants() {
+        for (H256Type type : TYPES) {
+            HashUtil.setType(type);
+            byte[] a = random(100);
+            byte[] b = random(60);
+            byte[] ab = new byte[a.length + b.length];
+            System.arraycopy(a, 0, ab, 0, a.length);
+            System.arraycopy(b, 0, ab, a.length, b.length);
+
+            assertArrayEquals(expected(type, ab), HashUtil.h256(a, b));
+            assertArrayEquals(expected(type, Arrays.copyOfRange(ab, 30, 130)), HashUtil.h256(ab, 30, 100));
+            // past the end the input is zero padded
+            assertArrayEquals(expected(type, Arrays.copyOfRange(ab, 150, 200)), HashUtil.h256(ab, 150, 50));
+        }
+    }
+
+    @Test
+    public void testReleasedOnFailure() {
+        for (H256Type type : TYPES) {
+            HashUtil.setType(type);
+            H256Hasher h = H256Hasher.get();
+            h.digest();
+
+            try {
+                H256Hasher.get().update(new byte[10], 5, 10);
+                fail();
+            } catch (RuntimeException e) {
+                // expected
+            }
+            assertSame(h, H256Hasher.get());
+            h.digest();
+
+            try {
+                H256Hasher.get().update(random(10)).digestInto(new byte[40], 20);
+                fail();
+            } catch (RuntimeException e) {
+                // expected
+            }
+            assertSame(h, H256Hasher.get());
+            h.digest();
+        }
+    }
+
+    @Test
+    public void testNestedUse() {
+        byte[] a = random(50);
+        byte[] b = random(70);
+
+        H256Hasher outer = H256Hasher.get().update(a);
+        // a hash computed while the thread's hasher is in use must not disturb it
+        byte[] inner = HashUtil.h256(b, a);
+        outer.update(b);
+
+        assertArrayEquals(HashUtil.blake256(a, b), outer.digest());
+        assertArrayEquals(HashUtil.blake256(b, a), inner);
+    }
+}
@@ -40,6 +40,8 @@ import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.primitives.Longs;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 import org.aion.log.AionLoggerFactory;
@@ -381,6 +383,27 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
         return keys;
     }
 
+    @Override
+    public IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        check();
+
+        IKeyValueCursor<byte[], byte[]> cursor = database.cursor(range);
+
+        if (dirtyEntries.isEmpty()) {
+            return cursor;
+        }
+
+        // uncommitted changes in the range must be visible to the cursor
+        NavigableMap<ByteArrayWrapper, byte[]> changes = new TreeMap<>();
+        dirtyEntries.forEach((k, v) -> {
+            if (range.contains(k.getData())) {
+                changes.put(k, v);
+            }
+        });
+
+        return changes.isEmpty() ? cursor : new OverlayCursor(cursor, changes, range);
+    }
+
     /**
      * Returns the value from the cache if it exists or if not, loads it from the
      * database given the loader and return that.
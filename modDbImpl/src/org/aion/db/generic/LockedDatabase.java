@@ -29,6 +29,8 @@
 package org.aion.db.generic;
 
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
@@ -237,6 +239,22 @@ public class LockedDatabase implements IByteArrayKeyValueDatabase {
         }
     }
 
+    @Override
+    public IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            // the lock only covers the creation, the native cursors read a consistent view
+            return database.cursor(range);
+        } catch (Exception e) {
+            throw e;
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public Optional<byte[]> get(byte[] key) {
         // acquire read lock
@@ -0,0 +1,172 @@
+/* ******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.db.generic;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
+import org.aion.base.util.ByteArrayWrapper;
+
+/**
+ * Cursor combining the entries of an underlying database cursor with the changes that have not
+ * yet been committed to it. Uncommitted values take precedence over the database entries and
+ * uncommitted deletions (represented by {@code null} values) hide the matching database entries.
+ */
+class OverlayCursor implements IKeyValueCursor<byte[], byte[]> {
+
+    private final IKeyValueCursor<byte[], byte[]> base;
+    private final Iterator<Map.Entry<ByteArrayWrapper, byte[]>> changes;
+    private final KeyRange range;
+
+    private Map.Entry<ByteArrayWrapper, byte[]> change;
+    private boolean advanceBase, advanceChange;
+
+    private byte[] key;
+    private byte[] value;
+
+    /**
+     * @param base the cursor over the committed data
+     * @param changes the uncommitted changes restricted to the cursor range
+     * @param range the range used to create the base cursor
+     */
+    OverlayCursor(
+            IKeyValueCursor<byte[], byte[]> base,
+            NavigableMap<ByteArrayWrapper, byte[]> changes,
+            KeyRange range) {
+        this.base = base;
+        this.changes =
+                range.isReverse()
+                        ? changes.descendingMap().entrySet().iterator()
+                        : changes.entrySet().iterator();
+        this.range = range;
+        this.change = this.changes.hasNext() ? this.changes.next() : null;
+        findNext();
+    }
+
+    private void findNext() {
+        while (true) {
+            byte[] baseKey = base.isValid() ? base.key() : null;
+            byte[] changeKey = change != null ? change.getKey().getData() : null;
+
+            if (baseKey == null && changeKey == null) {
+                key = null;
+                value = null;
+                return;
+            }
+
+            int cmp;
+            if (changeKey == null) {
+                cmp = -1;
+            } else if (baseKey == null) {
+                cmp = 1;
+            } else {
+                cmp = KeyRange.compare(baseKey, changeKey);
+                if (range.isReverse()) {
+                    cmp = -cmp;
+                }
+            }
+
+            if (cmp < 0) {
+                // committed entry without changes
+                key = baseKey;
+                value = base.value();
+                advanceBase = true;
+                advanceChange = false;
+                return;
+            }
+
+            advanceBase = cmp == 0;
+            advanceChange = true;
+
+            if (change.getValue() == null) {
+                // deleted entry: skip it
+                moveForward();
+            } else {
+                key = changeKey;
+                value = range.isKeysOnly() ? null : change.getValue();
+                return;
+            }
+        }
+    }
+
+    private void moveForward() {
+        if (advanceBase) {
+            base.next();
+        }
+        if (advanceChange) {
+            change = changes.hasNext() ? changes.next() : null;
+        }
+    }
+
+    @Override
+    public boolean isValid() {
+        return key != null;
+    }
+
+    @Override
+    public byte[] key() {
+        if (key == null) {
+            throw new NoSuchElementException();
+        }
+        return key;
+    }
+
+    @Override
+    public byte[] value() {
+        if (key == null) {
+            throw new NoSuchElementException();
+        }
+        return value;
+    }
+
+    @Override
+    public void next() {
+        if (key == null) {
+            return;
+        }
+        moveForward();
+        findNext();
+    }
+
+    @Override
+    public void close() {
+        key = null;
+        value = null;
+        base.close();
+    }
+}
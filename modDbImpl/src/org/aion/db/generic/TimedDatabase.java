@@ -33,6 +33,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
 import org.aion.base.util.Hex;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
@@ -188,6 +190,16 @@ public class TimedDatabase implements IByteArrayKeyValueDatabase {
         return result;
     }
 
+    @Override
+    public IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        long t1 = System.nanoTime();
+        IKeyValueCursor<byte[], byte[]> result = database.cursor(range);
+        long t2 = System.nanoTime();
+
+        LOG.debug(database.toString() + " cursor() in " + (t2 - t1) + " ns.");
+        return result;
+    }
+
     @Override
     public Optional<byte[]> get(byte[] key) {
         long t1 = System.nanoTime();
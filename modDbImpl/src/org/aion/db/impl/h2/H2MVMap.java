@@ -34,8 +34,11 @@
  */
 package org.aion.db.impl.h2;
 
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
+import org.h2.mvstore.Cursor;
 import org.h2.mvstore.FileStore;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
@@ -46,6 +49,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /*
@@ -242,6 +246,90 @@ public class H2MVMap extends AbstractDB {
         return keys;
     }
 
+    @Override
+    public IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        check();
+
+        return new MVMapCursor(map, range);
+    }
+
+    /**
+     * Cursor over the ordered keys of a {@link MVMap}. Forward iteration uses the native map
+     * cursor, while reverse iteration navigates the map with {@link MVMap#lowerKey(Object)}.
+     */
+    private static class MVMapCursor implements IKeyValueCursor<byte[], byte[]> {
+
+        private final MVMap<byte[], byte[]> map;
+        private final KeyRange range;
+        private final Cursor<byte[], byte[]> forward;
+        private byte[] key;
+        private byte[] value;
+
+        MVMapCursor(MVMap<byte[], byte[]> map, KeyRange range) {
+            this.map = map;
+            this.range = range;
+
+            if (range.isReverse()) {
+                this.forward = null;
+                update(range.getEnd() == null ? map.lastKey() : map.lowerKey(range.getEnd()));
+            } else {
+                this.forward = map.cursor(range.getStart());
+                update(forward.hasNext() ? forward.next() : null);
+            }
+        }
+
+        private void update(byte[] k) {
+            if (k == null || (range.isReverse() ? range.isBeforeStart(k) : range.isAfterEnd(k))) {
+                key = null;
+                value = null;
+            } else {
+                key = k;
+                if (!range.isKeysOnly()) {
+                    value = forward != null ? forward.getValue() : map.get(k);
+                }
+            }
+        }
+
+        @Override
+        public boolean isValid() {
+            return key != null;
+        }
+
+        @Override
+        public byte[] key() {
+            if (key == null) {
+                throw new NoSuchElementException();
+            }
+            return key;
+        }
+
+        @Override
+        public byte[] value() {
+            if (key == null) {
+                throw new NoSuchElementException();
+            }
+            return value;
+        }
+
+        @Override
+        public void next() {
+            if (key == null) {
+                return;
+            }
+            if (forward != null) {
+                update(forward.hasNext() ? forward.next() : null);
+            } else {
+                update(map.lowerKey(key));
+            }
+        }
+
+        @Override
+        public void close() {
+            key = null;
+            value = null;
+        }
+    }
+
     @Override
     public byte[] getInternal(byte[] k) {
         return map.get(k);
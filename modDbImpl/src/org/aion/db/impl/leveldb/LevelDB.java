@@ -34,6 +34,8 @@
  */
 package org.aion.db.impl.leveldb;
 
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 import org.fusesource.leveldbjni.JniDBFactory;
@@ -44,6 +46,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -265,6 +268,111 @@ public class LevelDB extends AbstractDB {
         return set;
     }
 
+    @Override
+    public IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        check();
+
+        return new LevelDBCursor(db.iterator(), range);
+    }
+
+    /** Cursor backed by a native LevelDB iterator. */
+    private static class LevelDBCursor implements IKeyValueCursor<byte[], byte[]> {
+
+        private final DBIterator itr;
+        private final KeyRange range;
+        private Map.Entry<byte[], byte[]> entry;
+
+        LevelDBCursor(DBIterator itr, KeyRange range) {
+            this.itr = itr;
+            this.range = range;
+
+            if (range.isReverse()) {
+                if (range.getEnd() == null) {
+                    itr.seekToLast();
+                } else {
+                    // position on the first key >= end, then step back below the bound
+                    itr.seek(range.getEnd());
+                    if (!itr.hasNext()) {
+                        itr.seekToLast();
+                    } else if (itr.hasPrev()) {
+                        itr.prev();
+                    } else {
+                        // all keys are >= end
+                        this.entry = null;
+                        return;
+                    }
+                }
+            } else {
+                if (range.getStart() == null) {
+                    itr.seekToFirst();
+                } else {
+                    itr.seek(range.getStart());
+                }
+            }
+            updateEntry();
+        }
+
+        private void updateEntry() {
+            if (itr.hasNext()) {
+                Map.Entry<byte[], byte[]> e = itr.peekNext();
+                byte[] k = e.getKey();
+                entry = (range.isReverse() ? range.isBeforeStart(k) : range.isAfterEnd(k)) ? null : e;
+            } else {
+                entry = null;
+            }
+        }
+
+        @Override
+        public boolean isValid() {
+            return entry != null;
+        }
+
+        @Override
+        public byte[] key() {
+            if (entry == null) {
+                throw new NoSuchElementException();
+            }
+            return entry.getKey();
+        }
+
+        @Override
+        public byte[] value() {
+            if (entry == null) {
+                throw new NoSuchElementException();
+            }
+            return range.isKeysOnly() ? null : entry.getValue();
+        }
+
+        @Override
+        public void next() {
+            if (entry == null) {
+                return;
+            }
+            if (range.isReverse()) {
+                // the native iterator is positioned on the current entry
+                if (itr.hasPrev()) {
+                    itr.prev();
+                } else {
+                    entry = null;
+                    return;
+                }
+            } else {
+                itr.next();
+            }
+            updateEntry();
+        }
+
+        @Override
+        public void close() {
+            entry = null;
+            try {
+                itr.close();
+            } catch (IOException e) {
+                LOG.error("Unable to close iterator.", e);
+            }
+        }
+    }
+
     @Override
     public byte[] getInternal(byte[] k) {
         return db.get(k);
@@ -1,5 +1,8 @@
 package org.aion.db.impl.mockdb;
 
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
+import org.aion.base.db.KeySetCursor;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 
@@ -88,6 +91,15 @@ public class MockDB extends AbstractDB {
         return set;
     }
 
+    @Override
+    public IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        check();
+
+        // the keys are copied since the map is not ordered
+        Map<ByteArrayWrapper, byte[]> map = kv;
+        return new KeySetCursor(new TreeSet<>(map.keySet()), k -> map.get(ByteArrayWrapper.wrap(k)), range);
+    }
+
     @Override
     public byte[] getInternal(byte[] k) {
         return kv.get(ByteArrayWrapper.wrap(k));
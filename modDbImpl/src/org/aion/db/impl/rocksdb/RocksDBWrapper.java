@@ -22,6 +22,8 @@
  */
 package org.aion.db.impl.rocksdb;
 
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 import org.rocksdb.*;
@@ -225,6 +227,96 @@ public class RocksDBWrapper extends AbstractDB {
         return set;
     }
 
+    @Override
+    public IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        check();
+
+        return new RocksCursor(db.newIterator(), range);
+    }
+
+    /** Cursor backed by a native RocksDB iterator. */
+    private static class RocksCursor implements IKeyValueCursor<byte[], byte[]> {
+
+        private final RocksIterator itr;
+        private final KeyRange range;
+        private byte[] key;
+
+        RocksCursor(RocksIterator itr, KeyRange range) {
+            this.itr = itr;
+            this.range = range;
+
+            if (range.isReverse()) {
+                if (range.getEnd() == null) {
+                    itr.seekToLast();
+                } else {
+                    // position on the first key >= end, then step back below the bound
+                    itr.seek(range.getEnd());
+                    if (itr.isValid()) {
+                        itr.prev();
+                    } else {
+                        itr.seekToLast();
+                    }
+                }
+            } else {
+                if (range.getStart() == null) {
+                    itr.seekToFirst();
+                } else {
+                    itr.seek(range.getStart());
+                }
+            }
+            updateKey();
+        }
+
+        private void updateKey() {
+            if (itr.isValid()) {
+                byte[] k = itr.key();
+                key = (range.isReverse() ? range.isBeforeStart(k) : range.isAfterEnd(k)) ? null : k;
+            } else {
+                key = null;
+            }
+        }
+
+        @Override
+        public boolean isValid() {
+            return key != null;
+        }
+
+        @Override
+        public byte[] key() {
+            if (key == null) {
+                throw new NoSuchElementException();
+            }
+            return key;
+        }
+
+        @Override
+        public byte[] value() {
+            if (key == null) {
+                throw new NoSuchElementException();
+            }
+            return range.isKeysOnly() ? null : itr.value();
+        }
+
+        @Override
+        public void next() {
+            if (key == null) {
+                return;
+            }
+            if (range.isReverse()) {
+                itr.prev();
+            } else {
+                itr.next();
+            }
+            updateKey();
+        }
+
+        @Override
+        public void close() {
+            key = null;
+            itr.close();
+        }
+    }
+
     @Override
     protected byte[] getInternal(byte[] k) {
         try {
@@ -36,6 +36,8 @@ package org.aion.db.impl;
 
 import com.google.common.truth.Truth;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
 import org.aion.db.generic.DatabaseWithCache;
 import org.aion.db.generic.LockedDatabase;
 import org.aion.db.impl.h2.H2MVMap;
@@ -51,8 +53,10 @@ import org.junit.runners.Parameterized.Parameters;
 import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -663,6 +667,76 @@ public class DriverBaseTest {
         assertThat(keys.size()).isEqualTo(0);
     }
 
+    @Test
+    public void testCursor() {
+        byte[] other = "other".getBytes();
+
+        // empty store yields an exhausted cursor
+        assertThat(readKeys(KeyRange.all())).isEmpty();
+
+        db.put(k3, v3);
+        db.put(k1, v1);
+        db.put(k2, v2);
+        db.put(other, v1);
+
+        // full scan in key order
+        assertThat(readKeys(KeyRange.all())).containsExactly("key1", "key2", "key3", "other").inOrder();
+        assertThat(readKeys(KeyRange.all().reversed()))
+                .containsExactly("other", "key3", "key2", "key1")
+                .inOrder();
+
+        // prefix and bounded scans
+        assertThat(readKeys(KeyRange.withPrefix("key".getBytes())))
+                .containsExactly("key1", "key2", "key3")
+                .inOrder();
+        assertThat(readKeys(KeyRange.withPrefix("key".getBytes()).reversed()))
+                .containsExactly("key3", "key2", "key1")
+                .inOrder();
+        assertThat(readKeys(KeyRange.between(k2, other))).containsExactly("key2", "key3").inOrder();
+        assertThat(readKeys(KeyRange.between(k2, other).reversed()))
+                .containsExactly("key3", "key2")
+                .inOrder();
+
+        // values follow their keys
+        try (IKeyValueCursor<byte[], byte[]> cursor = db.cursor(KeyRange.withPrefix(k2))) {
+            assertThat(cursor.isValid()).isTrue();
+            assertThat(cursor.key()).isEqualTo(k2);
+            assertThat(cursor.value()).isEqualTo(v2);
+            cursor.next();
+            assertThat(cursor.isValid()).isFalse();
+        }
+
+        // keys only cursors skip loading the values
+        try (IKeyValueCursor<byte[], byte[]> cursor = db.cursor(KeyRange.withPrefix(k1).keysOnly())) {
+            assertThat(cursor.isValid()).isTrue();
+            assertThat(cursor.key()).isEqualTo(k1);
+            assertThat(cursor.value()).isNull();
+        }
+
+        // updates and deletions are visible
+        db.delete(k2);
+        db.put(k3, v1);
+        assertThat(readKeys(KeyRange.withPrefix("key".getBytes())))
+                .containsExactly("key1", "key3")
+                .inOrder();
+        try (IKeyValueCursor<byte[], byte[]> cursor = db.cursor(KeyRange.withPrefix(k3))) {
+            assertThat(cursor.value()).isEqualTo(v1);
+        }
+
+        // ensure unlocked
+        assertThat(db.isLocked()).isFalse();
+    }
+
+    private List<String> readKeys(KeyRange range) {
+        List<String> keys = new ArrayList<>();
+        try (IKeyValueCursor<byte[], byte[]> cursor = db.cursor(range)) {
+            for (; cursor.isValid(); cursor.next()) {
+                keys.add(new String(cursor.key()));
+            }
+        }
+        return keys;
+    }
+
     @Test
     public void testIsEmpty() {
         assertThat(db.isEmpty()).isTrue();
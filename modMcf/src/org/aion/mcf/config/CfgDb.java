@@ -47,12 +47,15 @@ public class CfgDb {
 
         public static final String BLOCK = "block";
         public static final String INDEX = "index";
+        public static final String BLOOM_INDEX = "bloomIndex";
 
         public static final String DETAILS = "details";
         public static final String STORAGE = "storage";
 
         public static final String STATE = "state";
         public static final String STATE_ARCHIVE = "stateArchive";
+        public static final String STATE_JOURNAL = "stateJournal";
+        public static final String STATE_SCAN = "stateScan";
         public static final String TRANSACTION = "transaction";
 
         public static final String TX_CACHE = "pendingtxCache";
@@ -65,6 +68,8 @@ public class CfgDb {
     private boolean check_integrity;
     private CfgPrune prune;
     private PruneOption prune_option;
+    // in megabytes
+    private int trie_cache_size;
 
     /**
      * Enabling expert mode allows more detailed database configurations.
@@ -83,6 +88,7 @@ public class CfgDb {
         this.check_integrity = true;
         this.prune = new CfgPrune(false);
         this.prune_option = PruneOption.FULL;
+        this.trie_cache_size = DEFAULT_TRIE_CACHE_SIZE;
 
         if (expert) {
             this.specificConfig = new HashMap<>();
@@ -107,6 +113,9 @@ public class CfgDb {
                         case "state-storage":
                             setPrune(Cfg.readValue(sr));
                             break;
+                        case "trie_cache_size":
+                            setTrieCacheSize(Integer.parseInt(Cfg.readValue(sr)));
+                            break;
                             // parameter considered only when expert==false
                         case "vendor":
                             this.vendor = Cfg.readValue(sr);
@@ -239,6 +248,14 @@ public class CfgDb {
             xmlWriter.writeCharacters(this.prune_option.toString());
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "Megabytes of memory used to keep recently used state trie nodes.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("trie_cache_size");
+            xmlWriter.writeCharacters(String.valueOf(this.trie_cache_size));
+            xmlWriter.writeEndElement();
+
             if (!expert) {
                 xmlWriter.writeCharacters("\r\n\t\t");
                 xmlWriter.writeComment(
@@ -294,6 +311,16 @@ public class CfgDb {
         return this.prune;
     }
 
+    /** @return byte budget of the trie node cache */
+    public long getTrieCacheSize() {
+        return this.trie_cache_size * Utils.MEGA_BYTE;
+    }
+
+    /** @param megabytes size of the trie node cache, at least {@link #MIN_TRIE_CACHE_SIZE} */
+    public void setTrieCacheSize(int megabytes) {
+        this.trie_cache_size = Math.max(MIN_TRIE_CACHE_SIZE, megabytes);
+    }
+
     /**
      * Number of topmost blocks present in the database in TOP pruning mode. Information about these
      * blocks is also kept in memory for later pruning.
@@ -307,6 +334,11 @@ public class CfgDb {
     /** At what frequency block states are being archived. */
     public static final int SPREAD_PRUNE_ARCHIVE_RATE = 10000;
 
+    /** Default size in megabytes of the cache holding clean trie nodes. */
+    public static final int DEFAULT_TRIE_CACHE_SIZE = 128;
+    /** Smallest accepted size in megabytes of the trie node cache. */
+    public static final int MIN_TRIE_CACHE_SIZE = 8;
+
     public enum PruneOption {
         FULL,
         TOP,
@@ -413,11 +445,12 @@ public class CfgDb {
                 Objects.equal(vendor, cfgDb.vendor) &&
                 Objects.equal(prune, cfgDb.prune) &&
                 prune_option == cfgDb.prune_option &&
+                trie_cache_size == cfgDb.trie_cache_size &&
                 Objects.equal(specificConfig, cfgDb.specificConfig);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(path, vendor, compression, check_integrity, prune, prune_option, expert, specificConfig);
+        return Objects.hashCode(path, vendor, compression, check_integrity, prune, prune_option, trie_cache_size, expert, specificConfig);
     }
 }
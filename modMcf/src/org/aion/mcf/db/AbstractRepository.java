@@ -43,6 +43,7 @@ import org.aion.mcf.core.AccountState;
 import org.aion.mcf.db.exception.InvalidFilePathException;
 import org.aion.mcf.ds.ArchivedDataSource;
 import org.aion.mcf.trie.JournalPruneDataSource;
+import org.aion.mcf.trie.NodeCache;
 import org.aion.mcf.trie.Trie;
 import org.aion.mcf.types.AbstractBlock;
 import org.slf4j.Logger;
@@ -67,11 +68,14 @@ public abstract class AbstractRepository<
     protected static final String TRANSACTION_DB = CfgDb.Names.TRANSACTION;
 
     protected static final String INDEX_DB = CfgDb.Names.INDEX;
+    protected static final String BLOOM_INDEX_DB = CfgDb.Names.BLOOM_INDEX;
     protected static final String BLOCK_DB = CfgDb.Names.BLOCK;
     protected static final String DETAILS_DB = CfgDb.Names.DETAILS;
     protected static final String STORAGE_DB = CfgDb.Names.STORAGE;
     protected static final String STATE_DB = CfgDb.Names.STATE;
     protected static final String STATE_ARCHIVE_DB = CfgDb.Names.STATE_ARCHIVE;
+    protected static final String STATE_JOURNAL_DB = CfgDb.Names.STATE_JOURNAL;
+    protected static final String STATE_SCAN_DB = CfgDb.Names.STATE_SCAN;
     protected static final String PENDING_TX_POOL_DB = CfgDb.Names.TX_POOL;
     protected static final String PENDING_TX_CACHE_DB = CfgDb.Names.TX_CACHE;
 
@@ -88,9 +92,11 @@ public abstract class AbstractRepository<
     protected IByteArrayKeyValueDatabase detailsDatabase;
     protected IByteArrayKeyValueDatabase storageDatabase;
     protected IByteArrayKeyValueDatabase indexDatabase;
+    protected IByteArrayKeyValueDatabase bloomIndexDatabase;
     protected IByteArrayKeyValueDatabase blockDatabase;
     protected IByteArrayKeyValueDatabase stateDatabase;
     protected IByteArrayKeyValueDatabase stateArchiveDatabase;
+    protected IByteArrayKeyValueDatabase stateJournalDatabase;
     protected IByteArrayKeyValueDatabase txPoolDatabase;
     protected IByteArrayKeyValueDatabase pendingTxCacheDatabase;
 
@@ -129,6 +135,9 @@ public abstract class AbstractRepository<
          * on startup, enforce conditions here for safety
          */
         Objects.requireNonNull(this.cfg);
+        if (this.cfg.getTrieCacheSize() >= 0) {
+            NodeCache.shared().setCapacity(this.cfg.getTrieCacheSize());
+        }
         //        Objects.requireNonNull(this.cfg.getVendorList());
         //        Objects.requireNonNull(this.cfg.getActiveVendor());
 
@@ -226,6 +235,16 @@ public abstract class AbstractRepository<
             this.indexDatabase = connectAndOpen(sharedProps);
             databaseGroup.add(indexDatabase);
 
+            // using index config for the log bloom index
+            sharedProps = cfg.getDatabaseConfig(INDEX_DB);
+            sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+            // completed sections are written once and read back rarely
+            sharedProps.setProperty(Props.ENABLE_HEAP_CACHE, "false");
+            sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+            sharedProps.setProperty(Props.DB_NAME, BLOOM_INDEX_DB);
+            this.bloomIndexDatabase = connectAndOpen(sharedProps);
+            databaseGroup.add(bloomIndexDatabase);
+
             // getting block specific properties
             sharedProps = cfg.getDatabaseConfig(BLOCK_DB);
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
@@ -258,6 +277,20 @@ public abstract class AbstractRepository<
             pruneBlockCount = this.cfg.getPruneConfig().getCurrentCount();
             archiveRate = this.cfg.getPruneConfig().getArchiveRate();
 
+            if (pruneEnabled) {
+                // using state config for the prune journal
+                sharedProps = cfg.getDatabaseConfig(STATE_DB);
+                sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+                // journal writes must reach the disk with the block they belong to
+                sharedProps.setProperty(Props.ENABLE_HEAP_CACHE, "false");
+                sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+                sharedProps.setProperty(Props.DB_NAME, STATE_JOURNAL_DB);
+                this.stateJournalDatabase = connectAndOpen(sharedProps);
+                databaseGroup.add(stateJournalDatabase);
+            } else {
+                stateJournalDatabase = null;
+            }
+
             if (pruneEnabled && this.cfg.getPruneConfig().isArchived()) {
                 // using state config for state_archive
                 sharedProps = cfg.getDatabaseConfig(STATE_DB);
@@ -268,7 +301,8 @@ public abstract class AbstractRepository<
                 databaseGroup.add(stateArchiveDatabase);
 
                 stateWithArchive = new ArchivedDataSource(stateDatabase, stateArchiveDatabase);
-                stateDSPrune = new JournalPruneDataSource(stateWithArchive);
+                stateDSPrune =
+                        new JournalPruneDataSource(stateWithArchive, stateJournalDatabase);
 
                 LOGGEN.info(
                         "Pruning and archiving ENABLED. Top block count set to {} and archive rate set to {}.",
@@ -277,7 +311,7 @@ public abstract class AbstractRepository<
             } else {
                 stateArchiveDatabase = null;
                 stateWithArchive = null;
-                stateDSPrune = new JournalPruneDataSource(stateDatabase);
+                stateDSPrune = new JournalPruneDataSource(stateDatabase, stateJournalDatabase);
 
                 if (pruneEnabled) {
                     LOGGEN.info("Pruning ENABLED. Top block count set to {}.", pruneBlockCount);
@@ -300,6 +334,21 @@ public abstract class AbstractRepository<
         return stateDatabase == null;
     }
 
+    /**
+     * Opens the store full scans of the state trie spill their visited node hashes to. The scans
+     * drop its contents when done, it only holds data while one runs.
+     */
+    protected IByteArrayKeyValueDatabase openStateScanDatabase() {
+        // using state config for the visited nodes of state scans
+        Properties sharedProps = cfg.getDatabaseConfig(STATE_DB);
+        sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+        // the point is to keep these hashes off the heap
+        sharedProps.setProperty(Props.ENABLE_HEAP_CACHE, "false");
+        sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+        sharedProps.setProperty(Props.DB_NAME, STATE_SCAN_DB);
+        return connectAndOpen(sharedProps);
+    }
+
     private IByteArrayKeyValueDatabase connectAndOpen(Properties info) {
         // get the database object
         IByteArrayKeyValueDatabase db = DatabaseFactory.connect(info, LOG.isDebugEnabled());
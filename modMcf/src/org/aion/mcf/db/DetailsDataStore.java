@@ -39,7 +39,9 @@ import static org.aion.base.util.ByteArrayWrapper.wrap;
 import java.util.*;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IContractDetails;
+import org.aion.base.db.IKeyValueCursor;
 import org.aion.base.db.IRepositoryConfig;
+import org.aion.base.db.KeyRange;
 import org.aion.base.type.Address;
 import org.aion.base.type.IBlockHeader;
 import org.aion.base.type.ITransaction;
@@ -141,13 +143,11 @@ public class DetailsDataStore<
         syncLargeStorage();
 
         // Get everything from the cache and calculate the size.
-        Set<byte[]> keysFromSource = detailsSrc.keys();
-        for (byte[] keyInSource : keysFromSource) {
-            // Fetch the value given the keys.
-            Optional<byte[]> valFromKey = detailsSrc.get(keyInSource);
-
-            // Add to total size given size of the value
-            totalSize += valFromKey.map(rawDetails -> rawDetails.length).orElse(0);
+        try (IKeyValueCursor<byte[], byte[]> cursor = detailsSrc.cursor(KeyRange.all())) {
+            for (; cursor.isValid(); cursor.next()) {
+                // Add to total size given size of the value
+                totalSize += cursor.value().length;
+            }
         }
 
         // Flushes both details and storage.
@@ -159,25 +159,16 @@ public class DetailsDataStore<
 
     public void syncLargeStorage() {
 
-        Set<byte[]> keysFromSource = detailsSrc.keys();
-        for (byte[] keyInSource : keysFromSource) {
+        try (IKeyValueCursor<byte[], byte[]> cursor = detailsSrc.cursor(KeyRange.all())) {
+            for (; cursor.isValid(); cursor.next()) {
+                // Decode the details.
+                IContractDetails<IDataWord> detailsImpl = repoConfig.contractDetailsImpl();
+                detailsImpl.setDataSource(storageDSPrune);
+                detailsImpl.decode(cursor.value());
 
-            // Fetch the value given the keys.
-            Optional<byte[]> rawDetails = detailsSrc.get(keyInSource);
-
-            // If it is null, just continue
-            if (!rawDetails.isPresent()) {
-                continue;
+                // IContractDetails details = entry.getValue();
+                detailsImpl.syncStorage();
             }
-
-            // Decode the details.
-            IContractDetails<IDataWord> detailsImpl = repoConfig.contractDetailsImpl();
-            detailsImpl.setDataSource(storageDSPrune);
-            detailsImpl.decode(rawDetails.get()); // We can safely get as we
-            // checked if it is present.
-
-            // IContractDetails details = entry.getValue();
-            detailsImpl.syncStorage();
         }
     }
 
@@ -206,11 +197,13 @@ public class DetailsDataStore<
     public static List<ByteArrayWrapper> dumpKeys(IByteArrayKeyValueDatabase ds) {
         ArrayList<ByteArrayWrapper> keys = new ArrayList<>();
 
-        for (byte[] key : ds.keys()) {
-            keys.add(wrap(key));
+        // the cursor returns the keys in sorted order
+        try (IKeyValueCursor<byte[], byte[]> cursor = ds.cursor(KeyRange.all().keysOnly())) {
+            for (; cursor.isValid(); cursor.next()) {
+                keys.add(wrap(cursor.key()));
+            }
         }
 
-        Collections.sort(keys);
         return keys;
     }
 }
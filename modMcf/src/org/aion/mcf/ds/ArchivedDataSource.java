@@ -34,6 +34,8 @@ import java.util.Optional;
 import java.util.Set;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IByteArrayKeyValueStore;
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
 
 /**
  * A data source with archived data that must no be deleted.
@@ -59,6 +61,11 @@ public class ArchivedDataSource implements IByteArrayKeyValueStore {
         return data.keys();
     }
 
+    @Override
+    public IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        return data.cursor(range);
+    }
+
     @Override
     public Optional<byte[]> get(byte[] key) {
         return data.get(key);
@@ -40,10 +40,10 @@ import static org.aion.rlp.Value.fromRlpEncoded;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aion.base.db.IByteArrayKeyValueStore;
 import org.aion.base.util.ByteArrayWrapper;
@@ -55,18 +55,31 @@ import org.slf4j.Logger;
 
 /**
  * Cache class
+ *
+ * <p>Dirty nodes are kept here until they are committed. Clean nodes of tries backed by a data
+ * source are kept in the shared, size-bounded {@link NodeCache}.
+ *
+ * <p>Modifications are serialized by the owning trie, while {@link #get(byte[])} takes no lock so
+ * that readers are never blocked by writers. Committed nodes are written to the data source before
+ * they leave this cache, so a reader always finds them in one of the three places.
  */
 public class Cache {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
-    private IByteArrayKeyValueStore dataSource;
-    private Map<ByteArrayWrapper, Node> nodes = new LinkedHashMap<>();
+    private volatile IByteArrayKeyValueStore dataSource;
+    private final NodeCache cleanNodes;
+    private Map<ByteArrayWrapper, Node> nodes = new ConcurrentHashMap<>();
     private Set<ByteArrayWrapper> removedNodes = new HashSet<>();
     private boolean isDirty;
 
     public Cache(IByteArrayKeyValueStore dataSource) {
+        this(dataSource, NodeCache.shared());
+    }
+
+    public Cache(IByteArrayKeyValueStore dataSource, NodeCache cleanNodes) {
         this.dataSource = dataSource;
+        this.cleanNodes = cleanNodes;
     }
 
     public synchronized void markRemoved(byte[] key) {
@@ -88,7 +101,7 @@ public class Cache {
         Value value = new Value(o);
         byte[] enc = value.encode();
         if (enc.length >= 32) {
-            byte[] sha = HashUtil.h256(value.encode());
+            byte[] sha = HashUtil.h256(enc);
             ByteArrayWrapper key = wrap(sha);
             this.nodes.put(key, new Node(value, true));
             this.removedNodes.remove(key);
@@ -99,20 +112,26 @@ public class Cache {
         return value;
     }
 
-    public synchronized Value get(byte[] key) {
+    public Value get(byte[] key) {
 
         ByteArrayWrapper wrappedKey = wrap(key);
         Node node = nodes.get(wrappedKey);
         if (node != null) {
-            // cachehits++;
             return node.getValue();
         }
-        if (this.dataSource != null) {
-            Optional<byte[]> data = (this.dataSource == null) ? Optional.empty() : this.dataSource.get(key);
+        IByteArrayKeyValueStore source = this.dataSource;
+        if (source != null) {
+            Value val = cleanNodes.get(source, wrappedKey);
+            if (val != null) {
+                return val;
+            }
+
+            Optional<byte[]> data = source.get(key);
             if (data.isPresent()) {
-                // dbhits++;
-                Value val = fromRlpEncoded(data.get());
-                nodes.put(wrappedKey, new Node(val, false));
+                val = fromRlpEncoded(data.get());
+                // decoded before it is shared since values decode lazily without synchronization
+                val.asObj();
+                cleanNodes.put(source, wrappedKey, val, data.get().length);
                 return val;
             }
         }
@@ -120,11 +139,24 @@ public class Cache {
         return null;
     }
 
+    /**
+     * Checks if the node is held by this cache or stored in the data source. Unlike {@link
+     * #get(byte[])} the shared {@link NodeCache} is not consulted, so nodes deleted from the data
+     * source by other means are reported as missing.
+     */
+    public synchronized boolean isPresent(byte[] key) {
+        if (nodes.containsKey(wrap(key))) {
+            return true;
+        }
+        return this.dataSource != null && this.dataSource.get(key).isPresent();
+    }
+
     public synchronized void delete(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
         this.nodes.remove(wrappedKey);
 
         if (dataSource != null) {
+            this.cleanNodes.remove(dataSource, wrappedKey);
             this.dataSource.delete(key);
         }
     }
@@ -143,32 +175,35 @@ public class Cache {
             return;
         }
 
-        // long start = System.nanoTime();
-        // int batchMemorySize = 0;
         Map<byte[], byte[]> batch = new HashMap<>();
-        for (ByteArrayWrapper nodeKey : this.nodes.keySet()) {
-            Node node = this.nodes.get(nodeKey);
+        Map<ByteArrayWrapper, Node> committed = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, Node> entry : this.nodes.entrySet()) {
+            Node node = entry.getValue();
 
             if (node == null || node.isDirty()) {
-                byte[] value;
+                byte[] key = entry.getKey().getData();
+
                 if (node != null) {
-                    node.setDirty(false);
-                    value = node.getValue().encode();
+                    batch.put(key, node.getValue().encode());
+                    committed.put(entry.getKey(), node);
                 } else {
-                    value = null;
+                    batch.put(key, null);
                 }
-
-                byte[] key = nodeKey.getData();
-
-                batch.put(key, value);
-                // batchMemorySize += length(key, value);
             }
         }
         for (ByteArrayWrapper removedNode : removedNodes) {
             batch.put(removedNode.getData(), null);
+            cleanNodes.remove(dataSource, removedNode);
         }
 
         this.dataSource.putBatch(batch);
+
+        // committed nodes are clean from now on and move to the shared cache
+        for (Map.Entry<ByteArrayWrapper, Node> entry : committed.entrySet()) {
+            Value value = entry.getValue().getValue();
+            cleanNodes.put(dataSource, entry.getKey(), value, value.encode().length);
+            this.nodes.remove(entry.getKey(), entry.getValue());
+        }
         this.isDirty = false;
         if (flushCache) {
             this.nodes.clear();
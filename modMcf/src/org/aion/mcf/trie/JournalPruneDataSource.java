@@ -40,10 +40,16 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IByteArrayKeyValueStore;
+import org.aion.base.db.IKeyValueCursor;
+import org.aion.base.db.KeyRange;
 import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.mcf.ds.ArchivedDataSource;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
 import org.slf4j.Logger;
 
 /**
@@ -52,17 +58,61 @@ import org.slf4j.Logger;
  * [storeBlockChanges] call). When the [prune] is called for a block the deletes for this block are
  * submitted to the underlying DataSource with respect to following inserts. E.g. if the key was
  * deleted at block N and then inserted at block N + 10 this delete is not passed.
+ *
+ * <p>When constructed with a journal database the per-block updates and the reference counts are
+ * persisted to it instead of being kept on the heap. Only the changes of the block currently being
+ * built are held in memory, so the pruning state survives restarts and the memory footprint does
+ * not depend on the number of blocks kept in the journal.
  */
 public class JournalPruneDataSource implements IByteArrayKeyValueStore {
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
+    // key prefixes used in the journal database
+    private static final byte REF_PREFIX = 'r';
+    private static final byte UPDATES_PREFIX = 'u';
+    private static final byte NUMBER_PREFIX = 'n';
+
     private class Updates {
         ByteArrayWrapper blockHeader;
         long blockNumber;
         Set<ByteArrayWrapper> insertedKeys = new HashSet<>();
         Set<ByteArrayWrapper> deletedKeys = new HashSet<>();
+
+        byte[] getEncoded() {
+            return RLP.encodeList(
+                    RLP.encodeElement(blockHeader.getData()),
+                    RLP.encodeLong(blockNumber),
+                    encodeKeys(insertedKeys),
+                    encodeKeys(deletedKeys));
+        }
+    }
+
+    private Updates decodeUpdates(byte[] encoded) {
+        RLPList list = (RLPList) RLP.decode2(encoded).get(0);
+
+        Updates updates = new Updates();
+        updates.blockHeader = ByteArrayWrapper.wrap(list.get(0).getRLPData());
+        updates.blockNumber = ByteUtil.byteArrayToLong(list.get(1).getRLPData());
+        decodeKeys((RLPList) list.get(2), updates.insertedKeys);
+        decodeKeys((RLPList) list.get(3), updates.deletedKeys);
+        return updates;
+    }
+
+    private static byte[] encodeKeys(Collection<ByteArrayWrapper> keys) {
+        byte[][] elements = new byte[keys.size()][];
+        int i = 0;
+        for (ByteArrayWrapper key : keys) {
+            elements[i++] = RLP.encodeElement(key.getData());
+        }
+        return RLP.encodeList(elements);
+    }
+
+    private static void decodeKeys(RLPList list, Collection<ByteArrayWrapper> keys) {
+        for (RLPElement element : list) {
+            keys.add(ByteArrayWrapper.wrap(element.getRLPData()));
+        }
     }
 
     private static class Ref {
@@ -78,12 +128,28 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
             return journalRefs + (dbRef ? 1 : 0);
         }
 
+        byte[] getEncoded() {
+            return RLP.encodeList(RLP.encodeInt(journalRefs), RLP.encodeByte((byte) (dbRef ? 1 : 0)));
+        }
+
+        static Ref decode(byte[] encoded) {
+            RLPList list = (RLPList) RLP.decode2(encoded).get(0);
+
+            Ref ref = new Ref(ByteUtil.byteArrayToInt(list.get(1).getRLPData()) == 1);
+            ref.journalRefs = ByteUtil.byteArrayToInt(list.get(0).getRLPData());
+            return ref;
+        }
+
         @Override
         public String toString() {
             return "refs: " + String.valueOf(journalRefs) + " db: " + String.valueOf(dbRef);
         }
     }
 
+    /**
+     * When the journal is persisted this map only holds the references touched since the last
+     * write to the journal database.
+     */
     Map<ByteArrayWrapper, Ref> refCount = new HashMap<>();
 
     private IByteArrayKeyValueStore src;
@@ -93,9 +159,28 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
     private AtomicBoolean enabled = new AtomicBoolean(false);
     private final boolean hasArchive;
 
+    // persistent journal; null when the journal is kept on the heap
+    private final IByteArrayKeyValueDatabase journal;
+    // references that reached zero since the last write to the journal database
+    private final Set<ByteArrayWrapper> releasedRefs = new HashSet<>();
+    // journal modifications not yet written to the journal database (null values are deletes)
+    private final Map<ByteArrayWrapper, byte[]> pendingJournal = new HashMap<>();
+
     public JournalPruneDataSource(IByteArrayKeyValueStore src) {
+        this(src, null);
+    }
+
+    /**
+     * Creates a prune data source which persists its journal to the given database.
+     *
+     * @param src the data source being pruned
+     * @param journal the database storing the block updates and reference counts; when {@code
+     *     null} the journal is kept in memory
+     */
+    public JournalPruneDataSource(IByteArrayKeyValueStore src, IByteArrayKeyValueDatabase journal) {
         this.src = src;
         this.hasArchive = src instanceof ArchivedDataSource;
+        this.journal = journal;
     }
 
     public void setPruneEnabled(boolean _enabled) {
@@ -106,6 +191,10 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
         return hasArchive;
     }
 
+    public boolean isJournalPersisted() {
+        return journal != null;
+    }
+
     public void put(byte[] key, byte[] value) {
         checkNotNull(key);
 
@@ -214,19 +303,39 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
     }
 
     private void incRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
+        Ref cnt = getRef(keyW);
         if (cnt == null) {
             cnt = new Ref(src.get(keyW.getData()).isPresent());
             refCount.put(keyW, cnt);
+            releasedRefs.remove(keyW);
         }
         cnt.journalRefs++;
     }
 
     private Ref decRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
+        Ref cnt = getRef(keyW);
         cnt.journalRefs -= 1;
         if (cnt.journalRefs == 0) {
             refCount.remove(keyW);
+            if (journal != null) {
+                releasedRefs.add(keyW);
+            }
+        }
+        return cnt;
+    }
+
+    /**
+     * Retrieves the reference count for the given key, loading it from the journal database when
+     * it is not already in memory.
+     */
+    private Ref getRef(ByteArrayWrapper keyW) {
+        Ref cnt = refCount.get(keyW);
+        if (cnt == null && journal != null && !releasedRefs.contains(keyW)) {
+            Optional<byte[]> encoded = journal.get(journalKey(REF_PREFIX, keyW.getData()).getData());
+            if (encoded.isPresent()) {
+                cnt = Ref.decode(encoded.get());
+                refCount.put(keyW, cnt);
+            }
         }
         return cnt;
     }
@@ -242,7 +351,12 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
             ByteArrayWrapper hash = ByteArrayWrapper.wrap(blockHash);
             currentUpdates.blockHeader = hash;
             currentUpdates.blockNumber = blockNumber;
-            blockUpdates.put(hash, currentUpdates);
+            if (journal == null) {
+                blockUpdates.put(hash, currentUpdates);
+            } else {
+                storeUpdates(currentUpdates);
+                flushJournal();
+            }
             currentUpdates = new Updates();
         } finally {
             lock.writeLock().unlock();
@@ -258,7 +372,7 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
 
         try {
             ByteArrayWrapper blockHashW = ByteArrayWrapper.wrap(blockHash);
-            Updates updates = blockUpdates.remove(blockHashW);
+            Updates updates = removeUpdates(blockHashW);
             if (updates != null) {
                 for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
                     decRef(insertedKey).dbRef = true;
@@ -266,40 +380,139 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
 
                 List<byte[]> batchRemove = new ArrayList<>();
                 for (ByteArrayWrapper key : updates.deletedKeys) {
-                    Ref ref = refCount.get(key);
+                    Ref ref = getRef(key);
                     if (ref == null || ref.journalRefs == 0) {
                         batchRemove.add(key.getData());
                     } else if (ref != null) {
                         ref.dbRef = false;
                     }
                 }
-                src.deleteBatch(batchRemove);
 
-                rollbackForkBlocks(blockNumber);
+                rollbackForkBlocks(blockNumber, batchRemove);
+
+                // the journal is updated before the deletes are applied to the source such that
+                // an interruption in between can only leave unreferenced data behind
+                flushJournal();
+                src.deleteBatch(batchRemove);
+                for (byte[] key : batchRemove) {
+                    NodeCache.shared().remove(this, ByteArrayWrapper.wrap(key));
+                }
             }
         } finally {
             lock.writeLock().unlock();
         }
     }
 
-    private void rollbackForkBlocks(long blockNum) {
-        for (Updates updates : new ArrayList<>(blockUpdates.values())) {
-            if (updates.blockNumber == blockNum) {
-                rollback(updates.blockHeader);
+    private void rollbackForkBlocks(long blockNum, List<byte[]> batchRemove) {
+        if (journal == null) {
+            for (Updates updates : new ArrayList<>(blockUpdates.values())) {
+                if (updates.blockNumber == blockNum) {
+                    rollback(updates.blockHeader, batchRemove);
+                }
+            }
+        } else {
+            for (ByteArrayWrapper hash : getBlockHashes(blockNum)) {
+                rollback(hash, batchRemove);
             }
         }
     }
 
-    private void rollback(ByteArrayWrapper blockHashW) {
-        Updates updates = blockUpdates.remove(blockHashW);
-        List<byte[]> batchRemove = new ArrayList<>();
+    private void rollback(ByteArrayWrapper blockHashW, List<byte[]> batchRemove) {
+        Updates updates = removeUpdates(blockHashW);
         for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
             Ref ref = decRef(insertedKey);
             if (ref.getTotRefs() == 0) {
                 batchRemove.add(insertedKey.getData());
             }
         }
-        src.deleteBatch(batchRemove);
+    }
+
+    // journal persistence ------------------------------------------------------------------------
+
+    private static ByteArrayWrapper journalKey(byte prefix, byte[] key) {
+        byte[] data = new byte[key.length + 1];
+        data[0] = prefix;
+        System.arraycopy(key, 0, data, 1, key.length);
+        return ByteArrayWrapper.wrap(data);
+    }
+
+    private Optional<byte[]> readJournal(ByteArrayWrapper key) {
+        if (pendingJournal.containsKey(key)) {
+            return Optional.ofNullable(pendingJournal.get(key));
+        }
+        return journal.get(key.getData());
+    }
+
+    private void storeUpdates(Updates updates) {
+        pendingJournal.put(
+                journalKey(UPDATES_PREFIX, updates.blockHeader.getData()), updates.getEncoded());
+
+        List<ByteArrayWrapper> hashes = getBlockHashes(updates.blockNumber);
+        if (!hashes.contains(updates.blockHeader)) {
+            hashes.add(updates.blockHeader);
+            storeBlockHashes(updates.blockNumber, hashes);
+        }
+    }
+
+    private Updates removeUpdates(ByteArrayWrapper blockHash) {
+        if (journal == null) {
+            return blockUpdates.remove(blockHash);
+        }
+
+        ByteArrayWrapper key = journalKey(UPDATES_PREFIX, blockHash.getData());
+        Optional<byte[]> encoded = readJournal(key);
+        if (!encoded.isPresent()) {
+            return null;
+        }
+
+        Updates updates = decodeUpdates(encoded.get());
+        pendingJournal.put(key, null);
+
+        List<ByteArrayWrapper> hashes = getBlockHashes(updates.blockNumber);
+        hashes.remove(blockHash);
+        storeBlockHashes(updates.blockNumber, hashes);
+
+        return updates;
+    }
+
+    private List<ByteArrayWrapper> getBlockHashes(long blockNumber) {
+        List<ByteArrayWrapper> hashes = new ArrayList<>();
+        readJournal(journalKey(NUMBER_PREFIX, ByteUtil.longToBytes(blockNumber)))
+                .ifPresent(encoded -> decodeKeys((RLPList) RLP.decode2(encoded).get(0), hashes));
+        return hashes;
+    }
+
+    private void storeBlockHashes(long blockNumber, List<ByteArrayWrapper> hashes) {
+        pendingJournal.put(
+                journalKey(NUMBER_PREFIX, ByteUtil.longToBytes(blockNumber)),
+                hashes.isEmpty() ? null : encodeKeys(hashes));
+    }
+
+    /**
+     * Writes the reference counts touched since the last call together with the pending block
+     * updates to the journal database in a single batch.
+     */
+    private void flushJournal() {
+        if (journal == null) {
+            return;
+        }
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : pendingJournal.entrySet()) {
+            batch.put(e.getKey().getData(), e.getValue());
+        }
+        for (Map.Entry<ByteArrayWrapper, Ref> e : refCount.entrySet()) {
+            batch.put(journalKey(REF_PREFIX, e.getKey().getData()).getData(), e.getValue().getEncoded());
+        }
+        for (ByteArrayWrapper key : releasedRefs) {
+            batch.put(journalKey(REF_PREFIX, key.getData()).getData(), null);
+        }
+
+        journal.putBatch(batch);
+
+        pendingJournal.clear();
+        refCount.clear();
+        releasedRefs.clear();
     }
 
     public Map<ByteArrayWrapper, Ref> getRefCount() {
@@ -352,6 +565,19 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
         }
     }
 
+    @Override
+    public IKeyValueCursor<byte[], byte[]> cursor(KeyRange range) {
+        lock.readLock().lock();
+        try {
+            return src.cursor(range);
+        } catch (Exception e) {
+            LOG.error("Could not create cursor due to ", e);
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public void close() {
         lock.writeLock().lock();
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ */
+
+package org.aion.mcf.trie;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.rlp.Value;
+
+/**
+ * Size-bounded cache of clean (already persisted) trie nodes, shared by all tries.
+ *
+ * <p>Entries are weighed by the size of their RLP encoding and evicted in least recently used
+ * order once the byte budget is exceeded. Dirty nodes are never stored here: they stay in the
+ * {@link Cache} of the trie that created them until they are committed.
+ *
+ * <p>Nodes are content addressed, but a node being present in one database does not mean it is
+ * present in another, so every entry is tagged with the data source it was read from or written
+ * to and is only returned for that same data source. The tag is weakly referenced so cached
+ * nodes never keep a discarded in-memory data source reachable.
+ *
+ * <p>The cache is split into independently locked segments to keep contention low when several
+ * threads read state at the same time.
+ */
+public final class NodeCache {
+
+    /** Default byte budget, used until the repository applies the configured one. */
+    public static final long DEFAULT_CAPACITY = 128L * 1024 * 1024;
+
+    private static final int SEGMENTS = 16;
+
+    // approximate heap used by the key, entry and decoded value on top of the encoding
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private static final NodeCache SHARED = new NodeCache(DEFAULT_CAPACITY);
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private volatile long segmentCapacity;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public NodeCache(long capacity) {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        setCapacity(capacity);
+    }
+
+    /** @return the cache shared by all tries */
+    public static NodeCache shared() {
+        return SHARED;
+    }
+
+    /** Sets the byte budget, evicting entries right away if the cache is over the new budget. */
+    public void setCapacity(long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity must not be negative.");
+        }
+        segmentCapacity = capacity / SEGMENTS;
+        for (Segment segment : segments) {
+            segment.evict();
+        }
+    }
+
+    public long getCapacity() {
+        return segmentCapacity * SEGMENTS;
+    }
+
+    /** @return the cached node or {@code null} if it is not cached for the given data source */
+    public Value get(Object source, ByteArrayWrapper key) {
+        Value value = segmentFor(key).get(source, key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Caches a clean node.
+     *
+     * @param encodedSize length of the RLP encoding of the node
+     */
+    public void put(Object source, ByteArrayWrapper key, Value value, int encodedSize) {
+        segmentFor(key).put(source, key, value, encodedSize + ENTRY_OVERHEAD);
+    }
+
+    public void remove(Object source, ByteArrayWrapper key) {
+        segmentFor(key).remove(source, key);
+    }
+
+    /** Drops every entry, without affecting the counters. */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** @return the approximate number of bytes held by the cache */
+    public long getWeight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.getWeight();
+        }
+        return weight;
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.getSize();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "NodeCache{size="
+                + getSize()
+                + ", weight="
+                + getWeight()
+                + ", capacity="
+                + getCapacity()
+                + ", hits="
+                + getHits()
+                + ", misses="
+                + getMisses()
+                + ", evictions="
+                + getEvictions()
+                + "}";
+    }
+
+    private Segment segmentFor(ByteArrayWrapper key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Entry {
+        final WeakReference<Object> source;
+        final Value value;
+        final int weight;
+
+        Entry(Object source, Value value, int weight) {
+            this.source = new WeakReference<>(source);
+            this.value = value;
+            this.weight = weight;
+        }
+
+        boolean isFrom(Object source) {
+            return this.source.get() == source;
+        }
+    }
+
+    private final class Segment {
+        // access ordered, the eldest entry is the least recently used one
+        private final LinkedHashMap<ByteArrayWrapper, Entry> entries =
+                new LinkedHashMap<>(64, 0.75f, true);
+        private long weight = 0;
+
+        synchronized Value get(Object source, ByteArrayWrapper key) {
+            Entry entry = entries.get(key);
+            return entry != null && entry.isFrom(source) ? entry.value : null;
+        }
+
+        synchronized void put(Object source, ByteArrayWrapper key, Value value, int entryWeight) {
+            Entry previous = entries.put(key, new Entry(source, value, entryWeight));
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += entryWeight;
+            evict();
+        }
+
+        synchronized void remove(Object source, ByteArrayWrapper key) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isFrom(source)) {
+                entries.remove(key);
+                weight -= entry.weight;
+            }
+        }
+
+        synchronized void evict() {
+            Iterator<Map.Entry<ByteArrayWrapper, Entry>> it = entries.entrySet().iterator();
+            while (weight > segmentCapacity && it.hasNext()) {
+                weight -= it.next().getValue().weight;
+                it.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
+
+        synchronized long getWeight() {
+            return weight;
+        }
+
+        synchronized int getSize() {
+            return entries.size();
+        }
+    }
+}
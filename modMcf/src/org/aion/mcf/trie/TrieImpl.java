@@ -39,6 +39,8 @@ import static org.spongycastle.util.Arrays.concatenate;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IByteArrayKeyValueStore;
 import org.aion.base.util.ByteArrayWrapper;
@@ -67,6 +69,11 @@ import org.aion.rlp.Value;
  *
  * <p><b>Note:</b> the data isn't persisted unless `sync` is explicitly called.
  *
+ * <p>Modifications are serialized on the cache, but lookups are lock-free: a read takes a snapshot
+ * of the current root and resolves nodes from it, while writers build new nodes next to the old
+ * ones and publish the new root with a single volatile write. Scans of a given state root are
+ * lock-free in the same way.
+ *
  * <p>This Trie implementation supports node pruning (i.e. obsolete nodes are marked for removal in
  * the Cache and actually removed from the underlying storage on [sync] call), but the algorithm is
  * not suitable for the most general case. In general case a trie node might be referenced from
@@ -81,12 +88,19 @@ public class TrieImpl implements Trie {
     private static byte PAIR_SIZE = 2;
     private static byte LIST_SIZE = 17;
     private static int MAX_SIZE = 20;
+    private static final Object SCAN_SPILL_LOCK = new Object();
+
+    // shared by all scans; kept apart from the common pool because the scan tasks block on reads
+    private static final ForkJoinPool SCAN_POOL =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
     @Deprecated private Object prevRoot;
-    private Object root;
+    private volatile Object root;
     private Cache cache;
 
     private boolean pruningEnabled;
+    // opens the store full scans spill visited node hashes to, null to keep them on the heap only
+    private Supplier<IByteArrayKeyValueDatabase> scanSpill;
 
     public TrieImpl(IByteArrayKeyValueStore db) {
         this(db, "");
@@ -150,6 +164,17 @@ public class TrieImpl implements Trie {
         return this;
     }
 
+    /**
+     * Sets where full scans write the hashes of visited nodes once {@link
+     * VisitedNodes#DEFAULT_MEMORY_LIMIT} of them are held on the heap. The store is opened for
+     * each scan and dropped after it. Without one, scanning a trie with more nodes than the limit
+     * fails.
+     */
+    public TrieImpl withScanSpill(Supplier<IByteArrayKeyValueDatabase> scanSpill) {
+        this.scanSpill = scanSpill;
+        return this;
+    }
+
     /** Retrieve a value from a key as String. */
     public byte[] get(String key) {
         return this.get(key.getBytes());
@@ -157,12 +182,15 @@ public class TrieImpl implements Trie {
 
     @Override
     public byte[] get(byte[] key) {
-        synchronized (cache) {
-            byte[] k = binToNibbles(key);
-            Value c = new Value(this.get(this.root, k));
-
-            return c.asBytes();
+        byte[] k = binToNibbles(key);
+        Object node = this.get(this.root, k);
+        if (node == null) {
+            // a node of the snapshot may have been dropped by a concurrent undo, retry locked
+            synchronized (cache) {
+                node = this.get(this.root, k);
+            }
         }
+        return new Value(node).asBytes();
     }
 
     /** Insert key/value pair into trie. */
@@ -189,6 +217,10 @@ public class TrieImpl implements Trie {
 
     @Override
     public synchronized boolean isValidRoot(byte[] root) {
+        if (root != null && root.length >= 32) {
+            // the data source is checked directly, not through the shared clean node cache
+            return cache.isPresent(root);
+        }
         return !(this.getNode(root) == null);
     }
 
@@ -206,48 +238,45 @@ public class TrieImpl implements Trie {
 
     @Override
     public byte[] getRootHash() {
-        synchronized (cache) {
-            if (root == null
-                    || (root instanceof byte[] && ((byte[]) root).length == 0)
-                    || (root instanceof String && "".equals(root))) {
-                return EMPTY_TRIE_HASH;
-            } else if (root instanceof byte[]) {
-                return (byte[]) this.getRoot();
-            } else {
-                Value rootValue = new Value(this.getRoot());
-                return HashUtil.h256(rootValue.encode());
-            }
+        Object root = this.root;
+        if (root == null
+                || (root instanceof byte[] && ((byte[]) root).length == 0)
+                || (root instanceof String && "".equals(root))) {
+            return EMPTY_TRIE_HASH;
+        } else if (root instanceof byte[]) {
+            return (byte[]) root;
+        } else {
+            Value rootValue = new Value(root);
+            return HashUtil.h256(rootValue.encode());
         }
     }
 
     private Object get(Object node, byte[] key) {
-        synchronized (cache) {
-            int keypos = 0;
-            while (key.length - keypos != 0 && !isEmptyNode(node)) {
-                Value currentNode = this.getNode(node);
-                if (currentNode == null) {
-                    return null;
-                }
+        int keypos = 0;
+        while (key.length - keypos != 0 && !isEmptyNode(node)) {
+            Value currentNode = this.getNode(node);
+            if (currentNode == null) {
+                return null;
+            }
 
-                if (currentNode.length() == PAIR_SIZE) {
-                    // Decode the key
-                    byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
-                    Object v = currentNode.get(1).asObj();
+            if (currentNode.length() == PAIR_SIZE) {
+                // Decode the key
+                byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
+                Object v = currentNode.get(1).asObj();
 
-                    if (key.length - keypos >= k.length
-                            && Arrays.equals(k, copyOfRange(key, keypos, k.length + keypos))) {
-                        node = v;
-                        keypos += k.length;
-                    } else {
-                        return "";
-                    }
+                if (key.length - keypos >= k.length
+                        && Arrays.equals(k, copyOfRange(key, keypos, k.length + keypos))) {
+                    node = v;
+                    keypos += k.length;
                 } else {
-                    node = currentNode.get(key[keypos]).asObj();
-                    keypos++;
+                    return "";
                 }
+            } else {
+                node = currentNode.get(key[keypos]).asObj();
+                keypos++;
             }
-            return node;
         }
+        return node;
     }
 
     private Object insertOrDelete(Object node, byte[] key, byte[] value) {
@@ -316,7 +345,7 @@ public class TrieImpl implements Trie {
                 newHash = this.putToCache(scaledSlice);
             }
 
-            markRemoved(HashUtil.h256(currentNode.encode()));
+            markRemoved(currentNode);
 
             if (matchingLength == 0) {
                 // End of the chain, return
@@ -338,10 +367,9 @@ public class TrieImpl implements Trie {
                             copyOfRange(key, 1, key.length),
                             value);
 
-            if (!FastByteComparisons.equal(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
+            // equal encodings have equal hashes, so there is nothing to hash here
+            if (!FastByteComparisons.equal(getNode(newNode).encode(), currentNode.encode())) {
+                markRemoved(currentNode);
                 if (!isEmptyNode(currentNode.get(key[0]))) {
                     markRemoved(currentNode.get(key[0]).asBytes());
                 }
@@ -383,7 +411,7 @@ public class TrieImpl implements Trie {
                 } else {
                     newNode = new Object[] {currentNode.get(0), hash};
                 }
-                markRemoved(HashUtil.h256(currentNode.encode()));
+                markRemoved(currentNode);
                 return this.putToCache(newNode);
             } else {
                 return node;
@@ -421,10 +449,9 @@ public class TrieImpl implements Trie {
                 newNode = itemList;
             }
 
-            if (!FastByteComparisons.equal(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
+            // equal encodings have equal hashes, so there is nothing to hash here
+            if (!FastByteComparisons.equal(getNode(newNode).encode(), currentNode.encode())) {
+                markRemoved(currentNode);
             }
 
             return this.putToCache(newNode);
@@ -437,6 +464,13 @@ public class TrieImpl implements Trie {
         }
     }
 
+    /** Marks a replaced node, which is only hashed when pruning needs its key. */
+    private void markRemoved(Value node) {
+        if (pruningEnabled) {
+            cache.markRemoved(HashUtil.h256(node.encode()));
+        }
+    }
+
     /**
      * Helper method to retrieve the actual node. If the node is not a list and length is > 32 bytes
      * get the actual node from the db.
@@ -575,64 +609,74 @@ public class TrieImpl implements Trie {
     }
 
     public void scanTree(byte[] hash, ScanAction scanAction) {
-        synchronized (cache) {
-            Value node = this.getCache().get(hash);
-            if (node == null) {
-                throw new RuntimeException("Not found: " + Hex.toHexString(hash));
-            }
+        Value node = this.getCache().get(hash);
+        if (node == null) {
+            throw new RuntimeException("Not found: " + Hex.toHexString(hash));
+        }
 
-            if (node.isList()) {
-                List<Object> siblings = node.asList();
-                if (siblings.size() == PAIR_SIZE) {
-                    Value val = new Value(siblings.get(1));
-                    if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+        if (node.isList()) {
+            List<Object> siblings = node.asList();
+            if (siblings.size() == PAIR_SIZE) {
+                Value val = new Value(siblings.get(1));
+                if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+                    scanTree(val.asBytes(), scanAction);
+                }
+            } else {
+                for (int j = 0; j < LIST_SIZE; ++j) {
+                    Value val = new Value(siblings.get(j));
+                    if (val.isHashCode()) {
                         scanTree(val.asBytes(), scanAction);
                     }
-                } else {
-                    for (int j = 0; j < LIST_SIZE; ++j) {
-                        Value val = new Value(siblings.get(j));
-                        if (val.isHashCode()) {
-                            scanTree(val.asBytes(), scanAction);
-                        }
-                    }
                 }
-                scanAction.doOnNode(hash, node);
             }
+            scanAction.doOnNode(hash, node);
         }
     }
 
+    /**
+     * Scans the trie below the given node on a fork-join pool using {@link TrieScanTask}. Unlike
+     * {@link #scanTreeLoop(byte[], ScanAction)} the nodes are delivered in batches and in no
+     * particular order, and sub-tries recorded in the visited set are only scanned once.
+     *
+     * @param hash state root
+     * @param scanAction action to perform on each batch of nodes
+     * @param visited set of already scanned nodes
+     */
+    public void scanTreeParallel(byte[] hash, ScanAction scanAction, VisitedNodes visited) {
+        visited.add(hash);
+        SCAN_POOL.invoke(new TrieScanTask(cache, scanAction, visited, hash, 0));
+    }
+
     public void scanTreeLoop(byte[] hash, ScanAction scanAction) {
 
         ArrayList<byte[]> hashes = new ArrayList<>();
         hashes.add(hash);
 
         while (!hashes.isEmpty()) {
-            synchronized (cache) {
-                byte[] myHash = hashes.remove(0);
-                Value node = this.getCache().get(myHash);
-                if (node == null) {
-                    throw new RuntimeException("Not found: " + Hex.toHexString(myHash));
-                }
+            byte[] myHash = hashes.remove(0);
+            Value node = this.getCache().get(myHash);
+            if (node == null) {
+                throw new RuntimeException("Not found: " + Hex.toHexString(myHash));
+            }
 
-                if (node.isList()) {
-                    List<Object> siblings = node.asList();
-                    if (siblings.size() == PAIR_SIZE) {
-                        Value val = new Value(siblings.get(1));
-                        if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+            if (node.isList()) {
+                List<Object> siblings = node.asList();
+                if (siblings.size() == PAIR_SIZE) {
+                    Value val = new Value(siblings.get(1));
+                    if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+                        // scanTree(val.asBytes(), scanAction);
+                        hashes.add(val.asBytes());
+                    }
+                } else {
+                    for (int j = 0; j < LIST_SIZE; ++j) {
+                        Value val = new Value(siblings.get(j));
+                        if (val.isHashCode()) {
                             // scanTree(val.asBytes(), scanAction);
                             hashes.add(val.asBytes());
                         }
-                    } else {
-                        for (int j = 0; j < LIST_SIZE; ++j) {
-                            Value val = new Value(siblings.get(j));
-                            if (val.isHashCode()) {
-                                // scanTree(val.asBytes(), scanAction);
-                                hashes.add(val.asBytes());
-                            }
-                        }
                     }
-                    scanAction.doOnNode(myHash, node);
                 }
+                scanAction.doOnNode(myHash, node);
             }
         }
     }
@@ -652,37 +696,35 @@ public class TrieImpl implements Trie {
         hashes.add(hash);
 
         while (!hashes.isEmpty()) {
-            synchronized (cache) {
-                byte[] myHash = hashes.remove(0);
-                Value node = this.getCache().get(myHash);
-                if (node == null) {
-                    System.out.println("Skipped key. Not found: " + Hex.toHexString(myHash));
-                } else {
-                    if (node.isList()) {
-                        List<Object> siblings = node.asList();
-                        if (siblings.size() == PAIR_SIZE) {
-                            Value val = new Value(siblings.get(1));
-                            if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+            byte[] myHash = hashes.remove(0);
+            Value node = this.getCache().get(myHash);
+            if (node == null) {
+                System.out.println("Skipped key. Not found: " + Hex.toHexString(myHash));
+            } else {
+                if (node.isList()) {
+                    List<Object> siblings = node.asList();
+                    if (siblings.size() == PAIR_SIZE) {
+                        Value val = new Value(siblings.get(1));
+                        if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+                            // scanTree(val.asBytes(), scanAction);
+                            byte[] valBytes = val.asBytes();
+                            if (!db.get(valBytes).isPresent()) {
+                                hashes.add(valBytes);
+                            }
+                        }
+                    } else {
+                        for (int j = 0; j < LIST_SIZE; ++j) {
+                            Value val = new Value(siblings.get(j));
+                            if (val.isHashCode()) {
                                 // scanTree(val.asBytes(), scanAction);
                                 byte[] valBytes = val.asBytes();
                                 if (!db.get(valBytes).isPresent()) {
                                     hashes.add(valBytes);
                                 }
                             }
-                        } else {
-                            for (int j = 0; j < LIST_SIZE; ++j) {
-                                Value val = new Value(siblings.get(j));
-                                if (val.isHashCode()) {
-                                    // scanTree(val.asBytes(), scanAction);
-                                    byte[] valBytes = val.asBytes();
-                                    if (!db.get(valBytes).isPresent()) {
-                                        hashes.add(valBytes);
-                                    }
-                                }
-                            }
                         }
-                        scanAction.doOnNode(myHash, node);
                     }
+                    scanAction.doOnNode(myHash, node);
                 }
             }
         }
@@ -850,40 +892,59 @@ public class TrieImpl implements Trie {
 
     public Set<ByteArrayWrapper> getTrieKeys(byte[] stateRoot) {
         CollectFullSetOfNodes traceAction = new CollectFullSetOfNodes();
-        traceTrie(stateRoot, traceAction);
+        traceTrieParallel(stateRoot, traceAction);
         return traceAction.getCollectedHashes();
     }
 
     public int getTrieSize(byte[] stateRoot) {
         CountNodes traceAction = new CountNodes();
-        traceTrie(stateRoot, traceAction);
+        traceTrieParallel(stateRoot, traceAction);
         return traceAction.getCount();
     }
 
     private void traceTrie(byte[] stateRoot, ScanAction action) {
-        synchronized (cache) {
-            Value value = new Value(stateRoot);
+        Value value = new Value(stateRoot);
 
-            if (value.isHashCode()) {
-                scanTreeLoop(stateRoot, action);
-            } else {
-                action.doOnNode(stateRoot, value);
+        if (value.isHashCode()) {
+            scanTreeLoop(stateRoot, action);
+        } else {
+            action.doOnNode(stateRoot, value);
+        }
+    }
+
+    private void traceTrieParallel(byte[] stateRoot, ScanAction action) {
+        Value value = new Value(stateRoot);
+
+        if (value.isHashCode()) {
+            scanTreeParallel(stateRoot, action);
+        } else {
+            action.doOnNode(stateRoot, value);
+        }
+    }
+
+    private void scanTreeParallel(byte[] hash, ScanAction action) {
+        if (scanSpill == null) {
+            scanTreeParallel(hash, action, new VisitedNodes());
+            return;
+        }
+
+        // the spill store of a repository is shared by all its tries, scans use it one at a time
+        synchronized (SCAN_SPILL_LOCK) {
+            IByteArrayKeyValueDatabase spill = scanSpill.get();
+            try {
+                scanTreeParallel(
+                        hash, action, new VisitedNodes(VisitedNodes.DEFAULT_MEMORY_LIMIT, spill));
+            } finally {
+                spill.drop();
+                spill.close();
             }
         }
     }
 
     public boolean validate() {
         synchronized (cache) {
-            final int[] cnt = new int[1];
             try {
-                scanTree(
-                        getRootHash(),
-                        new ScanAction() {
-                            @Override
-                            public void doOnNode(byte[] hash, Value node) {
-                                cnt[0]++;
-                            }
-                        });
+                scanTreeParallel(getRootHash(), new CountNodes());
             } catch (Exception e) {
                 return false;
             }
@@ -894,19 +955,17 @@ public class TrieImpl implements Trie {
     @Override
     public long saveFullStateToDatabase(byte[] stateRoot, IByteArrayKeyValueDatabase db) {
         ExtractToDatabase traceAction = new ExtractToDatabase(db);
-        traceTrie(stateRoot, traceAction);
+        traceTrieParallel(stateRoot, traceAction);
         return traceAction.count;
     }
 
     private void traceDiffTrie(byte[] stateRoot, ScanAction action, IByteArrayKeyValueDatabase db) {
-        synchronized (cache) {
-            Value value = new Value(stateRoot);
+        Value value = new Value(stateRoot);
 
-            if (value.isHashCode() && !db.get(value.asBytes()).isPresent()) {
-                scanTreeDiffLoop(stateRoot, action, db);
-            } else {
-                action.doOnNode(stateRoot, value);
-            }
+        if (value.isHashCode() && !db.get(value.asBytes()).isPresent()) {
+            scanTreeDiffLoop(stateRoot, action, db);
+        } else {
+            action.doOnNode(stateRoot, value);
         }
     }
 
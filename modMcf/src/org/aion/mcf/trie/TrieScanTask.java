@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ */
+
+
+package org.aion.mcf.trie;
+
+import static org.aion.rlp.CompactEncoder.hasTerminator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import org.aion.base.util.Hex;
+import org.aion.mcf.trie.scan.ScanAction;
+import org.aion.mcf.trie.scan.VisitedNodes;
+import org.aion.rlp.Value;
+
+/**
+ * Fork-join task walking the sub-trie below a node.
+ *
+ * <p>Near the root the children of branch nodes are split into separate tasks. Deeper down each
+ * task walks its sub-trie depth first with an explicit stack. Nodes are handed to the {@link
+ * ScanAction} in batches, one batch at a time, and each node is explored at most once as long as
+ * the {@link VisitedNodes} set records it.
+ */
+class TrieScanTask extends RecursiveAction {
+
+    // tasks are forked for the first levels only, giving up to 16^3 tasks
+    private static final int FORK_DEPTH = 3;
+    private static final int BATCH_SIZE = 512;
+
+    private static final int PAIR_SIZE = 2;
+    private static final int LIST_SIZE = 17;
+
+    private final Cache cache;
+    private final ScanAction action;
+    private final VisitedNodes visited;
+    private final byte[] hash;
+    private final int depth;
+
+    private final List<byte[]> hashes = new ArrayList<>();
+    private final List<Value> nodes = new ArrayList<>();
+
+    TrieScanTask(Cache cache, ScanAction action, VisitedNodes visited, byte[] hash, int depth) {
+        this.cache = cache;
+        this.action = action;
+        this.visited = visited;
+        this.hash = hash;
+        this.depth = depth;
+    }
+
+    @Override
+    protected void compute() {
+        if (depth < FORK_DEPTH) {
+            List<byte[]> children = new ArrayList<>();
+            visit(hash, children);
+            flush();
+
+            List<TrieScanTask> subtasks = new ArrayList<>(children.size());
+            for (byte[] child : children) {
+                subtasks.add(new TrieScanTask(cache, action, visited, child, depth + 1));
+            }
+            invokeAll(subtasks);
+        } else {
+            Deque<byte[]> stack = new ArrayDeque<>();
+            stack.push(hash);
+            List<byte[]> children = new ArrayList<>();
+            while (!stack.isEmpty()) {
+                visit(stack.pop(), children);
+                for (byte[] child : children) {
+                    stack.push(child);
+                }
+                children.clear();
+                if (hashes.size() >= BATCH_SIZE) {
+                    flush();
+                }
+            }
+            flush();
+        }
+    }
+
+    /** Adds the node to the current batch and collects its unvisited children. */
+    private void visit(byte[] nodeHash, List<byte[]> children) {
+        Value node = cache.get(nodeHash);
+        if (node == null) {
+            throw new RuntimeException("Not found: " + Hex.toHexString(nodeHash));
+        }
+
+        if (node.isList()) {
+            List<Object> siblings = node.asList();
+            if (siblings.size() == PAIR_SIZE) {
+                Value val = new Value(siblings.get(1));
+                if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+                    addChild(val.asBytes(), children);
+                }
+            } else {
+                for (int j = 0; j < LIST_SIZE; ++j) {
+                    Value val = new Value(siblings.get(j));
+                    if (val.isHashCode()) {
+                        addChild(val.asBytes(), children);
+                    }
+                }
+            }
+            hashes.add(nodeHash);
+            nodes.add(node);
+        }
+    }
+
+    private void addChild(byte[] child, List<byte[]> children) {
+        if (visited.add(child)) {
+            children.add(child);
+        }
+    }
+
+    private void flush() {
+        if (hashes.isEmpty()) {
+            return;
+        }
+        synchronized (action) {
+            action.doOnNodes(hashes, nodes);
+        }
+        hashes.clear();
+        nodes.clear();
+    }
+}
@@ -28,6 +28,9 @@
  ******************************************************************************/
 package org.aion.mcf.trie.scan;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.rlp.Value;
 
@@ -48,4 +51,14 @@ public class ExtractToDatabase implements ScanAction {
         db.put(hash, dummy_value);
         count++;
     }
+
+    @Override
+    public void doOnNodes(List<byte[]> hashes, List<Value> nodes) {
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (byte[] hash : hashes) {
+            batch.put(hash, dummy_value);
+        }
+        db.putBatch(batch);
+        count += hashes.size();
+    }
 }
@@ -34,10 +34,24 @@
  ******************************************************************************/
 package org.aion.mcf.trie.scan;
 
+import java.util.List;
 import org.aion.rlp.Value;
 
 public interface ScanAction {
 
     void doOnNode(byte[] hash, Value node);
+
+    /**
+     * Receives a batch of nodes from a parallel scan. Batches are delivered one at a time, so
+     * implementations need not be thread safe. The lists are reused once the call returns.
+     *
+     * @param hashes the node hashes
+     * @param nodes the nodes, in the same order as their hashes
+     */
+    default void doOnNodes(List<byte[]> hashes, List<Value> nodes) {
+        for (int i = 0; i < hashes.size(); i++) {
+            doOnNode(hashes.get(i), nodes.get(i));
+        }
+    }
 }
 
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ * This file is part of the aion network project.
+ *
+ * The aion network project is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * The aion network project is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the aion network project source files.
+ * If not, see <https://www.gnu.org/licenses/>.
+ *
+ * The aion network project leverages useful source code from other
+ * open source projects. We greatly appreciate the effort that was
+ * invested in these projects and we thank the individual contributors
+ * for their work. For provenance information and contributors
+ * please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ * Aion foundation.
+ */
+
+
+package org.aion.mcf.trie.scan;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.base.db.IByteArrayKeyValueStore;
+import org.aion.base.util.ByteArrayWrapper;
+
+/**
+ * Set of node hashes already visited by a trie scan, used to walk shared sub-tries only once.
+ *
+ * <p>At most {@code memoryLimit} hashes are kept on the heap. Further hashes are written to the
+ * spill store when one is given. Without a spill store a scan past the limit fails with an {@link
+ * IllegalStateException} rather than quietly walking shared sub-tries more than once.
+ *
+ * <p>The set is safe for use by concurrent scan tasks.
+ */
+public class VisitedNodes {
+
+    /** Default number of hashes kept on the heap, roughly 100 MB. */
+    public static final int DEFAULT_MEMORY_LIMIT = 1 << 20;
+
+    private static final byte[] PRESENT = new byte[] {1};
+
+    private static final int STRIPES = 64;
+
+    private final Object[] stripes = new Object[STRIPES];
+    private final Set<ByteArrayWrapper> inMemory = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inMemoryCount = new AtomicInteger();
+    private final int memoryLimit;
+    private final IByteArrayKeyValueStore spill;
+
+    /**
+     * @param memoryLimit maximum number of hashes kept on the heap
+     * @param spill store receiving the hashes over the limit, may be {@code null}
+     */
+    public VisitedNodes(int memoryLimit, IByteArrayKeyValueStore spill) {
+        if (memoryLimit < 0) {
+            throw new IllegalArgumentException("The memory limit must not be negative.");
+        }
+        this.memoryLimit = memoryLimit;
+        this.spill = spill;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    public VisitedNodes() {
+        this(DEFAULT_MEMORY_LIMIT, null);
+    }
+
+    /**
+     * Records the given hash as visited.
+     *
+     * @return {@code true} if the hash had not been visited before and its node must be explored
+     * @throws IllegalStateException if the memory limit is reached and there is no spill store
+     */
+    public boolean add(byte[] hash) {
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(hash);
+        if (inMemory.contains(key)) {
+            return false;
+        }
+
+        // the same hash is always decided under the same stripe, so that two tasks reaching a
+        // shared sub-trie cannot both see it as new, whether it ends up on the heap or spilled
+        synchronized (stripes[(key.hashCode() & 0x7fffffff) % STRIPES]) {
+            if (inMemory.contains(key)) {
+                return false;
+            }
+            if (spill != null && spill.get(hash).isPresent()) {
+                return false;
+            }
+
+            if (inMemoryCount.incrementAndGet() <= memoryLimit) {
+                inMemory.add(key);
+                return true;
+            }
+            inMemoryCount.decrementAndGet();
+            if (spill == null) {
+                throw new IllegalStateException(
+                        "More than " + memoryLimit + " visited nodes and no store to spill them to.");
+            }
+            spill.put(hash, PRESENT);
+            return true;
+        }
+    }
+
+    /** @return the number of hashes held on the heap */
+    public int getMemorySize() {
+        return inMemory.size();
+    }
+}
@@ -31,7 +31,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.aion.base.type.IBlock;
 import org.aion.base.type.IBlockHeader;
-import org.aion.rlp.RLP;
+import org.aion.rlp.RLPWriter;
 
 /**
  * Abstract Block class.
@@ -63,9 +63,14 @@ public abstract class AbstractBlock<BH extends IBlockHeader, TX extends Abstract
     }
 
     public byte[] getEncodedBody() {
-        List<byte[]> body = getBodyElements();
-        byte[][] elements = body.toArray(new byte[body.size()][]);
-        return RLP.encodeList(elements);
+        parseRLP();
+        byte[][] transactions = getTransactionEncodings();
+        int transactionsLength = RLPWriter.listLength(getPayloadLength(transactions));
+
+        RLPWriter out = new RLPWriter(RLPWriter.listLength(transactionsLength));
+        out.writeListHeader(transactionsLength);
+        writeList(out, transactions);
+        return out.toByteArray();
     }
 
     public List<byte[]> getBodyElements() {
@@ -77,13 +82,36 @@ public abstract class AbstractBlock<BH extends IBlockHeader, TX extends Abstract
     }
 
     public byte[] getTransactionsEncoded() {
+        byte[][] transactions = getTransactionEncodings();
+
+        RLPWriter out = new RLPWriter(RLPWriter.listLength(getPayloadLength(transactions)));
+        writeList(out, transactions);
+        return out.toByteArray();
+    }
+
+    /** @return the encodings of the transactions taken from a single snapshot of the list */
+    protected byte[][] getTransactionEncodings() {
+        Object[] transactions = transactionsList.toArray();
+        byte[][] encodings = new byte[transactions.length][];
+        for (int i = 0; i < transactions.length; i++) {
+            encodings[i] = ((AbstractTransaction) transactions[i]).getEncoded();
+        }
+        return encodings;
+    }
+
+    protected static int getPayloadLength(byte[][] encodings) {
+        int length = 0;
+        for (byte[] encoding : encodings) {
+            length += encoding.length;
+        }
+        return length;
+    }
 
-        byte[][] transactionsEncoded = new byte[transactionsList.size()][];
-        int i = 0;
-        for (TX tx : transactionsList) {
-            transactionsEncoded[i] = tx.getEncoded();
-            ++i;
+    /** Writes the given encoded elements to the output as a list. */
+    protected static void writeList(RLPWriter out, byte[][] encodings) {
+        out.writeListHeader(getPayloadLength(encodings));
+        for (byte[] encoding : encodings) {
+            out.writeEncoded(encoding);
         }
-        return RLP.encodeList(transactionsEncoded);
     }
 }
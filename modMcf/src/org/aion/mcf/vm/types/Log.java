@@ -28,9 +28,7 @@ import org.aion.base.type.Address;
 import org.aion.base.util.Hex;
 import org.aion.crypto.HashUtil;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPItem;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 
 /**
  * A log is emitted by the LOGX vm instruction. It's composed of address, topics and data.
@@ -42,19 +40,17 @@ public class Log {
     private byte[] data;
 
     public Log(byte[] rlp) {
-        RLPList params = RLP.decode2(rlp);
-        RLPList logInfo = (RLPList) params.get(0);
+        this(RLPView.wrap(rlp));
+    }
 
-        RLPItem address = (RLPItem) logInfo.get(0);
-        RLPList topics = (RLPList) logInfo.get(1);
-        RLPItem data = (RLPItem) logInfo.get(2);
+    public Log(RLPView logInfo) {
+        RLPView topics = logInfo.get(1);
 
-        this.addr = address.getRLPData() != null ? Address.wrap(address.getRLPData()) : null;
-        this.data = data.getRLPData() != null ? data.getRLPData() : new byte[]{};
+        this.addr = Address.wrap(logInfo.get(0).bytes());
+        this.data = logInfo.get(2).bytes();
 
-        for (RLPElement topic1 : topics) {
-            byte[] topic = topic1.getRLPData();
-            this.topics.add(topic);
+        for (int i = 0; i < topics.size(); i++) {
+            this.topics.add(topics.get(i).bytes());
         }
     }
 
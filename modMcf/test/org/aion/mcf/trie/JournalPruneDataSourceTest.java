@@ -1558,4 +1558,76 @@ public class JournalPruneDataSourceTest {
         assertThat(source_db.get(k5).get()).isEqualTo(v5);
         assertThat(source_db.get(k6).get()).isEqualTo(v6);
     }
+
+    @Test
+    public void pruningTest_wJournal_afterRestart() {
+        IByteArrayKeyValueDatabase journal_db = DatabaseFactory.connect("TestJournalDB");
+        assertThat(journal_db.open()).isTrue();
+
+        db = new JournalPruneDataSource(source_db, journal_db);
+        db.setPruneEnabled(true);
+        assertThat(db.isJournalPersisted()).isTrue();
+
+        // block b0
+        db.put(k1, v1);
+        db.put(k2, v2);
+        db.put(k3, v3);
+        db.storeBlockChanges(b0, 0);
+
+        // block b1
+        db.put(k4, v4);
+        db.put(k1, v2);
+        db.delete(k2);
+        db.storeBlockChanges(b1, 1);
+
+        // block b2 : note same level as block b1
+        db.put(k5, v5);
+        db.delete(k3);
+        db.put(k2, v3);
+        db.put(k1, v4);
+        db.storeBlockChanges(b2, 1);
+
+        // the journal is not kept on the heap
+        assertThat(db.getBlockUpdates().size()).isEqualTo(0);
+        assertThat(db.getRefCount().size()).isEqualTo(0);
+
+        // restart
+        db = new JournalPruneDataSource(source_db, journal_db);
+        db.setPruneEnabled(true);
+
+        // block b3
+        db.put(k6, v6);
+        db.put(k2, v4);
+        db.put(k1, v3);
+        db.storeBlockChanges(b3, 2);
+
+        assertThat(source_db.keys().size()).isEqualTo(6);
+
+        // prune block b0
+        db.prune(b0, 0);
+        assertThat(source_db.keys().size()).isEqualTo(6);
+
+        // restart
+        db = new JournalPruneDataSource(source_db, journal_db);
+        db.setPruneEnabled(true);
+
+        // prune block b2 at level 1 : also rolls back block b1
+        db.prune(b2, 1);
+        assertThat(source_db.keys().size()).isEqualTo(4);
+        assertThat(source_db.get(k1).get()).isEqualTo(v3);
+        assertThat(source_db.get(k2).get()).isEqualTo(v4);
+        assertThat(source_db.get(k3).isPresent()).isFalse();
+        assertThat(source_db.get(k4).isPresent()).isFalse();
+        assertThat(source_db.get(k5).get()).isEqualTo(v5);
+        assertThat(source_db.get(k6).get()).isEqualTo(v6);
+
+        // prune block b3
+        db.prune(b3, 2);
+        assertThat(source_db.keys().size()).isEqualTo(4);
+
+        // all journal entries have been released
+        assertThat(journal_db.isEmpty()).isTrue();
+
+        journal_db.close();
+    }
 }
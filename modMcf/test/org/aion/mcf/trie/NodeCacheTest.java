@@ -0,0 +1,194 @@
+/* ******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ ******************************************************************************/
+package org.aion.mcf.trie;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.rlp.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NodeCacheTest {
+
+    private static final int ENTRY_WEIGHT = 1000;
+
+    private MockDB db;
+
+    @Before
+    public void setup() {
+        db = new MockDB("test");
+        db.open();
+    }
+
+    private static ByteArrayWrapper key(int i) {
+        return ByteArrayWrapper.wrap(HashUtil.h256(("node" + i).getBytes()));
+    }
+
+    private static int segment(ByteArrayWrapper key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & 15;
+    }
+
+    private static Value node(int i) {
+        return new Value(("value" + i).getBytes());
+    }
+
+    @Test
+    public void testGetReturnsOnlyEntriesOfSameSource() {
+        NodeCache cache = new NodeCache(1024 * 1024);
+        Object other = new Object();
+
+        Value value = node(1);
+        cache.put(db, key(1), value, 10);
+
+        assertThat(cache.get(db, key(1))).isSameAs(value);
+        assertThat(cache.get(other, key(1))).isNull();
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+
+        // removal through a different source leaves the entry in place
+        cache.remove(other, key(1));
+        assertThat(cache.get(db, key(1))).isNotNull();
+
+        cache.remove(db, key(1));
+        assertThat(cache.get(db, key(1))).isNull();
+        assertThat(cache.getSize()).isEqualTo(0);
+        assertThat(cache.getWeight()).isEqualTo(0);
+    }
+
+    @Test
+    public void testEvictionKeepsWeightWithinCapacity() {
+        long capacity = 64 * 1024;
+        NodeCache cache = new NodeCache(capacity);
+
+        Value last = null;
+        for (int i = 0; i < 1000; i++) {
+            last = node(i);
+            cache.put(db, key(i), last, ENTRY_WEIGHT);
+            assertThat(cache.getWeight()).isAtMost(capacity);
+        }
+
+        assertThat(cache.getEvictions()).isGreaterThan(0L);
+        assertThat(cache.getSize() + cache.getEvictions()).isEqualTo(1000L);
+        // the most recent insertion is never the eviction candidate
+        assertThat(cache.get(db, key(999))).isSameAs(last);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedFirst() {
+        // two entries fit in each of the 16 segments
+        NodeCache cache = new NodeCache(16 * 2500);
+
+        // find three keys that land in the same segment
+        int[] same = new int[3];
+        int found = 0;
+        for (int i = 0; found < 3; i++) {
+            if (segment(key(i)) == segment(key(0))) {
+                same[found++] = i;
+            }
+        }
+
+        cache.put(db, key(same[0]), node(same[0]), ENTRY_WEIGHT);
+        cache.put(db, key(same[1]), node(same[1]), ENTRY_WEIGHT);
+        // touch the oldest entry so the second one becomes the least recently used
+        assertThat(cache.get(db, key(same[0]))).isNotNull();
+        cache.put(db, key(same[2]), node(same[2]), ENTRY_WEIGHT);
+
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        assertThat(cache.get(db, key(same[0]))).isNotNull();
+        assertThat(cache.get(db, key(same[1]))).isNull();
+        assertThat(cache.get(db, key(same[2]))).isNotNull();
+    }
+
+    @Test
+    public void testShrinkingCapacityEvicts() {
+        NodeCache cache = new NodeCache(1024 * 1024);
+        for (int i = 0; i < 100; i++) {
+            cache.put(db, key(i), node(i), ENTRY_WEIGHT);
+        }
+        assertThat(cache.getSize()).isEqualTo(100);
+
+        cache.setCapacity(0);
+
+        assertThat(cache.getSize()).isEqualTo(0);
+        assertThat(cache.getWeight()).isEqualTo(0);
+        assertThat(cache.getEvictions()).isEqualTo(100);
+    }
+
+    @Test
+    public void testCommitMovesNodesToCleanCache() {
+        NodeCache cleanNodes = new NodeCache(1024 * 1024);
+        Cache cache = new Cache(db, cleanNodes);
+
+        byte[] hash = (byte[]) cache.put(new Value(new byte[64]).asObj());
+        assertThat(cache.getSize()).isEqualTo(1);
+        assertThat(cleanNodes.getSize()).isEqualTo(0);
+
+        cache.commit(false);
+
+        assertThat(cache.getSize()).isEqualTo(0);
+        assertThat(cleanNodes.getSize()).isEqualTo(1);
+        assertThat(db.get(hash).isPresent()).isTrue();
+        assertThat(cache.get(hash)).isNotNull();
+        assertThat(cleanNodes.getHits()).isEqualTo(1);
+
+        cache.delete(hash);
+        assertThat(cleanNodes.getSize()).isEqualTo(0);
+        assertThat(db.get(hash).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testTrieReadsThroughCleanCache() {
+        NodeCache cleanNodes = new NodeCache(1024 * 1024);
+        TrieImpl trie = new TrieImpl(db);
+        for (int i = 0; i < 100; i++) {
+            trie.update(("key" + i).getBytes(), ("a fairly long value " + i).getBytes());
+        }
+        trie.sync();
+        byte[] root = trie.getRootHash();
+
+        TrieImpl reader = new TrieImpl(db, root);
+        reader.setCache(new Cache(db, cleanNodes));
+        for (int i = 0; i < 100; i++) {
+            assertThat(reader.get(("key" + i).getBytes()))
+                    .isEqualTo(("a fairly long value " + i).getBytes());
+        }
+        long misses = cleanNodes.getMisses();
+        assertThat(cleanNodes.getSize()).isGreaterThan(0);
+
+        // a second pass is served from memory
+        for (int i = 0; i < 100; i++) {
+            reader.get(("key" + i).getBytes());
+        }
+        assertThat(cleanNodes.getMisses()).isEqualTo(misses);
+    }
+}
@@ -4,13 +4,23 @@ import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import org.aion.crypto.HashUtil;
 import org.aion.db.impl.mockdb.MockDB;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.mcf.trie.TrieImpl;
+import org.aion.mcf.trie.scan.CollectFullSetOfNodes;
+import org.aion.mcf.trie.scan.CountNodes;
+import org.aion.mcf.trie.scan.VisitedNodes;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.spongycastle.util.encoders.Hex;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.aion.base.util.ByteUtil.intToBytes;
@@ -481,4 +491,237 @@ public class TrieTest {
         assertTrue(trie.equals(trie2));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testConcurrentReadsDuringUpdates() throws Exception {
+        MockDB db = new MockDB("TestConcurrentReads");
+        db.open();
+        TrieImpl trie = new TrieImpl(db);
+
+        int stable = 1000;
+        for (int i = 0; i < stable; i++) {
+            trie.update(HashUtil.h256(intToBytes(i)), HashUtil.h256(intToBytes(i + 1000000)));
+        }
+        trie.sync();
+
+        AtomicBoolean done = new AtomicBoolean(false);
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            results.add(
+                    readers.submit(
+                            () -> {
+                                int reads = 0;
+                                while (!done.get() || reads < stable) {
+                                    int i = reads++ % stable;
+                                    assertArrayEquals(
+                                            HashUtil.h256(intToBytes(i + 1000000)),
+                                            trie.get(HashUtil.h256(intToBytes(i))));
+                                }
+                                return reads;
+                            }));
+        }
+
+        // the writer keeps changing the structure of the trie around the keys being read
+        for (int i = stable; i < 5 * stable; i++) {
+            trie.update(HashUtil.h256(intToBytes(i)), HashUtil.h256(intToBytes(i + 1000000)));
+            if (i % 100 == 0) {
+                trie.sync();
+            }
+        }
+        done.set(true);
+
+        for (Future<Integer> result : results) {
+            assertThat(result.get()).isAtLeast(stable);
+        }
+        readers.shutdown();
+        assertTrue(readers.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testParallelScanMatchesSequentialScan() {
+        MockDB db = new MockDB("TestParallelScan");
+        db.open();
+        TrieImpl trie = new TrieImpl(db);
+        for (int i = 0; i < 5000; i++) {
+            trie.update(HashUtil.h256(intToBytes(i)), HashUtil.h256(intToBytes(i + 1000000)));
+        }
+        trie.sync();
+        byte[] root = trie.getRootHash();
+
+        CollectFullSetOfNodes sequential = new CollectFullSetOfNodes();
+        trie.scanTreeLoop(root, sequential);
+
+        CollectFullSetOfNodes parallel = new CollectFullSetOfNodes();
+        trie.scanTreeParallel(root, parallel, new VisitedNodes());
+
+        assertThat(parallel.getCollectedHashes()).isEqualTo(sequential.getCollectedHashes());
+        assertThat(trie.getTrieKeys(root)).isEqualTo(sequential.getCollectedHashes());
+        assertThat(trie.getTrieSize(root)).isEqualTo(sequential.getCollectedHashes().size());
+        assertThat(trie.validate()).isTrue();
+
+        MockDB export = new MockDB("TestParallelScanExport");
+        export.open();
+        assertThat(trie.saveFullStateToDatabase(root, export))
+                .isEqualTo((long) sequential.getCollectedHashes().size());
+        for (ByteArrayWrapper key : sequential.getCollectedHashes()) {
+            assertThat(export.get(key.getData()).isPresent()).isTrue();
+        }
+    }
+
+    @Test
+    public void testParallelScanWithSpilledVisitedSet() {
+        MockDB db = new MockDB("TestParallelScanSpill");
+        db.open();
+        TrieImpl trie = new TrieImpl(db);
+        for (int i = 0; i < 2000; i++) {
+            trie.update(HashUtil.h256(intToBytes(i)), HashUtil.h256(intToBytes(i + 1000000)));
+        }
+        trie.sync();
+        byte[] root = trie.getRootHash();
+
+        MockDB spill = new MockDB("TestParallelScanVisited");
+        spill.open();
+        VisitedNodes visited = new VisitedNodes(10, spill);
+
+        CollectFullSetOfNodes parallel = new CollectFullSetOfNodes();
+        trie.scanTreeParallel(root, parallel, visited);
+
+        assertThat(parallel.getCollectedHashes()).isEqualTo(trie.getTrieKeys(root));
+        assertThat(visited.getMemorySize()).isEqualTo(10);
+        assertThat(spill.keys().size()).isEqualTo(parallel.getCollectedHashes().size() - 10);
+    }
+
+    @Test
+    public void testParallelScanSpilledSharedSubTrie() {
+        MockDB db = new MockDB("TestParallelScanShared");
+        db.open();
+        TrieImpl trie = new TrieImpl(db);
+        // the same keys below two first nibbles, so both branches of the root point to one sub-trie
+        for (int i = 0; i < 300; i++) {
+            byte[] suffix = HashUtil.h256(intToBytes(i));
+            byte[] value = HashUtil.h256(intToBytes(i + 1000000));
+            for (byte prefix : new byte[] {0x10, 0x20}) {
+                byte[] key = suffix.clone();
+                key[0] = prefix;
+                trie.update(key, value);
+            }
+        }
+        trie.sync();
+        byte[] root = trie.getRootHash();
+        Set<ByteArrayWrapper> nodes = trie.getTrieKeys(root);
+
+        for (int run = 0; run < 20; run++) {
+            MockDB spill = new MockDB("TestParallelScanSharedVisited");
+            spill.open();
+            CountNodes count = new CountNodes();
+            // nearly everything is decided in the spill store
+            trie.scanTreeParallel(root, count, new VisitedNodes(2, spill));
+
+            assertThat(count.getCount()).isEqualTo(nodes.size());
+            assertThat(spill.keys().size()).isEqualTo(nodes.size() - 2);
+            spill.close();
+        }
+    }
+
+    @Test
+    public void testVisitedNodesConcurrentSpill() throws Exception {
+        int hashes = 200;
+        byte[][] keys = new byte[hashes][];
+        for (int i = 0; i < hashes; i++) {
+            keys[i] = HashUtil.h256(intToBytes(i));
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 200; round++) {
+                MockDB spill = new MockDB("TestVisitedNodesConcurrent");
+                spill.open();
+                VisitedNodes visited = new VisitedNodes(5, spill);
+                AtomicInteger added = new AtomicInteger();
+
+                // every thread adds the same hashes, each one must be new to exactly one of them
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    tasks.add(
+                            threads.submit(
+                                    () -> {
+                                        for (byte[] key : keys) {
+                                            if (visited.add(key)) {
+                                                added.incrementAndGet();
+                                            }
+                                        }
+                                    }));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+
+                assertThat(added.get()).isEqualTo(hashes);
+                assertThat(visited.getMemorySize()).isEqualTo(5);
+                assertThat(spill.keys().size()).isEqualTo(hashes - 5);
+                spill.close();
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParallelScanOverLimitWithoutSpill() {
+        MockDB db = new MockDB("TestParallelScanNoSpill");
+        db.open();
+        TrieImpl trie = new TrieImpl(db);
+        for (int i = 0; i < 500; i++) {
+            trie.update(HashUtil.h256(intToBytes(i)), HashUtil.h256(intToBytes(i + 1000000)));
+        }
+        trie.sync();
+
+        trie.scanTreeParallel(trie.getRootHash(), new CollectFullSetOfNodes(), new VisitedNodes(10, null));
+    }
+
+    @Test
+    public void testFullScanUsesScanSpill() {
+        MockDB db = new MockDB("TestScanSpill");
+        db.open();
+        List<MockDB> opened = new ArrayList<>();
+        TrieImpl trie =
+                new TrieImpl(db)
+                        .withScanSpill(
+                                () -> {
+                                    MockDB spill = new MockDB("TestScanSpillVisited");
+                                    spill.open();
+                                    opened.add(spill);
+                                    return spill;
+                                });
+        for (int i = 0; i < 500; i++) {
+            trie.update(HashUtil.h256(intToBytes(i)), HashUtil.h256(intToBytes(i + 1000000)));
+        }
+        trie.sync();
+        byte[] root = trie.getRootHash();
+
+        CollectFullSetOfNodes sequential = new CollectFullSetOfNodes();
+        trie.scanTreeLoop(root, sequential);
+
+        assertThat(trie.getTrieSize(root)).isEqualTo(sequential.getCollectedHashes().size());
+        assertThat(trie.getTrieKeys(root)).isEqualTo(sequential.getCollectedHashes());
+
+        // opened for each scan and closed after it
+        assertThat(opened.size()).isEqualTo(2);
+        for (MockDB spill : opened) {
+            assertThat(spill.isOpen()).isFalse();
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testParallelScanMissingNode() {
+        MockDB db = new MockDB("TestParallelScanMissing");
+        db.open();
+        TrieImpl trie = new TrieImpl(db);
+        for (int i = 0; i < 100; i++) {
+            trie.update(HashUtil.h256(intToBytes(i)), HashUtil.h256(intToBytes(i + 1000000)));
+        }
+        trie.sync();
+
+        trie.scanTreeParallel(HashUtil.h256(intToBytes(-1)), new CollectFullSetOfNodes(), new VisitedNodes());
+    }
+}
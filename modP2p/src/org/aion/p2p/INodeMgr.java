@@ -68,6 +68,12 @@ public interface INodeMgr {
 
 	void ban(int _nodeIdHash);
 
+	/**
+	 * record that an outbound connection to the node could not be established
+	 * @param _n the node dialed
+	 */
+	void connectFailed(INode _n);
+
 	boolean notActiveNode(int _nodeIdHash);
 
 	boolean notAtOutboundList(int _nodeIdHash);
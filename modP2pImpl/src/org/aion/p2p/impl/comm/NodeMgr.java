@@ -47,6 +47,7 @@ public class NodeMgr implements INodeMgr {
 
     private final static int TIMEOUT_INBOUND_NODES = 10000;
     private final static int TIMEOUT_OUTBOUND_NODES = 20000;
+    private final static int PERIOD_SAVE_PEERS = 60000;
     private final static Random random = new SecureRandom();
     private final static char[] hexArray = "0123456789abcdef".toCharArray();
     private static Logger p2pLOG;
@@ -62,14 +63,48 @@ public class NodeMgr implements INodeMgr {
     private final Map<Integer, INode> outboundNodes = new ConcurrentHashMap<>();
     private final Map<Integer, INode> inboundNodes = new ConcurrentHashMap<>();
     private final Map<Integer, INode> activeNodes = new ConcurrentHashMap<>();
+    // null when peers are not persisted
+    private final PeerStore peerStore;
+    private long lastPeerSave = System.currentTimeMillis();
 
     public NodeMgr(IP2pMgr _p2pMgr, int _maxActiveNodes, int _maxTempNodes, Logger _logger) {
+        this(_p2pMgr, _maxActiveNodes, _maxTempNodes, _logger, null);
+    }
+
+    public NodeMgr(IP2pMgr _p2pMgr, int _maxActiveNodes, int _maxTempNodes, Logger _logger,
+        PeerStore _peerStore) {
         this.maxActiveNodes = _maxActiveNodes;
         this.maxTempNodes = _maxTempNodes;
         this.p2pMgr = _p2pMgr;
+        this.peerStore = _peerStore;
         p2pLOG = _logger;
     }
 
+    /**
+     * Queues the best peers of the peer store as temp nodes, so that they are dialed before the
+     * seed nodes added afterwards.
+     *
+     * @param _reserved temp node slots left free for the seed nodes
+     */
+    public void loadPersistedNodes(int _reserved) {
+        if (peerStore == null) {
+            return;
+        }
+
+        peerStore.load();
+        int loaded = 0;
+        for (Node n : peerStore.best(Math.max(0, maxTempNodes - _reserved))) {
+            if (p2pMgr.validateNode(n)) {
+                addTempNode(n);
+                loaded++;
+            }
+        }
+
+        if (p2pLOG.isInfoEnabled()) {
+            p2pLOG.info("loaded {} of {} persisted peers", loaded, peerStore.size());
+        }
+    }
+
     private static String bytesToHex(byte[] bytes) {
         char[] hexChars = new char[bytes.length * 2];
         for (int j = 0; j < bytes.length; j++) {
@@ -278,6 +313,31 @@ public class NodeMgr implements INodeMgr {
         timeoutInbound();
         timeoutOutBound();
         timeoutActive();
+        persistPeers(false);
+    }
+
+    @Override
+    public void connectFailed(final INode _n) {
+        if (peerStore != null) {
+            peerStore.failed(_n);
+        }
+    }
+
+    private void persistPeers(boolean _now) {
+        if (peerStore == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (!_now && now - lastPeerSave < PERIOD_SAVE_PEERS) {
+            return;
+        }
+        lastPeerSave = now;
+
+        for (INode n : activeNodes.values()) {
+            peerStore.active(n);
+        }
+        peerStore.save();
     }
 
     @Override
@@ -294,6 +354,7 @@ public class NodeMgr implements INodeMgr {
                     > TIMEOUT_OUTBOUND_NODES) {
                     p2pMgr.closeSocket(entry.getValue().getChannel(),
                         "outbound-timeout ip=" + entry.getValue().getIpStr());
+                    connectFailed(entry.getValue());
                     it.remove();
                 }
             }
@@ -363,6 +424,10 @@ public class NodeMgr implements INodeMgr {
                     return;
                 }
 
+                // outbound nodes carry the time the connection was made until now
+                long latency = _type.contentEquals("outbound")
+                    ? System.currentTimeMillis() - node.getTimestamp() : -1;
+
                 node.setConnection(_type);
                 node.setFromBootList(seedIps.contains(node.getIpStr()));
                 INode previous = activeNodes.putIfAbsent(node.getIdHash(), node);
@@ -372,6 +437,8 @@ public class NodeMgr implements INodeMgr {
                 } else if (!activeIpAllow(node.getIpStr())) {
                     p2pMgr.closeSocket(node.getChannel(),
                         _type + " -> active, ip " + node.getIpStr() + " exits");
+                } else if (peerStore != null && !node.getIfFromBootList()) {
+                    peerStore.seen(node, latency);
                 }
 
                 if (p2pLOG.isDebugEnabled()) {
@@ -480,6 +547,8 @@ public class NodeMgr implements INodeMgr {
         } catch (Exception e) {
             p2pLOG.info("p2p-shutdown exception ", e);
         }
+
+        persistPeers(true);
     }
 
     @Override
@@ -488,6 +557,9 @@ public class NodeMgr implements INodeMgr {
             INode node = activeNodes.get(_nodeIdHash);
             if (node != null) {
                 node.getPeerMetric().ban();
+                if (peerStore != null) {
+                    peerStore.banned(node);
+                }
             }
         } catch (NullPointerException e) {
             p2pLOG.info("p2p-ban null exception ", e);
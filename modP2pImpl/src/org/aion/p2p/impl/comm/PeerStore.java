@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.p2p.impl.comm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.base.util.Hex;
+import org.aion.p2p.INode;
+import org.slf4j.Logger;
+
+/**
+ * Peers seen in earlier runs, kept in a small text file so that a restarted node can dial the
+ * peers it knows to be good before falling back on the seed nodes.
+ *
+ * <p>For each peer the file records when it was last seen active, the latency of the last
+ * outbound handshake, the best block it reported and how often connecting to it failed or it got
+ * banned. One line per peer:
+ *
+ * <pre>
+ * node-id-hex ip port last-seen-ms latency-ms best-block failures bans
+ * </pre>
+ */
+public final class PeerStore {
+
+    // records not seen for that long are forgotten
+    static final long MAX_AGE = 7L * 24 * 3600 * 1000;
+
+    // most records kept, the lowest scored are dropped beyond that
+    static final int MAX_RECORDS = 1024;
+
+    // latency assumed for peers never dialed by us
+    private static final long DEFAULT_LATENCY = 500;
+
+    private final File file;
+    private final Logger log;
+    private final Map<String, Record> records = new HashMap<>();
+    private boolean dirty = false;
+
+    public PeerStore(final File _file, final Logger _log) {
+        this.file = _file;
+        this.log = _log;
+    }
+
+    static final class Record {
+
+        final byte[] id;
+        String ip;
+        int port;
+        long lastSeen;
+        long latency = DEFAULT_LATENCY;
+        long bestBlock;
+        int failures;
+        int bans;
+
+        Record(byte[] _id, String _ip, int _port) {
+            this.id = _id;
+            this.ip = _ip;
+            this.port = _port;
+        }
+
+        /**
+         * Higher is better. A point is lost per hour since the peer was last seen, per 100ms of
+         * handshake latency, per 1000 blocks it was behind the best peer on record, and for each
+         * failure or ban.
+         */
+        double score(long _now, long _topBlock) {
+            double s = 0;
+            s -= Math.max(0, _now - lastSeen) / 3_600_000d;
+            s -= latency / 100d;
+            s -= Math.min(Math.max(0, _topBlock - bestBlock), 100_000) / 1000d;
+            s -= 10d * failures;
+            s -= 50d * bans;
+            return s;
+        }
+
+        String encode() {
+            return Hex.toHexString(id) + " " + ip + " " + port + " " + lastSeen + " " + latency
+                + " " + bestBlock + " " + failures + " " + bans;
+        }
+
+        static Record decode(String _line) {
+            String[] f = _line.trim().split("\\s+");
+            if (f.length != 8) {
+                return null;
+            }
+            try {
+                byte[] id = Hex.decode(f[0]);
+                int port = Integer.parseInt(f[2]);
+                if (id == null || id.length != 36 || port < 1 || port > 65535) {
+                    return null;
+                }
+                Record r = new Record(id, f[1], port);
+                r.lastSeen = Long.parseLong(f[3]);
+                r.latency = Long.parseLong(f[4]);
+                r.bestBlock = Long.parseLong(f[5]);
+                r.failures = Integer.parseInt(f[6]);
+                r.bans = Integer.parseInt(f[7]);
+                return r;
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    private static String key(INode _n) {
+        return Hex.toHexString(_n.getId());
+    }
+
+    private static boolean hasId(INode _n) {
+        return _n.getId() != null && _n.getId().length == 36;
+    }
+
+    private Record recordOf(INode _n) {
+        Record r = records.computeIfAbsent(key(_n), k -> new Record(_n.getId(), _n.getIpStr(),
+            _n.getPort()));
+        if (_n.getPort() > 0) {
+            r.ip = _n.getIpStr();
+            r.port = _n.getPort();
+        }
+        dirty = true;
+        return r;
+    }
+
+    /**
+     * Reads the file, forgetting records older than {@link #MAX_AGE}. A missing file is an empty
+     * store and unreadable lines are skipped.
+     */
+    public synchronized void load() {
+        records.clear();
+        if (!file.isFile()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                Record r = Record.decode(line);
+                if (r != null && now - r.lastSeen < MAX_AGE) {
+                    records.put(Hex.toHexString(r.id), r);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("peer-store load {} failed: {}", file, e.toString());
+        }
+        dirty = false;
+    }
+
+    /**
+     * @return up to {@code _max} known peers, best scored first
+     */
+    public synchronized List<Node> best(int _max) {
+        List<Record> sorted = sorted(System.currentTimeMillis());
+        List<Node> nodes = new ArrayList<>();
+        for (Record r : sorted) {
+            if (nodes.size() >= _max) {
+                break;
+            }
+            try {
+                nodes.add(new Node(false, r.id, Node.ipStrToBytes(r.ip), r.port));
+            } catch (RuntimeException e) {
+                // skip record with a malformed ip
+            }
+        }
+        return nodes;
+    }
+
+    private List<Record> sorted(long _now) {
+        long top = records.values().stream().mapToLong(r -> r.bestBlock).max().orElse(0);
+        List<Record> sorted = new ArrayList<>(records.values());
+        sorted.sort(Comparator.comparingDouble((Record r) -> -r.score(_now, top)));
+        return sorted;
+    }
+
+    /**
+     * Records a peer that completed a handshake.
+     *
+     * @param _latency handshake latency in ms, or a negative value if not measured
+     */
+    public synchronized void seen(final INode _n, long _latency) {
+        if (!hasId(_n)) {
+            return;
+        }
+        Record r = recordOf(_n);
+        r.lastSeen = System.currentTimeMillis();
+        r.failures = 0;
+        if (_latency >= 0) {
+            r.latency = _latency;
+        }
+        if (_n.getBestBlockNumber() > r.bestBlock) {
+            r.bestBlock = _n.getBestBlockNumber();
+        }
+    }
+
+    /**
+     * Refreshes the last seen time and best block of a peer that is still active.
+     */
+    public synchronized void active(final INode _n) {
+        if (!hasId(_n)) {
+            return;
+        }
+        Record r = recordOf(_n);
+        r.lastSeen = Math.max(r.lastSeen, _n.getTimestamp());
+        r.bestBlock = Math.max(r.bestBlock, _n.getBestBlockNumber());
+    }
+
+    public synchronized void failed(final INode _n) {
+        if (hasId(_n) && records.containsKey(key(_n))) {
+            recordOf(_n).failures++;
+        }
+    }
+
+    public synchronized void banned(final INode _n) {
+        if (hasId(_n)) {
+            recordOf(_n).bans++;
+        }
+    }
+
+    public synchronized int size() {
+        return records.size();
+    }
+
+    /**
+     * Writes the best {@link #MAX_RECORDS} records if anything changed since the last save. The
+     * file is replaced atomically, so a crash leaves either the old or the new content.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<Record> sorted = sorted(now);
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("cannot create " + dir);
+            }
+
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write("# node-id ip port last-seen latency best-block failures bans");
+                writer.newLine();
+                int n = 0;
+                for (Record r : sorted) {
+                    if (n++ >= MAX_RECORDS) {
+                        break;
+                    }
+                    if (now - r.lastSeen < MAX_AGE) {
+                        writer.write(r.encode());
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            log.warn("peer-store save {} failed: {}", file, e.toString());
+        }
+    }
+}
@@ -23,6 +23,7 @@
 package org.aion.p2p.impl1;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.InetSocketAddress;
@@ -60,10 +61,12 @@ import org.aion.p2p.impl.TaskRequestActiveNodes;
 import org.aion.p2p.impl.TaskUPnPManager;
 import org.aion.p2p.impl.comm.Node;
 import org.aion.p2p.impl.comm.NodeMgr;
+import org.aion.p2p.impl.comm.PeerStore;
 import org.aion.p2p.impl.zero.msg.ReqHandshake1;
 import org.aion.p2p.impl.zero.msg.ResHandshake1;
 import org.aion.p2p.impl1.tasks.MsgIn;
 import org.aion.p2p.impl1.tasks.MsgOut;
+import org.aion.p2p.impl1.tasks.SelectorPool;
 import org.aion.p2p.impl1.tasks.TaskClear;
 import org.aion.p2p.impl1.tasks.TaskConnectPeers;
 import org.aion.p2p.impl1.tasks.TaskInbound;
@@ -81,6 +84,7 @@ public final class P2pMgr implements IP2pMgr {
     private static final int PERIOD_REQUEST_ACTIVE_NODES = 1000;
     private static final int PERIOD_UPNP_PORT_MAPPING = 3600000;
     private static final int TIMEOUT_MSG_READ = 10000;
+    private static final int MAX_INBOUND_THREADS = 4;
 
     // TODO: need refactor by passing the parameter in the later version to P2pMgr.
     public static int txBroadCastRoute =
@@ -100,6 +104,7 @@ public final class P2pMgr implements IP2pMgr {
 
     private ServerSocketChannel tcpServer;
     private Selector selector;
+    private SelectorPool selectorPool;
     private ScheduledExecutorService scheduledWorkers;
     private int errTolerance;
     private BlockingQueue<MsgOut> sendMsgQue = new LinkedBlockingQueue<>();
@@ -137,6 +142,26 @@ public final class P2pMgr implements IP2pMgr {
         final int _maxActiveNodes,
         final boolean _bootlistSyncOnly,
         final int _errorTolerance) {
+        this(_netId, _revision, _nodeId, _ip, _port, _bootNodes, _upnpEnable, _maxTempNodes,
+            _maxActiveNodes, _bootlistSyncOnly, _errorTolerance, null);
+    }
+
+    /**
+     * @param _peerStore file keeping the peers seen across restarts, null to not persist them
+     */
+    public P2pMgr(
+        final int _netId,
+        final String _revision,
+        final String _nodeId,
+        final String _ip,
+        final int _port,
+        final String[] _bootNodes,
+        final boolean _upnpEnable,
+        final int _maxTempNodes,
+        final int _maxActiveNodes,
+        final boolean _bootlistSyncOnly,
+        final int _errorTolerance,
+        final File _peerStore) {
 
         this.selfNetId = _netId;
         this.selfRevision = _revision;
@@ -151,10 +176,17 @@ public final class P2pMgr implements IP2pMgr {
         this.syncSeedsOnly = _bootlistSyncOnly;
         this.errTolerance = _errorTolerance;
 
-        nodeMgr = new NodeMgr(this, _maxActiveNodes, _maxTempNodes, p2pLOG);
+        NodeMgr mgr = new NodeMgr(this, _maxActiveNodes, _maxTempNodes, p2pLOG,
+            _peerStore == null ? null : new PeerStore(_peerStore, p2pLOG));
+        nodeMgr = mgr;
 
         outGoingIP = checkOutGoingIP();
 
+        // peers known from earlier runs are dialed first, the seed nodes only after them
+        if (!_bootlistSyncOnly) {
+            mgr.loadPersistedNodes(_bootNodes.length);
+        }
+
         for (String _bootNode : _bootNodes) {
             Node node = Node.parseP2p(_bootNode);
             if (validateNode(node)) {
@@ -163,9 +195,6 @@ public final class P2pMgr implements IP2pMgr {
             }
         }
 
-
-        // rem out for bug:
-        // nodeMgr.loadPersistedNodes();
         cachedResHandshake1 = new ResHandshake1(true, this.selfRevision);
     }
 
@@ -174,6 +203,11 @@ public final class P2pMgr implements IP2pMgr {
         try {
             selector = Selector.open();
 
+            int pNum = Runtime.getRuntime().availableProcessors();
+
+            // the acceptor thread only blocks on the server socket, peers are spread over these
+            selectorPool = new SelectorPool(Math.min(Math.max(pNum >> 1, 1), MAX_INBOUND_THREADS));
+
             scheduledWorkers = new ScheduledThreadPoolExecutor(2);
 
             tcpServer = ServerSocketChannel.open();
@@ -182,10 +216,17 @@ public final class P2pMgr implements IP2pMgr {
             tcpServer.socket().bind(new InetSocketAddress(Node.ipBytesToStr(selfIp), selfPort));
             tcpServer.register(selector, SelectionKey.OP_ACCEPT);
 
-            Thread thrdIn = new Thread(getInboundInstance(), "p2p-in");
+            Thread thrdIn = new Thread(getInboundInstance(this.selector, -1), "p2p-in");
             thrdIn.setPriority(Thread.NORM_PRIORITY);
             thrdIn.start();
 
+            for (int i = 0; i < selectorPool.size(); i++) {
+                Thread thrdRead = new Thread(getInboundInstance(selectorPool.get(i), i),
+                    "p2p-in-" + i);
+                thrdRead.setPriority(Thread.NORM_PRIORITY);
+                thrdRead.start();
+            }
+
             if (p2pLOG.isDebugEnabled()) {
                 this.handlers.forEach(
                     (route, callbacks) -> {
@@ -196,8 +237,6 @@ public final class P2pMgr implements IP2pMgr {
                     });
             }
 
-            int pNum = Runtime.getRuntime().availableProcessors();
-
             for (int i = 0; i < (pNum << 1); i++) {
                 Thread thrdOut = new Thread(getSendInstance(i), "p2p-out-" + i);
                 thrdOut.setPriority(Thread.NORM_PRIORITY);
@@ -282,6 +321,12 @@ public final class P2pMgr implements IP2pMgr {
     public void shutdown() {
         start.set(false);
         scheduledWorkers.shutdownNow();
+        if (selectorPool != null) {
+            selectorPool.wakeupAll();
+        }
+        if (selector != null) {
+            selector.wakeup();
+        }
 
         for (List<Handler> hdrs : handlers.values()) {
             hdrs.forEach(Handler::shutDown);
@@ -320,7 +365,7 @@ public final class P2pMgr implements IP2pMgr {
         }
 
         if (_sc != null) {
-            SelectionKey sk = _sc.keyFor(selector);
+            SelectionKey sk = selectorPool == null ? null : selectorPool.keyFor(_sc);
             if (sk != null) {
                 sk.cancel();
             }
@@ -430,13 +475,15 @@ public final class P2pMgr implements IP2pMgr {
     }
 
 
-    private TaskInbound getInboundInstance() {
+    private TaskInbound getInboundInstance(Selector _selector, int _slot) {
         return new TaskInbound(
             this,
-            this.selector,
+            _selector,
+            this.selectorPool,
+            _slot,
             this.start,
             this.nodeMgr,
-            this.tcpServer,
+            _slot < 0 ? this.tcpServer : null,
             this.handlers,
             this.sendMsgQue,
             cachedResHandshake1,
@@ -450,7 +497,7 @@ public final class P2pMgr implements IP2pMgr {
             this.sendMsgQue,
             this.start,
             this.nodeMgr,
-            this.selector);
+            this.selectorPool);
     }
 
     private TaskReceive getReceiveInstance() {
@@ -478,7 +525,7 @@ public final class P2pMgr implements IP2pMgr {
             this.start,
             this.nodeMgr,
             this.maxActiveNodes,
-            this.selector,
+            this.selectorPool,
             this.sendMsgQue,
             cachedReqHandshake1);
     }
@@ -25,25 +25,48 @@ package org.aion.p2p.impl1.tasks;
 
 import static org.aion.p2p.impl1.P2pMgr.p2pLOG;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.aion.p2p.Header;
+import org.aion.p2p.Msg;
 
 /**
  * @author chris
  */
 class ChannelBuffer {
 
+    // staged bytes above which new outbound messages are dropped
+    static final int MAX_OUTBOUND_BYTES = 8 * 1024 * 1024;
+    // max chunks per gathering write
+    private static final int MAX_GATHER = 64;
+    // initial size of the framing buffer, larger messages grow it
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+    // framing buffers above this size are given back once the large message is read
+    private static final int MAX_KEPT_READ_BUFFER = 1024 * 1024;
+
     byte[] body = null;
     Lock lock = new ReentrantLock();
+    // messages waiting to be staged by whichever writer holds the lock
+    final Queue<Msg> pendingMsgs = new ConcurrentLinkedQueue<>();
+    // staged chunks waiting for the socket, guarded by lock
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private ByteBuffer outboundTail = null;
+    private long outboundBytes = 0;
+    private boolean writeInterest = false;
     private Header header = null;
-    // buffer for buffer remaining after NIO select read.
-    private byte[] remainBuffer;
-    private int buffRemain = 0;
+    // bytes read from the socket and not yet framed into a message, in write mode between reads
+    private ByteBuffer readBuf = null;
     private int nodeIdHash;
     private String displayId;
     private byte[] bsHead = new byte[Header.LEN];
@@ -81,14 +104,6 @@ class ChannelBuffer {
         this.closed.set(true);
     }
 
-    int getBuffRemain() {
-        return buffRemain;
-    }
-
-    void setBuffRemain(int buffRemain) {
-        this.buffRemain = buffRemain;
-    }
-
     /**
      * @param _route int
      * @param _maxReqsPerSec int requests within 1 s
@@ -187,12 +202,42 @@ class ChannelBuffer {
         return header == null || body == null || body.length != header.getLen();
     }
 
-    byte[] getRemainBuffer() {
-        return remainBuffer;
+    /**
+     * @return the framing buffer of the channel, ready for the next socket read
+     */
+    ByteBuffer getReadBuffer() {
+        if (readBuf == null) {
+            readBuf = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        }
+        return readBuf;
+    }
+
+    /**
+     * Moves the bytes not framed yet to the front of the read buffer, after the messages they
+     * followed were handled. The buffer only grows once it is filled by the message being read,
+     * doubling up to the declared length, so a header alone never claims the memory of its body.
+     * It is replaced by a default sized one once a large message is done.
+     */
+    void compactReadBuffer() {
+        int need = header == null ? Header.LEN : header.getLen();
+        int pending = readBuf.remaining();
+        int cap = readBuf.capacity();
+        int size;
+        if (pending == cap && need > cap) {
+            size = (int) Math.min(2L * cap, need);
+        } else if (cap > MAX_KEPT_READ_BUFFER && pending <= READ_BUFFER_SIZE) {
+            size = READ_BUFFER_SIZE;
+        } else {
+            readBuf.compact();
+            return;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put(readBuf);
+        readBuf = buf;
     }
 
-    void setRemainBuffer(byte[] remainBuffer) {
-        this.remainBuffer = remainBuffer;
+    int getReadBufferCapacity() {
+        return readBuf == null ? 0 : readBuf.capacity();
     }
 
     public Header getHeader() {
@@ -203,6 +248,108 @@ class ChannelBuffer {
         header = _header;
     }
 
+    /**
+     * Copies an encoded message into pooled chunks, packing small messages into the same chunk.
+     * Must be called holding {@link #lock}.
+     *
+     * @return false if the message was dropped because too much is already waiting for the socket
+     */
+    boolean stageOutbound(final byte[] _header, final byte[] _body) {
+        if (outboundBytes >= MAX_OUTBOUND_BYTES) {
+            return false;
+        }
+        stage(_header);
+        if (_body != null) {
+            stage(_body);
+        }
+        return true;
+    }
+
+    private void stage(final byte[] _bytes) {
+        int off = 0;
+        while (off < _bytes.length) {
+            if (outboundTail == null || !outboundTail.hasRemaining()) {
+                if (outboundTail != null) {
+                    outboundTail.flip();
+                    outbound.add(outboundTail);
+                }
+                outboundTail = DirectBufferPool.OUTBOUND.acquire();
+            }
+            int len = Math.min(outboundTail.remaining(), _bytes.length - off);
+            outboundTail.put(_bytes, off, len);
+            off += len;
+        }
+        outboundBytes += _bytes.length;
+    }
+
+    /**
+     * Writes the staged chunks with gathering writes until they are all written or the socket
+     * buffer is full. Must be called holding {@link #lock}.
+     *
+     * @return true if nothing is left to write
+     */
+    boolean writeOutbound(final SocketChannel _sc) throws IOException {
+        if (outboundTail != null && outboundTail.position() > 0) {
+            outboundTail.flip();
+            outbound.add(outboundTail);
+            outboundTail = null;
+        }
+
+        while (!outbound.isEmpty()) {
+            int cnt = 0;
+            Iterator<ByteBuffer> it = outbound.iterator();
+            while (it.hasNext() && cnt < MAX_GATHER) {
+                gather[cnt++] = it.next();
+            }
+
+            long written = _sc.write(gather, 0, cnt);
+            outboundBytes -= written;
+
+            while (!outbound.isEmpty() && !outbound.peekFirst().hasRemaining()) {
+                DirectBufferPool.OUTBOUND.release(outbound.pollFirst());
+            }
+
+            if (written == 0) {
+                break;
+            }
+        }
+
+        for (int i = 0; i < MAX_GATHER; i++) {
+            gather[i] = null;
+        }
+        return outbound.isEmpty();
+    }
+
+    /**
+     * Drops everything that was not written yet. Must be called holding {@link #lock}.
+     */
+    void clearOutbound() {
+        pendingMsgs.clear();
+        while (!outbound.isEmpty()) {
+            DirectBufferPool.OUTBOUND.release(outbound.pollFirst());
+        }
+        if (outboundTail != null) {
+            DirectBufferPool.OUTBOUND.release(outboundTail);
+            outboundTail = null;
+        }
+        outboundBytes = 0;
+    }
+
+    long getOutboundBytes() {
+        return outboundBytes;
+    }
+
+    /**
+     * Indicates whether OP_WRITE is set on the channel key because the socket buffer was full.
+     */
+    boolean isWriteInterest() {
+        return writeInterest;
+    }
+
+    void setWriteInterest(boolean _writeInterest) {
+        this.writeInterest = _writeInterest;
+    }
+
     class RouteStatus {
 
         long timestamp;
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.p2p.impl1.tasks;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed size direct buffers used to stage outbound messages. Messages are copied into as
+ * many chunks as they need and written with a gathering write, so the JDK does not have to copy
+ * heap buffers into its own temporary direct buffers on every write.
+ */
+final class DirectBufferPool {
+
+    static final int CHUNK_SIZE = 16 * 1024;
+
+    // shared by all channels, at most 16MB kept for reuse
+    static final DirectBufferPool OUTBOUND = new DirectBufferPool(1024);
+
+    private final int capacity;
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    DirectBufferPool(final int _capacity) {
+        this.capacity = _capacity;
+    }
+
+    /**
+     * @return a cleared chunk, allocated if the pool is empty
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buf = free.poll();
+        if (buf == null) {
+            return ByteBuffer.allocateDirect(CHUNK_SIZE);
+        }
+        freeCount.decrementAndGet();
+        buf.clear();
+        return buf;
+    }
+
+    /**
+     * Returns a chunk to the pool. Chunks above the pool capacity are left to the garbage
+     * collector.
+     */
+    void release(final ByteBuffer _buf) {
+        if (freeCount.incrementAndGet() <= capacity) {
+            free.offer(_buf);
+        } else {
+            freeCount.decrementAndGet();
+        }
+    }
+
+    int freeCount() {
+        return freeCount.get();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.p2p.impl1.tasks;
+
+import static org.aion.p2p.impl1.P2pMgr.p2pLOG;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The selectors of the inbound reactors. Each peer channel is registered with exactly one of them
+ * and from then on only read by the {@link TaskInbound} thread owning that selector.
+ *
+ * <p>Channels are never registered from another thread while the owner may be blocked in {@code
+ * select}; {@link #register} queues the registration and wakes the owner up, which runs it on its
+ * next turn.
+ */
+public final class SelectorPool {
+
+    private final Selector[] selectors;
+    private final Queue<Runnable>[] pending;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public SelectorPool(int _size) throws IOException {
+        this(open(_size));
+    }
+
+    @SuppressWarnings("unchecked")
+    public SelectorPool(Selector... _selectors) {
+        if (_selectors.length == 0) {
+            throw new IllegalArgumentException("empty selector pool");
+        }
+        this.selectors = _selectors;
+        this.pending = new Queue[_selectors.length];
+        for (int i = 0; i < _selectors.length; i++) {
+            this.pending[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    private static Selector[] open(int _size) throws IOException {
+        Selector[] selectors = new Selector[_size];
+        for (int i = 0; i < _size; i++) {
+            selectors[i] = Selector.open();
+        }
+        return selectors;
+    }
+
+    public int size() {
+        return selectors.length;
+    }
+
+    public Selector get(int _slot) {
+        return selectors[_slot];
+    }
+
+    /**
+     * Hands a connected channel to the next selector, round robin, for reading.
+     *
+     * @param _onRegistered run by the selector thread once the channel is registered, may be null
+     */
+    void register(final SocketChannel _sc, final ChannelBuffer _cb, final Runnable _onRegistered) {
+        int slot = Math.floorMod(next.getAndIncrement(), selectors.length);
+        Selector selector = selectors[slot];
+        pending[slot].offer(
+            () -> {
+                try {
+                    _sc.register(selector, SelectionKey.OP_READ, _cb);
+                } catch (ClosedChannelException e) {
+                    if (p2pLOG.isDebugEnabled()) {
+                        p2pLOG.debug("register closed-channel node={}", _cb.getDisplayId());
+                    }
+                    _cb.setClosed();
+                    return;
+                }
+                if (_onRegistered != null) {
+                    _onRegistered.run();
+                }
+            });
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the registrations queued for the selector in {@code _slot}. Must be called by the thread
+     * selecting on it.
+     */
+    void runPending(int _slot) {
+        Runnable r;
+        while ((r = pending[_slot].poll()) != null) {
+            try {
+                r.run();
+            } catch (Exception e) {
+                p2pLOG.error("selector-pool register exception {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * @return the key of the channel with whichever selector owns it, or null if it has not been
+     *     registered yet
+     */
+    public SelectionKey keyFor(final SelectableChannel _channel) {
+        for (Selector selector : selectors) {
+            SelectionKey sk = _channel.keyFor(selector);
+            if (sk != null) {
+                return sk;
+            }
+        }
+        return null;
+    }
+
+    /** Wakes up every selector thread, e.g. for them to notice a shutdown. */
+    public void wakeupAll() {
+        for (Selector selector : selectors) {
+            selector.wakeup();
+        }
+    }
+}
@@ -27,8 +27,6 @@ import static org.aion.p2p.impl1.P2pMgr.p2pLOG;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -48,7 +46,7 @@ public class TaskConnectPeers implements Runnable {
     private final IP2pMgr mgr;
     private final AtomicBoolean start;
     private final BlockingQueue<MsgOut> sendMsgQue;
-    private final Selector selector;
+    private final SelectorPool selectorPool;
     private final ReqHandshake1 cachedReqHS;
 
     public TaskConnectPeers(
@@ -56,7 +54,7 @@ public class TaskConnectPeers implements Runnable {
         final AtomicBoolean _start,
         final INodeMgr _nodeMgr,
         final int _maxActiveNodes,
-        final Selector _selector,
+        final SelectorPool _selectorPool,
         final BlockingQueue<MsgOut> _sendMsgQue,
         final ReqHandshake1 _cachedReqHS) {
 
@@ -64,7 +62,7 @@ public class TaskConnectPeers implements Runnable {
         this.nodeMgr = _nodeMgr;
         this.maxActiveNodes = _maxActiveNodes;
         this.mgr = _mgr;
-        this.selector = _selector;
+        this.selectorPool = _selectorPool;
         this.sendMsgQue = _sendMsgQue;
         this.cachedReqHS = _cachedReqHS;
     }
@@ -117,11 +115,9 @@ public class TaskConnectPeers implements Runnable {
                         }
 
                         channel.configureBlocking(false);
-                        SelectionKey sk = channel.register(this.selector, SelectionKey.OP_READ);
                         ChannelBuffer rb = new ChannelBuffer();
                         rb.setDisplayId(node.getIdShort());
                         rb.setNodeIdHash(nodeIdHash);
-                        sk.attach(rb);
 
                         node.refreshTimestamp();
                         node.setChannel(channel);
@@ -132,12 +128,15 @@ public class TaskConnectPeers implements Runnable {
                                 node.getIdShort(), node.getIpStr());
                         }
 
-                        this.sendMsgQue.offer(
-                            new MsgOut(
-                                node.getIdHash(),
-                                node.getIdShort(),
-                                this.cachedReqHS,
-                                Dest.OUTBOUND));
+                        // the handshake can only be written once the channel has a key
+                        final INode outbound = node;
+                        this.selectorPool.register(channel, rb, () ->
+                            this.sendMsgQue.offer(
+                                new MsgOut(
+                                    outbound.getIdHash(),
+                                    outbound.getIdShort(),
+                                    this.cachedReqHS,
+                                    Dest.OUTBOUND)));
                         // node.peerMetric.decFailedCount();
 
                     } else {
@@ -148,6 +147,7 @@ public class TaskConnectPeers implements Runnable {
                         }
 
                         channel.close();
+                        this.nodeMgr.connectFailed(node);
                         // node.peerMetric.incFailedCount();
                     }
                 } catch (Exception e) {
@@ -161,6 +161,8 @@ public class TaskConnectPeers implements Runnable {
                         p2pLOG.trace("close channel {}", node.toString());
                     }
 
+                    this.nodeMgr.connectFailed(node);
+
                     if (channel != null) {
                         try {
                             channel.close();
@@ -57,10 +57,23 @@ import org.aion.p2p.impl.zero.msg.ResHandshake1;
 import org.aion.p2p.impl1.P2pException;
 import org.aion.p2p.impl1.P2pMgr.Dest;
 
+/**
+ * An inbound reactor: blocks in {@code select} on its own selector and reads the peer channels
+ * registered with it. The reactor holding the server socket is the acceptor and hands the accepted
+ * channels to the reactors of the {@link SelectorPool}.
+ */
 public class TaskInbound implements Runnable {
 
+    // upper bound of a blocking select, so that a shutdown is noticed without a wakeup
+    private static final long SELECT_TIMEOUT = 1000;
+
+    // bytes read from one channel per readiness, the rest is left for the next select
+    private static final int MAX_READ_PER_SELECT = 1024 * 1024;
+
     private final IP2pMgr mgr;
     private final Selector selector;
+    private final SelectorPool pool;
+    private final int slot;
     private final INodeMgr nodeMgr;
     private final Map<Integer, List<Handler>> handlers;
     private final AtomicBoolean start;
@@ -69,9 +82,37 @@ public class TaskInbound implements Runnable {
     private final ResHandshake1 cachedResHandshake1;
     private final BlockingQueue<MsgIn> receiveMsgQue;
 
+    /**
+     * A single reactor that accepts on {@code _selector} and reads the accepted channels itself.
+     */
+    public TaskInbound(
+        final IP2pMgr _mgr,
+        final Selector _selector,
+        final AtomicBoolean _start,
+        final INodeMgr _nodeMgr,
+        final ServerSocketChannel _tcpServer,
+        final Map<Integer, List<Handler>> _handlers,
+        final BlockingQueue<MsgOut> _sendMsgQue,
+        final ResHandshake1 _cachedResHandshake1,
+        final BlockingQueue<MsgIn> _receiveMsgQue) {
+
+        this(_mgr, _selector, new SelectorPool(_selector), 0, _start, _nodeMgr, _tcpServer,
+            _handlers, _sendMsgQue, _cachedResHandshake1, _receiveMsgQue);
+    }
+
+    /**
+     * @param _selector the selector this reactor blocks on
+     * @param _pool the reactors accepted channels are handed to
+     * @param _slot the index of {@code _selector} in {@code _pool}, or -1 for an acceptor reading
+     *     no channels itself
+     * @param _tcpServer the server socket registered with {@code _selector}, null if this reactor
+     *     does not accept
+     */
     public TaskInbound(
         final IP2pMgr _mgr,
         final Selector _selector,
+        final SelectorPool _pool,
+        final int _slot,
         final AtomicBoolean _start,
         final INodeMgr _nodeMgr,
         final ServerSocketChannel _tcpServer,
@@ -82,6 +123,8 @@ public class TaskInbound implements Runnable {
 
         this.mgr = _mgr;
         this.selector = _selector;
+        this.pool = _pool;
+        this.slot = _slot;
         this.start = _start;
         this.nodeMgr = _nodeMgr;
         this.tcpServer = _tcpServer;
@@ -94,21 +137,21 @@ public class TaskInbound implements Runnable {
     @Override
     public void run() {
 
-        // readBuffer buffer pre-alloc. @ max_body_size
-        ByteBuffer readBuf = ByteBuffer.allocate(P2pConstant.MAX_BODY_SIZE);
-
         while (start.get()) {
+            int selected;
             try {
-                if (this.selector.selectNow() == 0) {
-                    Thread.sleep(0, 1);
-                    continue;
-                }
+                selected = this.selector.select(SELECT_TIMEOUT);
             } catch (IOException | ClosedSelectorException e) {
                 p2pLOG.debug("inbound-select-exception", e);
                 continue;
-            } catch (InterruptedException e) {
-                p2pLOG.error("inbound thread sleep exception ", e);
-                return;
+            }
+
+            if (slot >= 0) {
+                this.pool.runPending(slot);
+            }
+
+            if (selected == 0) {
+                continue;
             }
 
             try {
@@ -132,7 +175,14 @@ public class TaskInbound implements Runnable {
                                 p2pLOG.error("inbound exception={}", new P2pException("attachment is null").getMessage());
                                 continue;
                             }
-                            readBuffer(key, cb, readBuf);
+                            readBuffer(key, cb);
+                        }
+
+                        if (key.isValid() && key.isWritable()) {
+                            cb = (ChannelBuffer) key.attachment();
+                            if (cb != null) {
+                                TaskWrite.flush(key, cb, cb.getDisplayId(), true);
+                            }
                         }
                     } catch (Exception e) {
                         this.mgr.closeSocket(key != null ? (SocketChannel) key.channel() : null,
@@ -189,9 +239,8 @@ public class TaskInbound implements Runnable {
             }
 
             node.setChannel(channel);
-            SelectionKey sk = channel.register(this.selector, SelectionKey.OP_READ);
-            sk.attach(new ChannelBuffer());
             this.nodeMgr.addInboundNode(node);
+            this.pool.register(channel, new ChannelBuffer(), null);
 
             if (p2pLOG.isDebugEnabled()) {
                 p2pLOG.debug("new-connection {}:{}", ip, port);
@@ -199,120 +248,58 @@ public class TaskInbound implements Runnable {
         }
     }
 
-    private int readHeader(final ChannelBuffer _cb,
-        final ByteBuffer _readBuf, int cnt) {
-
-        if (cnt < Header.LEN) {
-            return cnt;
-        }
-
-        int origPos = _readBuf.position();
-
-        int startP = origPos - cnt;
-
-        _readBuf.position(startP);
-
-        _cb.readHead(_readBuf);
-
-        _readBuf.position(origPos);
-
-        return cnt - Header.LEN;
-    }
-
-    private int readBody(final ChannelBuffer _cb, ByteBuffer _readBuf, int _cnt) {
-
-        int bodyLen = _cb.getHeader().getLen();
-
-        // some msg have nobody.
-        if (bodyLen == 0) {
-            _cb.body = new byte[0];
-            return _cnt;
-        }
-
-        if (_cnt < bodyLen) {
-            return _cnt;
-        }
-
-        int origPos = _readBuf.position();
-        int startP = origPos - _cnt;
-        _readBuf.position(startP);
-        _cb.readBody(_readBuf);
-        _readBuf.position(origPos);
-        return _cnt - bodyLen;
-    }
-
-    private void readBuffer(final SelectionKey _sk, final ChannelBuffer _cb,
-        final ByteBuffer _readBuf) throws Exception {
-
-        _readBuf.rewind();
+    /**
+     * Reads straight into the framing buffer of the channel and handles every message completed by
+     * the read. A partial message stays in that buffer for the next read.
+     */
+    private void readBuffer(final SelectionKey _sk, final ChannelBuffer _cb) throws IOException {
 
         SocketChannel sc = (SocketChannel) _sk.channel();
 
         int r;
         int cnt = 0;
         do {
-            r = sc.read(_readBuf);
+            ByteBuffer buf = _cb.getReadBuffer();
+            r = sc.read(buf);
+            if (r < 0) {
+                throw new P2pException("end-of-stream");
+            }
             cnt += r;
-        } while (r > 0);
 
-        if (cnt < 1) {
-            return;
-        }
+            buf.flip();
+            readMsgs(_sk, _cb, buf);
+            _cb.compactReadBuffer();
+        } while (r > 0 && cnt < MAX_READ_PER_SELECT);
+    }
 
-        int remainBufAll = _cb.getBuffRemain() + cnt;
-        ByteBuffer bufferAll = calBuffer(_cb, _readBuf, cnt);
+    private void readMsgs(final SelectionKey _sk, final ChannelBuffer _cb, final ByteBuffer _buf)
+        throws P2pException {
 
-        do {
-            r = readMsg(_sk, bufferAll, remainBufAll);
-            if (remainBufAll == r) {
-                break;
-            } else {
-                remainBufAll = r;
+        while (true) {
+            if (_cb.isHeaderNotCompleted()) {
+                if (_buf.remaining() < Header.LEN) {
+                    return;
+                }
+                _cb.readHead(_buf);
+                if (_cb.isHeaderNotCompleted()) {
+                    throw new P2pException("invalid-header");
+                }
             }
-        } while (r > 0);
-
-        _cb.setBuffRemain(r);
-
-        if (r != 0) {
-            // there are no perfect cycling buffer in jdk
-            // yet.
-            // simply just buff move for now.
-            // @TODO: looking for more efficient way.
 
-            int currPos = bufferAll.position();
-            _cb.setRemainBuffer(new byte[r]);
-            bufferAll.position(currPos - r);
-            bufferAll.get(_cb.getRemainBuffer());
-
-        }
-
-        _readBuf.rewind();
-    }
-
-    private int readMsg(SelectionKey _sk, ByteBuffer _readBuf, int _cnt) throws IOException {
-        ChannelBuffer cb = (ChannelBuffer) _sk.attachment();
-        if (cb == null) {
-            throw new P2pException("attachment is null");
-        }
-
-        int readCnt;
-        if (cb.isHeaderNotCompleted()) {
-            readCnt = readHeader(cb, _readBuf, _cnt);
-        } else {
-            readCnt = _cnt;
-        }
+            int bodyLen = _cb.getHeader().getLen();
+            if (_buf.remaining() < bodyLen) {
+                return;
+            }
 
-        if (cb.isBodyNotCompleted()) {
-            readCnt = readBody(cb, _readBuf, readCnt);
-        }
+            // some msg have nobody.
+            if (bodyLen == 0) {
+                _cb.body = new byte[0];
+            } else {
+                _cb.readBody(_buf);
+            }
 
-        if (cb.isBodyNotCompleted()) {
-            return readCnt;
+            handleMsg(_sk, _cb);
         }
-
-        handleMsg(_sk, cb);
-
-        return readCnt;
     }
 
     private void handleMsg(SelectionKey _sk, ChannelBuffer _cb) {
@@ -375,22 +362,6 @@ public class TaskInbound implements Runnable {
         }
     }
 
-    private ByteBuffer calBuffer(ChannelBuffer _cb, ByteBuffer _readBuf, int _cnt) {
-        ByteBuffer r;
-        if (_cb.getBuffRemain() != 0) {
-            byte[] alreadyRead = new byte[_cnt];
-            _readBuf.position(0);
-            _readBuf.get(alreadyRead);
-            r = ByteBuffer.allocate(_cb.getBuffRemain() + _cnt);
-            r.put(_cb.getRemainBuffer());
-            r.put(alreadyRead);
-        } else {
-            r = _readBuf;
-        }
-
-        return r;
-    }
-
     /**
      * @param _sk SelectionKey
      * @param _act ACT
@@ -538,9 +509,10 @@ public class TaskInbound implements Runnable {
     private void handleResHandshake(int _nodeIdHash, String _binaryVersion) {
         INode node = nodeMgr.getOutboundNode(_nodeIdHash);
         if (node != null && node.getPeerMetric().notBan()) {
-            node.refreshTimestamp();
             node.setBinaryVersion(_binaryVersion);
+            // the timestamp still holds the connect time, used for the handshake latency
             nodeMgr.movePeerToActive(node.getIdHash(), "outbound");
+            node.refreshTimestamp();
         }
     }
 
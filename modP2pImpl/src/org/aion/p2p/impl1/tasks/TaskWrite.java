@@ -25,32 +25,41 @@ package org.aion.p2p.impl1.tasks;
 import static org.aion.p2p.impl1.P2pMgr.p2pLOG;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import org.aion.p2p.Header;
 import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.Msg;
 
 /**
+ * Queues a message on its channel and writes whatever the channel has waiting.
+ *
+ * <p>Messages are staged into pooled direct chunks and written with gathering writes. A writer
+ * never waits on a full socket buffer: it sets OP_WRITE on the channel key and the inbound
+ * selector finishes the write through {@link #flush(SelectionKey, ChannelBuffer, String,
+ * boolean)}. Messages queued for the same peer while another thread is writing are picked up by
+ * that thread and go out in the same gathering write.
+ *
  * @author chris
  */
 public class TaskWrite implements Runnable {
 
     private final String nodeShortId;
-    private final SocketChannel sc;
+    private final SelectionKey sk;
     private final Msg msg;
     private final ChannelBuffer channelBuffer;
     private final IP2pMgr p2pMgr;
 
     TaskWrite(
         final String _nodeShortId,
-        final SocketChannel _sc,
+        final SelectionKey _sk,
         final Msg _msg,
         final ChannelBuffer _cb,
         final IP2pMgr _p2pMgr) {
         this.nodeShortId = _nodeShortId;
-        this.sc = _sc;
+        this.sk = _sk;
         this.msg = _msg;
         this.channelBuffer = _cb;
         this.p2pMgr = _p2pMgr;
@@ -66,57 +75,95 @@ public class TaskWrite implements Runnable {
             return;
         }
 
-        try {
-            channelBuffer.lock.lock();
+        channelBuffer.pendingMsgs.offer(msg);
+        flush(sk, channelBuffer, nodeShortId, false);
+    }
+
+    /**
+     * Stages the queued messages of a channel and writes as much as the socket takes. Returns
+     * immediately if another thread is already doing so; that thread checks the queue again
+     * after releasing the channel lock.
+     *
+     * @param _writable true when called by the selector for an OP_WRITE readiness
+     */
+    static void flush(
+        final SelectionKey _sk,
+        final ChannelBuffer _cb,
+        final String _nodeShortId,
+        boolean _writable) {
+
+        while ((_writable || !_cb.pendingMsgs.isEmpty()) && _cb.lock.tryLock()) {
+            _writable = false;
+            try {
+                write(_sk, _cb, _nodeShortId);
+            } catch (Exception e) {
+                p2pLOG.error("TaskWrite exception {}", e.getMessage());
+            } finally {
+                _cb.lock.unlock();
+            }
+        }
+    }
+
+    private static void write(final SelectionKey _sk, final ChannelBuffer _cb,
+        final String _nodeShortId) {
+        if (_cb.isClosed()) {
+            _cb.clearOutbound();
+            return;
+        }
 
+        Msg m;
+        while ((m = _cb.pendingMsgs.poll()) != null) {
             /*
              * @warning header set len (body len) before header encode
              */
-            byte[] bodyBytes = msg.encode();
+            byte[] bodyBytes = m.encode();
             int bodyLen = bodyBytes == null ? 0 : bodyBytes.length;
-            Header h = msg.getHeader();
+            Header h = m.getHeader();
             h.setLen(bodyLen);
             byte[] headerBytes = h.encode();
 
-
             if (p2pLOG.isTraceEnabled()) {
-                p2pLOG.trace("write id:{} {}-{}-{}", nodeShortId, h.getVer(), h.getCtrl(), h.getAction());
-            }
-
-            ByteBuffer buf = ByteBuffer.allocate(headerBytes.length + bodyLen);
-            buf.put(headerBytes);
-            if (bodyBytes != null) {
-                buf.put(bodyBytes);
+                p2pLOG.trace("write id:{} {}-{}-{}", _nodeShortId, h.getVer(), h.getCtrl(),
+                    h.getAction());
             }
-            buf.flip();
 
-            try {
-                while (buf.hasRemaining()) {
-                    // @Attention:  very important sleep , otherwise when NIO write buffer full,
-                    // without sleep will hangup this thread.
-                    Thread.sleep(0, 1);
-                    sc.write(buf);
-                }
-            } catch (ClosedChannelException ex1) {
+            if (!_cb.stageOutbound(headerBytes, bodyBytes)) {
                 if (p2pLOG.isDebugEnabled()) {
-                    p2pLOG.debug("closed-channel-exception node={}", this.nodeShortId);
+                    p2pLOG.debug("write-queue-full node={} pending={}", _nodeShortId,
+                        _cb.getOutboundBytes());
                 }
+            }
+        }
 
-                channelBuffer.setClosed();
-            } catch (IOException ex2) {
-                if (p2pLOG.isDebugEnabled()) {
-                    p2pLOG.debug("write-msg-io-exception node={} err={}", this.nodeShortId,
-                        ex2.getMessage());
+        try {
+            boolean done = _cb.writeOutbound((SocketChannel) _sk.channel());
+            if (done == _cb.isWriteInterest()) {
+                // only wait for OP_WRITE while something is left to write
+                _cb.setWriteInterest(!done);
+                if (done) {
+                    _sk.interestOps(_sk.interestOps() & ~SelectionKey.OP_WRITE);
+                } else {
+                    _sk.interestOps(_sk.interestOps() | SelectionKey.OP_WRITE);
+                    _sk.selector().wakeup();
                 }
+            }
+        } catch (ClosedChannelException | CancelledKeyException ex1) {
+            if (p2pLOG.isDebugEnabled()) {
+                p2pLOG.debug("closed-channel-exception node={}", _nodeShortId);
+            }
 
-                if (ex2.getMessage().equals("Broken pipe")) {
-                    channelBuffer.setClosed();
-                }
+            _cb.setClosed();
+            _cb.clearOutbound();
+        } catch (IOException ex2) {
+            if (p2pLOG.isDebugEnabled()) {
+                p2pLOG.debug("write-msg-io-exception node={} err={}", _nodeShortId,
+                    ex2.getMessage());
+            }
+
+            if ("Broken pipe".equals(ex2.getMessage())) {
+                _cb.setClosed();
+                _cb.clearOutbound();
             }
-        } catch (Exception e) {
-            p2pLOG.error("TaskWrite exception {}", e.getMessage());
-        } finally {
-            channelBuffer.lock.unlock();
         }
     }
 }
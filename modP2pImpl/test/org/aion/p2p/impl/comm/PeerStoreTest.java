@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.p2p.impl.comm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.aion.base.util.Hex;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+
+public class PeerStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Logger log;
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        log = AionLoggerFactory.getLogger(LogEnum.P2P.name());
+        file = new File(folder.getRoot(), "peers");
+    }
+
+    private static Node node(String _ip, int _port) {
+        return new Node(false, UUID.randomUUID().toString().getBytes(), Node.ipStrToBytes(_ip),
+            _port);
+    }
+
+    @Test
+    public void testSaveAndLoadBestFirst() {
+        Node slow = node("10.0.0.1", 30303);
+        Node fast = node("10.0.0.2", 30303);
+        Node failing = node("10.0.0.3", 30303);
+        Node behind = node("10.0.0.4", 30303);
+        fast.updateStatus(100_000, new byte[32], BigInteger.ONE);
+        slow.updateStatus(100_000, new byte[32], BigInteger.ONE);
+        failing.updateStatus(100_000, new byte[32], BigInteger.ONE);
+        behind.updateStatus(10_000, new byte[32], BigInteger.ONE);
+
+        PeerStore store = new PeerStore(file, log);
+        store.seen(slow, 900);
+        store.seen(fast, 40);
+        store.seen(failing, 40);
+        store.failed(failing);
+        store.seen(behind, 40);
+        store.save();
+        assertTrue(file.isFile());
+
+        PeerStore reloaded = new PeerStore(file, log);
+        reloaded.load();
+        assertEquals(4, reloaded.size());
+
+        List<Node> best = reloaded.best(10);
+        assertEquals(4, best.size());
+        assertArrayEquals(fast.getId(), best.get(0).getId());
+        assertArrayEquals(slow.getId(), best.get(1).getId());
+        assertArrayEquals(failing.getId(), best.get(2).getId());
+        assertArrayEquals(behind.getId(), best.get(3).getId());
+        assertEquals("10.0.0.2", best.get(0).getIpStr());
+        assertEquals(30303, best.get(0).getPort());
+
+        assertEquals(2, reloaded.best(2).size());
+    }
+
+    @Test
+    public void testLoadSkipsStaleAndBrokenLines() throws IOException {
+        long now = System.currentTimeMillis();
+        String id = Hex.toHexString(UUID.randomUUID().toString().getBytes());
+        String stale = Hex.toHexString(UUID.randomUUID().toString().getBytes());
+        Files.write(file.toPath(), Arrays.asList(
+            "# node-id ip port last-seen latency best-block failures bans",
+            id + " 10.0.0.1 30303 " + now + " 50 10 0 0",
+            stale + " 10.0.0.2 30303 " + (now - PeerStore.MAX_AGE - 1) + " 50 10 0 0",
+            "not a peer",
+            id.substring(2) + " 10.0.0.3 30303 " + now + " 50 10 0 0",
+            stale + " 10.0.0.4 0 " + now + " 50 10 0 0"), StandardCharsets.UTF_8);
+
+        PeerStore store = new PeerStore(file, log);
+        store.load();
+        assertEquals(1, store.size());
+        assertEquals("10.0.0.1", store.best(10).get(0).getIpStr());
+    }
+
+    @Test
+    public void testMissingFileIsEmpty() {
+        PeerStore store = new PeerStore(new File(folder.getRoot(), "none"), log);
+        store.load();
+        assertEquals(0, store.size());
+        assertTrue(store.best(10).isEmpty());
+    }
+
+    @Test
+    public void testBannedPeerRanksLast() {
+        Node good = node("10.0.0.1", 30303);
+        Node banned = node("10.0.0.2", 30303);
+
+        PeerStore store = new PeerStore(file, log);
+        store.seen(banned, 10);
+        store.seen(good, 300);
+        store.banned(banned);
+
+        List<Node> best = store.best(10);
+        assertArrayEquals(good.getId(), best.get(0).getId());
+        assertArrayEquals(banned.getId(), best.get(1).getId());
+    }
+}
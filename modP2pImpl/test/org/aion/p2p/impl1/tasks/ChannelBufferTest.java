@@ -171,6 +171,32 @@ public class ChannelBufferTest {
         assertNull(cb.body);
     }
 
+    @Test
+    public void testReadBufferGrowsWithReceivedBytes() {
+        int bodyLen = 32 * 1024 * 1024;
+        ByteBuffer buf = cb.getReadBuffer();
+        buf.put(genHeader(bodyLen)).flip();
+        cb.readHead(buf);
+        assertEquals(bodyLen, cb.getHeader().getLen());
+
+        // the declared length alone does not grow the buffer
+        cb.compactReadBuffer();
+        assertEquals(ChannelBuffer.READ_BUFFER_SIZE, cb.getReadBufferCapacity());
+
+        // each time the body fills it, it doubles
+        int received = 0;
+        int cap = ChannelBuffer.READ_BUFFER_SIZE;
+        while (cap < bodyLen) {
+            buf = cb.getReadBuffer();
+            received += buf.remaining();
+            buf.position(buf.limit()).flip();
+            cb.compactReadBuffer();
+            cap = Math.min(cap * 2, bodyLen);
+            assertEquals(cap, cb.getReadBufferCapacity());
+            assertEquals(received, cb.getReadBuffer().position());
+        }
+    }
+
     @Test
     public void testShouldRoute() throws InterruptedException {
         assertTrue(cb.shouldRoute(1, 1));
@@ -22,17 +22,22 @@
 
 package org.aion.p2p.impl1.tasks;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedSelectorException;
@@ -48,10 +53,13 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.log.LogLevel;
+import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
 import org.aion.p2p.Header;
 import org.aion.p2p.INode;
@@ -181,7 +189,7 @@ public class TaskInboundTest {
         TaskInbound ti = new TaskInbound(p2pMgr, selector, atb, nodeMgr, ssc, hldrMap, msgOutQue, rhs1, msgInQue);
         assertNotNull(ti);
 
-        when(selector.selectNow()).thenReturn(0);
+        when(selector.select(anyLong())).thenReturn(0);
 
         Thread t = new Thread(ti);
         t.start();
@@ -198,7 +206,7 @@ public class TaskInboundTest {
         TaskInbound ti = new TaskInbound(p2pMgr, selector, atb, nodeMgr, ssc, hldrMap, msgOutQue, rhs1, msgInQue);
         assertNotNull(ti);
 
-        doThrow(ClosedSelectorException.class).when(selector).selectNow();
+        doThrow(ClosedSelectorException.class).when(selector).select(anyLong());
 
         Thread t = new Thread(ti);
         t.start();
@@ -217,7 +225,7 @@ public class TaskInboundTest {
             rhs1, msgInQue);
         assertNotNull(ti);
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
         when(selector.selectedKeys()).thenThrow(ClosedSelectorException.class);
 
         Thread t = new Thread(ti);
@@ -250,7 +258,7 @@ public class TaskInboundTest {
 
         when(sk3.attachment()).thenReturn(cb);
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -285,7 +293,7 @@ public class TaskInboundTest {
         when(p2pMgr.isSyncSeedsOnly()).thenReturn(true);
         when(nodeMgr.isSeedIp(anyString())).thenReturn(true);
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk2);
@@ -319,7 +327,7 @@ public class TaskInboundTest {
         when(nodeMgr.isSeedIp(anyString())).thenReturn(false);
         when(p2pMgr.getOutGoingIP()).thenReturn("0.0.0.0");
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk2);
@@ -359,7 +367,7 @@ public class TaskInboundTest {
         when(sc.register(any(), anyInt())).thenReturn(sk);
 
 
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -389,7 +397,7 @@ public class TaskInboundTest {
         when(sk.isValid()).thenReturn(true);
         when(sk.isReadable()).thenReturn(true);
         when(sk.attachment()).thenReturn(cb);
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -423,7 +431,7 @@ public class TaskInboundTest {
         when(sk.isValid()).thenReturn(true);
         when(sk.isReadable()).thenReturn(true);
         when(sk.attachment()).thenReturn(cb);
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -451,12 +459,8 @@ public class TaskInboundTest {
         // settings for readBuffer
         when(sk.channel()).thenReturn(sc);
         int read = r.nextInt(10000);
-        int remain = r.nextInt(10000);
         when(sc.read(any(ByteBuffer.class))).thenReturn(read).thenReturn(0);
-
-        //settings for calBuffer
-        when(cb.getBuffRemain()).thenReturn(remain);
-        when(cb.getRemainBuffer()).thenReturn(new byte[remain]);
+        when(cb.getReadBuffer()).thenReturn(ByteBuffer.allocate(ChannelBuffer.READ_BUFFER_SIZE));
 
         //settings for readMsg
         when(cb.isHeaderNotCompleted()).thenReturn(true);
@@ -470,7 +474,7 @@ public class TaskInboundTest {
         when(sk.isValid()).thenReturn(true);
         when(sk.isReadable()).thenReturn(true);
         when(sk.attachment()).thenReturn(cb);
-        when(selector.selectNow()).thenReturn(1);
+        when(selector.select(anyLong())).thenReturn(1);
 
         Set<SelectionKey> ss = new LinkedHashSet<>();
         ss.add(sk);
@@ -486,4 +490,87 @@ public class TaskInboundTest {
         Thread.sleep(100);
         assertEquals("TERMINATED", t.getState().toString());
     }
+
+    private static byte[] frame(byte _act, byte[] _body) {
+        int route = (Ctrl.SYNC << 8) + _act;
+        return ByteBuffer.allocate(Header.LEN + _body.length)
+            .putInt(route)
+            .putInt(_body.length)
+            .put(_body)
+            .array();
+    }
+
+    @Test(timeout = 30_000)
+    public void testReadMessagesSplitAcrossReads() throws Exception {
+        Selector sel = Selector.open();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        server.register(sel, SelectionKey.OP_ACCEPT);
+
+        when(p2pMgr.getMaxActiveNodes()).thenReturn(2);
+        when(p2pMgr.getOutGoingIP()).thenReturn("");
+        doAnswer(invocation -> {
+            ((SocketChannel) invocation.getArgument(0)).configureBlocking(false);
+            return null;
+        }).when(p2pMgr).configChannel(any(SocketChannel.class));
+        when(nodeMgr.allocNode(anyString(), anyInt())).thenReturn(node);
+        when(nodeMgr.getActiveNode(anyInt())).thenReturn(node);
+        when(node.getIdShort()).thenReturn("peer");
+        when(hldrMap.containsKey(anyInt())).thenReturn(true);
+
+        BlockingQueue<MsgIn> received = new LinkedBlockingQueue<>();
+        AtomicBoolean atb = new AtomicBoolean(true);
+        TaskInbound ti = new TaskInbound(p2pMgr, sel, atb, nodeMgr, server, hldrMap, msgOutQue,
+            rhs1, received);
+        Thread t = new Thread(ti);
+        t.start();
+
+        // larger than the initial framing buffer, which has to grow for it
+        byte[] small = new byte[100];
+        byte[] large = new byte[3 * ChannelBuffer.READ_BUFFER_SIZE + 7];
+        r.nextBytes(small);
+        r.nextBytes(large);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(frame((byte) 1, small));
+        stream.write(frame((byte) 2, large));
+        stream.write(frame((byte) 3, new byte[0]));
+        byte[] bytes = stream.toByteArray();
+
+        try (SocketChannel client = SocketChannel.open(server.getLocalAddress())) {
+            // odd sized writes, so that headers and bodies are split over several reads
+            int off = 0;
+            while (off < bytes.length) {
+                int len = Math.min(1 + r.nextInt(5000), bytes.length - off);
+                ByteBuffer buf = ByteBuffer.wrap(bytes, off, len);
+                while (buf.hasRemaining()) {
+                    client.write(buf);
+                }
+                off += len;
+                Thread.sleep(1);
+            }
+
+            MsgIn m = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(m);
+            assertEquals((Ctrl.SYNC << 8) + 1, m.getRoute());
+            assertArrayEquals(small, m.getMsg());
+
+            m = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(m);
+            assertEquals((Ctrl.SYNC << 8) + 2, m.getRoute());
+            assertArrayEquals(large, m.getMsg());
+
+            m = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(m);
+            assertEquals((Ctrl.SYNC << 8) + 3, m.getRoute());
+            assertEquals(0, m.getMsg().length);
+        } finally {
+            atb.set(false);
+            sel.wakeup();
+            t.join(5000);
+            server.close();
+            sel.close();
+        }
+    }
 }
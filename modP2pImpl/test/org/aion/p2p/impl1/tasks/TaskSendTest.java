@@ -89,7 +89,7 @@ public class TaskSendTest {
     @Test
     public void testRun() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pMgr, r.nextInt(lane), sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pMgr, r.nextInt(lane), sendMsgQue, atb, nodeMgr, new SelectorPool(selector));
         assertNotNull(ts);
 
         Thread t = new Thread(ts);
@@ -104,7 +104,7 @@ public class TaskSendTest {
     @Test
     public void testRunMsgOutTimeout() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pMgr, r.nextInt(lane), sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pMgr, r.nextInt(lane), sendMsgQue, atb, nodeMgr, new SelectorPool(selector));
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(r.nextInt(), "1", msg, Dest.OUTBOUND);
@@ -124,7 +124,7 @@ public class TaskSendTest {
     @Test
     public void testRunLane() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, new SelectorPool(selector));
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(1, "1", msg, Dest.OUTBOUND);
@@ -144,7 +144,7 @@ public class TaskSendTest {
     @Test
     public void testRun2() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, new SelectorPool(selector));
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.OUTBOUND);
@@ -175,7 +175,7 @@ public class TaskSendTest {
     @Test
     public void testRun3() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, new SelectorPool(selector));
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.ACTIVE);
@@ -206,7 +206,7 @@ public class TaskSendTest {
     @Test
     public void testRun4() throws InterruptedException, IOException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, new SelectorPool(selector));
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.INBOUND);
@@ -237,7 +237,7 @@ public class TaskSendTest {
     @Test
     public void testRunNullNode() throws InterruptedException {
         AtomicBoolean atb = new AtomicBoolean(true);
-        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, selector);
+        TaskSend ts = new TaskSend(p2pMgr, 0, sendMsgQue, atb, nodeMgr, new SelectorPool(selector));
         assertNotNull(ts);
 
         MsgOut mo = new MsgOut(0, "1", msg, Dest.INBOUND);
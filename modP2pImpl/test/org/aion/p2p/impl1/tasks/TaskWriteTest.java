@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *      This file is part of the aion network project.
+ *
+ *      The aion network project is free software: you can redistribute it
+ *      and/or modify it under the terms of the GNU General Public License
+ *      as published by the Free Software Foundation, either version 3 of
+ *      the License, or any later version.
+ *
+ *      The aion network project is distributed in the hope that it will
+ *      be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *      warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *      See the GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the aion network project source files.
+ *      If not, see <https://www.gnu.org/licenses/>.
+ *
+ *  Contributors:
+ *      Aion foundation.
+ */
+
+package org.aion.p2p.impl1.tasks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.log.LogLevel;
+import org.aion.p2p.Header;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class TaskWriteTest {
+
+    @Mock
+    private IP2pMgr p2pMgr;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private SocketChannel peer;
+    private SelectionKey sk;
+    private ChannelBuffer cb;
+
+    private Random r = new Random();
+
+    private static class TestMsg extends Msg {
+
+        private final byte[] body;
+
+        TestMsg(byte _act, byte[] _body) {
+            super((short) 0, (byte) 1, _act);
+            this.body = _body;
+        }
+
+        @Override
+        public byte[] encode() {
+            return body;
+        }
+    }
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        Map<String, String> logMap = new HashMap<>();
+        logMap.put(LogEnum.P2P.name(), LogLevel.INFO.name());
+        AionLoggerFactory.init(logMap);
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+
+        client = SocketChannel.open(server.getLocalAddress());
+        peer = server.accept();
+        peer.configureBlocking(false);
+
+        client.setOption(StandardSocketOptions.SO_SNDBUF, 4096);
+        client.configureBlocking(false);
+        cb = new ChannelBuffer();
+        sk = client.register(selector, SelectionKey.OP_READ, cb);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        client.close();
+        peer.close();
+        server.close();
+        selector.close();
+    }
+
+    private byte[] randomBytes(int len) {
+        byte[] bytes = new byte[len];
+        r.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] frame(Msg msg) {
+        byte[] body = msg.encode();
+        Header h = msg.getHeader();
+        h.setLen(body.length);
+        ByteBuffer buf = ByteBuffer.allocate(Header.LEN + body.length);
+        buf.put(h.encode()).put(body);
+        return buf.array();
+    }
+
+    /** Reads from the other end, finishing pending writes on OP_WRITE readiness like the selector. */
+    private byte[] readFromPeer(int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (buf.hasRemaining() && System.currentTimeMillis() < deadline) {
+            if (peer.read(buf) < 0) {
+                break;
+            }
+            if (selector.selectNow() > 0) {
+                if (sk.isWritable()) {
+                    TaskWrite.flush(sk, cb, "peer", true);
+                }
+                selector.selectedKeys().clear();
+            }
+        }
+        return buf.array();
+    }
+
+    @Test
+    public void testWriteCoalescesQueuedMessages() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 20; i++) {
+            Msg msg = new TestMsg((byte) i, randomBytes(r.nextInt(200)));
+            expected.write(frame(msg));
+            cb.pendingMsgs.offer(msg);
+        }
+
+        new TaskWrite("peer", sk, new TestMsg((byte) 20, new byte[0]), cb, p2pMgr).run();
+        expected.write(frame(new TestMsg((byte) 20, new byte[0])));
+
+        assertTrue(cb.pendingMsgs.isEmpty());
+        assertEquals(0, cb.getOutboundBytes());
+        assertFalse(cb.isWriteInterest());
+        assertArrayEquals(expected.toByteArray(), readFromPeer(expected.size()));
+    }
+
+    @Test
+    public void testPartialWriteWaitsForWritable() throws IOException {
+        // larger than the socket buffers, the peer is not reading yet
+        Msg msg = new TestMsg((byte) 1, randomBytes(8 * 1024 * 1024));
+        byte[] expected = frame(msg);
+
+        new TaskWrite("peer", sk, msg, cb, p2pMgr).run();
+
+        assertTrue(cb.isWriteInterest());
+        assertTrue((sk.interestOps() & SelectionKey.OP_WRITE) != 0);
+        assertTrue(cb.getOutboundBytes() > 0);
+
+        assertArrayEquals(expected, readFromPeer(expected.length));
+        assertFalse(cb.isWriteInterest());
+        assertEquals(SelectionKey.OP_READ, sk.interestOps());
+        assertEquals(0, cb.getOutboundBytes());
+    }
+
+    @Test
+    public void testQueueLimit() {
+        Msg big = new TestMsg((byte) 1, randomBytes(ChannelBuffer.MAX_OUTBOUND_BYTES));
+
+        cb.lock.lock();
+        try {
+            assertTrue(cb.stageOutbound(new byte[Header.LEN], big.encode()));
+            assertFalse(cb.stageOutbound(new byte[Header.LEN], new byte[1]));
+
+            cb.clearOutbound();
+            assertEquals(0, cb.getOutboundBytes());
+            assertTrue(cb.stageOutbound(new byte[Header.LEN], new byte[1]));
+        } finally {
+            cb.lock.unlock();
+        }
+    }
+
+    @Test
+    public void testClosedChannel() {
+        cb.setClosed();
+        new TaskWrite("peer", sk, new TestMsg((byte) 1, new byte[1]), cb, p2pMgr).run();
+
+        assertTrue(cb.pendingMsgs.isEmpty());
+        assertEquals(0, cb.getOutboundBytes());
+    }
+
+    @Test
+    public void testPoolReuse() {
+        DirectBufferPool pool = new DirectBufferPool(1);
+        ByteBuffer a = pool.acquire();
+        ByteBuffer b = pool.acquire();
+        assertTrue(a.isDirect());
+        assertEquals(DirectBufferPool.CHUNK_SIZE, a.capacity());
+
+        a.put((byte) 1);
+        pool.release(a);
+        pool.release(b);
+        assertEquals(1, pool.freeCount());
+
+        ByteBuffer c = pool.acquire();
+        assertTrue(c == a);
+        assertEquals(0, c.position());
+        assertEquals(0, pool.freeCount());
+    }
+}
@@ -712,7 +712,7 @@ public class RLP {
     }
 
     /** Utility function to convert Objects into byte arrays */
-    private static byte[] toBytes(Object input) {
+    static byte[] toBytes(Object input) {
         if (input instanceof byte[]) {
             return (byte[]) input;
         } else if (input instanceof String) {
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ */
+package org.aion.rlp;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import org.aion.base.util.ByteUtil;
+import org.aion.base.util.Hex;
+
+/**
+ * A read-only view of an RLP encoded element that references the original encoding instead of
+ * copying it.
+ *
+ * <p>Unlike {@link RLP#decode2(byte[])}, which copies every nested list and item into new arrays,
+ * a view only records offsets into the given buffer. The children of a list are located the first
+ * time they are accessed and item payloads are copied only when explicitly requested through
+ * {@link #bytes()} or {@link #encoded()}. Numeric values can be read directly from the buffer.
+ *
+ * <p>The encoding is validated lazily: malformed input results in a {@link RuntimeException} when
+ * the affected element is accessed. The backing array must not be modified while views over it are
+ * in use. Views are not thread-safe.
+ */
+public final class RLPView {
+
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private static final int[] NO_CHILDREN = new int[0];
+
+    private final byte[] data;
+    private final int offset;
+    private final int payloadOffset;
+    private final int payloadLength;
+    private final boolean list;
+
+    /** Offsets of the children of a list, computed on first access. */
+    private int[] children;
+
+    private int childCount;
+
+    private RLPView(byte[] data, int offset, int payloadOffset, int payloadLength, boolean list) {
+        this.data = data;
+        this.offset = offset;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+        this.list = list;
+    }
+
+    /**
+     * Creates a view over the first element encoded in the given data.
+     *
+     * @param data RLP encoded byte-array
+     * @return a view of the element starting at position {@code 0}
+     * @throws RuntimeException when the data is empty or the element exceeds its bounds
+     */
+    public static RLPView wrap(byte[] data) {
+        if (data == null) {
+            throw new IllegalArgumentException("The RLP encoded data cannot be null.");
+        }
+        return parse(data, 0, data.length);
+    }
+
+    /**
+     * Creates a view over the element that starts at the given position and ends before the given
+     * limit.
+     */
+    private static RLPView parse(byte[] data, int pos, int limit) {
+        if (pos >= limit) {
+            throw wrongEncoding(data, pos, limit);
+        }
+
+        int prefix = data[pos] & 0xFF;
+        int start, length;
+        boolean isList;
+
+        if (prefix < OFFSET_SHORT_ITEM) {
+            // single byte item
+            start = pos;
+            length = 1;
+            isList = false;
+        } else if (prefix <= OFFSET_LONG_ITEM) {
+            // item less than 56 bytes long
+            start = pos + 1;
+            length = prefix - OFFSET_SHORT_ITEM;
+            isList = false;
+        } else if (prefix < OFFSET_SHORT_LIST) {
+            // item with the length encoded after the prefix
+            int lengthOfLength = prefix - OFFSET_LONG_ITEM;
+            start = pos + 1 + lengthOfLength;
+            length = readLength(data, pos + 1, lengthOfLength, limit);
+            isList = false;
+        } else if (prefix <= OFFSET_LONG_LIST) {
+            // list with payload less than 56 bytes long
+            start = pos + 1;
+            length = prefix - OFFSET_SHORT_LIST;
+            isList = true;
+        } else {
+            // list with the length encoded after the prefix
+            int lengthOfLength = prefix - OFFSET_LONG_LIST;
+            start = pos + 1 + lengthOfLength;
+            length = readLength(data, pos + 1, lengthOfLength, limit);
+            isList = true;
+        }
+
+        if (start > limit || length > limit - start) {
+            throw wrongEncoding(data, pos, limit);
+        }
+
+        return new RLPView(data, pos, start, length, isList);
+    }
+
+    private static int readLength(byte[] data, int pos, int lengthOfLength, int limit) {
+        if (lengthOfLength > Integer.BYTES || pos + lengthOfLength > limit) {
+            throw wrongEncoding(data, pos - 1, limit);
+        }
+
+        int length = 0;
+        for (int i = 0; i < lengthOfLength; i++) {
+            length = (length << 8) | (data[pos + i] & 0xFF);
+        }
+        if (length < 0) {
+            throw wrongEncoding(data, pos - 1, limit);
+        }
+        return length;
+    }
+
+    private static RuntimeException wrongEncoding(byte[] data, int pos, int limit) {
+        int end = Math.min(Math.max(pos, limit), data.length);
+        int start = Math.min(pos, end);
+        return new RuntimeException(
+                "RLP wrong encoding (" + Hex.toHexString(data, start, end - start) + ")");
+    }
+
+    /** @return {@code true} if the element is a list, {@code false} if it is an item */
+    public boolean isList() {
+        return list;
+    }
+
+    /** @return the number of bytes in the payload of this element, excluding its prefix */
+    public int length() {
+        return payloadLength;
+    }
+
+    /** @return the number of bytes in the full encoding of this element, including its prefix */
+    public int encodedLength() {
+        return payloadOffset + payloadLength - offset;
+    }
+
+    /**
+     * @return the number of elements contained in this list
+     * @throws RuntimeException when this element is not a list
+     */
+    public int size() {
+        locateChildren();
+        return childCount;
+    }
+
+    /**
+     * Returns a view of the element at the given index in this list. The returned view shares the
+     * backing array of this view.
+     *
+     * @throws RuntimeException when this element is not a list
+     * @throws IndexOutOfBoundsException when the index is not within the size of the list
+     */
+    public RLPView get(int index) {
+        locateChildren();
+        if (index < 0 || index >= childCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + childCount);
+        }
+        return parse(data, children[index], payloadOffset + payloadLength);
+    }
+
+    private void locateChildren() {
+        if (children != null) {
+            return;
+        }
+        if (!list) {
+            throw new RuntimeException("The RLP element is an item, not a list.");
+        }
+
+        int limit = payloadOffset + payloadLength;
+        int[] offsets = payloadLength == 0 ? NO_CHILDREN : new int[8];
+        int count = 0;
+        int pos = payloadOffset;
+
+        while (pos < limit) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count << 1);
+            }
+            offsets[count++] = pos;
+            RLPView child = parse(data, pos, limit);
+            pos = child.payloadOffset + child.payloadLength;
+        }
+
+        childCount = count;
+        children = offsets;
+    }
+
+    /**
+     * Copies the payload of this element. For items this is the same as {@link
+     * RLPItem#getRLPData()}: the decoded value without its prefix.
+     *
+     * @return a new array containing the payload or an empty array for empty elements
+     */
+    public byte[] bytes() {
+        if (payloadLength == 0) {
+            return ByteUtil.EMPTY_BYTE_ARRAY;
+        }
+        return Arrays.copyOfRange(data, payloadOffset, payloadOffset + payloadLength);
+    }
+
+    /**
+     * Copies the full encoding of this element. For lists this is the same as {@link
+     * RLPList#getRLPData()}.
+     *
+     * @return a new array containing the prefix and the payload of this element
+     */
+    public byte[] encoded() {
+        return Arrays.copyOfRange(data, offset, payloadOffset + payloadLength);
+    }
+
+    /**
+     * Interprets the payload as an unsigned big-endian number and returns its lowest 64 bits,
+     * matching {@code new BigInteger(1, bytes()).longValue()} without copying the payload.
+     *
+     * @return the numeric value of the payload or {@code 0} for empty elements
+     */
+    public long asLong() {
+        long value = 0;
+        for (int i = payloadOffset, end = payloadOffset + payloadLength; i < end; i++) {
+            value = (value << 8) | (data[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Interprets the payload as an unsigned big-endian number.
+     *
+     * @return the numeric value of the payload or {@link BigInteger#ZERO} for empty elements
+     */
+    public BigInteger asBigInteger() {
+        if (payloadLength == 0) {
+            return BigInteger.ZERO;
+        }
+        return new BigInteger(1, data, payloadOffset, payloadLength);
+    }
+
+    @Override
+    public String toString() {
+        return (list ? "RLPView[list " : "RLPView[item ")
+                + Hex.toHexString(data, offset, encodedLength())
+                + "]";
+    }
+}
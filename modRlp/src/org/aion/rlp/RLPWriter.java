@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ */
+package org.aion.rlp;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import org.aion.base.util.ByteUtil;
+
+/**
+ * Streaming RLP encoder that writes directly into a single growable buffer.
+ *
+ * <p>The static {@code *Length} methods compute the size of an encoding without producing it.
+ * Callers use them to write the header of a list before its elements, so that nested structures
+ * are encoded in one pass without building and copying an intermediate array for each level, as
+ * {@link RLP#encodeList(byte[]...)} does. A writer created with the exact encoded length produces
+ * its result without any additional copy.
+ *
+ * <p>Every {@code write*} method produces the same bytes as the corresponding {@link RLP} encode
+ * method, except that {@link Value} objects that already hold their encoding are written as they
+ * are instead of being decoded and encoded again. A writer can be reused after calling {@link
+ * #reset()}. Writers are not thread-safe.
+ */
+public final class RLPWriter {
+
+    private static final int SIZE_THRESHOLD = 56;
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private byte[] buffer;
+    private int position;
+
+    public RLPWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity the initial size of the buffer; when it equals the final encoded
+     *     length, {@link #toByteArray()} returns the buffer without copying it
+     */
+    public RLPWriter(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("The capacity cannot be negative.");
+        }
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /** @return the number of bytes written since the last reset */
+    public int size() {
+        return position;
+    }
+
+    /** Discards the written bytes and keeps the buffer for reuse. */
+    public void reset() {
+        position = 0;
+    }
+
+    /**
+     * Returns the written bytes. When they fill the buffer exactly, the buffer itself is returned
+     * and the writer is reset with a new empty buffer. Otherwise a copy is returned and the writer
+     * is left unchanged.
+     */
+    public byte[] toByteArray() {
+        if (position == buffer.length) {
+            byte[] output = buffer;
+            buffer = ByteUtil.EMPTY_BYTE_ARRAY;
+            position = 0;
+            return output;
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = position + extra;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+        }
+    }
+
+    // LENGTHS
+
+    private static int lengthOfLength(int length) {
+        return length < SIZE_THRESHOLD ? 0 : Integer.BYTES - Integer.numberOfLeadingZeros(length) / 8;
+    }
+
+    /** @return the size of the encoding produced by {@link #writeElement(byte[])} */
+    public static int elementLength(byte[] data) {
+        if (data == null || data.length == 0) {
+            return 1;
+        } else if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            return 1;
+        } else {
+            return 1 + lengthOfLength(data.length) + data.length;
+        }
+    }
+
+    /** @return the size of the encoding produced by {@link #writeByte(byte)} */
+    public static int byteLength(byte value) {
+        return (value & 0xFF) < OFFSET_SHORT_ITEM ? 1 : 2;
+    }
+
+    /** @return the size of the encoding produced by {@link #writeLong(long)} */
+    public static int longLength(long value) {
+        if ((value & 0xFFFFFFFFL) != value) {
+            return 9;
+        }
+        return unsignedLength(value);
+    }
+
+    /** @return the size of the encoding produced by {@link #writeUnsigned(long)} */
+    public static int unsignedLength(long value) {
+        if (value < 0) {
+            return elementLength(Utils.asUnsignedByteArray(BigInteger.valueOf(value)));
+        } else if (value < OFFSET_SHORT_ITEM) {
+            return 1;
+        } else {
+            return 1 + Long.BYTES - Long.numberOfLeadingZeros(value) / 8;
+        }
+    }
+
+    /** @return the size of a list header for a payload of the given length */
+    public static int listHeaderLength(int payloadLength) {
+        return 1 + lengthOfLength(payloadLength);
+    }
+
+    /** @return the size of a list with a payload of the given length, including its header */
+    public static int listLength(int payloadLength) {
+        return listHeaderLength(payloadLength) + payloadLength;
+    }
+
+    /** @return the size of the encoding produced by {@link #writeObject(Object)} */
+    public static int objectLength(Object input) {
+        byte[] cached = cachedEncoding(input);
+        if (cached != null) {
+            return cached.length;
+        }
+
+        Object value = unwrap(input);
+        if (isList(value)) {
+            int payloadLength = 0;
+            for (Object element : (Object[]) value) {
+                payloadLength += objectLength(element);
+            }
+            return listLength(payloadLength);
+        } else {
+            byte[] data = toBytes(value);
+            if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+                return 1;
+            }
+            return 1 + lengthOfLength(data.length) + data.length;
+        }
+    }
+
+    // WRITING
+
+    private void writeHeader(int length, int shortOffset, int longOffset) {
+        if (length < SIZE_THRESHOLD) {
+            buffer[position++] = (byte) (shortOffset + length);
+        } else {
+            int byteNum = lengthOfLength(length);
+            buffer[position++] = (byte) (longOffset + byteNum);
+            for (int i = byteNum - 1; i >= 0; i--) {
+                buffer[position++] = (byte) (length >>> (8 * i));
+            }
+        }
+    }
+
+    /** Writes the given bytes as they are, e.g. an element that is already RLP encoded. */
+    public RLPWriter writeEncoded(byte[] encoded) {
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, buffer, position, encoded.length);
+        position += encoded.length;
+        return this;
+    }
+
+    /** Same as {@link RLP#encodeElement(byte[])}. */
+    public RLPWriter writeElement(byte[] data) {
+        if (data == null || data.length == 0) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) OFFSET_SHORT_ITEM;
+        } else if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            ensureCapacity(1);
+            buffer[position++] = data[0];
+        } else {
+            ensureCapacity(1 + lengthOfLength(data.length) + data.length);
+            writeHeader(data.length, OFFSET_SHORT_ITEM, OFFSET_LONG_ITEM);
+            System.arraycopy(data, 0, buffer, position, data.length);
+            position += data.length;
+        }
+        return this;
+    }
+
+    /** Same as {@link RLP#encodeByte(byte)}. */
+    public RLPWriter writeByte(byte value) {
+        ensureCapacity(2);
+        if (value == 0) {
+            buffer[position++] = (byte) OFFSET_SHORT_ITEM;
+        } else if ((value & 0xFF) < OFFSET_SHORT_ITEM) {
+            buffer[position++] = value;
+        } else {
+            buffer[position++] = (byte) (OFFSET_SHORT_ITEM + 1);
+            buffer[position++] = value;
+        }
+        return this;
+    }
+
+    /** Same as {@link RLP#encodeLong(long)}. */
+    public RLPWriter writeLong(long value) {
+        if ((value & 0xFFFFFFFFL) != value) {
+            ensureCapacity(9);
+            buffer[position++] = (byte) (OFFSET_SHORT_ITEM + Long.BYTES);
+            writeBigEndian(value, Long.BYTES);
+            return this;
+        }
+        return writeUnsigned(value);
+    }
+
+    /**
+     * Same as {@code RLP.encodeBigInteger(BigInteger.valueOf(value))}: non-negative values are
+     * written with the minimal number of bytes.
+     */
+    public RLPWriter writeUnsigned(long value) {
+        if (value < 0) {
+            return writeElement(Utils.asUnsignedByteArray(BigInteger.valueOf(value)));
+        }
+
+        ensureCapacity(Long.BYTES + 1);
+        if (value == 0) {
+            buffer[position++] = (byte) OFFSET_SHORT_ITEM;
+        } else if (value < OFFSET_SHORT_ITEM) {
+            buffer[position++] = (byte) value;
+        } else {
+            int byteNum = Long.BYTES - Long.numberOfLeadingZeros(value) / 8;
+            buffer[position++] = (byte) (OFFSET_SHORT_ITEM + byteNum);
+            writeBigEndian(value, byteNum);
+        }
+        return this;
+    }
+
+    private void writeBigEndian(long value, int byteNum) {
+        for (int i = byteNum - 1; i >= 0; i--) {
+            buffer[position++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    /** Same as {@link RLP#encodeBigInteger(BigInteger)}. */
+    public RLPWriter writeBigInteger(BigInteger value) {
+        if (value.signum() == 0) {
+            return writeByte((byte) 0);
+        }
+        return writeElement(Utils.asUnsignedByteArray(value));
+    }
+
+    /**
+     * Writes the header of a list. The caller must follow it with elements whose encodings add up
+     * to exactly the given payload length.
+     */
+    public RLPWriter writeListHeader(int payloadLength) {
+        ensureCapacity(listHeaderLength(payloadLength));
+        writeHeader(payloadLength, OFFSET_SHORT_LIST, OFFSET_LONG_LIST);
+        return this;
+    }
+
+    /**
+     * Same as {@link RLP#encode(Object)}: writes arrays of objects as lists and other supported
+     * values as items.
+     */
+    public RLPWriter writeObject(Object input) {
+        byte[] cached = cachedEncoding(input);
+        if (cached != null) {
+            return writeEncoded(cached);
+        }
+
+        Object value = unwrap(input);
+        if (isList(value)) {
+            Object[] elements = (Object[]) value;
+            int payloadLength = 0;
+            for (Object element : elements) {
+                payloadLength += objectLength(element);
+            }
+            writeListHeader(payloadLength);
+            for (Object element : elements) {
+                writeObject(element);
+            }
+        } else {
+            byte[] data = toBytes(value);
+            if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+                ensureCapacity(1);
+                buffer[position++] = data[0];
+            } else {
+                ensureCapacity(1 + lengthOfLength(data.length) + data.length);
+                writeHeader(data.length, OFFSET_SHORT_ITEM, OFFSET_LONG_ITEM);
+                System.arraycopy(data, 0, buffer, position, data.length);
+                position += data.length;
+            }
+        }
+        return this;
+    }
+
+    /** Values that were decoded or already encoded are written without re-encoding them. */
+    private static byte[] cachedEncoding(Object input) {
+        return input instanceof Value ? ((Value) input).getCachedEncoding() : null;
+    }
+
+    private static Object unwrap(Object input) {
+        return input instanceof Value ? ((Value) input).asObj() : input;
+    }
+
+    private static boolean isList(Object value) {
+        return value != null
+                && value.getClass().isArray()
+                && !value.getClass().getComponentType().isPrimitive();
+    }
+
+    private static byte[] toBytes(Object input) {
+        return RLP.toBytes(input);
+    }
+}
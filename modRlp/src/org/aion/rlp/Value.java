@@ -204,11 +204,25 @@ public class Value {
 
     public byte[] encode() {
         if (rlp == null) {
-            rlp = RLP.encode(value);
+            rlp = new RLPWriter(RLPWriter.objectLength(value)).writeObject(value).toByteArray();
         }
         return rlp;
     }
 
+    /** @return the RLP encoding if it is already known, {@code null} otherwise */
+    byte[] getCachedEncoding() {
+        return rlp;
+    }
+
+    /** Writes the RLP encoding of this value to the given writer. */
+    public void encodeTo(RLPWriter out) {
+        if (rlp == null) {
+            out.writeObject(value);
+        } else {
+            out.writeEncoded(rlp);
+        }
+    }
+
     public boolean cmp(Value o) {
         if (o == null) {
             return false;
@@ -0,0 +1,114 @@
+package org.aion.rlp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import org.aion.base.util.ByteUtil;
+import org.junit.Test;
+
+public class RLPViewTest {
+
+    private static byte[] sampleEncoding() {
+        byte[] longItem = new byte[300];
+        Arrays.fill(longItem, (byte) 0x5a);
+
+        byte[][] longList = new byte[20][];
+        for (int i = 0; i < longList.length; i++) {
+            longList[i] = RLP.encodeInt(i * 1000);
+        }
+
+        return RLP.encodeList(
+                RLP.encodeElement(ByteUtil.EMPTY_BYTE_ARRAY),
+                RLP.encodeByte((byte) 0x00),
+                RLP.encodeByte((byte) 0x7f),
+                RLP.encodeLong(Long.MAX_VALUE),
+                RLP.encodeElement(longItem),
+                RLP.encodeList(),
+                RLP.encodeList(longList),
+                RLP.encodeList(RLP.encodeList(RLP.encodeString("nested"))));
+    }
+
+    private static void assertSameStructure(RLPView view, RLPElement element) {
+        if (element instanceof RLPList) {
+            RLPList list = (RLPList) element;
+            assertThat(view.isList()).isTrue();
+            assertThat(view.encoded()).isEqualTo(list.getRLPData());
+            assertThat(view.size()).isEqualTo(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                assertSameStructure(view.get(i), list.get(i));
+            }
+        } else {
+            assertThat(view.isList()).isFalse();
+            assertThat(view.bytes()).isEqualTo(element.getRLPData());
+            assertThat(view.length()).isEqualTo(element.getRLPData().length);
+        }
+    }
+
+    @Test
+    public void testMatchesDecode2() {
+        byte[] encoded = sampleEncoding();
+
+        RLPView view = RLPView.wrap(encoded);
+        assertThat(view.encodedLength()).isEqualTo(encoded.length);
+        assertSameStructure(view, RLP.decode2(encoded).get(0));
+    }
+
+    @Test
+    public void testNumericValues() {
+        RLPView view = RLPView.wrap(sampleEncoding());
+
+        assertThat(view.get(0).asLong()).isEqualTo(0L);
+        assertThat(view.get(0).asBigInteger()).isEqualTo(BigInteger.ZERO);
+        assertThat(view.get(2).asLong()).isEqualTo(0x7fL);
+        assertThat(view.get(3).asLong()).isEqualTo(Long.MAX_VALUE);
+        assertThat(view.get(6).get(19).asLong()).isEqualTo(19000L);
+
+        BigInteger large = BigInteger.TWO.pow(100).add(BigInteger.TEN);
+        RLPView item = RLPView.wrap(RLP.encodeBigInteger(large));
+        assertThat(item.asBigInteger()).isEqualTo(large);
+        assertThat(item.asLong()).isEqualTo(large.longValue());
+    }
+
+    @Test
+    public void testChildViewsShareTheBuffer() {
+        byte[] encoded = sampleEncoding();
+        RLPView nested = RLPView.wrap(encoded).get(7).get(0);
+
+        assertThat(nested.get(0).bytes()).isEqualTo("nested".getBytes());
+
+        // views read the original buffer, so changes to it are visible
+        int position = encoded.length - 1;
+        encoded[position] = (byte) 'S';
+        assertThat(nested.get(0).bytes()).isEqualTo("nesteS".getBytes());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testSizeOfItem() {
+        RLPView.wrap(RLP.encodeString("item")).size();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        RLPView.wrap(RLP.encodeList(RLP.encodeInt(1))).get(1);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testEmptyInput() {
+        RLPView.wrap(ByteUtil.EMPTY_BYTE_ARRAY);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testTruncatedItem() {
+        byte[] encoded = RLP.encodeElement(new byte[100]);
+        RLPView.wrap(Arrays.copyOf(encoded, encoded.length - 1));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testTruncatedChild() {
+        byte[] encoded = RLP.encodeList(RLP.encodeString("first"), RLP.encodeString("second"));
+        // shrink the list payload so that the second child exceeds it
+        encoded[0] = (byte) (encoded[0] - 2);
+        RLPView.wrap(encoded).size();
+    }
+}
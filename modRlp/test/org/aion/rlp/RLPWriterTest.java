@@ -0,0 +1,134 @@
+package org.aion.rlp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import org.aion.base.util.ByteUtil;
+import org.junit.Test;
+
+public class RLPWriterTest {
+
+    private static final long[] LONGS = {
+        0L, 1L, 0x7fL, 0x80L, 0xffL, 0x100L, 0xffffL, 0x10000L, 0xffffffL, 0x1000000L,
+        0x7fffffffL, 0x80000000L, 0xffffffffL, 0x100000000L, Long.MAX_VALUE, -1L, Long.MIN_VALUE
+    };
+
+    private static byte[][] elements() {
+        byte[] longItem = new byte[1000];
+        Arrays.fill(longItem, (byte) 0x33);
+        return new byte[][] {
+            null,
+            ByteUtil.EMPTY_BYTE_ARRAY,
+            {0x00},
+            {0x7f},
+            {(byte) 0x80},
+            new byte[55],
+            new byte[56],
+            longItem
+        };
+    }
+
+    @Test
+    public void testWriteElement() {
+        for (byte[] element : elements()) {
+            byte[] expected = RLP.encodeElement(element);
+            assertThat(new RLPWriter().writeElement(element).toByteArray()).isEqualTo(expected);
+            assertThat(RLPWriter.elementLength(element)).isEqualTo(expected.length);
+        }
+    }
+
+    @Test
+    public void testWriteNumbers() {
+        for (long value : LONGS) {
+            byte[] expected = RLP.encodeLong(value);
+            assertThat(new RLPWriter().writeLong(value).toByteArray()).isEqualTo(expected);
+            assertThat(RLPWriter.longLength(value)).isEqualTo(expected.length);
+
+            expected = RLP.encodeBigInteger(BigInteger.valueOf(value));
+            assertThat(new RLPWriter().writeUnsigned(value).toByteArray()).isEqualTo(expected);
+            assertThat(RLPWriter.unsignedLength(value)).isEqualTo(expected.length);
+            assertThat(new RLPWriter().writeBigInteger(BigInteger.valueOf(value)).toByteArray())
+                    .isEqualTo(expected);
+        }
+
+        for (int value = -128; value < 128; value++) {
+            byte[] expected = RLP.encodeByte((byte) value);
+            assertThat(new RLPWriter().writeByte((byte) value).toByteArray()).isEqualTo(expected);
+            assertThat(RLPWriter.byteLength((byte) value)).isEqualTo(expected.length);
+        }
+    }
+
+    @Test
+    public void testWriteList() {
+        byte[][] elements = elements();
+        byte[][] encoded = new byte[elements.length][];
+        int payloadLength = 0;
+        for (int i = 0; i < elements.length; i++) {
+            encoded[i] = RLP.encodeElement(elements[i]);
+            payloadLength += encoded[i].length;
+        }
+        byte[] expected = RLP.encodeList(encoded);
+        assertThat(RLPWriter.listLength(payloadLength)).isEqualTo(expected.length);
+
+        RLPWriter writer = new RLPWriter(RLPWriter.listLength(payloadLength));
+        writer.writeListHeader(payloadLength);
+        for (byte[] element : elements) {
+            writer.writeElement(element);
+        }
+        assertThat(writer.size()).isEqualTo(expected.length);
+        assertThat(writer.toByteArray()).isEqualTo(expected);
+
+        // short and empty lists
+        assertThat(new RLPWriter().writeListHeader(0).toByteArray()).isEqualTo(RLP.encodeList());
+        assertThat(new RLPWriter().writeListHeader(3).writeEncoded(RLP.encodeString("ab")).toByteArray())
+                .isEqualTo(RLP.encodeList(RLP.encodeString("ab")));
+    }
+
+    @Test
+    public void testWriteObject() {
+        Object[] node =
+                new Object[] {
+                    "key".getBytes(),
+                    new Value(new Object[] {new byte[32], ByteUtil.EMPTY_BYTE_ARRAY, 7}),
+                    BigInteger.valueOf(300),
+                    new Object[0],
+                    new Object[] {new Value(new byte[100]), "x", 0L}
+                };
+
+        byte[] expected = RLP.encode(node);
+        assertThat(RLPWriter.objectLength(node)).isEqualTo(expected.length);
+        assertThat(new RLPWriter(1).writeObject(node).toByteArray()).isEqualTo(expected);
+        assertThat(new RLPWriter().writeObject(new Value(node)).toByteArray()).isEqualTo(expected);
+
+        // values holding their encoding are written without being decoded
+        Value decoded = Value.fromRlpEncoded(expected);
+        Object[] parent = new Object[] {decoded, new byte[] {1}};
+        expected = RLP.encode(parent);
+        assertThat(RLPWriter.objectLength(parent)).isEqualTo(expected.length);
+        assertThat(new RLPWriter().writeObject(parent).toByteArray()).isEqualTo(expected);
+        assertThat(new Value(parent).encode()).isEqualTo(expected);
+    }
+
+    @Test
+    public void testBufferReuse() {
+        byte[] expected = RLP.encodeElement(new byte[40]);
+
+        // exactly sized writers hand out their buffer
+        RLPWriter exact = new RLPWriter(expected.length);
+        byte[] first = exact.writeElement(new byte[40]).toByteArray();
+        assertThat(first).isEqualTo(expected);
+        assertThat(exact.size()).isEqualTo(0);
+        assertThat(exact.writeElement(new byte[40]).toByteArray()).isEqualTo(expected);
+
+        // other writers return copies and can be reset
+        RLPWriter writer = new RLPWriter(1024);
+        byte[] copy = writer.writeElement(new byte[40]).toByteArray();
+        assertThat(writer.size()).isEqualTo(expected.length);
+        writer.reset();
+        assertThat(writer.size()).isEqualTo(0);
+        writer.writeElement(new byte[] {1, 2});
+        assertThat(copy).isEqualTo(expected);
+        assertThat(writer.toByteArray()).isEqualTo(RLP.encodeElement(new byte[] {1, 2}));
+    }
+}
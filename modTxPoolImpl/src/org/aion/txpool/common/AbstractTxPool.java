@@ -38,6 +38,7 @@ import java.util.AbstractMap.SimpleEntry;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -88,6 +89,21 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
      */
     private final SortedMap<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> feeView = Collections
             .synchronizedSortedMap(new TreeMap<>(Collections.reverseOrder()));
+    /**
+     * priorityView : NavigableSet<TxDependList<ByteArrayWrapper>>
+     *
+     * every TxDependList held by the feeView, ordered by fee (descending), then by the timestamp and the arrival of
+     * its first transaction. It is updated together with the feeView so the snapshot can walk it without sorting.
+     */
+    private final NavigableSet<TxDependList<ByteArrayWrapper>> priorityView = new ConcurrentSkipListSet<>(
+            (a, b) -> {
+                int c = b.getFee().compareTo(a.getFee());
+                if (c == 0) {
+                    c = a.getTimeStamp().compareTo(b.getTimeStamp());
+                }
+                return c != 0 ? c : Long.compare(a.getSeq(), b.getSeq());
+            });
+    private final AtomicLong prioritySeq = new AtomicLong();
     /**
      * accountView : Map<ByteArrayWrapper, AccountState>
      *
@@ -126,6 +142,64 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
         return this.feeView;
     }
 
+    protected NavigableSet<TxDependList<ByteArrayWrapper>> getPriorityView() {
+        return this.priorityView;
+    }
+
+    protected void putFeeEntry(BigInteger fee, TxDependList<ByteArrayWrapper> txl) {
+        txl.setFee(fee);
+        txl.setSeq(this.prioritySeq.getAndIncrement());
+
+        synchronized (this.feeView) {
+            TxDependList<ByteArrayWrapper> old = this.feeView.computeIfAbsent(fee, k -> new LinkedHashMap<>())
+                    .put(txl.getTxList().get(0), txl);
+            if (old != null) {
+                this.priorityView.remove(old);
+            }
+            this.priorityView.add(txl);
+        }
+    }
+
+    protected void removeFeeEntry(BigInteger fee, ByteArrayWrapper firstTx) {
+        synchronized (this.feeView) {
+            Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> set = this.feeView.get(fee);
+            if (set == null) {
+                return;
+            }
+
+            TxDependList<ByteArrayWrapper> old = set.remove(firstTx);
+            if (old != null) {
+                this.priorityView.remove(old);
+            }
+
+            if (set.isEmpty()) {
+                this.feeView.remove(fee);
+            }
+        }
+    }
+
+    protected void removeFeeEntries(BigInteger fee, Address addr) {
+        synchronized (this.feeView) {
+            Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> set = this.feeView.get(fee);
+            if (set == null) {
+                return;
+            }
+
+            Iterator<TxDependList<ByteArrayWrapper>> it = set.values().iterator();
+            while (it.hasNext()) {
+                TxDependList<ByteArrayWrapper> txl = it.next();
+                if (txl.getAddress().equals(addr)) {
+                    it.remove();
+                    this.priorityView.remove(txl);
+                }
+            }
+
+            if (set.isEmpty()) {
+                this.feeView.remove(fee);
+            }
+        }
+    }
+
     protected AccountState getAccView(Address acc) {
 
         this.accountView.computeIfAbsent(acc, k -> new AccountState());
@@ -158,7 +232,10 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
     public void clear() {
         this.mainMap.clear();
         this.timeView.clear();
-        this.feeView.clear();
+        synchronized (this.feeView) {
+            this.feeView.clear();
+            this.priorityView.clear();
+        }
         this.accountView.clear();
         this.poolStateView.clear();
         this.outDated.clear();
@@ -335,21 +412,15 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
                                 txNonceStart = txNonceStart.add(BigInteger.valueOf(seqTxCountMax));
                             } else {
                                 // remove old poolState in the feeMap
-                                if (this.feeView.get(ps.getFee()) != null) {
-
-                                    if (e.getValue().getMap().get(ps.firstNonce) != null) {
-                                        this.feeView.get(ps.getFee())
-                                                .remove(e.getValue().getMap().get(ps.firstNonce).getKey());
-                                    }
+                                SimpleEntry<ByteArrayWrapper, BigInteger> first = e.getValue().getMap()
+                                        .get(ps.firstNonce);
+                                if (first != null) {
+                                    removeFeeEntry(ps.getFee(), first.getKey());
 
                                     if (LOG.isTraceEnabled()) {
                                         LOG.trace("AbstractTxPool.updateAccPoolState remove fn [{}]",
                                                 ps.firstNonce.toString());
                                     }
-
-                                    if (this.feeView.get(ps.getFee()).isEmpty()) {
-                                        this.feeView.remove(ps.getFee());
-                                    }
                                 }
                             }
                         }
@@ -491,24 +562,12 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
                         txl.setTimeStamp(timestamp);
                     }
 
-                    if (this.feeView.get(ps.fee) == null) {
-                        Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> set = new LinkedHashMap<>();
-                        set.put(txl.getTxList().get(0), txl);
-
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("updateFeeMap new feeView put fee[{}]", ps.fee);
-                        }
-
-                        this.feeView.put(ps.fee, set);
-                    } else {
-
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("updateFeeMap update feeView put fee[{}]", ps.fee);
-                        }
-
-                        this.feeView.get(ps.fee).put(txl.getTxList().get(0), txl);
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("updateFeeMap feeView put fee[{}]", ps.fee);
                     }
 
+                    putFeeEntry(ps.fee, txl);
+
                     ps.setInFeePool();
                 }
             }
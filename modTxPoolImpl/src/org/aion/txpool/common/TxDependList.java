@@ -35,6 +35,8 @@ public class TxDependList<BW> {
     private BW dependTx;
     private Address address;
     private BigInteger timeStamp;
+    private BigInteger fee;
+    private long seq;
 
     public TxDependList() {
         txList = new ArrayList<>();
@@ -80,6 +82,22 @@ public class TxDependList<BW> {
         this.timeStamp = timeStamp;
     }
 
+    public BigInteger getFee() {
+        return fee;
+    }
+
+    public void setFee(BigInteger fee) {
+        this.fee = fee;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
     public int compare(TxDependList<BW> td) {
         return timeStamp.compareTo(td.timeStamp);
     }
@@ -213,17 +213,7 @@ import java.util.stream.Collectors;
                 this.getPoolStateView(en1.getKey()).parallelStream().forEach(ps -> fee.add(ps.getFee()));
             }
 
-            fee.parallelStream().forEach(bi -> {
-                if (this.getFeeView().get(bi) != null) {
-                    this.getFeeView().get(bi).entrySet().removeIf(
-                            byteArrayWrapperTxDependListEntry -> byteArrayWrapperTxDependListEntry.getValue()
-                                    .getAddress().equals(en1.getKey()));
-
-                    if (this.getFeeView().get(bi).isEmpty()) {
-                        this.getFeeView().remove(bi);
-                    }
-                }
-            });
+            fee.forEach(bi -> removeFeeEntries(bi, en1.getKey()));
 
             as.setDirty();
         }
@@ -305,17 +295,7 @@ import java.util.stream.Collectors;
                     this.getPoolStateView(tx.getFrom()).parallelStream().forEach(ps -> fee.add(ps.getFee()));
                 }
 
-                fee.parallelStream().forEach(bi -> {
-                    if (this.getFeeView().get(bi) != null) {
-                        this.getFeeView().get(bi).entrySet().removeIf(
-                                byteArrayWrapperTxDependListEntry -> byteArrayWrapperTxDependListEntry.getValue()
-                                        .getAddress().equals(address));
-
-                        if (this.getFeeView().get(bi).isEmpty()) {
-                            this.getFeeView().remove(bi);
-                        }
-                    }
-                });
+                fee.forEach(bi -> removeFeeEntries(bi, address));
 
                 checkedAddress.add(address);
             }
@@ -415,30 +395,58 @@ import java.util.stream.Collectors;
         long cnt_nrg = 0;
         List<TX> rtn = new ArrayList<>();
         Set<ByteArrayWrapper> snapshotSet = new HashSet<>();
-        Map<ByteArrayWrapper, Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> nonPickedTx = new HashMap<>();
-        for (Entry<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> e : this.getFeeView()
-                .entrySet()) {
+        Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> nonPickedTx = new HashMap<>();
+
+        // the priorityView is already ordered by fee, timestamp and arrival
+        for (TxDependList<ByteArrayWrapper> txDep : this.getPriorityView()) {
 
             if (LOG.isTraceEnabled()) {
-                LOG.trace("snapshot  fee[{}]", e.getKey().toString());
+                LOG.trace("snapshot  fee[{}]", txDep.getFee().toString());
             }
 
-            SortedMap<BigInteger, Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> timeTxDep = Collections
-                    .synchronizedSortedMap(new TreeMap<>());
-            for (Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> pair : e.getValue().entrySet()) {
-                BigInteger ts = pair.getValue().getTimeStamp();
-                while (timeTxDep.get(ts.add(BigInteger.ONE)) != null) {
-                    ts = ts.add(BigInteger.ONE);
+            // Check the small nonce tx must been picked before put the high nonce tx
+            ByteArrayWrapper dependTx = txDep.getDependTx();
+            if (dependTx == null || snapshotSet.contains(dependTx)) {
+                boolean firstTx = true;
+                for (ByteArrayWrapper bw : txDep.getTxList()) {
+                    ITransaction itx = this.getMainMap().get(bw).getTx();
+
+                    cnt_txSz += itx.getEncoded().length;
+                    cnt_nrg += itx.getNrgConsume();
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
+                                itx.getFrom().toString(), itx.getNonceBI().toString(), itx.getEncoded().length,
+                                itx.getNrgConsume());
+                    }
+
+                    if (cnt_txSz < blkSizeLimit && cnt_nrg < blkNrgLimit.get()) {
+                        try {
+                            rtn.add((TX) itx.clone());
+                            if (firstTx) {
+                                snapshotSet.add(bw);
+                                firstTx = false;
+                            }
+                        } catch (Exception ex) {
+                            if (LOG.isErrorEnabled()) {
+                                LOG.error("TxPoolA0.snapshot  exception[{}], return [{}] TX", ex.toString(),
+                                        rtn.size());
+                            }
+                            return rtn;
+                        }
+                    } else {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Reach blockLimit: txSize[{}], nrgConsume[{}], tx#[{}]", cnt_txSz, cnt_nrg,
+                                    rtn.size());
+                        }
+
+                        return rtn;
+                    }
                 }
-                timeTxDep.put(ts, pair);
-            }
 
-            for (Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> pair : timeTxDep.values()) {
-                // Check the small nonce tx must been picked before put the high nonce tx
-                ByteArrayWrapper dependTx = pair.getValue().getDependTx();
-                if (dependTx == null || snapshotSet.contains(dependTx)) {
-                    boolean firstTx = true;
-                    for (ByteArrayWrapper bw : pair.getValue().getTxList()) {
+                ByteArrayWrapper ancestor = txDep.getTxList().get(0);
+                while (nonPickedTx.get(ancestor) != null) {
+                    firstTx = true;
+                    for (ByteArrayWrapper bw : nonPickedTx.get(ancestor).getTxList()) {
                         ITransaction itx = this.getMainMap().get(bw).getTx();
 
                         cnt_txSz += itx.getEncoded().length;
@@ -464,58 +472,19 @@ import java.util.stream.Collectors;
                                 return rtn;
                             }
                         } else {
-                            if (LOG.isDebugEnabled()) {
-                                LOG.debug("Reach blockLimit: txSize[{}], nrgConsume[{}], tx#[{}]", cnt_txSz, cnt_nrg,
-                                        rtn.size());
+                            if (LOG.isInfoEnabled()) {
+                                LOG.info("TxPoolA0.snapshot return Tx[{}] TxSize[{}] Nrg[{}] Pool[{}]", rtn.size(), cnt_txSz, cnt_nrg, getMainMap().size());
                             }
 
                             return rtn;
                         }
                     }
 
-                    ByteArrayWrapper ancestor = pair.getKey();
-                    while (nonPickedTx.get(ancestor) != null) {
-                        firstTx = true;
-                        for (ByteArrayWrapper bw : nonPickedTx.get(ancestor).getValue().getTxList()) {
-                            ITransaction itx = this.getMainMap().get(bw).getTx();
-
-                            cnt_txSz += itx.getEncoded().length;
-                            cnt_nrg += itx.getNrgConsume();
-                            if (LOG.isTraceEnabled()) {
-                                LOG.trace("from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
-                                        itx.getFrom().toString(), itx.getNonceBI().toString(), itx.getEncoded().length,
-                                        itx.getNrgConsume());
-                            }
-
-                            if (cnt_txSz < blkSizeLimit && cnt_nrg < blkNrgLimit.get()) {
-                                try {
-                                    rtn.add((TX) itx.clone());
-                                    if (firstTx) {
-                                        snapshotSet.add(bw);
-                                        firstTx = false;
-                                    }
-                                } catch (Exception ex) {
-                                    if (LOG.isErrorEnabled()) {
-                                        LOG.error("TxPoolA0.snapshot  exception[{}], return [{}] TX", ex.toString(),
-                                                rtn.size());
-                                    }
-                                    return rtn;
-                                }
-                            } else {
-                                if (LOG.isInfoEnabled()) {
-                                    LOG.info("TxPoolA0.snapshot return Tx[{}] TxSize[{}] Nrg[{}] Pool[{}]", rtn.size(), cnt_txSz, cnt_nrg, getMainMap().size());
-                                }
-
-                                return rtn;
-                            }
-                        }
-
-                        ancestor = nonPickedTx.get(ancestor).getKey();
-                    }
-                } else {
-                    // one low fee small nonce tx has been picked,and then search from this map.
-                    nonPickedTx.put(pair.getValue().getDependTx(), pair);
+                    ancestor = nonPickedTx.get(ancestor).getTxList().get(0);
                 }
+            } else {
+                // one low fee small nonce tx has been picked,and then search from this map.
+                nonPickedTx.put(txDep.getDependTx(), txDep);
             }
         }
 
@@ -539,13 +508,14 @@ import java.util.stream.Collectors;
         long ts = TimeInstant.now().toEpochSec() - txn_timeout;
         List<TX> txl = Collections.synchronizedList(new ArrayList<>());
 
-        this.getTimeView().entrySet().parallelStream().forEach(e -> {
-            if (e.getKey() < ts) {
-                for (ByteArrayWrapper bw : e.getValue()) {
+        // the timeView is sorted, so only the expired head of it has to be visited
+        synchronized (this.getTimeView()) {
+            for (LinkedHashSet<ByteArrayWrapper> lhs : this.getTimeView().headMap(ts).values()) {
+                for (ByteArrayWrapper bw : lhs) {
                     txl.add(this.getMainMap().get(bw).getTx());
                 }
             }
-        });
+        }
 
         if (txl.isEmpty()) {
             return;
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.txpool.test;
+
+import org.aion.base.type.Address;
+import org.aion.base.type.ITransaction;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.txpool.zero.TxPoolA0;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.spongycastle.pqc.math.linearalgebra.ByteUtils;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Throughput of add, snapshot and remove on pools of 10k to 1M pending transactions.
+ * The first snapshot sorts everything that was added, the following ones only walk the
+ * priority view, which is the case a miner hits on every new block template.
+ */
+public class TxPoolBenchmark {
+
+    private static final int ACCOUNTS = 1000;
+    private static final int[] POOL_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int SNAPSHOTS = 10;
+
+    private static List<ECKey> keys;
+
+    @Before
+    public void setup() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+
+        if (keys == null) {
+            keys = new ArrayList<>();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                keys.add(ECKeyFac.inst().create());
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkPoolThroughput() {
+        for (int size : POOL_SIZES) {
+            run(size);
+        }
+    }
+
+    private void run(int size) {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+        List<ITransaction> txnl = genTransactions(size / ACCOUNTS);
+
+        System.out.println("pool size " + size + " --");
+
+        long start = System.nanoTime();
+        tp.add(txnl);
+        long addTime = System.nanoTime() - start;
+        assertEquals(size, tp.size());
+        report("add", size, addTime);
+
+        start = System.nanoTime();
+        List<ITransaction> picked = tp.snapshot();
+        report("first snapshot", 1, System.nanoTime() - start);
+        assertTrue(!picked.isEmpty());
+
+        start = System.nanoTime();
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            tp.snapshot();
+        }
+        report("snapshot", SNAPSHOTS, System.nanoTime() - start);
+
+        // drop what the last template included, as the pending state does after a block import
+        Map<Address, BigInteger> accNonce = new HashMap<>();
+        for (ITransaction tx : picked) {
+            accNonce.merge(tx.getFrom(), tx.getNonceBI().add(BigInteger.ONE), BigInteger::max);
+        }
+
+        start = System.nanoTime();
+        List<ITransaction> removed = tp.remove(accNonce);
+        report("remove", removed.size(), System.nanoTime() - start);
+        assertEquals(size - removed.size(), tp.size());
+
+        start = System.nanoTime();
+        tp.snapshot();
+        report("snapshot after remove", 1, System.nanoTime() - start);
+    }
+
+    private List<ITransaction> genTransactions(int perAccount) {
+        List<ITransaction> txnl = new ArrayList<>();
+        for (ECKey key : keys) {
+            Address acc = Address.wrap(key.getAddress());
+            for (int i = 0; i < perAccount; i++) {
+                ITransaction txn = new AionTransaction(BigInteger.valueOf(i).toByteArray(), acc,
+                        Address.wrap("0000000000000000000000000000000000000000000000000000000000000001"),
+                        ByteUtils.fromHexString("1"), ByteUtils.fromHexString("1"), 10000L, 1L + (i & 7));
+                ((AionTransaction) txn).sign(key);
+                txn.setNrgConsume(100L);
+                txnl.add(txn);
+            }
+        }
+        return txnl;
+    }
+
+    private static void report(String op, int cnt, long nanos) {
+        System.out.println(String.format("%-22s %8d ops %10.2f ms %12.0f ops/s", op, cnt, nanos / 1e6,
+                cnt * 1e9 / Math.max(nanos, 1)));
+    }
+}
@@ -47,6 +47,7 @@ public abstract class AbstractExecutor {
     protected IExecutionResult exeResult;
     private long blockRemainingNrg;
     private boolean askNonce = true;
+    private boolean exclusive = true;
 
     public AbstractExecutor(IRepository _repo, boolean _localCall, long _blkRemainingNrg,
         Logger _logger) {
@@ -58,38 +59,45 @@ public abstract class AbstractExecutor {
     }
 
     protected ITxExecSummary execute(ITransaction tx, long contextNrgLmit) {
+        if (!exclusive) {
+            return executeUnlocked(tx, contextNrgLmit);
+        }
         synchronized (lock) {
-            // prepare, preliminary check
-            if (prepare(tx, contextNrgLmit)) {
-
-                if (!isLocalCall) {
-                    IRepositoryCache track = repo.startTracking();
-                    // increase nonce
-                    if (askNonce) {
-                        track.incrementNonce(tx.getFrom());
-                    }
-
-                    // charge nrg cost
-                    // Note: if the tx is a inpool tx, it will temp charge more balance for the account
-                    // once the block info been updated. the balance in pendingPool will correct.
-                    BigInteger nrgLimit = BigInteger.valueOf(tx.getNrg());
-                    BigInteger nrgPrice = BigInteger.valueOf(tx.getNrgPrice());
-                    BigInteger txNrgCost = nrgLimit.multiply(nrgPrice);
-                    track.addBalance(tx.getFrom(), txNrgCost.negate());
-                    track.flush();
-                }
+            return executeUnlocked(tx, contextNrgLmit);
+        }
+    }
+
+    private ITxExecSummary executeUnlocked(ITransaction tx, long contextNrgLmit) {
+        // prepare, preliminary check
+        if (prepare(tx, contextNrgLmit)) {
 
-                // run the logic
-                if (tx.isContractCreation()) {
-                    create();
-                } else {
-                    call();
+            if (!isLocalCall) {
+                IRepositoryCache track = repo.startTracking();
+                // increase nonce
+                if (askNonce) {
+                    track.incrementNonce(tx.getFrom());
                 }
+
+                // charge nrg cost
+                // Note: if the tx is a inpool tx, it will temp charge more balance for the account
+                // once the block info been updated. the balance in pendingPool will correct.
+                BigInteger nrgLimit = BigInteger.valueOf(tx.getNrg());
+                BigInteger nrgPrice = BigInteger.valueOf(tx.getNrgPrice());
+                BigInteger txNrgCost = nrgLimit.multiply(nrgPrice);
+                track.addBalance(tx.getFrom(), txNrgCost.negate());
+                track.flush();
             }
 
-            // finalize
-            return finish();
+            // run the logic
+            if (tx.isContractCreation()) {
+                create();
+            } else {
+                call();
+            }
         }
+
+        // finalize
+        return finish();
     }
 
     /**
@@ -171,6 +179,14 @@ public abstract class AbstractExecutor {
         this.askNonce = false;
     }
 
+    /**
+     * Tells the executor that the transaction runs no contract code, so execute does not need to
+     * hold the lock shared by all executors and may run concurrently with other executions.
+     */
+    public void setBypassLock() {
+        this.exclusive = false;
+    }
+
     /**
      * Returns the energy remaining after the transaction was executed. Prior to execution this
      * method simply returns the energy limit for the transaction.